@@ -16,10 +16,15 @@
  */
 package org.apache.sling.commons.compiler;
 
+import java.util.Set;
+
+import aQute.bnd.annotation.ProviderType;
+
 /**
  * The <code>JavaCompiler</code> provides platform independant Java
  * compilation support.
  */
+@ProviderType
 public interface JavaCompiler {
 
     /**
@@ -37,4 +42,18 @@ public interface JavaCompiler {
      */
     CompilationResult compile(CompilationUnit[] units,
                               Options options);
+
+    /**
+     * Return the names of all classes compiled by this compiler which
+     * directly or indirectly depend on one of the given classes.
+     * If a class changes, for example because a bundle has been
+     * updated, only these classes need to be recompiled.
+     * Only the classes compiled since this compiler has been started
+     * are known, classes compiled before are never returned.
+     *
+     * @param classNames The fully qualified names of the changed classes.
+     * @return The names of the dependent classes, never <code>null</code>.
+     * @since 2.2
+     */
+    Set<String> getDependents(String... classNames);
 }
@@ -76,6 +76,13 @@ public class Options extends HashMap<String, Object> {
      * The value should be of type Boolean. */
     public static final String KEY_IGNORE_WARNINGS = "ignoreWarnings";
 
+    /** The key to compile incrementally - if this option is turned on,
+     * only the outdated compilation units and the units of the same
+     * batch depending on them are compiled, instead of all units.
+     * The value should be of type Boolean.
+     * @since 2.2 */
+    public static final String KEY_INCREMENTAL = "incremental";
+
     /**
      * Default options with the following presets:
      * - generate debug info : true
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * The <code>DependencyIndex</code> records the type references of every
+ * compiled class and answers which classes need to be recompiled if
+ * other classes change.
+ *
+ * A class is considered to depend on a type if it references the package
+ * of the type and the simple name of the type. This is the same check the
+ * incremental builder of the Eclipse compiler is using: the package is
+ * looked up in the qualified references, unless it is a single segment
+ * which the compiler only records as a simple name reference.
+ */
+public class DependencyIndex {
+
+    /** The references of all compiled classes, keyed by class name. */
+    private final Map<String, References> references = new HashMap<String, References>();
+
+    /**
+     * Record the references of a compiled class.
+     * Previously recorded references of this class are replaced.
+     */
+    public synchronized void record(final String className,
+                                    final char[][][] qualifiedReferences,
+                                    final char[][] simpleNameReferences) {
+        final Set<String> packages = new HashSet<String>();
+        if ( qualifiedReferences != null ) {
+            for(final char[][] name : qualifiedReferences) {
+                packages.add(CharOperation.toString(name));
+            }
+        }
+        final Set<String> simpleNames = new HashSet<String>();
+        if ( simpleNameReferences != null ) {
+            for(final char[] name : simpleNameReferences) {
+                simpleNames.add(new String(name));
+            }
+        }
+        this.references.put(className, new References(packages, simpleNames));
+    }
+
+    /**
+     * Have the references of the class been recorded?
+     */
+    public synchronized boolean contains(final String className) {
+        return this.references.containsKey(className);
+    }
+
+    /**
+     * Remove the recorded references of a class.
+     */
+    public synchronized void remove(final String className) {
+        this.references.remove(className);
+    }
+
+    /**
+     * Return all recorded classes which directly or indirectly
+     * depend on one of the given classes. The given classes
+     * are not part of the result.
+     */
+    public synchronized Set<String> getDependents(final String... classNames) {
+        final Set<String> result = new HashSet<String>();
+        final List<String> changed = new ArrayList<String>();
+        for(final String name : classNames) {
+            changed.add(name);
+        }
+        final Set<String> visited = new HashSet<String>(changed);
+        while ( !changed.isEmpty() ) {
+            final String name = changed.remove(changed.size() - 1);
+            final String typeName = getTopLevelName(name);
+            final int pos = typeName.lastIndexOf('.');
+            final String packageName = (pos == -1 ? "" : typeName.substring(0, pos));
+            final String simpleName = typeName.substring(pos + 1);
+            for(final Map.Entry<String, References> entry : this.references.entrySet()) {
+                if ( !visited.contains(entry.getKey()) && entry.getValue().includes(packageName, simpleName) ) {
+                    visited.add(entry.getKey());
+                    result.add(entry.getKey());
+                    changed.add(entry.getKey());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Nested classes are recorded as references to their top level class.
+     */
+    private static String getTopLevelName(final String className) {
+        final int pos = className.indexOf('$');
+        return (pos == -1 ? className : className.substring(0, pos));
+    }
+
+    private static final class References {
+
+        private final Set<String> packages;
+
+        private final Set<String> simpleNames;
+
+        public References(final Set<String> packages, final Set<String> simpleNames) {
+            this.packages = packages;
+            this.simpleNames = simpleNames;
+        }
+
+        public boolean includes(final String packageName, final String simpleName) {
+            if ( !this.simpleNames.contains(simpleName) ) {
+                return false;
+            }
+            if ( packageName.length() == 0 ) {
+                return true;
+            }
+            // single segment names are only recorded as simple names
+            if ( packageName.indexOf('.') == -1 ) {
+                return this.simpleNames.contains(packageName);
+            }
+            return this.packages.contains(packageName);
+        }
+    }
+}
@@ -23,9 +23,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
@@ -73,6 +77,12 @@ public class EclipseJavaCompiler implements JavaCompiler {
     /** the static policy. */
     private final IErrorHandlingPolicy policy = DefaultErrorHandlingPolicies.proceedWithAllProblems();
 
+    /** The class files and packages looked up through the class loaders. */
+    private final NameEnvironmentCache nameEnvironmentCache = new NameEnvironmentCache();
+
+    /** The references of the compiled classes. */
+    private final DependencyIndex dependencyIndex = new DependencyIndex();
+
     /**
      * Get the classloader for the compilation.
      */
@@ -150,12 +160,67 @@ public class EclipseJavaCompiler implements JavaCompiler {
         return false;
     }
 
+    /**
+     * Return the incremental compilation value
+     */
+    private boolean isIncremental(final Options options) {
+        final Boolean flag = (Boolean)options.get(Options.KEY_INCREMENTAL);
+        if ( flag != null ) {
+            return flag;
+        }
+        return false;
+    }
+
+    /**
+     * Select the units to compile incrementally: the outdated units
+     * and all units of the batch which depend on them.
+     * The references are only known for units compiled since this
+     * compiler has been started, if a unit of the batch is unknown
+     * all units are compiled.
+     */
+    private CompilationUnit[] getIncrementalUnits(final CompilationUnit[] units,
+                                                  final ClassLoaderWriter writer) {
+        final List<String> outdated = new ArrayList<String>();
+        for(final CompilationUnit unit : units) {
+            if ( this.isOutDated(unit, writer) ) {
+                outdated.add(unit.getMainClassName());
+            }
+        }
+        if ( outdated.isEmpty() ) {
+            return null;
+        }
+        for(final CompilationUnit unit : units) {
+            if ( !this.dependencyIndex.contains(unit.getMainClassName()) ) {
+                logger.debug("References of {} are unknown - compiling all {} units.", unit.getMainClassName(), units.length);
+                return units;
+            }
+        }
+        final Set<String> names = new HashSet<String>(outdated);
+        names.addAll(this.dependencyIndex.getDependents(outdated.toArray(new String[outdated.size()])));
+
+        final List<CompilationUnit> result = new ArrayList<CompilationUnit>();
+        for(final CompilationUnit unit : units) {
+            if ( names.contains(unit.getMainClassName()) ) {
+                result.add(unit);
+            }
+        }
+        logger.debug("Compiling {} of {} units incrementally.", result.size(), units.length);
+        return result.toArray(new CompilationUnit[result.size()]);
+    }
+
+    /**
+     * @see org.apache.sling.commons.compiler.JavaCompiler#getDependents(java.lang.String[])
+     */
+    public Set<String> getDependents(final String... classNames) {
+        return this.dependencyIndex.getDependents(classNames);
+    }
+
     private static final Options EMPTY_OPTIONS = new Options();
 
     /**
      * @see org.apache.sling.commons.compiler.JavaCompiler#compile(org.apache.sling.commons.compiler.CompilationUnit[], org.apache.sling.commons.compiler.Options)
      */
-    public CompilationResult compile(final CompilationUnit[] units,
+    public CompilationResult compile(final CompilationUnit[] allUnits,
                                      final Options compileOptions) {
         // make sure we have an options object (to avoid null checks all over the place)
         final Options options = (compileOptions != null ? compileOptions : EMPTY_OPTIONS);
@@ -171,8 +236,12 @@ public class EclipseJavaCompiler implements JavaCompiler {
         }
 
         // check sources for compilation
+        CompilationUnit[] units = allUnits;
         boolean needsCompilation = isForceCompilation(options);
-        if ( !needsCompilation ) {
+        if ( !needsCompilation && isIncremental(options) ) {
+            units = this.getIncrementalUnits(allUnits, writer);
+            needsCompilation = units != null;
+        } else if ( !needsCompilation ) {
             for(final CompilationUnit unit : units) {
                 if ( this.isOutDated(unit, writer) ) {
                     needsCompilation = true;
@@ -186,9 +255,11 @@ public class EclipseJavaCompiler implements JavaCompiler {
         }
 
         // delete old class files
+        final NameEnvironmentCache.Entry cache = this.nameEnvironmentCache.getEntry(loader);
         for(final CompilationUnit unit : units) {
             final String name = '/' + unit.getMainClassName().replace('.', '/') + ".class";
             writer.delete(name);
+            this.nameEnvironmentCache.remove(unit.getMainClassName());
         }
 
         // create properties for the settings object
@@ -209,12 +280,14 @@ public class EclipseJavaCompiler implements JavaCompiler {
 
         // create the settings
         final CompilerOptions settings = new CompilerOptions(props);
+        // record the references for the dependency index
+        settings.produceReferenceInfo = true;
         logger.debug("Compiling with settings {}.", settings);
 
         // create the result
         final CompilationResultImpl result = new CompilationResultImpl(isIgnoreWarnings(options), writer);
         // create the context
-        final CompileContext context = new CompileContext(units, result, writer, loader);
+        final CompileContext context = new CompileContext(units, result, writer, loader, cache);
 
         // create the compiler
         final org.eclipse.jdt.internal.compiler.Compiler compiler =
@@ -242,11 +315,19 @@ public class EclipseJavaCompiler implements JavaCompiler {
         private final CompilationResultImpl errorHandler;
         private final ClassLoaderWriter classLoaderWriter;
         private final ClassLoader classLoader;
+        private final NameEnvironmentCache.Entry cache;
+
+        /** Classes which have not been found during this compilation. */
+        private final Set<String> missingClasses = new HashSet<String>();
+
+        /** Names which are packages during this compilation. */
+        private final Set<String> packages = new HashSet<String>();
 
         public CompileContext(final CompilationUnit[] units,
          		              final CompilationResultImpl errorHandler,
         		              final ClassLoaderWriter classWriter,
-        		              final ClassLoader classLoader) {
+        		              final ClassLoader classLoader,
+        		              final NameEnvironmentCache.Entry cache) {
         	this.compUnits = new HashMap<String,ICompilationUnit>();
             for (int i = 0; i < units.length; i++) {
                 CompilationUnitAdapter cua = new CompilationUnitAdapter(units[i], errorHandler);
@@ -257,6 +338,7 @@ public class EclipseJavaCompiler implements JavaCompiler {
         	this.errorHandler = errorHandler;
             this.classLoaderWriter = classWriter;
             this.classLoader = classLoader;
+            this.cache = cache;
         }
 
         public ICompilationUnit[] getSourceUnits() {
@@ -286,12 +368,19 @@ public class EclipseJavaCompiler implements JavaCompiler {
                     }
                 }
             }
+            final ICompilationUnit unit = result.getCompilationUnit();
+            if ( unit != null ) {
+                final String unitName = CharOperation.toString(
+                        CharOperation.arrayConcat(unit.getPackageName(), unit.getMainTypeName()));
+                dependencyIndex.record(unitName, result.qualifiedReferences, result.simpleNameReferences);
+            }
             ClassFile[] classFiles = result.getClassFiles();
             for (int i = 0; i < classFiles.length; i++) {
                 ClassFile classFile = classFiles[i];
                 String className = CharOperation.toString(classFile.getCompoundName());
                 try {
                     this.write(className, classFile.getBytes());
+                    nameEnvironmentCache.remove(className);
                 } catch (IOException e) {
                     this.errorHandler.onError("Unable to write class file: " + e.getMessage(), className, 0, 0);
                 }
@@ -356,6 +445,23 @@ public class EclipseJavaCompiler implements JavaCompiler {
         }
 
         private boolean isPackage(String result) {
+            final Boolean cached = this.cache.isPackage(result);
+            if ( cached != null ) {
+                return cached;
+            }
+            if ( this.packages.contains(result) ) {
+                return true;
+            }
+            final boolean isPackage = this.findPackage(result);
+            if ( isPackage ) {
+                this.packages.add(result);
+            } else {
+                this.cache.putPackage(result, false);
+            }
+            return isPackage;
+        }
+
+        private boolean findPackage(String result) {
             String resourceName = result.replace('.', '/') + ".class";
             if ( resourceName.startsWith("/") ) {
                 resourceName = resourceName.substring(1);
@@ -370,6 +476,23 @@ public class EclipseJavaCompiler implements JavaCompiler {
         }
 
         private byte[] findClass(String name) throws Exception {
+            final byte[] cached = this.cache.getClassFile(name);
+            if ( cached != null ) {
+                return cached;
+            }
+            if ( this.missingClasses.contains(name) ) {
+                return null;
+            }
+            final byte[] bytes = this.loadClass(name);
+            if ( bytes == null ) {
+                this.missingClasses.add(name);
+            } else {
+                this.cache.putClassFile(name, bytes);
+            }
+            return bytes;
+        }
+
+        private byte[] loadClass(String name) throws Exception {
             final String resourceName = name.replace('.', '/') + ".class";
             final InputStream is = this.classLoader.getResourceAsStream(resourceName);
             if (is != null) {
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The <code>NameEnvironmentCache</code> keeps the class files and the
+ * package lookups of a class loader across compilations.
+ *
+ * Resolving a type through the class loader is the most expensive part
+ * of compiling small units like scripts. The cache is held per class loader
+ * instance: once the dynamic class loader is replaced, for example after a
+ * bundle update or when the class loader writer has written new classes,
+ * the old entries are not used anymore and can be garbage collected.
+ *
+ * Only positive results are cached: a class which is not found might be
+ * added later on, so missing classes are only remembered for the duration
+ * of a single compilation. The number of cached lookups per class loader
+ * is limited, the least recently used lookups are dropped first.
+ */
+public class NameEnvironmentCache {
+
+    /** The default maximum number of cached lookups per class loader. */
+    public static final int DEFAULT_MAX_ENTRIES = 5000;
+
+    /** The cached lookups per class loader. */
+    private final Map<ClassLoader, Entry> entries = new WeakHashMap<ClassLoader, Entry>();
+
+    /** The maximum number of cached lookups per class loader. */
+    private final int maxEntries;
+
+    public NameEnvironmentCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public NameEnvironmentCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the cache for a class loader.
+     */
+    public Entry getEntry(final ClassLoader classLoader) {
+        synchronized ( this.entries ) {
+            Entry entry = this.entries.get(classLoader);
+            if ( entry == null ) {
+                entry = new Entry(this.maxEntries);
+                this.entries.put(classLoader, entry);
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Remove a class which has been (re)compiled or deleted
+     * from the cache of all class loaders.
+     */
+    public void remove(final String className) {
+        synchronized ( this.entries ) {
+            for(final Entry entry : this.entries.values()) {
+                entry.remove(className);
+            }
+        }
+    }
+
+    /**
+     * Clear the cache for all class loaders.
+     */
+    public void clear() {
+        synchronized ( this.entries ) {
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * The cached lookups of a single class loader.
+     */
+    public static final class Entry {
+
+        private final Map<String, byte[]> classes;
+
+        /** Names which are known to be classes and not packages. */
+        private final Map<String, Boolean> types;
+
+        Entry(final int maxEntries) {
+            this.classes = createMap(maxEntries);
+            this.types = createMap(maxEntries);
+        }
+
+        private static <V> Map<String, V> createMap(final int maxEntries) {
+            return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+                    return this.size() > maxEntries;
+                }
+            });
+        }
+
+        /**
+         * Return the class file for the class name.
+         * @return The class file or <code>null</code> if the class has not
+         *         been found yet.
+         */
+        public byte[] getClassFile(final String className) {
+            return this.classes.get(className);
+        }
+
+        public void putClassFile(final String className, final byte[] bytes) {
+            if ( bytes != null ) {
+                this.classes.put(className, bytes);
+            }
+        }
+
+        /**
+         * Return <code>false</code> if the name is known to be a class,
+         * <code>null</code> otherwise.
+         */
+        public Boolean isPackage(final String name) {
+            return this.types.get(name) != null ? Boolean.FALSE : null;
+        }
+
+        /**
+         * Remember the result of a package lookup. Only names which are
+         * classes are kept, a package might turn into a class later on.
+         */
+        public void putPackage(final String name, final boolean isPackage) {
+            if ( !isPackage ) {
+                this.types.put(name, Boolean.TRUE);
+            }
+        }
+
+        /**
+         * Remove a class which has been (re)compiled.
+         */
+        public void remove(final String className) {
+            this.classes.remove(className);
+            this.types.remove(className);
+        }
+
+        /**
+         * The number of cached lookups.
+         */
+        int size() {
+            return this.classes.size() + this.types.size();
+        }
+    }
+}
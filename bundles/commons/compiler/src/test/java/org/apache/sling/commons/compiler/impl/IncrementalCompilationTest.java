@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.sling.commons.classloader.ClassLoaderWriter;
+import org.apache.sling.commons.compiler.CompilationResult;
+import org.apache.sling.commons.compiler.CompilationUnit;
+import org.apache.sling.commons.compiler.Options;
+
+/**
+ * Test case for batch and incremental compilation
+ */
+public class IncrementalCompilationTest extends TestCase
+        implements ClassLoaderWriter {
+
+    private final Map<String, Long> written = new HashMap<String, Long>();
+
+    private final List<String> compiled = new ArrayList<String>();
+
+    private final EclipseJavaCompiler compiler = new EclipseJavaCompiler();
+
+    private final Map<String, Long> lastModified = new HashMap<String, Long>();
+
+    private CompilationUnit[] units;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.units = new CompilationUnit[] {
+            createCompileUnit("A", "public class A { public static int value() { return 1; } }"),
+            createCompileUnit("B", "public class B { public int value() { return A.value() + 1; } }"),
+            createCompileUnit("C", "public class C { public int value() { return 3; } }")
+        };
+    }
+
+    private Options createOptions() {
+        final Options options = new Options();
+        options.put(Options.KEY_INCREMENTAL, true);
+        options.put(Options.KEY_CLASS_LOADER_WRITER, this);
+        options.put(Options.KEY_CLASS_LOADER, this.getClass().getClassLoader());
+        return options;
+    }
+
+    public void testBatchCompilation() throws Exception {
+        final CompilationResult result = compiler.compile(units, createOptions());
+        assertNull(result.getErrors());
+        assertTrue(result.didCompile());
+        assertEquals(3, compiled.size());
+
+        compiled.clear();
+        final CompilationResult second = compiler.compile(units, createOptions());
+        assertFalse(second.didCompile());
+        assertTrue(compiled.isEmpty());
+    }
+
+    public void testIncrementalCompilation() throws Exception {
+        assertNull(compiler.compile(units, createOptions()).getErrors());
+        compiled.clear();
+
+        // change A - only A and its dependent B are compiled
+        lastModified.put("test.A", System.currentTimeMillis() + 1000);
+        final CompilationResult result = compiler.compile(units, createOptions());
+        assertNull(result.getErrors());
+        assertTrue(result.didCompile());
+        assertEquals(2, compiled.size());
+        assertTrue(compiled.contains("/test/A.class"));
+        assertTrue(compiled.contains("/test/B.class"));
+    }
+
+    public void testIncrementalCompilationWithEmptyIndex() throws Exception {
+        assertNull(compiler.compile(units, createOptions()).getErrors());
+        compiled.clear();
+
+        // a new compiler, e.g. after a restart, does not know the references
+        // of the units compiled before - all units are compiled
+        final EclipseJavaCompiler restarted = new EclipseJavaCompiler();
+        lastModified.put("test.A", System.currentTimeMillis() + 1000);
+        final CompilationResult result = restarted.compile(units, createOptions());
+        assertNull(result.getErrors());
+        assertTrue(result.didCompile());
+        assertEquals(3, compiled.size());
+        assertTrue(restarted.getDependents("test.A").contains("test.B"));
+
+        // now the references are known again
+        compiled.clear();
+        lastModified.put("test.A", System.currentTimeMillis() + 2000);
+        assertNull(restarted.compile(units, createOptions()).getErrors());
+        assertEquals(2, compiled.size());
+        assertFalse(compiled.contains("/test/C.class"));
+    }
+
+    public void testGetDependents() throws Exception {
+        assertNull(compiler.compile(units, createOptions()).getErrors());
+
+        final Set<String> dependents = compiler.getDependents("test.A");
+        assertEquals(1, dependents.size());
+        assertTrue(dependents.contains("test.B"));
+        assertTrue(compiler.getDependents("test.C").isEmpty());
+    }
+
+    //--------------------------------------------------------< misc. helpers >
+
+    private CompilationUnit createCompileUnit(final String className, final String source) {
+        return new CompilationUnit() {
+
+            public String getMainClassName() {
+                return "test." + className;
+            }
+
+            public Reader getSource() throws IOException {
+                return new StringReader("package test; " + source);
+            }
+
+            public long getLastModified() {
+                final Long value = lastModified.get(getMainClassName());
+                return value == null ? 0 : value;
+            }
+        };
+    }
+
+    /**
+     * @see org.apache.sling.commons.classloader.ClassLoaderWriter#delete(java.lang.String)
+     */
+    public boolean delete(String path) {
+        return written.remove(path) != null;
+    }
+
+    /**
+     * @see org.apache.sling.commons.classloader.ClassLoaderWriter#getInputStream(java.lang.String)
+     */
+    public InputStream getInputStream(String path) throws IOException {
+        return null;
+    }
+
+    /**
+     * @see org.apache.sling.commons.classloader.ClassLoaderWriter#getLastModified(java.lang.String)
+     */
+    public long getLastModified(String path) {
+        final Long value = written.get(path);
+        return value == null ? -1 : value;
+    }
+
+    /**
+     * @see org.apache.sling.commons.classloader.ClassLoaderWriter#getOutputStream(java.lang.String)
+     */
+    public OutputStream getOutputStream(final String path) {
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                written.put(path, System.currentTimeMillis());
+                compiled.add(path);
+            }
+        };
+    }
+
+    /**
+     * @see org.apache.sling.commons.classloader.ClassLoaderWriter#rename(java.lang.String, java.lang.String)
+     */
+    public boolean rename(String oldPath, String newPath) {
+        return false;
+    }
+
+    /**
+     * @see org.apache.sling.commons.classloader.ClassLoaderWriter#getClassLoader()
+     */
+    public ClassLoader getClassLoader() {
+        return null;
+    }
+}
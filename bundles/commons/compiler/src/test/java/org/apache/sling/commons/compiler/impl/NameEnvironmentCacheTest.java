@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NameEnvironmentCacheTest {
+
+    private final ClassLoader loader = new ClassLoader() {};
+
+    @Test public void testNegativeResultsAreNotCached() {
+        final NameEnvironmentCache.Entry entry = new NameEnvironmentCache().getEntry(loader);
+        entry.putClassFile("a.Missing", null);
+        assertNull(entry.getClassFile("a.Missing"));
+
+        entry.putPackage("a", true);
+        assertNull(entry.isPackage("a"));
+        entry.putPackage("a.Foo", false);
+        assertEquals(Boolean.FALSE, entry.isPackage("a.Foo"));
+    }
+
+    @Test public void testBounded() {
+        final NameEnvironmentCache.Entry entry = new NameEnvironmentCache(10).getEntry(loader);
+        for(int i = 0; i < 100; i++) {
+            entry.putClassFile("a.Class" + i, new byte[] {1});
+        }
+        assertTrue(entry.size() <= 10);
+        assertNull(entry.getClassFile("a.Class0"));
+        assertArrayEquals(new byte[] {1}, entry.getClassFile("a.Class99"));
+    }
+
+    @Test public void testRemove() {
+        final NameEnvironmentCache cache = new NameEnvironmentCache();
+        final ClassLoader other = new ClassLoader() {};
+        cache.getEntry(loader).putClassFile("a.Foo", new byte[] {1});
+        cache.getEntry(other).putClassFile("a.Foo", new byte[] {2});
+        cache.getEntry(other).putPackage("a.Foo", false);
+
+        cache.remove("a.Foo");
+        assertNull(cache.getEntry(loader).getClassFile("a.Foo"));
+        assertNull(cache.getEntry(other).getClassFile("a.Foo"));
+        assertNull(cache.getEntry(other).isPackage("a.Foo"));
+    }
+}
@@ -82,4 +82,15 @@ public interface ScheduleOptions {
      * @param slingIds Array of Sling IDs this job should run on
      */
     ScheduleOptions onInstancesOnly(final String[] slingIds);
+
+    /**
+     * Keep the schedule of a named job across restarts and define how runs
+     * are handled which have been missed while the instance was down.
+     * The job itself is not persisted, it has to be scheduled again after a restart.
+     * This option is ignored if the persistent store of the scheduler is disabled.
+     * @param policy One of {@link Scheduler#VALUE_MISFIRE_FIRE_ONCE}, {@link Scheduler#VALUE_MISFIRE_FIRE_ALL}
+     *               or {@link Scheduler#VALUE_MISFIRE_IGNORE}. {@code null} disables persistence.
+     * @since 2.5
+     */
+    ScheduleOptions onMisfire(final String policy);
 }
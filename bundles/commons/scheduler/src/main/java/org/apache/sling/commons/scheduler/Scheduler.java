@@ -42,6 +42,9 @@ import aQute.bnd.annotation.ProviderType;
  * restarted after a bundle restart. If the client bundle is stopped, the scheduler
  * will stop all jobs started by this bundle as well. However, the client bundle does
  * not need to keep a reference to the scheduler service.
+ * If the persistent store of the scheduler is enabled, the schedule of named jobs
+ * using a misfire policy is kept, so runs missed while the instance was down
+ * are detected once the job is scheduled again.
  */
 @ProviderType
 public interface Scheduler {
@@ -101,6 +104,30 @@ public interface Scheduler {
      */
     String VALUE_RUN_ON_SINGLE = "SINGLE";
 
+    /**
+     * Name of the configuration property to define the misfire policy of a job.
+     * If this property is set, the schedule of the job is kept across restarts.
+     * This property needs to be of type String.
+     * @see ScheduleOptions#onMisfire(String)
+     * @since 2.5.0
+     */
+    String PROPERTY_SCHEDULER_MISFIRE = "scheduler.misfire";
+
+    /** Value for {@link #PROPERTY_SCHEDULER_MISFIRE} to run a job once if runs have been missed.
+     * @since 2.5.0
+     */
+    String VALUE_MISFIRE_FIRE_ONCE = "FIRE_ONCE";
+
+    /** Value for {@link #PROPERTY_SCHEDULER_MISFIRE} to run a job for every missed run.
+     * @since 2.5.0
+     */
+    String VALUE_MISFIRE_FIRE_ALL = "FIRE_ALL";
+
+    /** Value for {@link #PROPERTY_SCHEDULER_MISFIRE} to skip missed runs.
+     * @since 2.5.0
+     */
+    String VALUE_MISFIRE_IGNORE = "IGNORE";
+
     /**
      * Schedule a job based on the options.
      *
@@ -17,6 +17,7 @@
 package org.apache.sling.commons.scheduler.impl;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.Map;
 
 import org.apache.sling.commons.scheduler.ScheduleOptions;
@@ -40,16 +41,46 @@ public class InternalScheduleOptions implements ScheduleOptions {
 
     public final IllegalArgumentException argumentException;
 
+    /** The start date for non cron based jobs, {@code null} for cron based jobs. */
+    public final Date startDate;
+
+    /** The number of executions for non cron based jobs, {@code -1} for endless. */
+    public final int times;
+
+    /** The period in ms for non cron based jobs, {@code 0} for one-shot jobs. */
+    public final long period;
+
     public String[] runOn;
 
+    public String misfirePolicy;
+
+    /** The key for the persistent schedule state, defaults to the name. */
+    public String persistenceKey;
+
+    /** The name identifying the job on all instances of the cluster, defaults to the name. */
+    public String clusterName;
+
     public InternalScheduleOptions(final TriggerBuilder<? extends Trigger> trigger) {
+        this(trigger, null, 1, 0);
+    }
+
+    public InternalScheduleOptions(final TriggerBuilder<? extends Trigger> trigger,
+            final Date startDate,
+            final int times,
+            final long period) {
         this.trigger = trigger;
         this.argumentException = null;
+        this.startDate = startDate;
+        this.times = times;
+        this.period = period;
     }
 
     public InternalScheduleOptions(final IllegalArgumentException iae) {
         this.trigger = null;
         this.argumentException = iae;
+        this.startDate = null;
+        this.times = 1;
+        this.period = 0;
     }
 
     /**
@@ -107,4 +138,12 @@ public class InternalScheduleOptions implements ScheduleOptions {
         this.runOn = slingIds;
         return this;
     }
+
+    /**
+     * @see org.apache.sling.commons.scheduler.ScheduleOptions#onMisfire(java.lang.String)
+     */
+    public ScheduleOptions onMisfire(final String policy) {
+        this.misfirePolicy = policy;
+        return this;
+    }
 }
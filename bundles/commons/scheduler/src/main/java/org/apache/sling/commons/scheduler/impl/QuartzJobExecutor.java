@@ -45,6 +45,9 @@ public class QuartzJobExecutor implements Job {
     /** Is this instance the leader? */
     public static final AtomicBoolean IS_LEADER = new AtomicBoolean(true);
 
+    /** The sorted ids of the instances of the local cluster. */
+    public static volatile String[] CLUSTER_INSTANCES;
+
     /**
      * @see org.quartz.Job#execute(org.quartz.JobExecutionContext)
      */
@@ -53,28 +56,55 @@ public class QuartzJobExecutor implements Job {
         final JobDataMap data = context.getJobDetail().getJobDataMap();
         final Object job = data.get(QuartzScheduler.DATA_MAP_OBJECT);
         final Logger logger = (Logger)data.get(QuartzScheduler.DATA_MAP_LOGGER);
+        final String name = (String) data.get(QuartzScheduler.DATA_MAP_NAME);
 
         // check run on information
         final String[] runOn = (String[])data.get(QuartzScheduler.DATA_MAP_RUN_ON);
+        final String clusterName = (String)data.get(QuartzScheduler.DATA_MAP_CLUSTER_NAME);
+        if ( !isRunOn(logger, job, name, clusterName, runOn) ) {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Serializable> configuration = (Map<String, Serializable>) data.get(QuartzScheduler.DATA_MAP_CONFIGURATION);
+        execute(logger, job, name, configuration);
+    }
+
+    /**
+     * Check whether a job should run on this instance.
+     * @param logger The logger
+     * @param job The job object
+     * @param name The job name
+     * @param clusterName The name of the job on all instances or {@code null}
+     * @param runOn The optional run on information
+     * @return {@code true} if the job should run.
+     */
+    static boolean isRunOn(final Logger logger, final Object job, final String name, final String clusterName, final String[] runOn) {
         if ( runOn != null ) {
             if ( runOn.length == 1 && Scheduler.VALUE_RUN_ON_LEADER.equals(runOn[0])
                  || runOn.length == 1 && Scheduler.VALUE_RUN_ON_SINGLE.equals(runOn[0]) ) {
                 if ( DISCOVERY_INFO_AVAILABLE.get() ) {
-                    if ( !IS_LEADER.get() ) {
+                    final boolean isTarget;
+                    if ( Scheduler.VALUE_RUN_ON_SINGLE.equals(runOn[0]) ) {
+                        isTarget = isSingleInstanceTarget(clusterName);
+                    } else {
+                        isTarget = IS_LEADER.get();
+                    }
+                    if ( !isTarget ) {
                         logger.debug("Excluding job {} with name {} and config {}.",
-                                new Object[] {job, data.get(QuartzScheduler.DATA_MAP_NAME), runOn[0]});
-                        return;
+                                new Object[] {job, name, runOn[0]});
+                        return false;
                     }
                 } else {
                     logger.warn("No discovery info available. Executing job {} with name {} and config {} anyway.",
-                            new Object[] {job, data.get(QuartzScheduler.DATA_MAP_NAME), runOn[0]});
+                            new Object[] {job, name, runOn[0]});
                 }
             } else { // sling IDs
                 final String myId = SLING_ID;
                 boolean schedule = false;
                 if ( myId == null ) {
                     logger.warn("No Sling ID available. Executing job {} with name {} and config {} anyway.",
-                            new Object[] {job, data.get(QuartzScheduler.DATA_MAP_NAME), Arrays.toString(runOn)});
+                            new Object[] {job, name, Arrays.toString(runOn)});
                     schedule = true;
                 } else {
                     for(final String id : runOn ) {
@@ -86,19 +116,31 @@ public class QuartzJobExecutor implements Job {
                 }
                 if ( !schedule ) {
                     logger.debug("Excluding job {} with name {} and config {}.",
-                            new Object[] {job, data.get(QuartzScheduler.DATA_MAP_NAME), Arrays.toString(runOn)});
-                    return;
+                            new Object[] {job, name, Arrays.toString(runOn)});
+                    return false;
                 }
             }
         }
 
+        return true;
+    }
+
+    /**
+     * Execute a job.
+     * @param logger The logger
+     * @param job The job object
+     * @param name The job name
+     * @param configuration The optional configuration
+     * @throws JobExecutionException If the job throws a quartz exception
+     */
+    static void execute(final Logger logger,
+            final Object job,
+            final String name,
+            final Map<String, Serializable> configuration)
+    throws JobExecutionException {
         try {
-            logger.debug("Executing job {} with name {}", job, data.get(QuartzScheduler.DATA_MAP_NAME));
+            logger.debug("Executing job {} with name {}", job, name);
             if (job instanceof org.apache.sling.commons.scheduler.Job) {
-                @SuppressWarnings("unchecked")
-                final Map<String, Serializable> configuration = (Map<String, Serializable>) data.get(QuartzScheduler.DATA_MAP_CONFIGURATION);
-                final String name = (String) data.get(QuartzScheduler.DATA_MAP_NAME);
-
                 final JobContext jobCtx = new JobContextImpl(name, configuration);
                 ((org.apache.sling.commons.scheduler.Job) job).execute(jobCtx);
             } else if (job instanceof Runnable) {
@@ -116,6 +158,24 @@ public class QuartzJobExecutor implements Job {
         }
     }
 
+    /**
+     * Check whether this instance is the single instance to run a job.
+     * The jobs are spread over the instances of the cluster by the hash
+     * of their cluster name; as all instances share the same view and
+     * the same name, exactly one instance runs the job. Jobs without a
+     * cluster name, like unnamed jobs, run on the leader.
+     * @param clusterName The name of the job on all instances or {@code null}
+     * @return {@code true} if the job should run on this instance.
+     */
+    static boolean isSingleInstanceTarget(final String clusterName) {
+        final String[] instances = CLUSTER_INSTANCES;
+        final String myId = SLING_ID;
+        if ( instances == null || instances.length == 0 || myId == null || clusterName == null ) {
+            return IS_LEADER.get();
+        }
+        return myId.equals(instances[(clusterName.hashCode() & Integer.MAX_VALUE) % instances.length]);
+    }
+
     public static final class JobContextImpl implements JobContext {
 
         protected final Map<String, Serializable> configuration;
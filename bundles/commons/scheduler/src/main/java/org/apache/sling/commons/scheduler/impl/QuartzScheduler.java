@@ -16,6 +16,7 @@
  */
 package org.apache.sling.commons.scheduler.impl;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.Iterator;
@@ -33,8 +34,10 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.commons.scheduler.Job;
 import org.apache.sling.commons.scheduler.ScheduleOptions;
+import org.apache.sling.commons.scheduler.Scheduler;
 import org.apache.sling.commons.threads.ThreadPool;
 import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
@@ -44,6 +47,7 @@ import org.quartz.JobBuilder;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
+import org.quartz.ScheduleBuilder;
 import org.quartz.SchedulerException;
 import org.quartz.SimpleScheduleBuilder;
 import org.quartz.SimpleTrigger;
@@ -91,6 +95,12 @@ public class QuartzScheduler implements BundleListener {
     /** Map key for the bundle information (Long). */
     static final String DATA_MAP_BUNDLE_ID = "QuartzJobScheduler.bundleId";
 
+    /** Map key for the key of the persistent schedule state (String). */
+    static final String DATA_MAP_PERSISTENCE_KEY = "QuartzJobScheduler.persistenceKey";
+
+    /** Map key for the name of the job on all instances (String). */
+    static final String DATA_MAP_CLUSTER_NAME = "QuartzJobScheduler.clusterName";
+
     /** The quartz scheduler. */
     private volatile org.quartz.Scheduler scheduler;
 
@@ -104,6 +114,31 @@ public class QuartzScheduler implements BundleListener {
                           "the default pool is used.")
     private static final String PROPERTY_POOL_NAME = "poolName";
 
+    @Property(label="Persistent Store",
+              description="If enabled, the schedule of named jobs with a misfire policy is kept " +
+                          "across restarts and runs missed while the instance was down are handled " +
+                          "according to the policy of the job.",
+              boolValue=false)
+    private static final String PROPERTY_PERSISTENT_STORE = "persistentStore";
+
+    /** The file name of the persistent store in the bundle data area. */
+    private static final String STORE_FILE = "schedules.properties";
+
+    /** The optional persistent schedule state. */
+    private volatile ScheduleStateStore stateStore;
+
+    /** The system bundle, to detect a shutdown of the framework. */
+    private volatile Bundle systemBundle;
+
+    @Property(label="Timing Wheel",
+              description="If enabled, one-shot and periodic jobs are run by a timing wheel " +
+                          "and only cron based jobs are scheduled through Quartz.",
+              boolValue=false)
+    private static final String PROPERTY_TIMING_WHEEL = "timingWheel";
+
+    /** The optional timing wheel for non cron based jobs. */
+    private volatile TimingWheel timingWheel;
+
     /**
      * Activate this component.
      * Start the scheduler.
@@ -119,10 +154,26 @@ public class QuartzScheduler implements BundleListener {
             poolName = null;
         }
 
+        final Object persistentObj = props.get(PROPERTY_PERSISTENT_STORE);
+        if ( persistentObj != null && Boolean.valueOf(persistentObj.toString()) ) {
+            final File file = ctx.getDataFile(STORE_FILE);
+            if ( file != null ) {
+                this.stateStore = new ScheduleStateStore(file);
+            } else {
+                this.logger.warn("No file system support - persistent store is disabled.");
+            }
+        }
+
+        this.systemBundle = ctx.getBundle(0);
         ctx.addBundleListener(this);
 
         // start scheduler
         this.scheduler = this.init(poolName);
+
+        final Object wheelObj = props.get(PROPERTY_TIMING_WHEEL);
+        if ( wheelObj != null && Boolean.valueOf(wheelObj.toString()) ) {
+            this.timingWheel = new TimingWheel(this.threadPool);
+        }
     }
 
     /**
@@ -133,9 +184,20 @@ public class QuartzScheduler implements BundleListener {
     protected void deactivate(final BundleContext ctx) {
         ctx.removeBundleListener(this);
 
+        final TimingWheel wheel = this.timingWheel;
+        this.timingWheel = null;
+        if ( wheel != null ) {
+            wheel.stop();
+        }
         final org.quartz.Scheduler s = this.scheduler;
         this.scheduler = null;
         this.dispose(s);
+
+        final ScheduleStateStore store = this.stateStore;
+        this.stateStore = null;
+        if ( store != null ) {
+            store.flush();
+        }
     }
 
     /**
@@ -145,6 +207,12 @@ public class QuartzScheduler implements BundleListener {
         if ( event.getType() == BundleEvent.STOPPED ) {
             final Long bundleId = event.getBundle().getBundleId();
 
+            final TimingWheel wheel = this.timingWheel;
+            if ( wheel != null ) {
+                for(final String jobName : wheel.cancelAll(bundleId)) {
+                    this.logger.debug("Unscheduling job with name {}", jobName);
+                }
+            }
             final org.quartz.Scheduler s = this.scheduler;
             if ( s != null ) {
                 synchronized ( this ) {
@@ -213,6 +281,9 @@ public class QuartzScheduler implements BundleListener {
             throw new SchedulerException("Unable to find new scheduler with name " + QUARTZ_SCHEDULER_NAME + " and run ID " + runID);
         }
 
+        if ( this.stateStore != null ) {
+            s.getListenerManager().addTriggerListener(this.stateStore);
+        }
         s.start();
         if ( this.logger.isDebugEnabled() ) {
             this.logger.debug(PREFIX + "started.");
@@ -254,7 +325,8 @@ public class QuartzScheduler implements BundleListener {
     private JobDataMap initDataMap(final Long    bundleId,
                                    final String  jobName,
                                    final Object  job,
-                                   final InternalScheduleOptions options) {
+                                   final InternalScheduleOptions options,
+                                   final String  persistenceKey) {
         final JobDataMap jobDataMap = new JobDataMap();
 
         jobDataMap.put(DATA_MAP_OBJECT, job);
@@ -270,10 +342,27 @@ public class QuartzScheduler implements BundleListener {
         if ( options.runOn != null) {
             jobDataMap.put(DATA_MAP_RUN_ON, options.runOn);
         }
+        if ( persistenceKey != null ) {
+            jobDataMap.put(DATA_MAP_PERSISTENCE_KEY, persistenceKey);
+        }
+        final String clusterName = getClusterName(options);
+        if ( clusterName != null ) {
+            jobDataMap.put(DATA_MAP_CLUSTER_NAME, clusterName);
+        }
 
         return jobDataMap;
     }
 
+    /**
+     * The name of the job on all instances of the cluster: the names of
+     * unnamed jobs are random and differ between the instances.
+     * @param options The schedule options
+     * @return The name or {@code null} for unnamed jobs
+     */
+    private static String getClusterName(final InternalScheduleOptions options) {
+        return options.clusterName != null ? options.clusterName : options.name;
+    }
+
     /**
      * Create the job detail.
      * @param name
@@ -352,9 +441,10 @@ public class QuartzScheduler implements BundleListener {
                 .startAt(new Date(System.currentTimeMillis() + ms))
                 .withSchedule(SimpleScheduleBuilder.simpleSchedule().repeatForever().withIntervalInMilliseconds(ms));
         if ( startImmediate ) {
-            return new InternalScheduleOptions( builder.startNow());
+            return new InternalScheduleOptions( builder.startNow(), new Date(), -1, ms);
         } else {
-            return new InternalScheduleOptions( builder.startAt(new Date(System.currentTimeMillis() + ms)) );
+            final Date start = new Date(System.currentTimeMillis() + ms);
+            return new InternalScheduleOptions( builder.startAt(start), start, -1, ms);
         }
     }
 
@@ -408,11 +498,18 @@ public class QuartzScheduler implements BundleListener {
     public void removeJob(final Long bundleId, final String name) throws NoSuchElementException {
         // as this method might be called from unbind and during
         // unbind a deactivate could happen, we check the scheduler first
+        final TimingWheel wheel = this.timingWheel;
+        if ( wheel != null && wheel.cancel(name) ) {
+            this.logger.debug("Unscheduling job with name {}", name);
+            return;
+        }
         final org.quartz.Scheduler s = this.scheduler;
         if ( s != null ) {
             synchronized ( this ) {
                 try {
-                    s.deleteJob(JobKey.jobKey(name));
+                    final JobKey key = JobKey.jobKey(name);
+                    this.removeScheduleState(s.getJobDetail(key));
+                    s.deleteJob(key);
                     this.logger.debug("Unscheduling job with name {}", name);
                 } catch (final SchedulerException se) {
                     throw new NoSuchElementException(se.getMessage());
@@ -421,11 +518,33 @@ public class QuartzScheduler implements BundleListener {
         }
     }
 
+    /**
+     * Remove the persistent schedule state of an unscheduled job, so that
+     * a job scheduled again with the same key starts with its new schedule.
+     * The state is kept if the jobs are unscheduled as the framework stops.
+     * @param detail The job detail or {@code null}
+     */
+    private void removeScheduleState(final JobDetail detail) {
+        final ScheduleStateStore store = this.stateStore;
+        if ( store != null && detail != null ) {
+            final String key = (String) detail.getJobDataMap().get(DATA_MAP_PERSISTENCE_KEY);
+            final Bundle system = this.systemBundle;
+            if ( key != null && (system == null || system.getState() != Bundle.STOPPING) ) {
+                store.put(key, null);
+            }
+        }
+    }
+
     /** Used by the web console plugin. */
     org.quartz.Scheduler getScheduler() {
         return this.scheduler;
     }
 
+    /** Used by the web console plugin. */
+    TimingWheel getTimingWheel() {
+        return this.timingWheel;
+    }
+
     public static final class QuartzThreadPool implements org.quartz.spi.ThreadPool {
 
         /** Our executor thread pool */
@@ -497,7 +616,7 @@ public class QuartzScheduler implements BundleListener {
      */
     public ScheduleOptions NOW() {
         return new InternalScheduleOptions( TriggerBuilder.newTrigger()
-                .startNow());
+                .startNow(), new Date(), 1, 0);
     }
 
     /**
@@ -518,7 +637,7 @@ public class QuartzScheduler implements BundleListener {
         }
         return new InternalScheduleOptions( TriggerBuilder.newTrigger()
             .startNow()
-            .withSchedule(sb.withIntervalInMilliseconds(period * 1000)));
+            .withSchedule(sb.withIntervalInMilliseconds(period * 1000)), new Date(), times, period * 1000);
     }
 
     /**
@@ -529,7 +648,7 @@ public class QuartzScheduler implements BundleListener {
             return new InternalScheduleOptions(new IllegalArgumentException("Date can't be null"));
         }
         return new InternalScheduleOptions( TriggerBuilder.newTrigger()
-            .startAt(date));
+            .startAt(date), date, 1, 0);
     }
 
     /**
@@ -554,7 +673,7 @@ public class QuartzScheduler implements BundleListener {
         }
         return new InternalScheduleOptions( TriggerBuilder.newTrigger()
             .startAt(date)
-            .withSchedule(sb.withIntervalInMilliseconds(period * 1000)));
+            .withSchedule(sb.withIntervalInMilliseconds(period * 1000)), date, times, period * 1000);
     }
 
     /**
@@ -591,6 +710,11 @@ public class QuartzScheduler implements BundleListener {
      * @see org.apache.sling.commons.scheduler.Scheduler#unschedule(java.lang.String)
      */
     public boolean unschedule(final Long bundleId, final String jobName) {
+        final TimingWheel wheel = this.timingWheel;
+        if ( jobName != null && wheel != null && wheel.cancel(jobName) ) {
+            this.logger.debug("Unscheduling job with name {}", jobName);
+            return true;
+        }
         final org.quartz.Scheduler s = this.scheduler;
         if ( jobName != null && s != null ) {
             synchronized ( this ) {
@@ -598,6 +722,7 @@ public class QuartzScheduler implements BundleListener {
                     final JobKey key = JobKey.jobKey(jobName);
                     final JobDetail jobdetail = s.getJobDetail(key);
                     if (jobdetail != null) {
+                        this.removeScheduleState(jobdetail);
                         s.deleteJob(key);
                         this.logger.debug("Unscheduling job with name {}", jobName);
                         return true;
@@ -636,13 +761,18 @@ public class QuartzScheduler implements BundleListener {
         }
 
         synchronized ( this ) {
+            final TimingWheel wheel = this.timingWheel;
             final String name;
             if ( opts.name != null ) {
                 // if there is already a job with the name, remove it first
+                if ( wheel != null && wheel.cancel(opts.name) ) {
+                    this.logger.debug("Unscheduling job with name {}", opts.name);
+                }
                 try {
                     final JobKey key = JobKey.jobKey(opts.name);
                     final JobDetail jobdetail = s.getJobDetail(key);
                     if (jobdetail != null) {
+                        this.removeScheduleState(jobdetail);
                         s.deleteJob(key);
                         this.logger.debug("Unscheduling job with name {}", opts.name);
                     }
@@ -654,15 +784,80 @@ public class QuartzScheduler implements BundleListener {
                 name = job.getClass().getName() + ':' + UUID.randomUUID();
             }
 
-            final Trigger trigger = opts.trigger.withIdentity(name).build();
+            Trigger trigger = opts.trigger.withIdentity(name).build();
+
+            // persistent schedules are only supported for named jobs
+            final ScheduleStateStore store = this.stateStore;
+            final String persistenceKey;
+            if ( store != null && opts.misfirePolicy != null && opts.name != null ) {
+                persistenceKey = (opts.persistenceKey != null ? opts.persistenceKey : opts.name);
+                trigger = this.applyMisfirePolicy(trigger, opts.misfirePolicy, store.get(persistenceKey));
+            } else {
+                persistenceKey = null;
+            }
+
+            // non cron based jobs are run by the timing wheel unless they are persistent
+            if ( wheel != null && opts.startDate != null && persistenceKey == null ) {
+                this.logger.debug("Scheduling job {} with name {} in timing wheel", job, name);
+                wheel.schedule(new TimingWheel.WheelJob(name, getClusterName(opts), job, bundleId, opts.configuration, opts.runOn,
+                        opts.canRunConcurrently, opts.startDate.getTime(), opts.times, opts.period, this.logger));
+                return;
+            }
 
             // create the data map
-            final JobDataMap jobDataMap = this.initDataMap(bundleId, name, job, opts);
+            final JobDataMap jobDataMap = this.initDataMap(bundleId, name, job, opts, persistenceKey);
 
             final JobDetail detail = this.createJobDetail(name, jobDataMap, opts.canRunConcurrently);
 
             this.logger.debug("Scheduling job {} with name {} and trigger {}", new Object[] {job, name, trigger});
-            s.scheduleJob(detail, trigger);
+            final Date firstFireTime = s.scheduleJob(detail, trigger);
+            if ( persistenceKey != null ) {
+                store.put(persistenceKey, firstFireTime == null ? null : firstFireTime.getTime());
+            }
+        }
+    }
+
+    /**
+     * Apply the misfire policy to the trigger of a persistent job.
+     * If a fire time is stored from a previous run, the trigger starts at that time,
+     * so Quartz detects the missed runs and handles them according to the policy.
+     * @param trigger The trigger
+     * @param policy The misfire policy
+     * @param storedFireTime The stored next fire time or {@code null}
+     * @return The new trigger
+     */
+    private Trigger applyMisfirePolicy(final Trigger trigger, final String policy, final Long storedFireTime) {
+        ScheduleBuilder<? extends Trigger> sb = trigger.getScheduleBuilder();
+        if ( sb instanceof CronScheduleBuilder ) {
+            final CronScheduleBuilder csb = (CronScheduleBuilder)sb;
+            if ( Scheduler.VALUE_MISFIRE_FIRE_ALL.equals(policy) ) {
+                sb = csb.withMisfireHandlingInstructionIgnoreMisfires();
+            } else if ( Scheduler.VALUE_MISFIRE_IGNORE.equals(policy) ) {
+                sb = csb.withMisfireHandlingInstructionDoNothing();
+            } else {
+                sb = csb.withMisfireHandlingInstructionFireAndProceed();
+            }
+        } else if ( sb instanceof SimpleScheduleBuilder ) {
+            final SimpleScheduleBuilder ssb = (SimpleScheduleBuilder)sb;
+            if ( Scheduler.VALUE_MISFIRE_FIRE_ALL.equals(policy) ) {
+                sb = ssb.withMisfireHandlingInstructionIgnoreMisfires();
+            } else if ( Scheduler.VALUE_MISFIRE_IGNORE.equals(policy) ) {
+                sb = ssb.withMisfireHandlingInstructionNextWithRemainingCount();
+            } else {
+                sb = ssb.withMisfireHandlingInstructionFireNow();
+            }
+        }
+        if ( !Scheduler.VALUE_MISFIRE_FIRE_ONCE.equals(policy)
+             && !Scheduler.VALUE_MISFIRE_FIRE_ALL.equals(policy)
+             && !Scheduler.VALUE_MISFIRE_IGNORE.equals(policy) ) {
+            this.logger.warn("Unknown misfire policy {} - using {}", policy, Scheduler.VALUE_MISFIRE_FIRE_ONCE);
+        }
+        @SuppressWarnings("unchecked")
+        final TriggerBuilder<Trigger> tb = (TriggerBuilder<Trigger>)trigger.getTriggerBuilder();
+        final TriggerBuilder<? extends Trigger> builder = tb.withSchedule(sb);
+        if ( storedFireTime != null && storedFireTime < trigger.getStartTime().getTime() ) {
+            builder.startAt(new Date(storedFireTime));
         }
+        return builder.build();
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The schedule state store keeps the next fire time of persistent jobs
+ * in a local file.
+ *
+ * The job objects itself can't be persisted, they are registered again
+ * after a restart. When a persistent job is scheduled, the stored fire time
+ * is used as the start time of the trigger, so Quartz detects the runs missed
+ * while the instance was down and applies the misfire policy of the job.
+ *
+ * The file is written at most every {@link #FLUSH_INTERVAL} ms and on close.
+ */
+public class ScheduleStateStore extends TriggerListenerSupport {
+
+    /** Minimum time between two writes of the file. */
+    private static final long FLUSH_INTERVAL = 5000;
+
+    /** Default logger. */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /** The store file. */
+    private final File file;
+
+    /** Map: key: persistence key, value: next fire time. */
+    private final Properties states = new Properties();
+
+    /** Did the state change since the last write? */
+    private boolean dirty;
+
+    /** Time of the last write. */
+    private long lastFlush;
+
+    /**
+     * Create a new store and read the existing state.
+     * @param file The store file
+     */
+    public ScheduleStateStore(final File file) {
+        this.file = file;
+        if ( file.exists() ) {
+            try {
+                final InputStream is = new FileInputStream(file);
+                try {
+                    this.states.load(is);
+                } finally {
+                    is.close();
+                }
+            } catch (final IOException ioe) {
+                this.logger.warn("Unable to read schedule state from " + file, ioe);
+            }
+        }
+    }
+
+    /**
+     * Get the stored next fire time of a job.
+     * @param key The persistence key
+     * @return The time or {@code null}
+     */
+    public synchronized Long get(final String key) {
+        final String value = this.states.getProperty(key);
+        if ( value != null ) {
+            try {
+                return Long.valueOf(value);
+            } catch (final NumberFormatException nfe) {
+                // ignore invalid value
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Store the next fire time of a job.
+     * @param key The persistence key
+     * @param nextFireTime The next fire time or {@code null} if the job will not fire anymore.
+     */
+    public synchronized void put(final String key, final Long nextFireTime) {
+        if ( nextFireTime == null ) {
+            this.dirty |= this.states.remove(key) != null;
+        } else {
+            this.states.setProperty(key, nextFireTime.toString());
+            this.dirty = true;
+        }
+        if ( this.dirty && System.currentTimeMillis() - this.lastFlush >= FLUSH_INTERVAL ) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Write the state if it changed.
+     */
+    public synchronized void flush() {
+        if ( this.dirty ) {
+            final File tmp = new File(this.file.getPath() + ".tmp");
+            try {
+                final OutputStream os = new FileOutputStream(tmp);
+                try {
+                    this.states.store(os, "Apache Sling Scheduler State");
+                } finally {
+                    os.close();
+                }
+                if ( !tmp.renameTo(this.file) ) {
+                    this.file.delete();
+                    if ( !tmp.renameTo(this.file) ) {
+                        throw new IOException("Unable to rename " + tmp + " to " + this.file);
+                    }
+                }
+                this.dirty = false;
+            } catch (final IOException ioe) {
+                this.logger.warn("Unable to write schedule state to " + this.file, ioe);
+            }
+            this.lastFlush = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @see org.quartz.TriggerListener#getName()
+     */
+    public String getName() {
+        return this.getClass().getName();
+    }
+
+    /**
+     * @see org.quartz.listeners.TriggerListenerSupport#triggerComplete(org.quartz.Trigger, org.quartz.JobExecutionContext, org.quartz.Trigger.CompletedExecutionInstruction)
+     */
+    @Override
+    public void triggerComplete(final Trigger trigger,
+            final JobExecutionContext context,
+            final CompletedExecutionInstruction triggerInstructionCode) {
+        final String key = (String)context.getJobDetail().getJobDataMap().get(QuartzScheduler.DATA_MAP_PERSISTENCE_KEY);
+        if ( key != null ) {
+            this.put(key, trigger.getNextFireTime() == null ? null : trigger.getNextFireTime().getTime());
+        }
+    }
+}
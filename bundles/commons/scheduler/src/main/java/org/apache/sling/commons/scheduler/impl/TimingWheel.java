@@ -0,0 +1,423 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.commons.threads.ThreadPool;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel for one-shot and periodic jobs.
+ *
+ * Jobs are kept in the buckets of a wheel which is advanced by a single
+ * ticker thread every {@link #TICK} milliseconds. Each bucket is a doubly
+ * linked list, so adding and cancelling a job takes constant time. Jobs
+ * which are due in more than one revolution of the wheel carry the number
+ * of remaining rounds.
+ *
+ * Expired jobs are executed on the thread pool of the scheduler. Cron
+ * based jobs are not handled by the wheel but by Quartz.
+ */
+public class TimingWheel {
+
+    /** The duration of a tick in ms. */
+    static final long TICK = 100;
+
+    /** The number of buckets, must be a power of two. */
+    static final int WHEEL_SIZE = 512;
+
+    /** Default logger. */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /** The heads of the buckets, guarded by this. */
+    private final WheelJob[] wheel = new WheelJob[WHEEL_SIZE];
+
+    /** All jobs by name, guarded by this. */
+    private final Map<String, WheelJob> jobs = new HashMap<String, WheelJob>();
+
+    /** The thread pool to execute the jobs. */
+    private final ThreadPool threadPool;
+
+    /** The start time of the wheel. */
+    private final long startTime;
+
+    /** The next tick to process, guarded by this. */
+    private long tick;
+
+    private volatile boolean running = true;
+
+    private final Thread ticker;
+
+    /** Number of executions. */
+    private final AtomicLong fireCount = new AtomicLong();
+
+    /** Sum of the lag of all executions in ms. */
+    private final AtomicLong totalLag = new AtomicLong();
+
+    /** Maximum lag in ms. */
+    private final AtomicLong maxLag = new AtomicLong();
+
+    /**
+     * A job scheduled in the wheel.
+     */
+    public static final class WheelJob {
+
+        final String name;
+
+        final String clusterName;
+
+        final Object job;
+
+        final Long bundleId;
+
+        final Map<String, Serializable> configuration;
+
+        final String[] runOn;
+
+        final boolean canRunConcurrently;
+
+        /** The period in ms, {@code 0} for one-shot jobs. */
+        final long period;
+
+        final Logger logger;
+
+        final AtomicBoolean isRunning = new AtomicBoolean(false);
+
+        /** The remaining number of executions or {@code -1} for endless, guarded by the wheel. */
+        int remaining;
+
+        /** The next execution time, guarded by the wheel. */
+        long deadline;
+
+        /** The remaining rounds of the wheel, guarded by the wheel. */
+        long rounds;
+
+        /** The bucket or {@code -1} if not in the wheel, guarded by the wheel. */
+        int bucket = -1;
+
+        WheelJob prev;
+
+        WheelJob next;
+
+        public WheelJob(final String name,
+                final String clusterName,
+                final Object job,
+                final Long bundleId,
+                final Map<String, Serializable> configuration,
+                final String[] runOn,
+                final boolean canRunConcurrently,
+                final long start,
+                final int times,
+                final long period,
+                final Logger logger) {
+            this.name = name;
+            this.clusterName = clusterName;
+            this.job = job;
+            this.bundleId = bundleId;
+            this.configuration = configuration;
+            this.runOn = runOn;
+            this.canRunConcurrently = canRunConcurrently;
+            this.deadline = start;
+            this.remaining = times;
+            this.period = period;
+            this.logger = logger;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public Object getJob() {
+            return this.job;
+        }
+
+        public Long getBundleId() {
+            return this.bundleId;
+        }
+
+        public String[] getRunOn() {
+            return this.runOn;
+        }
+
+        public boolean isCanRunConcurrently() {
+            return this.canRunConcurrently;
+        }
+
+        public long getPeriod() {
+            return this.period;
+        }
+
+        /**
+         * Run the job in the current thread.
+         */
+        void execute() {
+            if ( !this.canRunConcurrently && !this.isRunning.compareAndSet(false, true) ) {
+                this.logger.debug("Skipping job {} with name {} as it is still running.", this.job, this.name);
+                return;
+            }
+            try {
+                if ( QuartzJobExecutor.isRunOn(this.logger, this.job, this.name, this.clusterName, this.runOn) ) {
+                    QuartzJobExecutor.execute(this.logger, this.job, this.name, this.configuration);
+                }
+            } catch (final JobExecutionException jee) {
+                this.logger.error("Exception during job execution of " + this.job + " : " + jee.getMessage(), jee);
+            } finally {
+                if ( !this.canRunConcurrently ) {
+                    this.isRunning.set(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create and start a new wheel.
+     * @param threadPool The thread pool to execute the jobs
+     */
+    public TimingWheel(final ThreadPool threadPool) {
+        this.threadPool = threadPool;
+        this.startTime = System.currentTimeMillis();
+        this.ticker = new Thread(new Runnable() {
+
+            public void run() {
+                tickerLoop();
+            }
+        }, "Apache Sling Scheduler Timing Wheel");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Stop the wheel, all jobs are discarded.
+     */
+    public void stop() {
+        this.running = false;
+        this.ticker.interrupt();
+        synchronized ( this ) {
+            for(final WheelJob job : this.jobs.values()) {
+                this.unlink(job);
+            }
+            this.jobs.clear();
+        }
+    }
+
+    /**
+     * Schedule a job. A job with the same name is replaced.
+     * @param job The job
+     */
+    public synchronized void schedule(final WheelJob job) {
+        final WheelJob old = this.jobs.put(job.name, job);
+        if ( old != null ) {
+            this.unlink(old);
+        }
+        this.link(job);
+    }
+
+    /**
+     * Cancel a job.
+     * @param name The name of the job
+     * @return {@code true} if the job has been cancelled
+     */
+    public synchronized boolean cancel(final String name) {
+        final WheelJob job = this.jobs.remove(name);
+        if ( job != null ) {
+            this.unlink(job);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancel all jobs of a bundle.
+     * @param bundleId The bundle id
+     * @return The names of the cancelled jobs
+     */
+    public synchronized List<String> cancelAll(final long bundleId) {
+        final List<String> names = new ArrayList<String>();
+        for(final WheelJob job : new ArrayList<WheelJob>(this.jobs.values())) {
+            if ( job.bundleId != null && job.bundleId == bundleId ) {
+                this.cancel(job.name);
+                names.add(job.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Get the scheduled jobs.
+     */
+    public synchronized List<WheelJob> getJobs() {
+        return new ArrayList<WheelJob>(this.jobs.values());
+    }
+
+    /**
+     * Get the next execution time of a job.
+     */
+    public synchronized long getNextFireTime(final WheelJob job) {
+        return job.deadline;
+    }
+
+    /**
+     * The number of executions since the start of the wheel.
+     */
+    public long getFireCount() {
+        return this.fireCount.get();
+    }
+
+    /**
+     * The average delay between the scheduled and the actual start of an execution in ms.
+     * This includes the time the job waited for a thread of the pool.
+     */
+    public long getAverageLag() {
+        final long count = this.fireCount.get();
+        return count == 0 ? 0 : this.totalLag.get() / count;
+    }
+
+    /**
+     * The maximum delay between the scheduled and the actual start of an execution in ms.
+     */
+    public long getMaxLag() {
+        return this.maxLag.get();
+    }
+
+    /**
+     * Record the delay between the scheduled and the actual start of an execution.
+     */
+    private void recordLag(final long delay) {
+        final long lag = Math.max(0, delay);
+        this.fireCount.incrementAndGet();
+        this.totalLag.addAndGet(lag);
+        long max;
+        while ( (max = this.maxLag.get()) < lag && !this.maxLag.compareAndSet(max, lag) ) {
+            // retry
+        }
+    }
+
+    /**
+     * Add the job to the bucket of its deadline, called while holding the lock.
+     */
+    private void link(final WheelJob job) {
+        // the tick which is processed at or right after the deadline
+        final long calculated = (job.deadline - this.startTime + TICK - 1) / TICK - 1;
+        final long ticks = Math.max(calculated, this.tick);
+        job.rounds = (ticks - this.tick) / WHEEL_SIZE;
+        job.bucket = (int)(ticks & (WHEEL_SIZE - 1));
+        job.prev = null;
+        job.next = this.wheel[job.bucket];
+        if ( job.next != null ) {
+            job.next.prev = job;
+        }
+        this.wheel[job.bucket] = job;
+    }
+
+    /**
+     * Remove the job from its bucket, called while holding the lock.
+     */
+    private void unlink(final WheelJob job) {
+        if ( job.bucket != -1 ) {
+            if ( job.prev != null ) {
+                job.prev.next = job.next;
+            } else {
+                this.wheel[job.bucket] = job.next;
+            }
+            if ( job.next != null ) {
+                job.next.prev = job.prev;
+            }
+            job.prev = null;
+            job.next = null;
+            job.bucket = -1;
+        }
+    }
+
+    /**
+     * The loop of the ticker thread.
+     */
+    private void tickerLoop() {
+        while ( this.running ) {
+            final long tickTime;
+            synchronized ( this ) {
+                tickTime = this.startTime + (this.tick + 1) * TICK;
+            }
+            long now = System.currentTimeMillis();
+            while ( now < tickTime ) {
+                try {
+                    Thread.sleep(tickTime - now);
+                } catch (final InterruptedException ie) {
+                    if ( !this.running ) {
+                        return;
+                    }
+                }
+                now = System.currentTimeMillis();
+            }
+
+            final List<WheelJob> expired = new ArrayList<WheelJob>();
+            final List<Long> deadlines = new ArrayList<Long>();
+            synchronized ( this ) {
+                final int bucket = (int)(this.tick & (WHEEL_SIZE - 1));
+                WheelJob job = this.wheel[bucket];
+                while ( job != null ) {
+                    final WheelJob next = job.next;
+                    if ( job.rounds <= 0 ) {
+                        this.unlink(job);
+                        expired.add(job);
+                    } else {
+                        job.rounds--;
+                    }
+                    job = next;
+                }
+                this.tick++;
+
+                for(final WheelJob e : expired) {
+                    deadlines.add(e.deadline);
+                    if ( e.remaining > 0 ) {
+                        e.remaining--;
+                    }
+                    if ( e.period > 0 && e.remaining != 0 ) {
+                        e.deadline = Math.max(e.deadline + e.period, now);
+                        this.link(e);
+                    } else {
+                        this.jobs.remove(e.name);
+                    }
+                }
+            }
+
+            for(int i = 0; i < expired.size(); i++) {
+                final WheelJob job = expired.get(i);
+                final long deadline = deadlines.get(i);
+                try {
+                    this.threadPool.execute(new Runnable() {
+
+                        public void run() {
+                            recordLag(System.currentTimeMillis() - deadline);
+                            job.execute();
+                        }
+                    });
+                } catch (final RuntimeException re) {
+                    this.logger.error("Unable to execute job " + job.name, re);
+                }
+            }
+        }
+    }
+}
@@ -16,8 +16,13 @@
  */
 package org.apache.sling.commons.scheduler.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.discovery.InstanceDescription;
 import org.apache.sling.discovery.TopologyEvent;
 import org.apache.sling.discovery.TopologyEvent.Type;
 import org.apache.sling.discovery.TopologyEventListener;
@@ -37,9 +42,16 @@ public class TopologyHandler implements TopologyEventListener {
         if ( event.getType() == Type.TOPOLOGY_INIT || event.getType() == Type.TOPOLOGY_CHANGED ) {
             QuartzJobExecutor.SLING_ID = event.getNewView().getLocalInstance().getSlingId();
             QuartzJobExecutor.IS_LEADER.set(event.getNewView().getLocalInstance().isLeader());
+            final List<String> ids = new ArrayList<String>();
+            for(final InstanceDescription desc : event.getNewView().getLocalInstance().getClusterView().getInstances()) {
+                ids.add(desc.getSlingId());
+            }
+            Collections.sort(ids);
+            QuartzJobExecutor.CLUSTER_INSTANCES = ids.toArray(new String[ids.size()]);
             QuartzJobExecutor.DISCOVERY_INFO_AVAILABLE.set(true);
         } else if ( event.getType() == Type.TOPOLOGY_CHANGING ) {
             QuartzJobExecutor.IS_LEADER.set(false);
+            QuartzJobExecutor.CLUSTER_INSTANCES = null;
             QuartzJobExecutor.DISCOVERY_INFO_AVAILABLE.set(false);
         }
     }
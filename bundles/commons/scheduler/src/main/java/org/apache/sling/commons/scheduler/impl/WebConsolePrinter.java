@@ -20,6 +20,7 @@ package org.apache.sling.commons.scheduler.impl;
 
 import java.io.PrintWriter;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -116,8 +117,54 @@ public class WebConsolePrinter {
                 pw.print  ("Unable to print complete configuration: ");
                 pw.println(se.getMessage());
             }
+            this.printTimingWheel(pw);
         } else {
             pw.println("Status : not active");
         }
     }
+
+    /**
+     * Print the lag metrics and the jobs of the timing wheel.
+     */
+    private void printTimingWheel(final PrintWriter pw) {
+        final TimingWheel wheel = this.scheduler.getTimingWheel();
+        if ( wheel != null ) {
+            pw.println("Timing Wheel");
+            pw.print  ("Executions  : ");
+            pw.println(wheel.getFireCount());
+            pw.print  ("Average lag : ");
+            pw.print(wheel.getAverageLag());
+            pw.println(" ms");
+            pw.print  ("Maximum lag : ");
+            pw.print(wheel.getMaxLag());
+            pw.println(" ms");
+            pw.println();
+            for(final TimingWheel.WheelJob job : wheel.getJobs()) {
+                pw.print("Job : ");
+                pw.print(job.getName());
+                pw.print(", class: ");
+                pw.print(job.getJob().getClass().getName());
+                pw.print(", concurrent: ");
+                pw.print(job.isCanRunConcurrently());
+                if ( job.getRunOn() != null ) {
+                    pw.print(", runOn: ");
+                    pw.print(Arrays.toString(job.getRunOn()));
+                }
+                if ( job.getBundleId() != null ) {
+                    pw.print(", bundleId: ");
+                    pw.print(String.valueOf(job.getBundleId()));
+                }
+                pw.println();
+                pw.print("Next execution : ");
+                pw.print(new Date(wheel.getNextFireTime(job)));
+                if ( job.getPeriod() > 0 ) {
+                    pw.print(", period: ");
+                    pw.print(job.getPeriod());
+                    pw.print(" ms");
+                }
+                pw.println();
+                pw.println();
+            }
+        }
+    }
 }
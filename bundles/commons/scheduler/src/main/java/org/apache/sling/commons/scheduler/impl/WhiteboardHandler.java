@@ -23,6 +23,7 @@ import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.sling.commons.scheduler.Job;
+import org.apache.sling.commons.scheduler.ScheduleOptions;
 import org.apache.sling.commons.scheduler.Scheduler;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
@@ -101,6 +102,15 @@ public class WhiteboardHandler {
      * @throws Exception
      */
     private String getServiceIdentifier(final ServiceReference ref) {
+        // append service id to create a unique identifier
+        return getServiceName(ref) + "." + ref.getProperty(Constants.SERVICE_ID);
+    }
+
+    /**
+     * Get the configured name of the service.
+     * @param ref The service reference
+     */
+    private String getServiceName(final ServiceReference ref) {
         String name = (String)ref.getProperty(Scheduler.PROPERTY_SCHEDULER_NAME);
         if ( name == null ) {
             name = (String)ref.getProperty(Constants.SERVICE_PID);
@@ -108,11 +118,28 @@ public class WhiteboardHandler {
                 name = "Registered Service";
             }
         }
-        // now append service id to create a unique identifier
-        name = name + "." + ref.getProperty(Constants.SERVICE_ID);
         return name;
     }
 
+    /**
+     * Apply the cluster name and the optional misfire policy of the service.
+     * As the service id differs between instances and changes on restart,
+     * the job is identified in the cluster and the schedule state is
+     * stored by the service name.
+     * @param options The schedule options
+     * @param ref The service reference
+     */
+    private ScheduleOptions withServiceOptions(final ScheduleOptions options, final ServiceReference ref) {
+        final String misfire = (String)ref.getProperty(Scheduler.PROPERTY_SCHEDULER_MISFIRE);
+        if ( options instanceof InternalScheduleOptions ) {
+            ((InternalScheduleOptions)options).clusterName = getServiceName(ref);
+            if ( misfire != null ) {
+                ((InternalScheduleOptions)options).persistenceKey = getServiceName(ref);
+            }
+        }
+        return options.onMisfire(misfire);
+    }
+
     /**
      * Register a job or task
      * @param type The type (job or task)
@@ -132,10 +159,10 @@ public class WhiteboardHandler {
         }
         final String expression = (String)ref.getProperty(Scheduler.PROPERTY_SCHEDULER_EXPRESSION);
         if ( expression != null ) {
-            this.scheduler.schedule(ref.getBundle().getBundleId(), job, this.scheduler.EXPR(expression)
+            this.scheduler.schedule(ref.getBundle().getBundleId(), job, this.withServiceOptions(this.scheduler.EXPR(expression)
                     .name(name)
                     .canRunConcurrently((concurrent != null ? concurrent : true))
-                    .onInstancesOnly(runOnOpts));
+                    .onInstancesOnly(runOnOpts), ref));
         } else {
             final Long period = (Long)ref.getProperty(Scheduler.PROPERTY_SCHEDULER_PERIOD);
             if ( period != null ) {
@@ -155,10 +182,10 @@ public class WhiteboardHandler {
                         this.logger.debug("Ignoring service {} : scheduler times is less than 1.", ref);
                     } else {
                         final int t = (times != null ? times : -1);
-                        this.scheduler.schedule(ref.getBundle().getBundleId(), job, this.scheduler.AT(date, t, period)
+                        this.scheduler.schedule(ref.getBundle().getBundleId(), job, this.withServiceOptions(this.scheduler.AT(date, t, period)
                                 .name(name)
                                 .canRunConcurrently((concurrent != null ? concurrent : true))
-                                .onInstancesOnly(runOnOpts));
+                                .onInstancesOnly(runOnOpts), ref));
                     }
                 }
             } else {
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.apache.sling.discovery.TopologyEvent;
+import org.apache.sling.discovery.TopologyEvent.Type;
+import org.junit.After;
+import org.junit.Test;
+
+public class QuartzJobExecutorTest {
+
+    private static final String[] INSTANCES = new String[] {"a", "b", "c"};
+
+    @After
+    public void reset() {
+        QuartzJobExecutor.SLING_ID = null;
+        QuartzJobExecutor.CLUSTER_INSTANCES = null;
+        QuartzJobExecutor.IS_LEADER.set(true);
+        QuartzJobExecutor.DISCOVERY_INFO_AVAILABLE.set(false);
+    }
+
+    private int countTargets(final String clusterName) {
+        int targets = 0;
+        QuartzJobExecutor.CLUSTER_INSTANCES = INSTANCES.clone();
+        for(final String id : INSTANCES) {
+            QuartzJobExecutor.SLING_ID = id;
+            QuartzJobExecutor.IS_LEADER.set("a".equals(id));
+            if ( QuartzJobExecutor.isSingleInstanceTarget(clusterName) ) {
+                targets++;
+            }
+        }
+        return targets;
+    }
+
+    @Test public void testSingleJobRunsOnExactlyOneInstance() {
+        for(final String name : Arrays.asList("job1", "org.apache.sling.SomeJob", "x")) {
+            assertEquals(1, countTargets(name));
+        }
+    }
+
+    @Test public void testUnnamedJobRunsOnLeader() {
+        QuartzJobExecutor.CLUSTER_INSTANCES = INSTANCES.clone();
+        QuartzJobExecutor.SLING_ID = "b";
+        QuartzJobExecutor.IS_LEADER.set(false);
+        assertFalse(QuartzJobExecutor.isSingleInstanceTarget(null));
+        QuartzJobExecutor.IS_LEADER.set(true);
+        assertTrue(QuartzJobExecutor.isSingleInstanceTarget(null));
+    }
+
+    @Test public void testTopologyChangingClearsInstances() {
+        QuartzJobExecutor.CLUSTER_INSTANCES = INSTANCES.clone();
+        final TopologyEvent event = mock(TopologyEvent.class);
+        when(event.getType()).thenReturn(Type.TOPOLOGY_CHANGING);
+        new TopologyHandler().handleTopologyEvent(event);
+        assertNull(QuartzJobExecutor.CLUSTER_INSTANCES);
+        assertFalse(QuartzJobExecutor.IS_LEADER.get());
+        assertFalse(QuartzJobExecutor.DISCOVERY_INFO_AVAILABLE.get());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScheduleStateStoreTest {
+
+    private File file;
+
+    @Before public void setup() throws IOException {
+        this.file = File.createTempFile("schedules", ".properties");
+        this.file.delete();
+    }
+
+    @After public void cleanup() {
+        this.file.delete();
+    }
+
+    @Test public void testStateIsKeptAcrossRestarts() {
+        final ScheduleStateStore store = new ScheduleStateStore(this.file);
+        store.put("job", 1000L);
+        store.flush();
+
+        assertEquals(Long.valueOf(1000L), new ScheduleStateStore(this.file).get("job"));
+    }
+
+    @Test public void testRemovedStateIsNotRestored() {
+        final ScheduleStateStore store = new ScheduleStateStore(this.file);
+        store.put("job", 1000L);
+        store.put("other", 2000L);
+        store.flush();
+        store.put("job", null);
+        store.flush();
+
+        final ScheduleStateStore reloaded = new ScheduleStateStore(this.file);
+        assertNull(reloaded.get("job"));
+        assertEquals(Long.valueOf(2000L), reloaded.get("other"));
+    }
+}
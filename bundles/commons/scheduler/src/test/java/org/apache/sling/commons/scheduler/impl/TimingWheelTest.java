@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.commons.threads.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.LoggerFactory;
+
+public class TimingWheelTest {
+
+    /** Delay of the thread pool before a job is started. */
+    private volatile long poolDelay;
+
+    private TimingWheel wheel;
+
+    @Before public void setup() {
+        final ThreadPool pool = mock(ThreadPool.class);
+        doAnswer(new Answer<Object>() {
+
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final Runnable r = (Runnable) invocation.getArguments()[0];
+                final long delay = poolDelay;
+                new Thread() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(delay);
+                        } catch (final InterruptedException ie) {
+                            return;
+                        }
+                        r.run();
+                    }
+                }.start();
+                return null;
+            }
+        }).when(pool).execute(any(Runnable.class));
+        this.wheel = new TimingWheel(pool);
+    }
+
+    @After public void cleanup() {
+        this.wheel.stop();
+    }
+
+    private TimingWheel.WheelJob createJob(final String name,
+            final Runnable job,
+            final Long bundleId,
+            final long start,
+            final int times,
+            final long period) {
+        return new TimingWheel.WheelJob(name, name, job, bundleId,
+                Collections.<String, Serializable>emptyMap(), null, true,
+                start, times, period, LoggerFactory.getLogger(this.getClass()));
+    }
+
+    private Runnable createJob(final CountDownLatch latch, final AtomicInteger count) {
+        return new Runnable() {
+
+            public void run() {
+                count.incrementAndGet();
+                latch.countDown();
+            }
+        };
+    }
+
+    @Test public void testOneShotJob() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        this.wheel.schedule(createJob("once", createJob(latch, count), null, System.currentTimeMillis() + 50, 1, 0));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        Thread.sleep(3 * TimingWheel.TICK);
+        assertEquals(1, count.get());
+        assertTrue(this.wheel.getJobs().isEmpty());
+    }
+
+    @Test public void testPeriodicJobWithTimes() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicInteger count = new AtomicInteger();
+        this.wheel.schedule(createJob("periodic", createJob(latch, count), null, System.currentTimeMillis(), 3, TimingWheel.TICK));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        Thread.sleep(3 * TimingWheel.TICK);
+        assertEquals(3, count.get());
+        assertTrue(this.wheel.getJobs().isEmpty());
+        assertEquals(3, this.wheel.getFireCount());
+    }
+
+    @Test public void testEndlessPeriodicJob() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicInteger count = new AtomicInteger();
+        this.wheel.schedule(createJob("endless", createJob(latch, count), null, System.currentTimeMillis(), -1, TimingWheel.TICK));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, this.wheel.getJobs().size());
+
+        assertTrue(this.wheel.cancel("endless"));
+        assertTrue(this.wheel.getJobs().isEmpty());
+        Thread.sleep(2 * TimingWheel.TICK);
+        final int executions = count.get();
+        Thread.sleep(3 * TimingWheel.TICK);
+        assertEquals(executions, count.get());
+    }
+
+    @Test public void testCancel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        this.wheel.schedule(createJob("cancelled", createJob(latch, count), null, System.currentTimeMillis() + 3 * TimingWheel.TICK, 1, 0));
+        assertTrue(this.wheel.cancel("cancelled"));
+        assertFalse(this.wheel.cancel("cancelled"));
+
+        assertFalse(latch.await(6 * TimingWheel.TICK, TimeUnit.MILLISECONDS));
+        assertEquals(0, count.get());
+    }
+
+    @Test public void testCancelAllOfBundle() throws Exception {
+        final long start = System.currentTimeMillis() + 60000;
+        final Runnable job = createJob(new CountDownLatch(1), new AtomicInteger());
+        this.wheel.schedule(createJob("a", job, 1L, start, 1, 0));
+        this.wheel.schedule(createJob("b", job, 2L, start, 1, 0));
+        this.wheel.schedule(createJob("c", job, 1L, start, 1, 0));
+
+        assertEquals(2, this.wheel.cancelAll(1L).size());
+        assertEquals(1, this.wheel.getJobs().size());
+        assertEquals("b", this.wheel.getJobs().get(0).getName());
+    }
+
+    @Test public void testJobBeyondOneRevolution() throws Exception {
+        final long start = System.currentTimeMillis() + 2 * TimingWheel.WHEEL_SIZE * TimingWheel.TICK;
+        final CountDownLatch latch = new CountDownLatch(1);
+        final TimingWheel.WheelJob job = createJob("far", createJob(latch, new AtomicInteger()), null, start, 1, 0);
+        this.wheel.schedule(job);
+
+        assertFalse(latch.await(3 * TimingWheel.TICK, TimeUnit.MILLISECONDS));
+        assertEquals(start, this.wheel.getNextFireTime(job));
+        assertEquals(1, this.wheel.getJobs().size());
+    }
+
+    @Test public void testLagIsTakenWhenJobStarts() throws Exception {
+        this.poolDelay = 5 * TimingWheel.TICK;
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.wheel.schedule(createJob("lag", createJob(latch, new AtomicInteger()), null, System.currentTimeMillis(), 1, 0));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, this.wheel.getFireCount());
+        assertTrue(this.wheel.getMaxLag() >= this.poolDelay);
+    }
+}
@@ -32,6 +32,8 @@ import java.util.concurrent.ThreadFactory;
  * - shutdown wait time: -1
  * - priority: NORM
  * - daemon: false
+ * - adaptive: false
+ * - virtual threads: false
  * - factory: null (= default jvm thread factory)
  */
 public final class ModifiableThreadPoolConfig implements ThreadPoolConfig {
@@ -54,6 +56,10 @@ public final class ModifiableThreadPoolConfig implements ThreadPoolConfig {
     public static final String PROPERTY_PRIORITY = "priority";
     /** Configuration property for the daemon flag. */
     public static final String PROPERTY_DAEMON = "daemon";
+    /** Configuration property for the adaptive flag. */
+    public static final String PROPERTY_ADAPTIVE = "adaptive";
+    /** Configuration property for the virtual threads flag. */
+    public static final String PROPERTY_VIRTUAL_THREADS = "virtualThreads";
     /** Configuration property for the thread pool name. */
     public static final String PROPERTY_NAME = "name";
 
@@ -87,6 +93,12 @@ public final class ModifiableThreadPoolConfig implements ThreadPoolConfig {
     /** Create daemon threads? */
     private  boolean isDaemon = false;
 
+    /** Adapt the pool size? */
+    private  boolean adaptive = false;
+
+    /** Use virtual threads? */
+    private  boolean virtualThreads = false;
+
     /**
      * Create a new default configuration.
      */
@@ -110,6 +122,8 @@ public final class ModifiableThreadPoolConfig implements ThreadPoolConfig {
             this.factory = copy.getFactory();
             this.priority = copy.getPriority();
             this.isDaemon = copy.isDaemon();
+            this.adaptive = copy.isAdaptive();
+            this.virtualThreads = copy.isVirtualThreads();
         }
     }
 
@@ -272,6 +286,38 @@ public final class ModifiableThreadPoolConfig implements ThreadPoolConfig {
         this.isDaemon = isDaemon;
     }
 
+    /**
+     * @see org.apache.sling.commons.threads.ThreadPoolConfig#isAdaptive()
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Set the adaptive handling.
+     * @param adaptive The adaptive setting.
+     * @since 3.3
+     */
+    public void setAdaptive(final boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @see org.apache.sling.commons.threads.ThreadPoolConfig#isVirtualThreads()
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Set the virtual threads handling.
+     * @param virtualThreads The virtual threads setting.
+     * @since 3.3
+     */
+    public void setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if ( obj instanceof ModifiableThreadPoolConfig ) {
@@ -284,7 +330,9 @@ public final class ModifiableThreadPoolConfig implements ThreadPoolConfig {
                 && this.shutdownGraceful == o.shutdownGraceful
                 && this.shutdownWaitTimeMs == o.shutdownWaitTimeMs
                 && this.priority.equals(o.priority)
-                && this.isDaemon == o.isDaemon;
+                && this.isDaemon == o.isDaemon
+                && this.adaptive == o.adaptive
+                && this.virtualThreads == o.virtualThreads;
         }
         return false;
     }
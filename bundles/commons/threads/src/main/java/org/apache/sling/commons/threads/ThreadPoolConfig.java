@@ -18,9 +18,12 @@ package org.apache.sling.commons.threads;
 
 import java.util.concurrent.ThreadFactory;
 
+import aQute.bnd.annotation.ProviderType;
+
 /**
  * The thread pool configuration.
  */
+@ProviderType
 public interface ThreadPoolConfig {
 
     /** The thread pool policies. */
@@ -98,4 +101,26 @@ public interface ThreadPoolConfig {
      * @return <code>true</code> if daemon threads should be created.
      */
     boolean isDaemon();
+
+    /**
+     * Should the pool adapt its size to the load?
+     * An adaptive pool starts with the minimum pool size and
+     * grows or shrinks between the minimum and the maximum pool size
+     * based on the observed queue wait time and throughput.
+     * @return <code>true</code> if the pool is adaptive.
+     * @since 3.3
+     */
+    boolean isAdaptive();
+
+    /**
+     * Should the pool run each task in its own virtual thread?
+     * This is only supported if the runtime provides virtual threads,
+     * otherwise a pool with platform threads is created.
+     * The maximum pool size then limits the number of concurrently
+     * running tasks instead of the number of threads. Further tasks
+     * wait in the queue, the block policy applies if the queue is full.
+     * @return <code>true</code> if virtual threads should be used.
+     * @since 3.3
+     */
+    boolean isVirtualThreads();
 }
\ No newline at end of file
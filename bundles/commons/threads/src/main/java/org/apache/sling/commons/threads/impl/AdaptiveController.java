@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.threads.impl;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The adaptive controller resizes the core pool size of an executor
+ * between the configured minimum and maximum pool size.
+ *
+ * Every {@link #INTERVAL} ms the controller compares the average time
+ * tasks waited in the queue and the number of completed tasks with
+ * the previous interval (hill climbing):
+ * - if tasks are queued and waited longer than {@link #WAIT_THRESHOLD} ms
+ *   or all threads are busy, the pool size is moved one step in the current direction. If the previous step
+ *   lowered the throughput, the direction is reversed.
+ * - if no tasks are queued and threads are idle, the pool shrinks by one.
+ * - otherwise the pool size is kept.
+ */
+public class AdaptiveController extends TimerTask {
+
+    /** The interval between two decisions in ms. */
+    static final long INTERVAL = 1000;
+
+    /** The average queue wait time in ms above which the pool is considered starved. */
+    static final long WAIT_THRESHOLD = 10;
+
+    /** Throughput drop tolerated before a step is considered a failure (in percent). */
+    static final int TOLERANCE = 5;
+
+    /** The timer shared by all controllers. */
+    private static Timer TIMER;
+
+    /** The number of running controllers. */
+    private static int TIMER_USAGE;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String name;
+
+    private final ThreadPoolExecutor executor;
+
+    private final QueueLatencyHistogram histogram;
+
+    private final int minPoolSize;
+
+    private final int maxPoolSize;
+
+    /** Current direction of the hill climbing: 1 grows, -1 shrinks. */
+    private int direction = 1;
+
+    /** Was the last decision a resize caused by waiting tasks? */
+    private boolean lastStepWasClimb = false;
+
+    private long lastCompleted;
+
+    private long lastWaitCount;
+
+    private long lastWaitNanos;
+
+    private volatile double lastThroughput;
+
+    private volatile double lastWaitTime;
+
+    private volatile String lastDecision = "none";
+
+    private volatile long growCount;
+
+    private volatile long shrinkCount;
+
+    public AdaptiveController(final String name,
+            final ThreadPoolExecutor executor,
+            final QueueLatencyHistogram histogram,
+            final int minPoolSize,
+            final int maxPoolSize) {
+        this.name = name;
+        this.executor = executor;
+        this.histogram = histogram;
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = Math.max(minPoolSize, maxPoolSize);
+    }
+
+    /**
+     * Start the controller.
+     */
+    public void start() {
+        synchronized ( AdaptiveController.class ) {
+            if ( TIMER == null ) {
+                TIMER = new Timer("Apache Sling Thread Pool Controller", true);
+            }
+            TIMER_USAGE++;
+            TIMER.schedule(this, INTERVAL, INTERVAL);
+        }
+    }
+
+    /**
+     * Stop the controller.
+     */
+    public void stop() {
+        synchronized ( AdaptiveController.class ) {
+            if ( this.cancel() ) {
+                TIMER_USAGE--;
+                if ( TIMER_USAGE == 0 ) {
+                    TIMER.cancel();
+                    TIMER = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @see java.util.TimerTask#run()
+     */
+    @Override
+    public void run() {
+        try {
+            this.adjust();
+        } catch (final Throwable t) {
+            // never let an exception kill the shared timer
+            logger.warn("Unable to adjust thread pool " + this.name, t);
+        }
+    }
+
+    /**
+     * Take a decision for the last interval.
+     */
+    void adjust() {
+        final long completed = this.executor.getCompletedTaskCount();
+        final long waitCount = this.histogram.getCount();
+        final long waitNanos = this.histogram.getTotalNanos();
+
+        final double throughput = (completed - this.lastCompleted) * 1000.0 / INTERVAL;
+        final long waited = waitCount - this.lastWaitCount;
+        final double waitTime = waited > 0
+                ? TimeUnit.NANOSECONDS.toMicros(waitNanos - this.lastWaitNanos) / 1000.0 / waited : 0;
+
+        final int size = this.executor.getCorePoolSize();
+        final int active = this.executor.getActiveCount();
+        final boolean queued = !this.executor.getQueue().isEmpty();
+
+        int target = size;
+        String reason = null;
+        // tasks are still queued, so all threads were busy during the interval
+        if ( queued && (waitTime > WAIT_THRESHOLD || active >= size) ) {
+            if ( this.lastStepWasClimb
+                 && throughput * 100 < this.lastThroughput * (100 - TOLERANCE) ) {
+                this.direction = -this.direction;
+                reason = "throughput dropped";
+            } else {
+                reason = "tasks waiting";
+            }
+            target = size + this.direction;
+            // at a bound, turn around at the next opportunity
+            if ( target > this.maxPoolSize || target < this.minPoolSize ) {
+                this.direction = -this.direction;
+                target = size;
+            }
+            this.lastStepWasClimb = target != size;
+        } else {
+            this.direction = 1;
+            this.lastStepWasClimb = false;
+            if ( !queued && active < size && size > this.minPoolSize ) {
+                target = size - 1;
+                reason = "threads idle";
+            }
+        }
+
+        if ( target != size ) {
+            if ( target > size ) {
+                // the maximum might be lower than the new core size if the pool was reconfigured
+                if ( this.executor.getMaximumPoolSize() < target ) {
+                    this.executor.setMaximumPoolSize(target);
+                }
+                this.executor.setCorePoolSize(target);
+                this.growCount++;
+            } else {
+                this.executor.setCorePoolSize(target);
+                this.shrinkCount++;
+            }
+            this.lastDecision = (target > size ? "grow " : "shrink ") + size + " -> " + target
+                    + " (" + reason + ", wait " + format(waitTime) + "ms, throughput " + format(throughput) + "/s)";
+            logger.debug("Thread pool [{}] : {}", this.name, this.lastDecision);
+        }
+
+        this.lastCompleted = completed;
+        this.lastWaitCount = waitCount;
+        this.lastWaitNanos = waitNanos;
+        this.lastThroughput = throughput;
+        this.lastWaitTime = waitTime;
+    }
+
+    private static String format(final double value) {
+        return String.valueOf(Math.round(value * 10) / 10.0);
+    }
+
+    /**
+     * The last resize decision.
+     */
+    public String getLastDecision() {
+        return this.lastDecision;
+    }
+
+    /**
+     * The number of completed tasks per second in the last interval.
+     */
+    public double getThroughput() {
+        return this.lastThroughput;
+    }
+
+    /**
+     * The average queue wait time in ms in the last interval.
+     */
+    public double getWaitTime() {
+        return this.lastWaitTime;
+    }
+
+    /**
+     * The number of times the pool was grown.
+     */
+    public long getGrowCount() {
+        return this.growCount;
+    }
+
+    /**
+     * The number of times the pool was shrunk.
+     */
+    public long getShrinkCount() {
+        return this.shrinkCount;
+    }
+}
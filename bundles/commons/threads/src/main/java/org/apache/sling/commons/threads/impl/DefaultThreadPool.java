@@ -16,12 +16,19 @@
  */
 package org.apache.sling.commons.threads.impl;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -53,6 +60,12 @@ public class DefaultThreadPool
 
     protected final ModifiableThreadPoolConfig configuration;
 
+    /** The queue wait times. */
+    protected final QueueLatencyHistogram histogram = new QueueLatencyHistogram();
+
+    /** The controller for an adaptive pool. */
+    protected AdaptiveController controller;
+
     /**
      * Create a new thread pool.
      * @param name - The name of the thread pool. If null {@link DefaultThreadPoolManager#DEFAULT_THREADPOOL_NAME}
@@ -60,6 +73,19 @@ public class DefaultThreadPool
      */
     public DefaultThreadPool(final String name,
                              final ThreadPoolConfig origConfig) {
+        this(name, origConfig, null);
+    }
+
+    /**
+     * Create a new thread pool.
+     * @param name - The name of the thread pool. If null {@link DefaultThreadPoolManager#DEFAULT_THREADPOOL_NAME}
+     *               is used
+     * @param taskThreadFactory - The factory for the thread per task if the pool uses virtual threads.
+     *               If null, a factory for virtual threads is created if the runtime supports them.
+     */
+    DefaultThreadPool(final String name,
+                      final ThreadPoolConfig origConfig,
+                      final ThreadFactory taskThreadFactory) {
         // name
         if ( name != null ) {
             this.name = name;
@@ -99,18 +125,6 @@ public class DefaultThreadPool
             this.logger.warn("keep-alive-time-ms < 0 for pool \"" + this.name + "\". Set to 1000");
         }
 
-        // Queue
-        final BlockingQueue<Runnable> queue;
-        if (this.configuration.getQueueSize() != 0) {
-            if (this.configuration.getQueueSize() > 0) {
-                queue = new java.util.concurrent.ArrayBlockingQueue<Runnable>(this.configuration.getQueueSize());
-            } else {
-                queue = new LinkedBlockingQueue<Runnable>();
-            }
-        } else {
-            queue = new SynchronousQueue<Runnable>();
-        }
-
         RejectedExecutionHandler handler = null;
         switch (this.configuration.getBlockPolicy()) {
             case ABORT :
@@ -126,13 +140,72 @@ public class DefaultThreadPool
                 handler = new ThreadPoolExecutor.CallerRunsPolicy();
                 break;
         }
-        this.executor = new ThreadPoolExecutor(this.configuration.getMinPoolSize(),
-                this.configuration.getMaxPoolSize(),
-                this.configuration.getKeepAliveTime(),
-                TimeUnit.MILLISECONDS,
-                queue,
-                threadFactory,
-                handler);
+
+        ThreadFactory virtualThreadFactory = null;
+        if ( this.configuration.isVirtualThreads() ) {
+            virtualThreadFactory = (taskThreadFactory != null ? taskThreadFactory : createVirtualThreadFactory(this.name));
+            if ( virtualThreadFactory == null ) {
+                this.logger.warn("Virtual threads are not supported by this runtime. Pool \"" + this.name + "\" uses platform threads.");
+            }
+        }
+
+        // Queue
+        final BlockingQueue<Runnable> queue;
+        if (this.configuration.getQueueSize() != 0) {
+            if (this.configuration.getQueueSize() > 0) {
+                queue = new java.util.concurrent.ArrayBlockingQueue<Runnable>(this.configuration.getQueueSize());
+            } else {
+                queue = new LinkedBlockingQueue<Runnable>();
+            }
+        } else {
+            queue = new SynchronousQueue<Runnable>();
+        }
+
+        if ( virtualThreadFactory != null ) {
+            // Each task runs in a new virtual thread: there are no core threads
+            // and a thread ends as soon as its task is done. Thread locals therefore never
+            // leak from one task to the next. The max pool size limits the number of
+            // concurrently running tasks, further tasks wait in the queue for a permit.
+            final Semaphore limit;
+            if ( this.configuration.getMaxPoolSize() == Integer.MAX_VALUE ) {
+                limit = null;
+            } else {
+                limit = new Semaphore(this.configuration.getMaxPoolSize());
+            }
+            this.executor = new MeasuringThreadPoolExecutor(0,
+                    Integer.MAX_VALUE,
+                    0,
+                    TimeUnit.MILLISECONDS,
+                    new SynchronousQueue<Runnable>(),
+                    virtualThreadFactory,
+                    handler,
+                    this.histogram,
+                    limit,
+                    queue);
+            if ( this.configuration.isAdaptive() ) {
+                this.logger.warn("Adaptive pool \"" + this.name + "\" uses virtual threads. Pool will not adapt.");
+            }
+        } else {
+            this.executor = new MeasuringThreadPoolExecutor(this.configuration.getMinPoolSize(),
+                    this.configuration.getMaxPoolSize(),
+                    this.configuration.getKeepAliveTime(),
+                    TimeUnit.MILLISECONDS,
+                    queue,
+                    threadFactory,
+                    handler,
+                    this.histogram,
+                    null,
+                    null);
+            if ( this.configuration.isAdaptive() ) {
+                if ( this.configuration.getMaxPoolSize() > this.configuration.getMinPoolSize() ) {
+                    this.controller = new AdaptiveController(this.name, this.executor, this.histogram,
+                            this.configuration.getMinPoolSize(), this.configuration.getMaxPoolSize());
+                    this.controller.start();
+                } else {
+                    this.logger.warn("max-pool-size <= min-pool-size for adaptive pool \"" + this.name + "\". Pool will not adapt.");
+                }
+            }
+        }
         this.logger.info("Thread pool [{}] initialized.", name);
     }
 
@@ -191,6 +264,9 @@ public class DefaultThreadPool
      */
     public void shutdown() {
         this.logger.info("Shutting down thread pool [{}] ...", name);
+        if ( this.controller != null ) {
+            this.controller.stop();
+        }
         if ( this.executor != null ) {
             if (this.configuration.isShutdownGraceful()) {
                 this.executor.shutdown();
@@ -219,6 +295,43 @@ public class DefaultThreadPool
         return this.executor;
     }
 
+    /**
+     * Return the queue wait time histogram.
+     */
+    public QueueLatencyHistogram getHistogram() {
+        return this.histogram;
+    }
+
+    /**
+     * Return the controller.
+     * @return The controller or <code>null</code> if the pool is not adaptive.
+     */
+    public AdaptiveController getController() {
+        return this.controller;
+    }
+
+    /**
+     * Create a factory for virtual threads if the runtime supports them.
+     * @return The factory or <code>null</code>
+     */
+    private static ThreadFactory createVirtualThreadFactory(final String name) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (final ClassNotFoundException cnfe) {
+            // not supported
+        } catch (final NoSuchMethodException nsme) {
+            // not supported
+        } catch (final IllegalAccessException iae) {
+            // not supported
+        } catch (final InvocationTargetException ite) {
+            // preview feature not enabled
+        }
+        return null;
+    }
+
     private void checkExecutor() {
         if ( this.executor == null ) {
             throw new IllegalStateException("Thread pool " + this.name + " is already shutdown.");
@@ -233,4 +346,317 @@ public class DefaultThreadPool
                         executor.getMaximumPoolSize(),
                         executor.getQueue().size()});
     }
+
+    /**
+     * Executor recording the time each task waits before it is run.
+     * Tasks are queued wrapped in a {@link QueuedTask}, but the queue,
+     * the rejected execution handler and the other methods dealing with
+     * tasks only see the tasks passed to the executor.
+     *
+     * If a limit is set, each task is run in a new thread once it got a
+     * permit. Tasks which do not get a permit wait in the pending queue
+     * and are started when a running task is done. If the pending queue
+     * is full, the task is passed to the rejected execution handler.
+     */
+    private static final class MeasuringThreadPoolExecutor extends ThreadPoolExecutor {
+
+        private final QueueLatencyHistogram histogram;
+
+        private final Semaphore limit;
+
+        private final int permits;
+
+        private final BlockingQueue<Runnable> pending;
+
+        private final BlockingQueue<Runnable> queue;
+
+        public MeasuringThreadPoolExecutor(final int corePoolSize,
+                final int maximumPoolSize,
+                final long keepAliveTime,
+                final TimeUnit unit,
+                final BlockingQueue<Runnable> workQueue,
+                final ThreadFactory threadFactory,
+                final RejectedExecutionHandler handler,
+                final QueueLatencyHistogram histogram,
+                final Semaphore limit,
+                final BlockingQueue<Runnable> pending) {
+            super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, new UnwrappingRejectedExecutionHandler(handler));
+            this.histogram = histogram;
+            this.limit = limit;
+            this.permits = (limit != null ? limit.availablePermits() : 0);
+            this.pending = (limit != null ? pending : null);
+            this.queue = new TaskQueue(limit != null ? pending : workQueue);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            if ( command == null || this.limit == null || this.isShutdown() ) {
+                super.execute(command == null ? null : this.wrap(command));
+            } else {
+                final Runnable task = this.wrap(command);
+                if ( this.limit.tryAcquire() ) {
+                    this.start(task);
+                } else if ( this.pending.offer(task) ) {
+                    // a permit might have been released in the meantime
+                    this.startPending(false);
+                } else {
+                    this.getRejectedExecutionHandler().rejectedExecution(task, this);
+                }
+            }
+        }
+
+        /**
+         * Start a task holding a permit.
+         */
+        private void start(final Runnable task) {
+            try {
+                super.execute(task);
+            } catch (final RuntimeException re) {
+                this.limit.release();
+                throw re;
+            }
+        }
+
+        /**
+         * Start pending tasks as long as permits are available.
+         * Once the executor is shut down, it does not accept new tasks.
+         * The pending tasks are then run by the thread finishing a task.
+         * @param inWorker Whether this is called by a thread of the pool.
+         */
+        private void startPending(final boolean inWorker) {
+            while ( !this.pending.isEmpty() && this.limit.tryAcquire() ) {
+                final Runnable task = this.pending.poll();
+                if ( task == null ) {
+                    this.limit.release();
+                } else if ( !this.isShutdown() ) {
+                    this.start(task);
+                } else if ( inWorker ) {
+                    try {
+                        task.run();
+                    } catch (final RuntimeException re) {
+                        final Thread current = Thread.currentThread();
+                        current.getUncaughtExceptionHandler().uncaughtException(current, re);
+                    } finally {
+                        this.limit.release();
+                    }
+                } else {
+                    this.pending.offer(task);
+                    this.limit.release();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        protected void afterExecute(final Runnable r, final Throwable t) {
+            super.afterExecute(r, t);
+            if ( this.limit != null ) {
+                this.limit.release();
+                this.startPending(true);
+            }
+        }
+
+        /**
+         * The returned queue contains the tasks passed to the executor.
+         * If a limit is set, this is the queue of tasks waiting for a permit.
+         * @see java.util.concurrent.ThreadPoolExecutor#getQueue()
+         */
+        @Override
+        public BlockingQueue<Runnable> getQueue() {
+            return this.queue;
+        }
+
+        /**
+         * @see java.util.concurrent.ThreadPoolExecutor#remove(java.lang.Runnable)
+         */
+        @Override
+        public boolean remove(final Runnable task) {
+            if ( this.pending != null ) {
+                for(final Runnable queued : this.pending) {
+                    if ( QueuedTask.unwrap(queued) == task ) {
+                        return this.pending.remove(queued);
+                    }
+                }
+                return false;
+            }
+            for(final Runnable queued : super.getQueue()) {
+                if ( QueuedTask.unwrap(queued) == task ) {
+                    return super.remove(queued);
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The returned list contains the tasks passed to the executor.
+         * @see java.util.concurrent.ThreadPoolExecutor#shutdownNow()
+         */
+        @Override
+        public List<Runnable> shutdownNow() {
+            final List<Runnable> tasks = super.shutdownNow();
+            if ( this.pending != null ) {
+                this.pending.drainTo(tasks);
+            }
+            final List<Runnable> result = new ArrayList<Runnable>(tasks.size());
+            for(final Runnable task : tasks) {
+                result.add(QueuedTask.unwrap(task));
+            }
+            return result;
+        }
+
+        /**
+         * With a limit, only tasks holding a permit are counted as active.
+         * @see java.util.concurrent.ThreadPoolExecutor#getActiveCount()
+         */
+        @Override
+        public int getActiveCount() {
+            if ( this.limit != null ) {
+                return this.permits - this.limit.availablePermits();
+            }
+            return super.getActiveCount();
+        }
+
+        private Runnable wrap(final Runnable task) {
+            if ( task instanceof QueuedTask ) {
+                return task;
+            }
+            return new QueuedTask(task, this.histogram);
+        }
+
+        /**
+         * View of the work queue unwrapping the queued tasks.
+         */
+        private final class TaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+            private final BlockingQueue<Runnable> delegatee;
+
+            public TaskQueue(final BlockingQueue<Runnable> delegatee) {
+                this.delegatee = delegatee;
+            }
+
+            @Override
+            public Iterator<Runnable> iterator() {
+                final Iterator<Runnable> i = this.delegatee.iterator();
+                return new Iterator<Runnable>() {
+
+                    public boolean hasNext() {
+                        return i.hasNext();
+                    }
+
+                    public Runnable next() {
+                        return QueuedTask.unwrap(i.next());
+                    }
+
+                    public void remove() {
+                        i.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return this.delegatee.size();
+            }
+
+            public boolean offer(final Runnable e) {
+                return this.delegatee.offer(wrap(e));
+            }
+
+            public Runnable poll() {
+                return QueuedTask.unwrap(this.delegatee.poll());
+            }
+
+            public Runnable peek() {
+                return QueuedTask.unwrap(this.delegatee.peek());
+            }
+
+            public void put(final Runnable e) throws InterruptedException {
+                this.delegatee.put(wrap(e));
+            }
+
+            public boolean offer(final Runnable e, final long timeout, final TimeUnit unit)
+            throws InterruptedException {
+                return this.delegatee.offer(wrap(e), timeout, unit);
+            }
+
+            public Runnable take() throws InterruptedException {
+                return QueuedTask.unwrap(this.delegatee.take());
+            }
+
+            public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+                return QueuedTask.unwrap(this.delegatee.poll(timeout, unit));
+            }
+
+            public int remainingCapacity() {
+                return this.delegatee.remainingCapacity();
+            }
+
+            public int drainTo(final Collection<? super Runnable> c) {
+                return this.drainTo(c, Integer.MAX_VALUE);
+            }
+
+            public int drainTo(final Collection<? super Runnable> c, final int maxElements) {
+                final List<Runnable> tasks = new ArrayList<Runnable>();
+                final int count = this.delegatee.drainTo(tasks, maxElements);
+                for(final Runnable task : tasks) {
+                    c.add(QueuedTask.unwrap(task));
+                }
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Rejected execution handler passing the task to the configured
+     * handler instead of its {@link QueuedTask} wrapper.
+     */
+    private static final class UnwrappingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler delegatee;
+
+        public UnwrappingRejectedExecutionHandler(final RejectedExecutionHandler delegatee) {
+            this.delegatee = delegatee;
+        }
+
+        public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+            this.delegatee.rejectedExecution(QueuedTask.unwrap(r), executor);
+        }
+    }
+
+    /**
+     * Task wrapper remembering the time it has been queued.
+     */
+    private static final class QueuedTask implements Runnable {
+
+        private final Runnable delegatee;
+
+        private final QueueLatencyHistogram histogram;
+
+        private final long queued = System.nanoTime();
+
+        public QueuedTask(final Runnable delegatee, final QueueLatencyHistogram histogram) {
+            this.delegatee = delegatee;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Return the task passed to the executor.
+         */
+        public static Runnable unwrap(final Runnable task) {
+            if ( task instanceof QueuedTask ) {
+                return ((QueuedTask) task).delegatee;
+            }
+            return task;
+        }
+
+        public void run() {
+            this.histogram.record(System.nanoTime() - this.queued);
+            this.delegatee.run();
+        }
+
+        @Override
+        public String toString() {
+            return this.delegatee.toString();
+        }
+    }
 }
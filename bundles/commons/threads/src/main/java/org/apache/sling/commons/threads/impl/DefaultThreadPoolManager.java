@@ -116,6 +116,12 @@ public class DefaultThreadPoolManager
         if ( props.get(ModifiableThreadPoolConfig.PROPERTY_DAEMON) != null ) {
             config.setDaemon((Boolean)props.get(ModifiableThreadPoolConfig.PROPERTY_DAEMON));
         }
+        if ( props.get(ModifiableThreadPoolConfig.PROPERTY_ADAPTIVE) != null ) {
+            config.setAdaptive((Boolean)props.get(ModifiableThreadPoolConfig.PROPERTY_ADAPTIVE));
+        }
+        if ( props.get(ModifiableThreadPoolConfig.PROPERTY_VIRTUAL_THREADS) != null ) {
+            config.setVirtualThreads((Boolean)props.get(ModifiableThreadPoolConfig.PROPERTY_VIRTUAL_THREADS));
+        }
         return config;
     }
 
@@ -404,6 +410,20 @@ public class DefaultThreadPoolManager
             return null;
         }
 
+        public QueueLatencyHistogram getHistogram() {
+            if ( this.pool != null ) {
+                return this.pool.getHistogram();
+            }
+            return null;
+        }
+
+        public AdaptiveController getController() {
+            if ( this.pool != null ) {
+                return this.pool.getController();
+            }
+            return null;
+        }
+
         protected void unregisterMBean() {
             if ( this.mbeanRegistration != null ) {
                 this.mbeanRegistration.unregister();
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.threads.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of the time tasks wait in the queue of a thread pool.
+ * The buckets have exponentially growing upper bounds, starting with
+ * one millisecond: the first bucket counts waits below 1ms, the
+ * second below 2ms, the third below 4ms and so on. The last bucket
+ * counts all longer waits.
+ */
+public class QueueLatencyHistogram {
+
+    /** The number of buckets, the last one is unbounded. */
+    static final int BUCKETS = 16;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Record a wait time.
+     * @param nanos The wait time in nanoseconds.
+     */
+    public void record(final long nanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+        final int index = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+        this.buckets.incrementAndGet(index);
+        this.count.incrementAndGet();
+        this.totalNanos.addAndGet(Math.max(0, nanos));
+    }
+
+    /**
+     * The number of recorded wait times.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * The sum of all recorded wait times in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return this.totalNanos.get();
+    }
+
+    /**
+     * Return the upper bound of the bucket in ms.
+     * @return The bound or <code>-1</code> for the last, unbounded bucket.
+     */
+    static long getUpperBound(final int index) {
+        if ( index >= BUCKETS - 1 ) {
+            return -1;
+        }
+        return 1L << index;
+    }
+
+    /**
+     * Return an upper bound for the wait time percentile.
+     * @param percentile The percentile between 0 and 100
+     * @return The upper bound of the bucket containing the percentile in ms,
+     *         <code>0</code> if nothing has been recorded and the lower bound
+     *         of the last bucket if the percentile falls into it.
+     */
+    public long getPercentile(final double percentile) {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+        if ( total == 0 ) {
+            return 0;
+        }
+        final long threshold = (long)Math.ceil(total * percentile / 100.0);
+        long current = 0;
+        for(int i = 0; i < BUCKETS - 1; i++) {
+            current += counts[i];
+            if ( current >= threshold ) {
+                return getUpperBound(i);
+            }
+        }
+        return getUpperBound(BUCKETS - 2);
+    }
+
+    /**
+     * Return a readable representation of all non empty buckets.
+     */
+    public String[] getBuckets() {
+        int size = 0;
+        final long[] counts = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+            if ( counts[i] > 0 ) {
+                size++;
+            }
+        }
+        final String[] result = new String[size];
+        int pos = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            if ( counts[i] > 0 ) {
+                if ( i == BUCKETS - 1 ) {
+                    result[pos] = ">= " + getUpperBound(i - 1) + "ms : " + counts[i];
+                } else {
+                    result[pos] = "< " + getUpperBound(i) + "ms : " + counts[i];
+                }
+                pos++;
+            }
+        }
+        return result;
+    }
+}
@@ -103,4 +103,12 @@ public final class ThreadPoolFacade implements ThreadPool {
     public ThreadPoolExecutor getExecutor() {
         return this.delegatee.getExecutor();
     }
+
+    public QueueLatencyHistogram getHistogram() {
+        return this.delegatee.getHistogram();
+    }
+
+    public AdaptiveController getController() {
+        return this.delegatee.getController();
+    }
 }
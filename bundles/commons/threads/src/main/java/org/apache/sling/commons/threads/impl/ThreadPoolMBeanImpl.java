@@ -144,4 +144,87 @@ class ThreadPoolMBeanImpl extends StandardMBean implements ThreadPoolMBean {
         return this.entry.isUsed();
     }
 
+    public boolean isAdaptive() {
+        return this.entry.getConfig().isAdaptive();
+    }
+
+    public boolean isVirtualThreads() {
+        return this.entry.getConfig().isVirtualThreads();
+    }
+
+    public String getAdaptiveLastDecision() {
+        final AdaptiveController controller = this.entry.getController();
+        if ( controller != null ) {
+            return controller.getLastDecision();
+        } else {
+            return null;
+        }
+    }
+
+    public long getAdaptiveGrowCount() {
+        final AdaptiveController controller = this.entry.getController();
+        if ( controller != null ) {
+            return controller.getGrowCount();
+        } else {
+            return -1;
+        }
+    }
+
+    public long getAdaptiveShrinkCount() {
+        final AdaptiveController controller = this.entry.getController();
+        if ( controller != null ) {
+            return controller.getShrinkCount();
+        } else {
+            return -1;
+        }
+    }
+
+    public double getAdaptiveThroughput() {
+        final AdaptiveController controller = this.entry.getController();
+        if ( controller != null ) {
+            return controller.getThroughput();
+        } else {
+            return -1;
+        }
+    }
+
+    public long getQueueWaitTimeCount() {
+        final QueueLatencyHistogram histogram = this.entry.getHistogram();
+        if ( histogram != null ) {
+            return histogram.getCount();
+        } else {
+            return -1;
+        }
+    }
+
+    public long getQueueWaitTimeP50() {
+        return this.getQueueWaitTimePercentile(50);
+    }
+
+    public long getQueueWaitTimeP95() {
+        return this.getQueueWaitTimePercentile(95);
+    }
+
+    public long getQueueWaitTimeP99() {
+        return this.getQueueWaitTimePercentile(99);
+    }
+
+    private long getQueueWaitTimePercentile(final double percentile) {
+        final QueueLatencyHistogram histogram = this.entry.getHistogram();
+        if ( histogram != null ) {
+            return histogram.getPercentile(percentile);
+        } else {
+            return -1;
+        }
+    }
+
+    public String[] getQueueWaitTimeHistogram() {
+        final QueueLatencyHistogram histogram = this.entry.getHistogram();
+        if ( histogram != null ) {
+            return histogram.getBuckets();
+        } else {
+            return null;
+        }
+    }
+
 }
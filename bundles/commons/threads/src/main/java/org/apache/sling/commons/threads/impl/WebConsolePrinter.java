@@ -104,6 +104,10 @@ public class WebConsolePrinter {
                 pw.println(config.getShutdownWaitTimeMs());
                 pw.print("- daemon : ");
                 pw.println(config.isDaemon());
+                pw.print("- adaptive : ");
+                pw.println(config.isAdaptive());
+                pw.print("- virtual threads : ");
+                pw.println(config.isVirtualThreads());
                 final ThreadPoolExecutor tpe = entry.getExecutor();
                 if ( tpe != null ) {
                     pw.print("- active count : ");
@@ -121,6 +125,32 @@ public class WebConsolePrinter {
                     pw.print("- task count : ");
                     pw.println(tpe.getTaskCount());
                 }
+                final QueueLatencyHistogram histogram = entry.getHistogram();
+                if ( histogram != null ) {
+                    pw.print("- queue wait time (50%/95%/99%) : ");
+                    pw.print(histogram.getPercentile(50));
+                    pw.print("ms / ");
+                    pw.print(histogram.getPercentile(95));
+                    pw.print("ms / ");
+                    pw.print(histogram.getPercentile(99));
+                    pw.println("ms");
+                    for(final String bucket : histogram.getBuckets()) {
+                        pw.print("  ");
+                        pw.println(bucket);
+                    }
+                }
+                final AdaptiveController controller = entry.getController();
+                if ( controller != null ) {
+                    pw.print("- throughput : ");
+                    pw.print(controller.getThroughput());
+                    pw.println("/s");
+                    pw.print("- grown / shrunk : ");
+                    pw.print(controller.getGrowCount());
+                    pw.print(" / ");
+                    pw.println(controller.getShrinkCount());
+                    pw.print("- last decision : ");
+                    pw.println(controller.getLastDecision());
+                }
                 pw.println();
             }
         } else {
@@ -16,9 +16,12 @@
  */
 package org.apache.sling.commons.threads.jmx;
 
+import aQute.bnd.annotation.ProviderType;
+
 /**
  * This is the management interface for a Sling Thread Pool.
  */
+@ProviderType
 public interface ThreadPoolMBean {
 
     /**
@@ -156,4 +159,94 @@ public interface ThreadPoolMBean {
      */
     boolean isUsed();
 
+    /**
+     * Return whether or not the thread pool is configured to adapt its size.
+     * 
+     * @return The adaptive configuration.
+     * @since 1.1
+     */
+    boolean isAdaptive();
+
+    /**
+     * Return whether or not the thread pool is configured to use virtual threads.
+     * For such a pool the executor active count is the number of running tasks
+     * and the tasks waiting to run are queued.
+     * 
+     * @return The virtual threads configuration.
+     * @since 1.1
+     */
+    boolean isVirtualThreads();
+
+    /**
+     * Return the last resize decision of an adaptive thread pool.
+     * 
+     * @return The last decision or <code>null</code> if the pool is not adaptive
+     * @since 1.1
+     */
+    String getAdaptiveLastDecision();
+
+    /**
+     * Return how often an adaptive thread pool has been grown.
+     * 
+     * @return The number of times the pool was grown or -1 if the pool is not adaptive
+     * @since 1.1
+     */
+    long getAdaptiveGrowCount();
+
+    /**
+     * Return how often an adaptive thread pool has been shrunk.
+     * 
+     * @return The number of times the pool was shrunk or -1 if the pool is not adaptive
+     * @since 1.1
+     */
+    long getAdaptiveShrinkCount();
+
+    /**
+     * Return the number of completed tasks per second measured by an adaptive thread pool.
+     * 
+     * @return The throughput or -1 if the pool is not adaptive
+     * @since 1.1
+     */
+    double getAdaptiveThroughput();
+
+    /**
+     * Return the number of tasks for which the queue wait time has been recorded.
+     * 
+     * @return The number of tasks or -1 if the thread pool does not have an Executor
+     * @since 1.1
+     */
+    long getQueueWaitTimeCount();
+
+    /**
+     * Return an upper bound for the median queue wait time in milliseconds.
+     * 
+     * @return The median or -1 if the thread pool does not have an Executor
+     * @since 1.1
+     */
+    long getQueueWaitTimeP50();
+
+    /**
+     * Return an upper bound for the 95th percentile of the queue wait time in milliseconds.
+     * 
+     * @return The percentile or -1 if the thread pool does not have an Executor
+     * @since 1.1
+     */
+    long getQueueWaitTimeP95();
+
+    /**
+     * Return an upper bound for the 99th percentile of the queue wait time in milliseconds.
+     * 
+     * @return The percentile or -1 if the thread pool does not have an Executor
+     * @since 1.1
+     */
+    long getQueueWaitTimeP99();
+
+    /**
+     * Return the non empty buckets of the queue wait time histogram.
+     * 
+     * @return The buckets or <code>null</code> if the thread pool does not have an Executor
+     * @since 1.1
+     */
+    String[] getQueueWaitTimeHistogram();
+
 }
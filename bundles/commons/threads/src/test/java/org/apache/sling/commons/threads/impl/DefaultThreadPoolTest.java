@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.threads.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.commons.threads.ModifiableThreadPoolConfig;
+import org.apache.sling.commons.threads.ThreadPoolConfig.ThreadPoolPolicy;
+import org.junit.After;
+import org.junit.Test;
+
+public class DefaultThreadPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private DefaultThreadPool pool;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if ( pool != null ) {
+            pool.shutdown();
+        }
+    }
+
+    private ModifiableThreadPoolConfig createConfig(final int maxPoolSize, final int queueSize) {
+        final ModifiableThreadPoolConfig config = new ModifiableThreadPoolConfig();
+        config.setMinPoolSize(1);
+        config.setMaxPoolSize(maxPoolSize);
+        config.setQueueSize(queueSize);
+        config.setShutdownGraceful(false);
+        config.setShutdownWaitTimeMs(0);
+        return config;
+    }
+
+    /** Block the pool with a task and wait until it runs. */
+    private void block() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        pool.execute(new Runnable() {
+
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ie) {
+                    // shut down
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static final Runnable NOOP = new Runnable() {
+
+        public void run() {
+            // nothing to do
+        }
+    };
+
+    @Test public void testQueueContainsTasks() throws Exception {
+        pool = new DefaultThreadPool("test", createConfig(1, 10));
+        block();
+        final Runnable task = new Runnable() {
+
+            public void run() {
+                // nothing to do
+            }
+        };
+        pool.execute(task);
+        assertEquals(1, pool.getExecutor().getQueue().size());
+        assertSame(task, pool.getExecutor().getQueue().peek());
+
+        assertTrue(pool.getExecutor().remove(task));
+        assertTrue(pool.getExecutor().getQueue().isEmpty());
+        assertFalse(pool.getExecutor().remove(task));
+    }
+
+    @Test public void testShutdownNowReturnsTasks() throws Exception {
+        pool = new DefaultThreadPool("test", createConfig(1, 10));
+        block();
+        pool.execute(NOOP);
+        final List<Runnable> tasks = pool.getExecutor().shutdownNow();
+        assertEquals(1, tasks.size());
+        assertSame(NOOP, tasks.get(0));
+    }
+
+    @Test public void testRejectedTaskIsPassedToCaller() throws Exception {
+        final ModifiableThreadPoolConfig config = createConfig(1, 1);
+        config.setBlockPolicy(ThreadPoolPolicy.ABORT);
+        pool = new DefaultThreadPool("test", config);
+        block();
+        pool.execute(NOOP);
+        try {
+            pool.execute(NOOP);
+            fail("Task should have been rejected");
+        } catch (final RejectedExecutionException ree) {
+            assertTrue(ree.getMessage(), ree.getMessage().contains(NOOP.toString()));
+        }
+    }
+
+    @Test public void testDiscardOldest() throws Exception {
+        final ModifiableThreadPoolConfig config = createConfig(1, 1);
+        config.setBlockPolicy(ThreadPoolPolicy.DISCARDOLDEST);
+        pool = new DefaultThreadPool("test", config);
+        block();
+        pool.execute(NOOP);
+        final Runnable task = new Runnable() {
+
+            public void run() {
+                // nothing to do
+            }
+        };
+        pool.execute(task);
+        assertEquals(1, pool.getExecutor().getQueue().size());
+        assertSame(task, pool.getExecutor().getQueue().peek());
+    }
+
+    /** Create a pool running each task in a new thread, as for virtual threads. */
+    private DefaultThreadPool createThreadPerTaskPool(final ModifiableThreadPoolConfig config) {
+        config.setVirtualThreads(true);
+        return new DefaultThreadPool("test", config, Executors.defaultThreadFactory());
+    }
+
+    @Test public void testThreadPerTaskLimitsConcurrency() throws Exception {
+        pool = createThreadPerTaskPool(createConfig(2, -1));
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(20);
+        for(int i = 0; i < 20; i++) {
+            pool.execute(new Runnable() {
+
+                public void run() {
+                    final int current = running.incrementAndGet();
+                    synchronized ( maxRunning ) {
+                        maxRunning.set(Math.max(maxRunning.get(), current));
+                    }
+                    try {
+                        Thread.sleep(5);
+                    } catch (final InterruptedException ie) {
+                        // ignore
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test public void testThreadPerTaskUsesNewThreads() throws Exception {
+        pool = createThreadPerTaskPool(createConfig(1, -1));
+        final Thread[] threads = new Thread[2];
+        final CountDownLatch done = new CountDownLatch(2);
+        for(int i = 0; i < 2; i++) {
+            final int index = i;
+            pool.execute(new Runnable() {
+
+                public void run() {
+                    threads[index] = Thread.currentThread();
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(threads[0], threads[1]);
+    }
+
+    @Test public void testThreadPerTaskQueue() throws Exception {
+        pool = createThreadPerTaskPool(createConfig(1, 10));
+        block();
+        pool.execute(NOOP);
+        assertEquals(1, pool.getExecutor().getActiveCount());
+        assertEquals(1, pool.getExecutor().getQueue().size());
+        assertSame(NOOP, pool.getExecutor().getQueue().peek());
+        assertTrue(pool.getExecutor().remove(NOOP));
+        assertTrue(pool.getExecutor().getQueue().isEmpty());
+    }
+
+    @Test public void testThreadPerTaskRejectsIfQueueIsFull() throws Exception {
+        final ModifiableThreadPoolConfig config = createConfig(1, 1);
+        config.setBlockPolicy(ThreadPoolPolicy.ABORT);
+        pool = createThreadPerTaskPool(config);
+        block();
+        pool.execute(NOOP);
+        try {
+            pool.execute(NOOP);
+            fail("Task should have been rejected");
+        } catch (final RejectedExecutionException ree) {
+            // expected
+        }
+    }
+
+    @Test public void testThreadPerTaskCallerRuns() throws Exception {
+        final ModifiableThreadPoolConfig config = createConfig(1, 0);
+        config.setBlockPolicy(ThreadPoolPolicy.RUN);
+        pool = createThreadPerTaskPool(config);
+        block();
+        final Thread[] thread = new Thread[1];
+        pool.execute(new Runnable() {
+
+            public void run() {
+                thread[0] = Thread.currentThread();
+            }
+        });
+        assertSame(Thread.currentThread(), thread[0]);
+    }
+
+    @Test public void testThreadPerTaskDiscardOldest() throws Exception {
+        final ModifiableThreadPoolConfig config = createConfig(1, 1);
+        config.setBlockPolicy(ThreadPoolPolicy.DISCARDOLDEST);
+        pool = createThreadPerTaskPool(config);
+        block();
+        pool.execute(NOOP);
+        final Runnable task = new Runnable() {
+
+            public void run() {
+                // nothing to do
+            }
+        };
+        pool.execute(task);
+        assertEquals(1, pool.getExecutor().getQueue().size());
+        assertSame(task, pool.getExecutor().getQueue().peek());
+    }
+
+    @Test public void testThreadPerTaskGracefulShutdownRunsQueuedTasks() throws Exception {
+        final ModifiableThreadPoolConfig config = createConfig(1, -1);
+        config.setShutdownGraceful(true);
+        pool = createThreadPerTaskPool(config);
+        block();
+        final CountDownLatch done = new CountDownLatch(3);
+        for(int i = 0; i < 3; i++) {
+            pool.execute(new Runnable() {
+
+                public void run() {
+                    done.countDown();
+                }
+            });
+        }
+        pool.getExecutor().shutdown();
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(pool.getExecutor().awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test public void testThreadPerTaskShutdownNowReturnsQueuedTasks() throws Exception {
+        pool = createThreadPerTaskPool(createConfig(1, -1));
+        block();
+        pool.execute(NOOP);
+        final List<Runnable> tasks = pool.getExecutor().shutdownNow();
+        assertEquals(1, tasks.size());
+        assertSame(NOOP, tasks.get(0));
+    }
+}
@@ -23,14 +23,19 @@ import static org.apache.sling.api.adapter.AdapterFactory.ADAPTER_CLASSES;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
@@ -98,16 +103,25 @@ public class AdapterManagerImpl implements AdapterManager {
     private final Map<String, AdapterFactoryDescriptorMap> descriptors = new HashMap<String, AdapterFactoryDescriptorMap>();
 
     /**
-     * Matrix of {@link AdapterFactoryDescriptor} instances primarily indexed by the fully
-     * qualified name of the class to be adapted and secondarily indexed by the
-     * fully qualified name of the class to adapt to (the target class).
+     * Index of immutable {@link AdapterIndexEntry} instances by the fully
+     * qualified name of the class to be adapted. Each entry maps the fully
+     * qualified name of the class to adapt to (the target class) to the
+     * ordered array of factories, considering the whole class hierarchy.
+     * A target class missing in an entry can't be adapted to.
      * <p>
      * This cache is built on demand by calling the
-     * {@link #getAdapterFactories(Class)} method. It is cleared
-     * whenever an adapter factory is registered on unregistered.
+     * {@link #getAdapterFactories(Class)} method. If an adapter factory is
+     * registered or unregistered, only the entries of classes having one of
+     * its adaptable classes in their hierarchy are removed.
      */
-    private final ConcurrentMap<String, Map<String, List<AdapterFactoryDescriptor>>> factoryCache
-    = new ConcurrentHashMap<String, Map<String, List<AdapterFactoryDescriptor>>>();
+    private final ConcurrentMap<String, AdapterIndexEntry> factoryCache
+    = new ConcurrentHashMap<String, AdapterIndexEntry>();
+
+    /**
+     * Incremented whenever adapter factories are registered or unregistered
+     * to detect index entries built from outdated registrations.
+     */
+    private final AtomicLong indexVersion = new AtomicLong();
 
     /**
      * The service tracker for the event admin
@@ -130,12 +144,12 @@ public class AdapterManagerImpl implements AdapterManager {
             final Class<AdapterType> type) {
 
         // get the adapter factories for the type of adaptable object
-        final Map<String, List<AdapterFactoryDescriptor>> factories = getAdapterFactories(adaptable.getClass());
+        final AdapterIndexEntry factories = getAdapterFactories(adaptable.getClass());
 
         // get the factory for the target type
-        final List<AdapterFactoryDescriptor> descList = factories.get(type.getName());
+        final AdapterFactoryDescriptor[] descList = factories.getFactories(type.getName());
 
-        if (descList != null && descList.size() > 0) {
+        if (descList != null) {
             for (AdapterFactoryDescriptor desc : descList) {
                 final AdapterFactory factory = desc == null ? null : desc.getFactory();
 
@@ -236,7 +250,7 @@ public class AdapterManagerImpl implements AdapterManager {
      * <strong><em>THIS METHOD IS FOR UNIT TESTING ONLY. IT MAY BE REMOVED OR
      * MODIFIED WITHOUT NOTICE.</em></strong>
      */
-    Map<String, Map<String, List<AdapterFactoryDescriptor>>> getFactoryCache() {
+    Map<String, AdapterIndexEntry> getFactoryCache() {
         return factoryCache;
     }
 
@@ -283,8 +297,8 @@ public class AdapterManagerImpl implements AdapterManager {
             }
         }
 
-        // clear the factory cache to force rebuild on next access
-        this.factoryCache.clear();
+        // remove the affected entries from the factory cache to force rebuild on next access
+        this.invalidateAdapterFactories(adaptables);
 
         // register adaption
         final Dictionary<String, Object> props = new Hashtable<String, Object>();
@@ -370,10 +384,10 @@ public class AdapterManagerImpl implements AdapterManager {
             }
         }
 
-        // only remove cache if some adapter factories have actually been
+        // only remove cache entries if some adapter factories have actually been
         // removed
         if (factoriesModified) {
-            this.factoryCache.clear();
+            this.invalidateAdapterFactories(adaptables);
         }
 
         // unregister adaption
@@ -398,23 +412,47 @@ public class AdapterManagerImpl implements AdapterManager {
     }
 
     /**
-     * Returns the map of adapter factories index by adapter (target) class name
+     * Removes all index entries of adaptable classes which have one of the
+     * given classes in their hierarchy.
+     * The index version is incremented before and after removing the entries,
+     * so an entry created while the entries are removed is dropped as well.
+     */
+    private void invalidateAdapterFactories(final String[] adaptables) {
+        this.indexVersion.incrementAndGet();
+        for (final Map.Entry<String, AdapterIndexEntry> entry : this.factoryCache.entrySet()) {
+            for (final String adaptable : adaptables) {
+                if (entry.getValue().getHierarchy().contains(adaptable)) {
+                    this.factoryCache.remove(entry.getKey(), entry.getValue());
+                    break;
+                }
+            }
+        }
+        this.indexVersion.incrementAndGet();
+    }
+
+    /**
+     * Returns the index entry of adapter factories by adapter (target) class name
      * for the given adaptable <code>clazz</code>. If no adapter exists for
-     * the <code>clazz</code> and empty map is returned.
+     * the <code>clazz</code> an empty entry is returned.
      *
      * @param clazz The adaptable <code>Class</code> for which to return the
-     *            adapter factory map by target class name.
-     * @return The map of adapter factories by target class name. The map may be
+     *            adapter factories by target class name.
+     * @return The adapter factories by target class name. The entry may be
      *         empty if there is no adapter factory for the adaptable
      *         <code>clazz</code>.
      */
-    private Map<String, List<AdapterFactoryDescriptor>> getAdapterFactories(final Class<?> clazz) {
+    private AdapterIndexEntry getAdapterFactories(final Class<?> clazz) {
         final String className = clazz.getName();
-        Map<String, List<AdapterFactoryDescriptor>> entry = this.factoryCache.get(className);
+        AdapterIndexEntry entry = this.factoryCache.get(className);
         if (entry == null) {
             // create entry
+            final long version = this.indexVersion.get();
             entry = createAdapterFactoryMap(clazz);
             this.factoryCache.put(className, entry);
+            // a factory has been (un)registered while the entry was created
+            if (this.indexVersion.get() != version) {
+                this.factoryCache.remove(className, entry);
+            }
         }
 
         return entry;
@@ -428,12 +466,14 @@ public class AdapterManagerImpl implements AdapterManager {
      *
      * @param clazz The adaptable <code>Class</code> for which to build the
      *            adapter factory map by target class name.
-     * @return The map of adapter factories by target class name. The map may be
+     * @return The index entry of adapter factories by target class name. The entry may be
      *         empty if there is no adapter factory for the adaptable
      *         <code>clazz</code>.
      */
-    private Map<String, List<AdapterFactoryDescriptor>> createAdapterFactoryMap(final Class<?> clazz) {
-        final Map<String, List<AdapterFactoryDescriptor>> afm = new HashMap<String, List<AdapterFactoryDescriptor>>();
+    private AdapterIndexEntry createAdapterFactoryMap(final Class<?> clazz) {
+        final Map<String, List<AdapterFactoryDescriptor>> afm = new LinkedHashMap<String, List<AdapterFactoryDescriptor>>();
+        final Set<String> hierarchy = new HashSet<String>();
+        hierarchy.add(clazz.getName());
 
         // AdapterFactories for this class
         AdapterFactoryDescriptorMap afdMap = null;
@@ -462,16 +502,16 @@ public class AdapterManagerImpl implements AdapterManager {
         // AdapterFactories for the interfaces
         final Class<?>[] interfaces = clazz.getInterfaces();
         for (final Class<?> iFace : interfaces) {
-            copyAdapterFactories(afm, iFace);
+            copyAdapterFactories(afm, hierarchy, iFace);
         }
 
         // AdapterFactories for the super class
         final Class<?> superClazz = clazz.getSuperclass();
         if (superClazz != null) {
-            copyAdapterFactories(afm, superClazz);
+            copyAdapterFactories(afm, hierarchy, superClazz);
         }
 
-        return afm;
+        return new AdapterIndexEntry(hierarchy, afm);
     }
 
     /**
@@ -483,17 +523,21 @@ public class AdapterManagerImpl implements AdapterManager {
      * @param dest The map of target class name to adapter factory into which
      *            additional factories are copied. Existing factories are not
      *            replaced.
+     * @param hierarchy The names of the classes in the hierarchy, the
+     *            hierarchy of <code>clazz</code> is added.
      * @param clazz The adaptable class whose adapter factories are considered
      *            for adding into <code>dest</code>.
      */
     private void copyAdapterFactories(final Map<String, List<AdapterFactoryDescriptor>> dest,
+            final Set<String> hierarchy,
             final Class<?> clazz) {
 
         // get the adapter factories for the adaptable clazz
-        final Map<String, List<AdapterFactoryDescriptor>> scMap = getAdapterFactories(clazz);
+        final AdapterIndexEntry scEntry = getAdapterFactories(clazz);
+        hierarchy.addAll(scEntry.getHierarchy());
 
         // for each target class copy the entry to dest and put it in the list or create the list
-        for (Map.Entry<String, List<AdapterFactoryDescriptor>> entry : scMap.entrySet()) {
+        for (Map.Entry<String, AdapterFactoryDescriptor[]> entry : scEntry.getFactories().entrySet()) {
 
             List<AdapterFactoryDescriptor> factoryDescriptors = dest.get(entry.getKey());
 
@@ -506,4 +550,42 @@ public class AdapterManagerImpl implements AdapterManager {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The immutable adapter factories of an adaptable class indexed by the
+     * adapter (target) class name, together with the names of all classes and
+     * interfaces in the hierarchy of the adaptable class.
+     */
+    static final class AdapterIndexEntry {
+
+        private final Set<String> hierarchy;
+
+        private final Map<String, AdapterFactoryDescriptor[]> factories;
+
+        AdapterIndexEntry(final Set<String> hierarchy,
+                final Map<String, List<AdapterFactoryDescriptor>> factories) {
+            this.hierarchy = Collections.unmodifiableSet(hierarchy);
+            final Map<String, AdapterFactoryDescriptor[]> map = new HashMap<String, AdapterFactoryDescriptor[]>();
+            for (final Map.Entry<String, List<AdapterFactoryDescriptor>> entry : factories.entrySet()) {
+                map.put(entry.getKey(), entry.getValue().toArray(new AdapterFactoryDescriptor[entry.getValue().size()]));
+            }
+            this.factories = Collections.unmodifiableMap(map);
+        }
+
+        Set<String> getHierarchy() {
+            return this.hierarchy;
+        }
+
+        Map<String, AdapterFactoryDescriptor[]> getFactories() {
+            return this.factories;
+        }
+
+        /**
+         * Returns the ordered factories for the target class or
+         * <code>null</code> if the adaptable can't be adapted to it.
+         */
+        AdapterFactoryDescriptor[] getFactories(final String adapter) {
+            return this.factories.get(adapter);
+        }
+    }
+}
@@ -44,6 +44,7 @@ import java.util.Map;
 
 import junitx.util.PrivateAccessor;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -335,6 +336,28 @@ public class AdapterManagerTest {
         assertTrue(adapter instanceof TestAdapter);
     }
 
+    @org.junit.Test public void testIncrementalCacheInvalidation() throws Exception {
+        am.activate(this.createComponentContext());
+
+        TestSlingAdaptable2 data = new TestSlingAdaptable2();
+        assertNull("Expect no adapter", am.getAdapter(data, ITestAdapter.class));
+        AdapterObject other = new AdapterObject(Want.INDIFFERENT);
+        assertNull("Expect no adapter", am.getAdapter(other, ParentInterface.class));
+
+        assertTrue(am.getFactoryCache().containsKey(TestSlingAdaptable2.class.getName()));
+        assertTrue(am.getFactoryCache().containsKey(AdapterObject.class.getName()));
+
+        // only the entries with the adaptable class in their hierarchy are removed
+        am.bindAdapterFactory(createServiceReference());
+        assertFalse(am.getFactoryCache().containsKey(TestSlingAdaptable.class.getName()));
+        assertFalse(am.getFactoryCache().containsKey(TestSlingAdaptable2.class.getName()));
+        assertTrue(am.getFactoryCache().containsKey(AdapterObject.class.getName()));
+
+        Object adapter = am.getAdapter(data, ITestAdapter.class);
+        assertNotNull(adapter);
+        assertTrue(adapter instanceof ITestAdapter);
+    }
+
     @org.junit.Test public void testAdaptMultipleAdapterFactories() throws Exception {
         final ServiceReference firstAdaptable = new ServiceReferenceImpl(1, new String[]{AdapterObject.class.getName()},  new String[]{ ParentInterface.class.getName(), FirstImplementation.class.getName()});
         final ServiceReference secondAdaptable = new ServiceReferenceImpl(2, new String[]{ AdapterObject.class.getName() }, new String[]{ParentInterface.class.getName(), SecondImplementation.class.getName()});
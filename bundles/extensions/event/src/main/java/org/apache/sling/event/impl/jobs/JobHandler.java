@@ -32,6 +32,7 @@ import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
 import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager.QueueInfo;
 import org.apache.sling.event.impl.jobs.config.TopologyCapabilities;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
 import org.apache.sling.event.impl.support.ResourceHelper;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.Queue;
@@ -80,6 +81,15 @@ public class JobHandler {
      * @return <code>true</code> if rescheduling was successful, <code>false</code> otherwise.
      */
     public boolean reschedule() {
+        if ( this.isJournalJob() ) {
+            final JobJournal journal = this.configuration.getJobJournal();
+            if ( journal != null ) {
+                job.getProperties().remove(Job.PROPERTY_JOB_STARTED_TIME);
+                job.getProperties().put(JobImpl.PROPERTY_JOB_QUEUED, Calendar.getInstance());
+                return journal.update(job);
+            }
+            return false;
+        }
         final ResourceResolver resolver = this.configuration.createResourceResolver();
         try {
             final Resource jobResource = resolver.getResource(job.getResourcePath());
@@ -114,6 +124,10 @@ public class JobHandler {
     public void finished(final Job.JobState state,
                           final boolean keepJobInHistory,
                           final Long duration) {
+        if ( this.isJournalJob() ) {
+            this.finishedJournalJob(state, keepJobInHistory, duration);
+            return;
+        }
         final boolean isSuccess = (state == Job.JobState.SUCCEEDED);
         final ResourceResolver resolver = this.configuration.createResourceResolver();
         try {
@@ -123,24 +137,7 @@ public class JobHandler {
                     String newPath = null;
                     if ( keepJobInHistory ) {
                         final ValueMap vm = ResourceHelper.getValueMap(jobResource);
-                        newPath = this.configuration.getStoragePath(job.getTopic(), job.getId(), isSuccess);
-                        final Map<String, Object> props = new HashMap<String, Object>(vm);
-                        props.put(JobImpl.PROPERTY_FINISHED_STATE, state.name());
-                        if ( isSuccess ) {
-                            // we set the finish date to start date + duration
-                            final Date finishDate = new Date();
-                            finishDate.setTime(job.getProcessingStarted().getTime().getTime() + duration);
-                            final Calendar finishCal = Calendar.getInstance();
-                            finishCal.setTime(finishDate);
-                            props.put(JobImpl.PROPERTY_FINISHED_DATE, finishCal);
-                        } else {
-                            // current time is good enough
-                            props.put(JobImpl.PROPERTY_FINISHED_DATE, Calendar.getInstance());
-                        }
-                        if ( job.getProperty(Job.PROPERTY_RESULT_MESSAGE) != null ) {
-                            props.put(Job.PROPERTY_RESULT_MESSAGE, job.getProperty(Job.PROPERTY_RESULT_MESSAGE));
-                        }
-                        ResourceHelper.getOrCreateResource(resolver, newPath, props);
+                        newPath = this.writeHistory(resolver, vm, state, duration);
                     }
                     resolver.delete(jobResource);
                     resolver.commit();
@@ -164,6 +161,64 @@ public class JobHandler {
         }
     }
 
+    /**
+     * Finish a job from the job journal.
+     * The history is always kept in the resource tree.
+     */
+    private void finishedJournalJob(final Job.JobState state,
+            final boolean keepJobInHistory,
+            final Long duration) {
+        final JobJournal journal = this.configuration.getJobJournal();
+        if ( journal == null || !journal.contains(job.getId()) ) {
+            return;
+        }
+        if ( keepJobInHistory ) {
+            final ResourceResolver resolver = this.configuration.createResourceResolver();
+            try {
+                final String newPath = this.writeHistory(resolver, job.getProperties(), state, duration);
+                resolver.commit();
+                configuration.getMainLogger().debug("Moved journal job {} to {}", Utility.toString(job), newPath);
+            } catch ( final PersistenceException pe ) {
+                this.configuration.getMainLogger().warn("Unable to finish job " + job.getId(), pe);
+                return;
+            } finally {
+                resolver.close();
+            }
+        }
+        journal.remove(job.getId());
+    }
+
+    /**
+     * Create the history entry of the finished job.
+     * @return The path of the history entry
+     */
+    private String writeHistory(final ResourceResolver resolver,
+            final Map<String, Object> jobProperties,
+            final Job.JobState state,
+            final Long duration)
+    throws PersistenceException {
+        final boolean isSuccess = (state == Job.JobState.SUCCEEDED);
+        final String newPath = this.configuration.getStoragePath(job.getTopic(), job.getId(), isSuccess);
+        final Map<String, Object> props = new HashMap<String, Object>(jobProperties);
+        props.put(JobImpl.PROPERTY_FINISHED_STATE, state.name());
+        if ( isSuccess ) {
+            // we set the finish date to start date + duration
+            final Date finishDate = new Date();
+            finishDate.setTime(job.getProcessingStarted().getTime().getTime() + duration);
+            final Calendar finishCal = Calendar.getInstance();
+            finishCal.setTime(finishDate);
+            props.put(JobImpl.PROPERTY_FINISHED_DATE, finishCal);
+        } else {
+            // current time is good enough
+            props.put(JobImpl.PROPERTY_FINISHED_DATE, Calendar.getInstance());
+        }
+        if ( job.getProperty(Job.PROPERTY_RESULT_MESSAGE) != null ) {
+            props.put(Job.PROPERTY_RESULT_MESSAGE, job.getProperty(Job.PROPERTY_RESULT_MESSAGE));
+        }
+        ResourceHelper.getOrCreateResource(resolver, newPath, props);
+        return newPath;
+    }
+
     /**
      * Reassign to a new instance.
      */
@@ -173,6 +228,10 @@ public class JobHandler {
         final TopologyCapabilities caps = this.configuration.getTopologyCapabilities();
         final String targetId = (caps == null ? null : caps.detectTarget(job.getTopic(), job.getProperties(), queueInfo));
 
+        if ( this.isJournalJob() ) {
+            this.reassignJournalJob(targetId);
+            return;
+        }
         final ResourceResolver resolver = this.configuration.createResourceResolver();
         try {
             final Resource jobResource = resolver.getResource(job.getResourcePath());
@@ -207,12 +266,49 @@ public class JobHandler {
         }
     }
 
+    /**
+     * Reassign a job from the job journal.
+     * The journal is local, therefore the job is moved to the resource tree.
+     */
+    private void reassignJournalJob(final String targetId) {
+        final JobJournal journal = this.configuration.getJobJournal();
+        if ( journal == null || !journal.contains(job.getId()) ) {
+            return;
+        }
+        final String newPath = this.configuration.getUniquePath(targetId, job.getTopic(), job.getId(), job.getProperties());
+
+        final Map<String, Object> props = new HashMap<String, Object>(job.getProperties());
+        props.remove(Job.PROPERTY_JOB_QUEUE_NAME);
+        if ( targetId == null ) {
+            props.remove(Job.PROPERTY_JOB_TARGET_INSTANCE);
+        } else {
+            props.put(Job.PROPERTY_JOB_TARGET_INSTANCE, targetId);
+        }
+        props.remove(Job.PROPERTY_JOB_STARTED_TIME);
+
+        final ResourceResolver resolver = this.configuration.createResourceResolver();
+        try {
+            ResourceHelper.getOrCreateResource(resolver, newPath, props);
+            resolver.commit();
+            journal.remove(job.getId());
+        } catch ( final PersistenceException pe ) {
+            this.configuration.getMainLogger().warn("Unable to reassign job " + job.getId(), pe);
+        } finally {
+            resolver.close();
+        }
+    }
+
     /**
      * Update the property of a job in the resource tree
      * @param propNames the property names to update
      * @return {@code true} if the update was successful.
      */
     public boolean persistJobProperties(final String... propNames) {
+        if ( propNames != null && this.isJournalJob() ) {
+            // the journal always stores the complete job
+            final JobJournal journal = this.configuration.getJobJournal();
+            return journal != null && journal.update(job);
+        }
         if ( propNames != null ) {
             final ResourceResolver resolver = this.configuration.createResourceResolver();
             try {
@@ -247,6 +343,13 @@ public class JobHandler {
         return true;
     }
 
+    /**
+     * Check whether the job is stored in the job journal.
+     */
+    private boolean isJournalJob() {
+        return JobJournal.isJournalPath(job.getResourcePath());
+    }
+
     public boolean isStopped() {
         return this.isStopped;
     }
@@ -18,9 +18,12 @@
  */
 package org.apache.sling.event.impl.jobs;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -46,6 +49,8 @@ import org.apache.sling.commons.threads.ThreadPoolManager;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
 import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager.QueueInfo;
 import org.apache.sling.event.impl.jobs.config.TopologyCapabilities;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
+import org.apache.sling.event.impl.jobs.notifications.NewJobSender;
 import org.apache.sling.event.impl.jobs.notifications.NotificationUtility;
 import org.apache.sling.event.impl.jobs.queues.JobQueueImpl;
 import org.apache.sling.event.impl.jobs.queues.QueueManager;
@@ -162,6 +167,10 @@ public class JobManagerImpl
         if ( task != null ) {
             task.run();
         }
+        final JobJournal journal = this.configuration.getJobJournal();
+        if ( journal != null ) {
+            journal.compactIfNeeded();
+        }
     }
 
     /**
@@ -428,6 +437,16 @@ public class JobManagerImpl
     @Override
     public Job getJobById(final String id) {
         logger.debug("Getting job by id: {}", id);
+        final JobJournal journal = this.configuration.getJobJournal();
+        if ( journal != null ) {
+            final JobImpl job = journal.getJob(id);
+            if ( job != null ) {
+                if ( logger.isDebugEnabled() ) {
+                    logger.debug("Found job with id {} in journal = {}", id, Utility.toString(job));
+                }
+                return job;
+            }
+        }
         final ResourceResolver resolver = this.configuration.createResourceResolver();
         final StringBuilder buf = new StringBuilder(64);
         try {
@@ -670,9 +689,114 @@ public class JobManagerImpl
         } finally {
             resolver.close();
         }
+        // history jobs are always stored in the resource tree
+        if ( !isHistoryQuery ) {
+            this.addJournalJobs(result, type, topic, limit, templates);
+        }
         return result;
     }
 
+    /**
+     * Add the matching jobs from the job journal to the result
+     * and keep the result ordered by creation date.
+     */
+    private void addJournalJobs(final List<Job> result,
+            final QueryType type,
+            final String topic,
+            final long limit,
+            final Map<String, Object>... templates) {
+        final JobJournal journal = this.configuration.getJobJournal();
+        if ( journal != null ) {
+            boolean added = false;
+            for(final JobImpl job : journal.getJobs(topic, type == QueryType.QUEUED, -1)) {
+                if ( type == QueryType.ACTIVE && job.getProcessingStarted() == null ) {
+                    continue;
+                }
+                if ( this.matches(job, templates) ) {
+                    result.add(job);
+                    added = true;
+                }
+            }
+            if ( added ) {
+                Collections.sort(result, new Comparator<Job>() {
+
+                    @Override
+                    public int compare(final Job o1, final Job o2) {
+                        return ((JobImpl)o1).compareTo((JobImpl)o2);
+                    }
+                });
+                while ( limit > 0 && result.size() > limit ) {
+                    result.remove(result.size() - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a job matches one of the templates.
+     * This evaluates the templates in the same way as the query in
+     * {@link #findJobs(QueryType, String, long, Map...)}.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean matches(final JobImpl job, final Map<String, Object>... templates) {
+        boolean hasTemplate = false;
+        if ( templates != null ) {
+            for (final Map<String,Object> template : templates) {
+                // skip empty templates
+                if ( template.size() == 0 ) {
+                    continue;
+                }
+                hasTemplate = true;
+                boolean matches = true;
+                for(final Map.Entry<String, Object> current : template.entrySet()) {
+                    final String key = current.getKey();
+                    final char firstChar = key.length() > 0 ? key.charAt(0) : 0;
+                    final char secondChar = key.length() > 1 ? key.charAt(1) : 0;
+                    final String propName;
+                    final Operation op;
+                    if ( firstChar == '=' ) {
+                        propName = key.substring(1);
+                        op = Operation.EQUALS;
+                    } else if ( firstChar == '<' ) {
+                        op = (secondChar == '=' ? Operation.LESS_OR_EQUALS : Operation.LESS);
+                        propName = key.substring(secondChar == '=' ? 2 : 1);
+                    } else if ( firstChar == '>' ) {
+                        op = (secondChar == '=' ? Operation.GREATER_OR_EQUALS : Operation.GREATER);
+                        propName = key.substring(secondChar == '=' ? 2 : 1);
+                    } else {
+                        propName = key;
+                        op = Operation.EQUALS;
+                    }
+                    final Object value = job.getProperty(propName);
+                    if ( value == null || current.getValue() == null ) {
+                        matches = false;
+                        break;
+                    }
+                    final int result;
+                    if ( value instanceof Comparable && value.getClass().isInstance(current.getValue()) ) {
+                        result = ((Comparable)value).compareTo(current.getValue());
+                    } else {
+                        result = value.toString().compareTo(current.getValue().toString());
+                    }
+                    switch ( op ) {
+                        case EQUALS : matches = result == 0; break;
+                        case LESS : matches = result < 0; break;
+                        case LESS_OR_EQUALS : matches = result <= 0; break;
+                        case GREATER : matches = result > 0; break;
+                        case GREATER_OR_EQUALS : matches = result >= 0; break;
+                    }
+                    if ( !matches ) {
+                        break;
+                    }
+                }
+                if ( matches ) {
+                    return true;
+                }
+            }
+        }
+        return !hasTemplate;
+    }
+
 
 
     /**
@@ -762,6 +886,26 @@ public class JobManagerImpl
                     logger.debug("Persisting job {} into queue {}", Utility.toString(jobTopic, jobName, jobProperties), info.queueName);
                 }
             }
+            // jobs processed on this instance might be stored in the journal
+            final JobJournal journal = this.configuration.getJobJournal();
+            if ( journal != null
+                 && jobName == null
+                 && Environment.APPLICATION_ID.equals(info.targetId)
+                 && this.configuration.isJournalTopic(jobTopic)
+                 && JobJournal.isSupported(jobProperties) ) {
+                try {
+                    final JobImpl job = this.writeJournalJob(journal,
+                            jobTopic,
+                            jobProperties,
+                            info);
+                    this.configuration.getAuditLogger().debug("ASSIGN OK {} : {}",
+                            info.targetId, job.getId());
+                    return job;
+                } catch ( final IOException ioe ) {
+                    // fall back to the resource tree
+                    this.logger.warn("Unable to store new job '" + Utility.toString(jobTopic, jobName, jobProperties) + "' in journal", ioe);
+                }
+            }
             final ResourceResolver resolver = this.configuration.createResourceResolver();
             try {
                 final JobImpl job = this.writeJob(resolver,
@@ -807,6 +951,56 @@ public class JobManagerImpl
         final String path = this.configuration.getUniquePath(info.targetId, jobTopic, jobId, jobProperties);
 
         // create properties
+        final Map<String, Object> properties = this.createJobProperties(jobTopic, jobName, jobId, jobProperties, info);
+
+        // create path and resource
+        if ( logger.isDebugEnabled() ) {
+            logger.debug("Storing new job {} at {}", Utility.toString(jobTopic, jobName, properties), path);
+        }
+        ResourceHelper.getOrCreateResource(resolver,
+                path,
+                properties);
+
+        // update property types - priority, add path and create job
+        properties.put(JobImpl.PROPERTY_RESOURCE_PATH, path);
+        return new JobImpl(jobTopic, jobName, jobId, properties);
+    }
+
+    /**
+     * Write a job to the job journal.
+     * As there is no resource event for the new job, the job added
+     * notification is sent directly.
+     * @param journal The job journal
+     * @param jobTopic The job topic
+     * @param jobProperties The job properties
+     * @param info The queue information (queue name etc.)
+     * @throws IOException If writing to the journal fails
+     */
+    private JobImpl writeJournalJob(final JobJournal journal,
+            final String jobTopic,
+            final Map<String, Object> jobProperties,
+            final QueueInfo info)
+    throws IOException {
+        final String jobId = this.configuration.getUniqueId(jobTopic);
+        final Map<String, Object> properties = this.createJobProperties(jobTopic, null, jobId, jobProperties, info);
+
+        if ( logger.isDebugEnabled() ) {
+            logger.debug("Storing new job {} in journal", Utility.toString(jobTopic, null, properties));
+        }
+        final JobImpl job = journal.add(jobTopic, null, jobId, properties);
+
+        this.eventAdmin.postEvent(NewJobSender.createJobAddedEvent(jobTopic, jobId, info.queueName));
+        return job;
+    }
+
+    /**
+     * Create the properties of a new job.
+     */
+    private Map<String, Object> createJobProperties(final String jobTopic,
+            final String jobName,
+            final String jobId,
+            final Map<String, Object> jobProperties,
+            final QueueInfo info) {
         final Map<String, Object> properties = new HashMap<String, Object>();
 
         if ( jobProperties != null ) {
@@ -835,19 +1029,9 @@ public class JobManagerImpl
         } else {
             properties.remove(Job.PROPERTY_JOB_TARGET_INSTANCE);
         }
-
-        // create path and resource
         properties.put(ResourceResolver.PROPERTY_RESOURCE_TYPE, ResourceHelper.RESOURCE_TYPE_JOB);
-        if ( logger.isDebugEnabled() ) {
-            logger.debug("Storing new job {} at {}", Utility.toString(jobTopic, jobName, properties), path);
-        }
-        ResourceHelper.getOrCreateResource(resolver,
-                path,
-                properties);
 
-        // update property types - priority, add path and create job
-        properties.put(JobImpl.PROPERTY_RESOURCE_PATH, path);
-        return new JobImpl(jobTopic, jobName, jobId, properties);
+        return properties;
     }
 
     /**
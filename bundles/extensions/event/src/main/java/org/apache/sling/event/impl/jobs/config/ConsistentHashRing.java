@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.config;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A consistent hash ring over a set of instances.
+ *
+ * Each instance is placed on the ring with a number of virtual nodes and
+ * a key is assigned to the first virtual node following the hash of the key.
+ * If an instance joins or leaves, only the keys of the virtual nodes of
+ * this instance change their target. Changing the number of virtual nodes
+ * of an instance moves only the keys of the added or removed nodes.
+ *
+ * The ring is immutable and only depends on the instance ids and their number
+ * of virtual nodes, therefore all instances of a topology calculate the same
+ * targets.
+ */
+public class ConsistentHashRing {
+
+    /** The default number of virtual nodes per instance. */
+    public static final int VIRTUAL_NODES = 64;
+
+    /** The sorted hashes of the virtual nodes. */
+    private final long[] hashes;
+
+    /** The instance ids for the virtual nodes. */
+    private final String[] instanceIds;
+
+    /**
+     * Create a new ring.
+     * @param virtualNodes Map: key: instance id, value: number of virtual nodes
+     */
+    public ConsistentHashRing(final Map<String, Integer> virtualNodes) {
+        // sort by instance id, so collisions are resolved the same way everywhere
+        final Map<String, Integer> sorted = new TreeMap<String, Integer>(virtualNodes);
+        final TreeMap<Long, String> ring = new TreeMap<Long, String>();
+        for(final Map.Entry<String, Integer> entry : sorted.entrySet()) {
+            for(int i = 0; i < entry.getValue(); i++) {
+                final Long hash = hash(entry.getKey() + '#' + i);
+                if ( !ring.containsKey(hash) ) {
+                    ring.put(hash, entry.getKey());
+                }
+            }
+        }
+        this.hashes = new long[ring.size()];
+        this.instanceIds = new String[ring.size()];
+        int index = 0;
+        for(final Map.Entry<Long, String> entry : ring.entrySet()) {
+            this.hashes[index] = entry.getKey();
+            this.instanceIds[index] = entry.getValue();
+            index++;
+        }
+    }
+
+    /**
+     * Get the target instance for a key.
+     * @param key The key
+     * @return The instance id or {@code null} if the ring is empty.
+     */
+    public String getTarget(final String key) {
+        if ( this.hashes.length == 0 ) {
+            return null;
+        }
+        int index = Arrays.binarySearch(this.hashes, hash(key));
+        if ( index < 0 ) {
+            index = -index - 1;
+            if ( index == this.hashes.length ) {
+                index = 0;
+            }
+        }
+        return this.instanceIds[index];
+    }
+
+    /**
+     * Calculate the hash of a key based on the first eight bytes of its MD5 digest.
+     */
+    static long hash(final String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            long hash = 0;
+            for(int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (final NoSuchAlgorithmException nsae) {
+            // MD5 is available on every Java platform
+            throw new IllegalStateException(nsae);
+        } catch (final UnsupportedEncodingException uee) {
+            // UTF-8 is available on every Java platform
+            throw new IllegalStateException(uee);
+        }
+    }
+}
@@ -61,7 +61,8 @@ import org.slf4j.LoggerFactory;
               value=ConfigurationConstants.DEFAULT_TYPE,
               options={@PropertyOption(name="UNORDERED",value="Parallel"),
                        @PropertyOption(name="ORDERED",value="Ordered"),
-                       @PropertyOption(name="TOPIC_ROUND_ROBIN",value="Topic Round Robin")},
+                       @PropertyOption(name="TOPIC_ROUND_ROBIN",value="Topic Round Robin"),
+                       @PropertyOption(name="WORK_STEALING",value="Work Stealing")},
               label="Type",
               description="The queue type."),
     @Property(name=ConfigurationConstants.PROP_MAX_PARALLEL,
@@ -107,6 +108,12 @@ import org.slf4j.LoggerFactory;
               description="Optional configuration value for a thread pool to be used by "
                         + "this queue. If this is value has a positive number of threads configuration, this queue uses "
                         + "an own thread pool with the configured number of threads."),
+    @Property(name=ConfigurationConstants.PROP_BATCH_SIZE,
+              intValue=ConfigurationConstants.DEFAULT_BATCH_SIZE,
+              label="Batch Size",
+              description="The maximum number of jobs of the same topic which are handed "
+                        + "to a batch job executor at once. Jobs processed by other executors are "
+                        + "always started one by one. The default value of 1 disables batch processing."),
     @Property(name=Constants.SERVICE_RANKING,
               intValue=0,
               propertyPrivate=false,
@@ -159,6 +166,9 @@ public class InternalQueueConfiguration
     /** Prefer creation instance. */
     private boolean preferCreationInstance;
 
+    /** The maximum number of jobs per batch. */
+    private int batchSize;
+
     private String pid;
 
     /**
@@ -211,6 +221,7 @@ public class InternalQueueConfiguration
         this.serviceRanking = PropertiesUtil.toInteger(params.get(Constants.SERVICE_RANKING), 0);
         this.ownThreadPoolSize = PropertiesUtil.toInteger(params.get(ConfigurationConstants.PROP_THREAD_POOL_SIZE), ConfigurationConstants.DEFAULT_THREAD_POOL_SIZE);
         this.preferCreationInstance = PropertiesUtil.toBoolean(params.get(ConfigurationConstants.PROP_PREFER_RUN_ON_CREATION_INSTANCE), ConfigurationConstants.DEFAULT_PREFER_RUN_ON_CREATION_INSTANCE);
+        this.batchSize = PropertiesUtil.toInteger(params.get(ConfigurationConstants.PROP_BATCH_SIZE), ConfigurationConstants.DEFAULT_BATCH_SIZE);
         this.pid = (String)params.get(Constants.SERVICE_PID);
         this.valid = this.checkIsValid();
     }
@@ -248,6 +259,9 @@ public class InternalQueueConfiguration
         if ( maxParallelProcesses < 1 ) {
             return false;
         }
+        if ( batchSize < 1 ) {
+            return false;
+        }
         return true;
     }
 
@@ -368,6 +382,14 @@ public class InternalQueueConfiguration
         return this.preferCreationInstance;
     }
 
+    /**
+     * @see org.apache.sling.event.jobs.QueueConfiguration#getBatchSize()
+     */
+    @Override
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
     @Override
     public String toString() {
         return "Queue-Configuration(" + this.hashCode() + ") : {" +
@@ -380,6 +402,7 @@ public class InternalQueueConfiguration
             ", keepJobs=" + this.keepJobs +
             ", preferRunOnCreationInstance=" + this.preferCreationInstance +
             ", ownThreadPoolSize=" + this.ownThreadPoolSize +
+            ", batchSize=" + this.batchSize +
             ", serviceRanking=" + this.serviceRanking +
             ", pid=" + this.pid +
             ", isValid=" + this.isValid() + "}";
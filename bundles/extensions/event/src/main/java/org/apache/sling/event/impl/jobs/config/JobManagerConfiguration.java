@@ -18,6 +18,8 @@
  */
 package org.apache.sling.event.impl.jobs.config;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -32,6 +34,7 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Modified;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyUnbounded;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.resource.LoginException;
@@ -45,12 +48,16 @@ import org.apache.sling.discovery.TopologyEvent.Type;
 import org.apache.sling.discovery.TopologyEventListener;
 import org.apache.sling.event.impl.EnvironmentComponent;
 import org.apache.sling.event.impl.jobs.Utility;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
 import org.apache.sling.event.impl.jobs.tasks.CheckTopologyTask;
 import org.apache.sling.event.impl.jobs.tasks.FindUnfinishedJobsTask;
 import org.apache.sling.event.impl.jobs.tasks.UpgradeTask;
 import org.apache.sling.event.impl.support.Environment;
 import org.apache.sling.event.impl.support.ResourceHelper;
+import org.apache.sling.event.impl.support.TopicMatcher;
+import org.apache.sling.event.impl.support.TopicMatcherHelper;
 import org.apache.sling.event.jobs.Job;
+import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,6 +80,24 @@ import org.slf4j.LoggerFactory;
               boolValue=JobManagerConfiguration.DEFAULT_LOG_DEPRECATION_WARNINGS,
               label="Deprecation Warnings",
               description="If this switch is enabled, deprecation warnings will be logged with the INFO level."),
+    @Property(name=JobManagerConfiguration.PROPERTY_JOURNAL_TOPICS,
+              unbounded=PropertyUnbounded.ARRAY,
+              label="Journal Topics",
+              description="Jobs with one of these topics are stored in a local append-only journal instead of "
+                        + "the resource tree if they are processed on this instance. Journal jobs survive a restart "
+                        + "of this instance, but they are not reassigned to another instance if this instance "
+                        + "leaves the cluster. Only configure topics for which this is acceptable. Topics can be "
+                        + "specified in the same way as for queue configurations. By default all jobs are stored "
+                        + "in the resource tree."),
+    @Property(name=JobManagerConfiguration.PROPERTY_JOURNAL_PATH,
+              value="",
+              label="Journal Directory",
+              description="The file system directory of the job journal. If not set, the journal is stored "
+                        + "in the data area of the bundle."),
+    @Property(name=JobManagerConfiguration.PROPERTY_JOURNAL_SEGMENT_SIZE,
+              longValue=JobJournal.DEFAULT_SEGMENT_SIZE,
+              label="Journal Segment Size",
+              description="The size of a single journal file in bytes."),
     @Property(name=JobManagerConfiguration.PROPERTY_REPOSITORY_PATH,
               value=JobManagerConfiguration.DEFAULT_REPOSITORY_PATH, propertyPrivate=true),
     @Property(name=JobManagerConfiguration.PROPERTY_SCHEDULED_JOBS_PATH,
@@ -121,6 +146,15 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
     /** Default value for deprecation warnings. */
     public static final boolean DEFAULT_LOG_DEPRECATION_WARNINGS = true;
 
+    /** Configuration property for the topics stored in the job journal. */
+    public static final String PROPERTY_JOURNAL_TOPICS = "job.journal.topics";
+
+    /** Configuration property for the directory of the job journal. */
+    public static final String PROPERTY_JOURNAL_PATH = "job.journal.path";
+
+    /** Configuration property for the segment size of the job journal. */
+    public static final String PROPERTY_JOURNAL_SEGMENT_SIZE = "job.journal.segmentSize";
+
     /** The jobs base path with a slash. */
     private String jobsBasePathWithSlash;
 
@@ -160,6 +194,15 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
     /** The resource path where scheduled jobs are stored - ending with a slash. */
     private String scheduledJobsPathWithSlash;
 
+    /** The job journal or {@code null} if not available. */
+    private volatile JobJournal journal;
+
+    /** The bundle context, used to open the job journal. */
+    private volatile BundleContext bundleContext;
+
+    /** The matchers for the journal topics or {@code null}. */
+    private volatile TopicMatcher[] journalTopicMatchers;
+
     /** List of topology awares. */
     private final List<ConfigurationChangeListener> listeners = new ArrayList<ConfigurationChangeListener>();
 
@@ -181,11 +224,13 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
 
     /**
      * Activate this component.
+     * @param bundleContext The bundle context
      * @param props Configuration properties
      * @throws RuntimeException If the default paths can't be created
      */
     @Activate
-    protected void activate(final Map<String, Object> props) {
+    protected void activate(final BundleContext bundleContext, final Map<String, Object> props) {
+        this.bundleContext = bundleContext;
         this.update(props);
         this.jobsBasePathWithSlash = PropertiesUtil.toString(props.get(PROPERTY_REPOSITORY_PATH),
                 DEFAULT_REPOSITORY_PATH) + '/';
@@ -232,6 +277,44 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
         this.disabledDistribution = PropertiesUtil.toBoolean(props.get(PROPERTY_DISABLE_DISTRIBUTION), DEFAULT_DISABLE_DISTRIBUTION);
         this.backgroundLoadDelay = PropertiesUtil.toLong(props.get(PROPERTY_BACKGROUND_LOAD_DELAY), DEFAULT_BACKGROUND_LOAD_DELAY);
         Utility.LOG_DEPRECATION_WARNINGS = PropertiesUtil.toBoolean(props.get(PROPERTY_LOG_DEPRECATION_WARNINGS), DEFAULT_LOG_DEPRECATION_WARNINGS);
+        this.journalTopicMatchers = TopicMatcherHelper.buildMatchers(PropertiesUtil.toStringArray(props.get(PROPERTY_JOURNAL_TOPICS)));
+        synchronized ( this ) {
+            if ( this.journal == null ) {
+                this.journal = this.openJournal(this.bundleContext, props);
+            }
+        }
+    }
+
+    /**
+     * Open the job journal.
+     * The journal is only opened if topics are configured or if it
+     * contains jobs which have been stored with a previous configuration.
+     * @return The journal or {@code null} if the journal is not available or not used.
+     */
+    private JobJournal openJournal(final BundleContext bundleContext, final Map<String, Object> props) {
+        final String path = PropertiesUtil.toString(props.get(PROPERTY_JOURNAL_PATH), null);
+        final File directory;
+        if ( path != null && path.trim().length() > 0 ) {
+            directory = new File(path.trim());
+        } else {
+            directory = (bundleContext == null ? null : bundleContext.getDataFile("journal"));
+        }
+        if ( this.journalTopicMatchers == null && (directory == null || !JobJournal.hasSegments(directory)) ) {
+            return null;
+        }
+        if ( directory == null ) {
+            logger.info("No file system available, job journal is disabled.");
+            return null;
+        }
+        final JobJournal jobJournal = new JobJournal(directory,
+                PropertiesUtil.toLong(props.get(PROPERTY_JOURNAL_SEGMENT_SIZE), JobJournal.DEFAULT_SEGMENT_SIZE));
+        try {
+            jobJournal.open();
+            return jobJournal;
+        } catch ( final IOException ioe ) {
+            logger.error("Unable to open job journal at " + directory + ", job journal is disabled.", ioe);
+            return null;
+        }
     }
 
     /**
@@ -241,6 +324,14 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
     protected void deactivate() {
         this.stopProcessing(true);
         this.queueConfigManager.removeListener();
+        synchronized ( this ) {
+            final JobJournal jobJournal = this.journal;
+            if ( jobJournal != null ) {
+                this.journal = null;
+                jobJournal.close();
+            }
+        }
+        this.bundleContext = null;
     }
 
     /**
@@ -365,6 +456,31 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
         return sb.toString();
     }
 
+    /**
+     * Get the job journal.
+     * @return The journal or {@code null} if not available.
+     */
+    public JobJournal getJobJournal() {
+        return this.journal;
+    }
+
+    /**
+     * Check whether new jobs of this topic are stored in the job journal.
+     * @param topic The job topic
+     * @return {@code true} if the topic is configured for the journal and the journal is available.
+     */
+    public boolean isJournalTopic(final String topic) {
+        final TopicMatcher[] matchers = this.journalTopicMatchers;
+        if ( matchers != null && this.journal != null ) {
+            for(final TopicMatcher m : matchers) {
+                if ( m != null && m.match(topic) != null ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public boolean isLocalJob(final String jobPath) {
         return jobPath != null && jobPath.startsWith(this.localJobsPathWithSlash);
     }
@@ -536,8 +652,11 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
         // check if there is a change of properties which doesn't affect us
         if ( event.getType() == Type.PROPERTIES_CHANGED ) {
             final Map<String, String> newAllInstances = TopologyCapabilities.getAllInstancesMap(event.getNewView());
-            if ( this.topologyCapabilities != null && this.topologyCapabilities.isSame(newAllInstances) ) {
-                logger.debug("No changes in capabilities - ignoring event");
+            final TopologyCapabilities caps = this.topologyCapabilities;
+            if ( caps != null && caps.isSame(newAllInstances) ) {
+                logger.debug("No changes in capabilities - updating instance loads");
+                // a change of the load does not require to reassign jobs
+                caps.updateLoads(event.getNewView());
                 return;
             }
         }
@@ -25,12 +25,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.sling.discovery.InstanceDescription;
 import org.apache.sling.discovery.TopologyView;
 import org.apache.sling.event.impl.jobs.JobImpl;
 import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager.QueueInfo;
 import org.apache.sling.event.impl.support.Environment;
+import org.apache.sling.event.impl.support.ResourceHelper;
 import org.apache.sling.event.jobs.QueueConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +44,9 @@ public class TopologyCapabilities {
 
     public static final String PROPERTY_TOPICS = "org.apache.sling.event.jobs.consumer.topics";
 
+    /** The number of queued jobs of an instance, published through discovery. */
+    public static final String PROPERTY_QUEUED_JOBS = "org.apache.sling.event.jobs.queued";
+
     /** Logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -69,6 +74,27 @@ public class TopologyCapabilities {
     /** JobManagerConfiguration. */
     private final JobManagerConfiguration jobManagerConfiguration;
 
+    /**
+     * The load level of an instance must move this much beyond the middle between
+     * two levels before the instance switches to the other level.
+     */
+    static final double LOAD_HYSTERESIS = 0.25;
+
+    /** The lowest load level, an instance gets a quarter of the virtual nodes. */
+    static final int MIN_LOAD_LEVEL = -2;
+
+    /** The highest load level, an instance gets twice the virtual nodes. */
+    static final int MAX_LOAD_LEVEL = 1;
+
+    /** Map: key: sling ID, value: number of queued jobs */
+    private volatile Map<String, Integer> instanceLoads;
+
+    /** Map: key: sling ID, value: load level, the virtual nodes are scaled by 2^level */
+    private volatile Map<String, Integer> loadLevels;
+
+    /** The hash rings, keyed by the targets they have been created for. */
+    private final Map<String, ConsistentHashRing> rings = new ConcurrentHashMap<String, ConsistentHashRing>();
+
     public static final class InstanceDescriptionComparator implements Comparator<InstanceDescription> {
 
         private final String localClusterId;
@@ -116,6 +142,26 @@ public class TopologyCapabilities {
         return allInstances;
     }
 
+    /**
+     * Get the number of queued jobs published by the instances.
+     * @param view The topology view
+     * @return Map: key: sling ID, value: number of queued jobs
+     */
+    public static Map<String, Integer> getInstanceLoads(final TopologyView view) {
+        final Map<String, Integer> loads = new HashMap<String, Integer>();
+        for(final InstanceDescription desc : view.getInstances() ) {
+            final String value = desc.getProperty(PROPERTY_QUEUED_JOBS);
+            if ( value != null ) {
+                try {
+                    loads.put(desc.getSlingId(), Math.max(0, Integer.parseInt(value)));
+                } catch (final NumberFormatException nfe) {
+                    // ignore invalid value
+                }
+            }
+        }
+        return loads;
+    }
+
     /**
      * Create a new instance
      * @param view The new view
@@ -127,6 +173,8 @@ public class TopologyCapabilities {
         this.instanceComparator = new InstanceDescriptionComparator(view.getLocalInstance().getClusterView().getId());
         this.isLeader = view.getLocalInstance().isLeader();
         this.allInstances = getAllInstancesMap(view);
+        this.instanceLoads = getInstanceLoads(view);
+        this.loadLevels = getLoadLevels(this.instanceLoads, Collections.<String, Integer>emptyMap());
         final Map<String, List<InstanceDescription>> newCaps = new HashMap<String, List<InstanceDescription>>();
         for(final InstanceDescription desc : view.getInstances() ) {
             final String topics = desc.getProperty(PROPERTY_TOPICS);
@@ -156,6 +204,59 @@ public class TopologyCapabilities {
         return this.allInstances.equals(newAllInstancesMap);
     }
 
+    /**
+     * Calculate the load levels of the instances.
+     * The level is the binary logarithm of the ratio between the average load
+     * and the load of the instance, rounded to an integer. An instance keeps its
+     * previous level unless the ratio moved clearly into another level, so small
+     * changes of the queued job counts do not change the hash rings.
+     * @param loads The number of queued jobs per instance
+     * @param previousLevels The previous load levels
+     * @return Map: key: sling ID, value: load level
+     */
+    static Map<String, Integer> getLoadLevels(final Map<String, Integer> loads,
+            final Map<String, Integer> previousLevels) {
+        long total = 0;
+        for(final Integer load : loads.values()) {
+            total += load;
+        }
+        final double average = (loads.isEmpty() ? 0 : (double)total / loads.size());
+        final Map<String, Integer> levels = new HashMap<String, Integer>();
+        for(final Map.Entry<String, Integer> entry : loads.entrySet()) {
+            final double exact = Math.log((average + 1) / (entry.getValue() + 1)) / Math.log(2);
+            final Integer previous = previousLevels.get(entry.getKey());
+            int level;
+            if ( previous != null && Math.abs(exact - previous) < 0.5 + LOAD_HYSTERESIS ) {
+                level = previous;
+            } else {
+                level = (int)Math.round(exact);
+            }
+            level = Math.max(MIN_LOAD_LEVEL, Math.min(MAX_LOAD_LEVEL, level));
+            levels.put(entry.getKey(), level);
+        }
+        return levels;
+    }
+
+    /**
+     * Update the load of the instances from the view.
+     * This only affects the targets of new jobs assigned afterwards,
+     * and only if the load level of an instance changed.
+     * @param view The new view
+     */
+    public void updateLoads(final TopologyView view) {
+        final Map<String, Integer> newLoads = getInstanceLoads(view);
+        if ( !newLoads.equals(this.instanceLoads) ) {
+            this.logger.debug("Updating instance loads to {}", newLoads);
+            this.instanceLoads = newLoads;
+            final Map<String, Integer> newLevels = getLoadLevels(newLoads, this.loadLevels);
+            if ( !newLevels.equals(this.loadLevels) ) {
+                this.logger.debug("Updating instance load levels to {}", newLevels);
+                this.loadLevels = newLevels;
+                this.rings.clear();
+            }
+        }
+    }
+
     /**
      * Deactivate this object.
      */
@@ -291,24 +392,28 @@ public class TopologyCapabilities {
                 }
             }
             if ( queueInfo.queueConfiguration.getType() == QueueConfiguration.Type.ORDERED ) {
-                // for ordered queues we always pick the first as we have to pick the same target on each cluster view
-                // on all instances (TODO - we could try to do some round robin of the whole queue)
-                final String result = potentialTargets.get(0).getSlingId();
+                // for ordered queues we have to pick the same target for all jobs of the queue
+                // on all instances, therefore the load is not taken into account
+                final String result = this.getRing(potentialTargets, false).getTarget(queueInfo.queueName);
                 logger.debug("Target for {} : {}", jobTopic, result);
 
                 return result;
             }
-            // TODO - this is a simple round robin which is not based on the actual load
-            //        of the instances
-            Integer index = this.roundRobinMap.get(jobTopic);
-            if ( index == null ) {
-                index = 0;
-            }
-            if ( index >= potentialTargets.size() ) {
-                index = 0;
+            // existing jobs are hashed by their id on a ring which does not take the load
+            // into account, so a change of the topology or of the load only moves the jobs
+            // which have to be moved; new jobs are spread over the load aware ring
+            final String jobId = getJobId(jobProperties);
+            final String result;
+            if ( jobId != null ) {
+                result = this.getRing(potentialTargets, false).getTarget(jobId);
+            } else {
+                Integer index = this.roundRobinMap.get(jobTopic);
+                if ( index == null ) {
+                    index = 0;
+                }
+                this.roundRobinMap.put(jobTopic, index + 1);
+                result = this.getRing(potentialTargets, true).getTarget(jobTopic + '#' + index);
             }
-            this.roundRobinMap.put(jobTopic, index + 1);
-            final String result = potentialTargets.get(index).getSlingId();
             logger.debug("Target for {} : {}", jobTopic, result);
             return result;
         }
@@ -316,6 +421,50 @@ public class TopologyCapabilities {
         return null;
     }
 
+    /**
+     * Get the id of a job from its properties.
+     */
+    private static String getJobId(final Map<String, Object> jobProperties) {
+        if ( jobProperties != null ) {
+            final Object id = jobProperties.get(ResourceHelper.PROPERTY_JOB_ID);
+            if ( id != null ) {
+                return id.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the hash ring for the targets.
+     * @param targets The potential targets
+     * @param loadAware Whether the number of virtual nodes depends on the load level of the instances
+     * @return The hash ring
+     */
+    private ConsistentHashRing getRing(final List<InstanceDescription> targets, final boolean loadAware) {
+        final StringBuilder sb = new StringBuilder(loadAware ? "load" : "equal");
+        for(final InstanceDescription desc : targets) {
+            sb.append(',').append(desc.getSlingId());
+        }
+        final String key = sb.toString();
+        ConsistentHashRing ring = this.rings.get(key);
+        if ( ring == null ) {
+            final Map<String, Integer> levels = this.loadLevels;
+            final Map<String, Integer> virtualNodes = new HashMap<String, Integer>();
+            for(final InstanceDescription desc : targets) {
+                final Integer level = levels.get(desc.getSlingId());
+                int nodes = ConsistentHashRing.VIRTUAL_NODES;
+                if ( loadAware && level != null ) {
+                    // instances with more queued jobs than the average get less virtual nodes
+                    nodes = (level < 0 ? nodes >> -level : nodes << level);
+                }
+                virtualNodes.put(desc.getSlingId(), nodes);
+            }
+            ring = new ConsistentHashRing(virtualNodes);
+            this.rings.put(key, ring);
+        }
+        return ring;
+    }
+
     /**
      * Get the instance capabilities.
      * @return The map of instance capabilities.
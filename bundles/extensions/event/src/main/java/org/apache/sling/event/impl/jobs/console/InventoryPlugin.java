@@ -41,6 +41,7 @@ import org.apache.sling.event.impl.jobs.JobConsumerManager;
 import org.apache.sling.event.impl.jobs.config.InternalQueueConfiguration;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
 import org.apache.sling.event.impl.jobs.config.TopologyCapabilities;
+import org.apache.sling.event.impl.jobs.stats.TimingStatistics;
 import org.apache.sling.event.jobs.JobManager;
 import org.apache.sling.event.jobs.Queue;
 import org.apache.sling.event.jobs.QueueConfiguration;
@@ -87,6 +88,7 @@ public class InventoryPlugin implements InventoryPrinter {
         switch ( type ) {
             case ORDERED : return "Ordered";
             case TOPIC_ROUND_ROBIN : return "Topic Round Robin";
+            case WORK_STEALING : return "Work Stealing";
             case UNORDERED : return "Parallel";
             case IGNORE : return "Ignore";
             case DROP : return "Drop";
@@ -125,6 +127,20 @@ public class InventoryPlugin implements InventoryPrinter {
         return min + " min " + secs / 1000 + " secs";
     }
 
+    /**
+     * Format the p50, p95 and p99 waiting or processing times
+     */
+    private String formatPercentiles(final TimingStatistics s, final boolean waiting) {
+        final StringBuilder sb = new StringBuilder();
+        for(final double percentile : new double[] {50, 95, 99}) {
+            if ( sb.length() > 0 ) {
+                sb.append(" / ");
+            }
+            sb.append(formatTime(waiting ? s.getWaitingTimePercentile(percentile) : s.getProcessingTimePercentile(percentile)));
+        }
+        return sb.toString();
+    }
+
     /**
      * @see org.apache.felix.inventory.InventoryPrinter#print(java.io.PrintWriter, org.apache.felix.inventory.Format, boolean)
      */
@@ -161,6 +177,10 @@ public class InventoryPlugin implements InventoryPrinter {
         pw.printf("Processed Jobs : %s%n", s.getNumberOfProcessedJobs());
         pw.printf("Average Processing Time : %s%n", formatTime(s.getAverageProcessingTime()));
         pw.printf("Average Waiting Time : %s%n", formatTime(s.getAverageWaitingTime()));
+        if ( s instanceof TimingStatistics ) {
+            pw.printf("Processing Time (p50/p95/p99) : %s%n", formatPercentiles((TimingStatistics)s, false));
+            pw.printf("Waiting Time (p50/p95/p99) : %s%n", formatPercentiles((TimingStatistics)s, true));
+        }
         pw.println();
 
         pw.println("Topology Capabilities");
@@ -244,11 +264,16 @@ public class InventoryPlugin implements InventoryPrinter {
             pw.printf("Processed Jobs : %s%n", s.getNumberOfProcessedJobs());
             pw.printf("Average Processing Time : %s%n", formatTime(s.getAverageProcessingTime()));
             pw.printf("Average Waiting Time : %s%n", formatTime(s.getAverageWaitingTime()));
+            if ( s instanceof TimingStatistics ) {
+                pw.printf("Processing Time (p50/p95/p99) : %s%n", formatPercentiles((TimingStatistics)s, false));
+                pw.printf("Waiting Time (p50/p95/p99) : %s%n", formatPercentiles((TimingStatistics)s, true));
+            }
             pw.printf("Status Info : %s%n", q.getStateInfo());
             pw.println("Configuration");
             pw.printf("Type : %s%n", formatType(c.getType()));
             pw.printf("Topics : %s%n", formatArrayAsText(c.getTopics()));
             pw.printf("Max Parallel : %s%n", c.getMaxParallel());
+            pw.printf("Batch Size : %s%n", c.getBatchSize());
             pw.printf("Max Retries : %s%n", c.getMaxRetries());
             pw.printf("Retry Delay : %s ms%n", c.getRetryDelayInMs());
             pw.printf("Priority : %s%n", c.getThreadPriority());
@@ -269,6 +294,10 @@ public class InventoryPlugin implements InventoryPrinter {
             pw.printf("Processed Jobs : %s%n", ts.getNumberOfProcessedJobs());
             pw.printf("Average Processing Time : %s%n", formatTime(ts.getAverageProcessingTime()));
             pw.printf("Average Waiting Time : %s%n", formatTime(ts.getAverageWaitingTime()));
+            if ( ts instanceof TimingStatistics ) {
+                pw.printf("Processing Time (p50/p95/p99) : %s%n", formatPercentiles((TimingStatistics)ts, false));
+                pw.printf("Waiting Time (p50/p95/p99) : %s%n", formatPercentiles((TimingStatistics)ts, true));
+            }
             pw.println();
         }
 
@@ -288,6 +317,7 @@ public class InventoryPlugin implements InventoryPrinter {
         pw.printf("Type : %s%n", formatType(c.getType()));
         pw.printf("Topics : %s%n", formatArrayAsText(c.getTopics()));
         pw.printf("Max Parallel : %s%n", c.getMaxParallel());
+        pw.printf("Batch Size : %s%n", c.getBatchSize());
         pw.printf("Max Retries : %s%n", c.getMaxRetries());
         pw.printf("Retry Delay : %s ms%n", c.getRetryDelayInMs());
         pw.printf("Priority : %s%n", c.getPriority());
@@ -385,6 +415,7 @@ public class InventoryPlugin implements InventoryPrinter {
             pw.printf("        \"type\" : \"%s\",%n", c.getType());
             pw.printf("        \"topics\" : \"%s\",%n", formatArrayAsJson(c.getTopics()));
             pw.printf("        \"maxParallel\" : %s,%n", c.getMaxParallel());
+            pw.printf("        \"batchSize\" : %s,%n", c.getBatchSize());
             pw.printf("        \"maxRetries\" : %s,%n", c.getMaxRetries());
             pw.printf("        \"retryDelayInMs\" : %s,%n", c.getRetryDelayInMs());
             pw.printf("        \"priority\" : \"%s\"%n", c.getThreadPriority());
@@ -442,6 +473,7 @@ public class InventoryPlugin implements InventoryPrinter {
         pw.printf("      \"type\" : \"%s\",%n", c.getType());
         pw.printf("      \"topics\" : %s,%n", formatArrayAsJson(c.getTopics()));
         pw.printf("      \"maxParallel\" : %s,%n", c.getMaxParallel());
+        pw.printf("      \"batchSize\" : %s,%n", c.getBatchSize());
         pw.printf("      \"maxRetries\" : %s,%n", c.getMaxRetries());
         pw.printf("      \"retryDelayInMs\" : %s,%n", c.getRetryDelayInMs());
         pw.printf("      \"priority\" : \"%s\",%n", c.getPriority());
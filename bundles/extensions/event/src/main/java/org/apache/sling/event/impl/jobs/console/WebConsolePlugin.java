@@ -44,6 +44,7 @@ import org.apache.sling.event.impl.jobs.JobConsumerManager;
 import org.apache.sling.event.impl.jobs.config.InternalQueueConfiguration;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
 import org.apache.sling.event.impl.jobs.config.TopologyCapabilities;
+import org.apache.sling.event.impl.jobs.stats.TimingStatistics;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.JobManager;
 import org.apache.sling.event.jobs.Queue;
@@ -221,6 +222,10 @@ public class WebConsolePlugin extends HttpServlet implements JobConsumer {
         pw.printf("<tr><td>Processed Jobs</td><td>%s</td></tr>", s.getNumberOfProcessedJobs());
         pw.printf("<tr><td>Average Processing Time</td><td>%s</td></tr>", formatTime(s.getAverageProcessingTime()));
         pw.printf("<tr><td>Average Waiting Time</td><td>%s</td></tr>", formatTime(s.getAverageWaitingTime()));
+        if ( s instanceof TimingStatistics ) {
+            pw.printf("<tr><td>Processing Time (p50/p95/p99)</td><td>%s</td></tr>", formatPercentiles((TimingStatistics)s, false));
+            pw.printf("<tr><td>Waiting Time (p50/p95/p99)</td><td>%s</td></tr>", formatPercentiles((TimingStatistics)s, true));
+        }
         pw.println("</tbody></table>");
         pw.println("<br/>");
 
@@ -322,6 +327,10 @@ public class WebConsolePlugin extends HttpServlet implements JobConsumer {
             pw.printf("<tr><td>Processed Jobs</td><td>%s</td><td colspan='2'>&nbsp</td></tr>", s.getNumberOfProcessedJobs());
             pw.printf("<tr><td>Average Processing Time</td><td>%s</td><td colspan='2'>&nbsp</td></tr>", formatTime(s.getAverageProcessingTime()));
             pw.printf("<tr><td>Average Waiting Time</td><td>%s</td><td colspan='2'>&nbsp</td></tr>", formatTime(s.getAverageWaitingTime()));
+            if ( s instanceof TimingStatistics ) {
+                pw.printf("<tr><td>Processing Time (p50/p95/p99)</td><td>%s</td><td colspan='2'>&nbsp</td></tr>", formatPercentiles((TimingStatistics)s, false));
+                pw.printf("<tr><td>Waiting Time (p50/p95/p99)</td><td>%s</td><td colspan='2'>&nbsp</td></tr>", formatPercentiles((TimingStatistics)s, true));
+            }
             pw.printf("<tr><td>Status Info</td><td colspan='3'>%s</td></tr>", ResponseUtil.escapeXml(q.getStateInfo()));
             pw.println("</tbody></table>");
             pw.println("<br/>");
@@ -343,6 +352,10 @@ public class WebConsolePlugin extends HttpServlet implements JobConsumer {
             pw.printf("<tr><td>Processed Jobs</td><td>%s</td></tr>", ts.getNumberOfProcessedJobs());
             pw.printf("<tr><td>Average Processing Time</td><td>%s</td></tr>", formatTime(ts.getAverageProcessingTime()));
             pw.printf("<tr><td>Average Waiting Time</td><td>%s</td></tr>", formatTime(ts.getAverageWaitingTime()));
+            if ( ts instanceof TimingStatistics ) {
+                pw.printf("<tr><td>Processing Time (p50/p95/p99)</td><td>%s</td></tr>", formatPercentiles((TimingStatistics)ts, false));
+                pw.printf("<tr><td>Waiting Time (p50/p95/p99)</td><td>%s</td></tr>", formatPercentiles((TimingStatistics)ts, true));
+            }
             pw.println("</tbody></table>");
             pw.println("<br/>");
         }
@@ -370,6 +383,7 @@ public class WebConsolePlugin extends HttpServlet implements JobConsumer {
         pw.printf("<tr><td>Type</td><td>%s</td></tr>", formatType(c.getType()));
         pw.printf("<tr><td>Topics</td><td>%s</td></tr>", formatArray(c.getTopics()));
         pw.printf("<tr><td>Max Parallel</td><td>%s</td></tr>", c.getMaxParallel());
+        pw.printf("<tr><td>Batch Size</td><td>%s</td></tr>", c.getBatchSize());
         pw.printf("<tr><td>Max Retries</td><td>%s</td></tr>", c.getMaxRetries());
         pw.printf("<tr><td>Retry Delay</td><td>%s ms</td></tr>", c.getRetryDelayInMs());
         pw.printf("<tr><td>Priority</td><td>%s</td></tr>", c.getPriority());
@@ -402,6 +416,7 @@ public class WebConsolePlugin extends HttpServlet implements JobConsumer {
         switch ( type ) {
             case ORDERED : return "Ordered";
             case TOPIC_ROUND_ROBIN : return "Topic Round Robin";
+            case WORK_STEALING : return "Work Stealing";
             case UNORDERED : return "Parallel";
             case IGNORE : return "Ignore";
             case DROP : return "Drop";
@@ -439,6 +454,20 @@ public class WebConsolePlugin extends HttpServlet implements JobConsumer {
         return min + " min " + secs / 1000 + " secs";
     }
 
+    /**
+     * Format the p50, p95 and p99 waiting or processing times
+     */
+    private String formatPercentiles(final TimingStatistics s, final boolean waiting) {
+        final StringBuilder sb = new StringBuilder();
+        for(final double percentile : new double[] {50, 95, 99}) {
+            if ( sb.length() > 0 ) {
+                sb.append(" / ");
+            }
+            sb.append(formatTime(waiting ? s.getWaitingTimePercentile(percentile) : s.getProcessingTimePercentile(percentile)));
+        }
+        return sb.toString();
+    }
+
     private void printForm(final PrintWriter pw,
             final String qeueName,
             final String buttonLabel,
@@ -21,14 +21,14 @@ import java.util.Date;
 
 import javax.management.StandardMBean;
 
+import org.apache.sling.event.impl.jobs.stats.TimingStatistics;
 import org.apache.sling.event.jobs.Statistics;
-import org.apache.sling.event.jobs.jmx.StatisticsMBean;
 
 public abstract class AbstractJobStatistics extends StandardMBean implements
-        StatisticsMBean {
+        JobStatisticsMBean {
 
     public AbstractJobStatistics() {
-        super(StatisticsMBean.class, false);
+        super(JobStatisticsMBean.class, false);
     }
 
     protected abstract Statistics getStatistics();
@@ -97,4 +97,44 @@ public abstract class AbstractJobStatistics extends StandardMBean implements
         return new Date(getStatistics().getLastFinishedJobTime());
     }
 
+    public long getWaitingTimeP50() {
+        return getWaitingTimePercentile(50);
+    }
+
+    public long getWaitingTimeP95() {
+        return getWaitingTimePercentile(95);
+    }
+
+    public long getWaitingTimeP99() {
+        return getWaitingTimePercentile(99);
+    }
+
+    public long getProcessingTimeP50() {
+        return getProcessingTimePercentile(50);
+    }
+
+    public long getProcessingTimeP95() {
+        return getProcessingTimePercentile(95);
+    }
+
+    public long getProcessingTimeP99() {
+        return getProcessingTimePercentile(99);
+    }
+
+    private long getWaitingTimePercentile(final double percentile) {
+        final Statistics s = getStatistics();
+        if (s instanceof TimingStatistics) {
+            return ((TimingStatistics) s).getWaitingTimePercentile(percentile);
+        }
+        return 0;
+    }
+
+    private long getProcessingTimePercentile(final double percentile) {
+        final Statistics s = getStatistics();
+        if (s instanceof TimingStatistics) {
+            return ((TimingStatistics) s).getProcessingTimePercentile(percentile);
+        }
+        return 0;
+    }
+
 }
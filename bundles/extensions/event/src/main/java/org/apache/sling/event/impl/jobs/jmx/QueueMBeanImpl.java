@@ -27,20 +27,30 @@ public class QueueMBeanImpl extends AbstractJobStatistics {
 
     private final String name;
 
+    private final Queue queue;
+
     private final Statistics statistics;
 
     public QueueMBeanImpl(Queue queue) {
         this.name = queue.getName();
+        this.queue = queue;
         if (queue instanceof Statistics) {
             this.statistics = (Statistics) queue;
         } else {
-            this.statistics = new EmptyStatistics();
+            this.statistics = null;
         }
     }
 
     @Override
     protected Statistics getStatistics() {
-        return this.statistics;
+        if (this.statistics != null) {
+            return this.statistics;
+        }
+        final Statistics queueStatistics = this.queue.getStatistics();
+        if (queueStatistics == null) {
+            return new EmptyStatistics();
+        }
+        return queueStatistics;
     }
 
     @Override
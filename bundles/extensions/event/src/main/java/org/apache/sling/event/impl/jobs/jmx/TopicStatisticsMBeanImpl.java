@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The SF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sling.event.impl.jobs.jmx;
+
+import java.util.Date;
+
+import javax.management.StandardMBean;
+
+import org.apache.sling.event.impl.jobs.stats.TopicStatisticsImpl;
+
+/**
+ * The management bean for the statistics of a single topic.
+ */
+public class TopicStatisticsMBeanImpl extends StandardMBean implements TopicStatisticsMBean {
+
+    private final TopicStatisticsImpl statistics;
+
+    public TopicStatisticsMBeanImpl(final TopicStatisticsImpl statistics) {
+        super(TopicStatisticsMBean.class, false);
+        this.statistics = statistics;
+    }
+
+    public String getTopic() {
+        return statistics.getTopic();
+    }
+
+    public long getNumberOfFinishedJobs() {
+        return statistics.getNumberOfFinishedJobs();
+    }
+
+    public long getNumberOfCancelledJobs() {
+        return statistics.getNumberOfCancelledJobs();
+    }
+
+    public long getNumberOfFailedJobs() {
+        return statistics.getNumberOfFailedJobs();
+    }
+
+    public long getNumberOfProcessedJobs() {
+        return statistics.getNumberOfProcessedJobs();
+    }
+
+    public long getLastActivatedJobTime() {
+        return statistics.getLastActivatedJobTime();
+    }
+
+    public long getLastFinishedJobTime() {
+        return statistics.getLastFinishedJobTime();
+    }
+
+    public Date getLastActivatedJobDate() {
+        return new Date(statistics.getLastActivatedJobTime());
+    }
+
+    public Date getLastFinishedJobDate() {
+        return new Date(statistics.getLastFinishedJobTime());
+    }
+
+    public long getAverageWaitingTime() {
+        return statistics.getAverageWaitingTime();
+    }
+
+    public long getAverageProcessingTime() {
+        return statistics.getAverageProcessingTime();
+    }
+
+    public long getWaitingTimeP50() {
+        return statistics.getWaitingTimePercentile(50);
+    }
+
+    public long getWaitingTimeP95() {
+        return statistics.getWaitingTimePercentile(95);
+    }
+
+    public long getWaitingTimeP99() {
+        return statistics.getWaitingTimePercentile(99);
+    }
+
+    public long getProcessingTimeP50() {
+        return statistics.getProcessingTimePercentile(50);
+    }
+
+    public long getProcessingTimeP95() {
+        return statistics.getProcessingTimePercentile(95);
+    }
+
+    public long getProcessingTimeP99() {
+        return statistics.getProcessingTimePercentile(99);
+    }
+}
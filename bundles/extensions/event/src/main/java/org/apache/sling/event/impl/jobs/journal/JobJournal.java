@@ -0,0 +1,709 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.journal;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.sling.event.impl.jobs.JobImpl;
+import org.apache.sling.event.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The job journal is an alternative, local store for jobs.
+ *
+ * Instead of creating a resource per job, all changes to a job are appended
+ * as records to memory mapped segment files in a directory of the local file
+ * system. Each record is forced to disk before the call returns, so a job
+ * which has been added, updated or removed survives a crash of this instance
+ * the same way as a committed job resource does. Concurrent changes share
+ * a single force of the segment.
+ *
+ * The journal is local to this instance: its jobs are not visible to other
+ * instances and are not reassigned if this instance leaves the cluster.
+ * They are processed once this instance is started again. Therefore only
+ * topics which have been explicitly configured, and for which this is
+ * acceptable, are stored in the journal.
+ *
+ * On startup, all segments are replayed in order to rebuild the in memory
+ * index of the jobs. Replaying a segment stops at the first incomplete or
+ * corrupt record, which can only be the result of a crash while appending.
+ *
+ * As the journal only grows, it is compacted from time to time by writing
+ * the current state of all jobs into a new segment and deleting the old ones.
+ *
+ * Jobs from the journal use a pseudo resource path starting with
+ * {@link #PATH_PREFIX}, see {@link #isJournalPath(String)}.
+ */
+public class JobJournal {
+
+    /** The prefix of the pseudo resource path of jobs stored in the journal. */
+    public static final String PATH_PREFIX = "journal:";
+
+    /** Default size of a segment. */
+    public static final long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /** The journal is not compacted below this number of records. */
+    static final int COMPACTION_MIN_RECORDS = 1000;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /** Size of the record header: length and checksum. */
+    private static final int HEADER_SIZE = 8;
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /** The directory containing the segments. */
+    private final File directory;
+
+    /** The size of new segments. */
+    private final long segmentSize;
+
+    /** All jobs by id. Writes are guarded by this object. */
+    private final Map<String, JournalRecord> jobs = new ConcurrentHashMap<String, JournalRecord>();
+
+    /** All jobs by topic, ordered by creation date. Writes are guarded by this object. */
+    private final ConcurrentMap<String, ConcurrentSkipListMap<OrderKey, JournalRecord>> jobsByTopic
+        = new ConcurrentHashMap<String, ConcurrentSkipListMap<OrderKey, JournalRecord>>();
+
+    /** The segment files in write order. */
+    private final List<File> segments = new ArrayList<File>();
+
+    /** The number of the last segment. */
+    private long lastSegmentNumber = 0;
+
+    /** The channel of the segment which is currently written. */
+    private FileChannel channel;
+
+    /** The mapped buffer of the segment which is currently written. */
+    private MappedByteBuffer buffer;
+
+    /** The number of records in all segments. */
+    private long recordCount;
+
+    /** The sequence number of the last written record. */
+    private long writeSequence;
+
+    /** The sequence number of the last record forced to disk. */
+    private volatile long forcedSequence;
+
+    /** Lock for forcing the current segment to disk. */
+    private final Object forceLock = new Object();
+
+    /** Whether the journal is open. */
+    private volatile boolean open;
+
+    /** Whether the journal is compacted, all filled segments have to be forced. */
+    private boolean compacting;
+
+    /**
+     * Create a new journal.
+     * @param directory The directory for the segments
+     * @param segmentSize The size of new segments in bytes
+     */
+    public JobJournal(final File directory, final long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = (segmentSize > 0 ? segmentSize : DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Check whether a job resource path belongs to a job in the journal.
+     * @param path The resource path of the job
+     * @return {@code true} if it is a journal job.
+     */
+    public static boolean isJournalPath(final String path) {
+        return path != null && path.startsWith(PATH_PREFIX);
+    }
+
+    /**
+     * Check whether the journal can store the job properties.
+     * The journal only stores the property types of the resource tree,
+     * jobs with other properties have to be stored as resources.
+     * @param properties The job properties, might be {@code null}
+     * @return {@code true} if all properties are supported.
+     */
+    public static boolean isSupported(final Map<String, Object> properties) {
+        if ( properties != null ) {
+            for(final Object value : properties.values()) {
+                if ( value != null && !JournalRecord.isSupported(value) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Open the journal and replay all segments.
+     * @throws IOException If the directory is not accessible.
+     */
+    public synchronized void open() throws IOException {
+        if ( !this.directory.exists() && !this.directory.mkdirs() ) {
+            throw new IOException("Unable to create journal directory " + this.directory);
+        }
+        final File[] files = this.directory.listFiles(new FileFilter() {
+
+            @Override
+            public boolean accept(final File file) {
+                return getSegmentNumber(file) != -1;
+            }
+        });
+        if ( files == null ) {
+            throw new IOException("Unable to list journal directory " + this.directory);
+        }
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(final File o1, final File o2) {
+                final long n1 = getSegmentNumber(o1);
+                final long n2 = getSegmentNumber(o2);
+                return n1 < n2 ? -1 : (n1 == n2 ? 0 : 1);
+            }
+        });
+        for(int i = 0; i < files.length; i++) {
+            final int end = this.replay(files[i]);
+            this.segments.add(files[i]);
+            this.lastSegmentNumber = getSegmentNumber(files[i]);
+            if ( i == files.length - 1 ) {
+                this.map(files[i], Math.max(files[i].length(), end + HEADER_SIZE));
+                this.buffer.position(end);
+            }
+        }
+        this.open = true;
+        logger.info("Opened job journal at {} with {} jobs", this.directory, this.jobs.size());
+    }
+
+    /**
+     * Close the journal.
+     */
+    public synchronized void close() {
+        this.open = false;
+        this.closeSegment();
+        this.jobs.clear();
+        this.jobsByTopic.clear();
+        this.segments.clear();
+    }
+
+    /**
+     * Add a new job.
+     * @param topic The job topic
+     * @param name The optional job name
+     * @param jobId The job id
+     * @param properties The job properties
+     * @return The job
+     * @throws IOException If writing to the journal fails
+     */
+    public JobImpl add(final String topic,
+            final String name,
+            final String jobId,
+            final Map<String, Object> properties)
+    throws IOException {
+        final JournalRecord record = new JournalRecord(jobId, topic, name, properties);
+        final long sequence;
+        synchronized ( this ) {
+            sequence = this.append(record);
+            this.index(record);
+        }
+        this.force(sequence);
+        return record.toJob();
+    }
+
+    /**
+     * Write the current properties of a job to the journal.
+     * @param job The job
+     * @return {@code true} if the job is still in the journal and has been updated.
+     */
+    public boolean update(final JobImpl job) {
+        final JournalRecord record = new JournalRecord(job.getId(), job.getTopic(), job.getName(), job.getProperties());
+        long sequence = -1;
+        synchronized ( this ) {
+            if ( this.jobs.containsKey(job.getId()) ) {
+                try {
+                    sequence = this.append(record);
+                    this.index(record);
+                } catch ( final IOException ioe ) {
+                    logger.warn("Unable to update job " + job.getId() + " in journal", ioe);
+                }
+            }
+        }
+        if ( sequence != -1 ) {
+            this.force(sequence);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove a job from the journal.
+     * @param jobId The job id
+     * @return {@code true} if the job has been removed.
+     */
+    public boolean remove(final String jobId) {
+        long sequence = -1;
+        synchronized ( this ) {
+            if ( this.jobs.containsKey(jobId) ) {
+                try {
+                    sequence = this.append(new JournalRecord(jobId));
+                    this.unindex(jobId);
+                } catch ( final IOException ioe ) {
+                    logger.warn("Unable to remove job " + jobId + " from journal", ioe);
+                }
+            }
+        }
+        if ( sequence != -1 ) {
+            this.force(sequence);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get a job
+     * @param jobId The job id
+     * @return The job or {@code null}
+     */
+    public JobImpl getJob(final String jobId) {
+        final JournalRecord record = this.jobs.get(jobId);
+        return record == null ? null : record.toJob();
+    }
+
+    /**
+     * Check whether a job is in the journal.
+     * @param jobId The job id
+     * @return {@code true} if the journal contains the job.
+     */
+    public boolean contains(final String jobId) {
+        return this.jobs.containsKey(jobId);
+    }
+
+    /**
+     * Get the jobs of a topic ordered by creation date.
+     * @param topic The topic or {@code null} for all topics
+     * @param queuedOnly Whether only jobs which have not been started are returned
+     * @param limit The maximum number of jobs, a value lower than 1 means no limit
+     * @return The list of jobs
+     */
+    public List<JobImpl> getJobs(final String topic, final boolean queuedOnly, final int limit) {
+        final List<JobImpl> result = new ArrayList<JobImpl>();
+        if ( topic == null ) {
+            for(final String t : this.jobsByTopic.keySet()) {
+                this.addJobs(result, t, queuedOnly, limit);
+            }
+            Collections.sort(result);
+            if ( limit > 0 && result.size() > limit ) {
+                return new ArrayList<JobImpl>(result.subList(0, limit));
+            }
+        } else {
+            this.addJobs(result, topic, queuedOnly, limit);
+        }
+        return result;
+    }
+
+    /**
+     * Add the jobs of a single topic in creation order
+     */
+    private void addJobs(final List<JobImpl> result, final String topic, final boolean queuedOnly, final int limit) {
+        final Map<OrderKey, JournalRecord> topicJobs = this.jobsByTopic.get(topic);
+        if ( topicJobs != null ) {
+            int count = 0;
+            for(final JournalRecord record : topicJobs.values()) {
+                if ( limit > 0 && count == limit ) {
+                    break;
+                }
+                if ( !queuedOnly || record.getProperties().get(Job.PROPERTY_JOB_STARTED_TIME) == null ) {
+                    result.add(record.toJob());
+                    count++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get all topics with jobs in the journal.
+     * @return The set of topics.
+     */
+    public Set<String> getTopics() {
+        final Set<String> topics = new HashSet<String>();
+        for(final Map.Entry<String, ConcurrentSkipListMap<OrderKey, JournalRecord>> entry : this.jobsByTopic.entrySet()) {
+            if ( !entry.getValue().isEmpty() ) {
+                topics.add(entry.getKey());
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Get the number of segment files.
+     */
+    public synchronized int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * Compact the journal if it contains a lot more records than jobs.
+     * @return {@code true} if the journal has been compacted.
+     */
+    public synchronized boolean compactIfNeeded() {
+        if ( this.open
+             && this.recordCount > COMPACTION_MIN_RECORDS
+             && this.recordCount > 2L * this.jobs.size() ) {
+            try {
+                this.compact();
+                return true;
+            } catch ( final IOException ioe ) {
+                logger.warn("Unable to compact job journal at " + this.directory, ioe);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compact the journal.
+     * The current state of all jobs is written into new segments,
+     * afterwards all previous segments are deleted. If this is interrupted,
+     * replaying the old segments followed by the new ones still results in
+     * the current state. Therefore all new segments are forced to disk and
+     * the directory is synced before the old segments are deleted.
+     * @throws IOException If writing the new segments fails.
+     */
+    synchronized void compact() throws IOException {
+        logger.debug("Compacting job journal at {} with {} records for {} jobs",
+                new Object[] {this.directory, this.recordCount, this.jobs.size()});
+        final List<File> oldSegments = new ArrayList<File>(this.segments);
+        this.closeSegment();
+        this.segments.clear();
+        this.recordCount = 0;
+        this.compacting = true;
+        try {
+            this.newSegment(HEADER_SIZE);
+            for(final JournalRecord record : this.jobs.values()) {
+                this.write(record);
+            }
+        } finally {
+            this.compacting = false;
+        }
+        this.forceSegment(this.buffer);
+        this.forcedSequence = this.writeSequence;
+        this.syncDirectory();
+        for(final File file : oldSegments) {
+            if ( !file.delete() ) {
+                logger.warn("Unable to delete journal segment {}", file);
+            }
+        }
+    }
+
+    /**
+     * Replay a segment.
+     * @param file The segment file
+     * @return The position after the last valid record.
+     */
+    private int replay(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer readBuffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            while ( readBuffer.remaining() >= HEADER_SIZE ) {
+                final int start = readBuffer.position();
+                final int length = readBuffer.getInt();
+                final int checksum = readBuffer.getInt();
+                if ( length <= 0 || length > readBuffer.remaining() ) {
+                    if ( length != 0 ) {
+                        logger.warn("Ignoring incomplete record at {} in journal segment {}", start, file);
+                    }
+                    readBuffer.position(start);
+                    break;
+                }
+                final byte[] data = new byte[length];
+                readBuffer.get(data);
+                final JournalRecord record = JournalRecord.read(data, checksum);
+                if ( record == null ) {
+                    logger.warn("Ignoring corrupt record at {} in journal segment {}", start, file);
+                    readBuffer.position(start);
+                    break;
+                }
+                this.recordCount++;
+                if ( record.isRemoval() ) {
+                    this.unindex(record.getJobId());
+                } else {
+                    this.index(record);
+                }
+            }
+            return readBuffer.position();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Add or replace a job in the in memory index.
+     */
+    private void index(final JournalRecord record) {
+        final JournalRecord old = this.jobs.put(record.getJobId(), record);
+        if ( old != null ) {
+            this.unindexTopic(old);
+        }
+        ConcurrentSkipListMap<OrderKey, JournalRecord> topicJobs = this.jobsByTopic.get(record.getTopic());
+        if ( topicJobs == null ) {
+            topicJobs = new ConcurrentSkipListMap<OrderKey, JournalRecord>();
+            this.jobsByTopic.put(record.getTopic(), topicJobs);
+        }
+        topicJobs.put(new OrderKey(record), record);
+    }
+
+    /**
+     * Remove a job from the in memory index.
+     */
+    private void unindex(final String jobId) {
+        final JournalRecord old = this.jobs.remove(jobId);
+        if ( old != null ) {
+            this.unindexTopic(old);
+        }
+    }
+
+    private void unindexTopic(final JournalRecord record) {
+        final Map<OrderKey, JournalRecord> topicJobs = this.jobsByTopic.get(record.getTopic());
+        if ( topicJobs != null ) {
+            topicJobs.remove(new OrderKey(record));
+        }
+    }
+
+    /**
+     * Append a record to the current segment.
+     * The caller has to {@link #force(long)} the returned sequence number
+     * after releasing the lock on the journal.
+     * @return The sequence number of the record
+     */
+    private long append(final JournalRecord record) throws IOException {
+        this.write(record);
+        this.writeSequence++;
+        return this.writeSequence;
+    }
+
+    /**
+     * Make sure that all records up to the sequence number are on disk.
+     * If another thread is already forcing the segment, this waits for it
+     * and then forces all records written in the meantime in one go.
+     * @param sequence The sequence number of the record
+     */
+    private void force(final long sequence) {
+        if ( this.forcedSequence >= sequence ) {
+            return;
+        }
+        synchronized ( this.forceLock ) {
+            if ( this.forcedSequence >= sequence ) {
+                return;
+            }
+            final MappedByteBuffer current;
+            final long target;
+            synchronized ( this ) {
+                // records of previous segments are forced when the segment is closed
+                current = this.buffer;
+                target = this.writeSequence;
+            }
+            if ( current != null ) {
+                current.force();
+            }
+            this.forcedSequence = target;
+        }
+    }
+
+    /**
+     * Write a record to the current segment.
+     * Starts a new segment if the current one is full.
+     */
+    private void write(final JournalRecord record) throws IOException {
+        if ( !this.open ) {
+            throw new IOException("Job journal at " + this.directory + " is closed.");
+        }
+        final byte[] data = record.toBytes();
+        final int size = HEADER_SIZE + data.length;
+        if ( this.buffer == null || this.buffer.remaining() < size ) {
+            this.closeSegment();
+            this.newSegment(size);
+        }
+        this.buffer.putInt(data.length);
+        this.buffer.putInt(JournalRecord.checksum(data));
+        this.buffer.put(data);
+        // mark the end, the rest of a segment is usually zero,
+        // but might contain an incomplete record after a crash
+        if ( this.buffer.remaining() >= HEADER_SIZE ) {
+            this.buffer.putInt(this.buffer.position(), 0);
+        }
+        this.recordCount++;
+    }
+
+    /**
+     * Create and map a new segment.
+     * @param minSize The minimal size of the segment.
+     */
+    private void newSegment(final int minSize) throws IOException {
+        this.lastSegmentNumber++;
+        final File file = new File(this.directory, getSegmentName(this.lastSegmentNumber));
+        this.map(file, Math.max(this.segmentSize, minSize + HEADER_SIZE));
+        this.segments.add(file);
+    }
+
+    private void map(final File file, final long size) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            this.channel = raf.getChannel();
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch ( final IOException ioe ) {
+            raf.close();
+            this.channel = null;
+            throw ioe;
+        }
+    }
+
+    private void closeSegment() {
+        if ( this.buffer != null ) {
+            // records written by the compaction don't have a sequence number
+            if ( this.compacting || this.forcedSequence < this.writeSequence ) {
+                this.forceSegment(this.buffer);
+            }
+            this.buffer = null;
+        }
+        if ( this.channel != null ) {
+            try {
+                this.channel.close();
+            } catch ( final IOException ignore ) {
+                // ignore
+            }
+            this.channel = null;
+        }
+    }
+
+    /**
+     * Force a segment to disk.
+     */
+    void forceSegment(final MappedByteBuffer segment) {
+        segment.force();
+    }
+
+    /**
+     * Sync the directory, so that new segment files are found after a crash.
+     * This requires Java 7 and is not supported on all platforms, e.g. on
+     * Windows a directory can't be opened, it is skipped in these cases.
+     */
+    private void syncDirectory() {
+        try {
+            final Class<?> pathClass = Class.forName("java.nio.file.Path");
+            final Class<?> optionClass = Class.forName("java.nio.file.OpenOption");
+            final Object path = File.class.getMethod("toPath").invoke(this.directory);
+            final Object options = Array.newInstance(optionClass, 1);
+            Array.set(options, 0, Class.forName("java.nio.file.StandardOpenOption").getField("READ").get(null));
+            final FileChannel dirChannel = (FileChannel) FileChannel.class.getMethod("open", pathClass, options.getClass())
+                    .invoke(null, path, options);
+            try {
+                dirChannel.force(true);
+            } finally {
+                dirChannel.close();
+            }
+        } catch ( final Exception e ) {
+            logger.debug("Unable to sync journal directory " + this.directory, e);
+        }
+    }
+
+    /**
+     * Check whether a directory contains journal segments.
+     * @param directory The directory
+     * @return {@code true} if there is at least one segment.
+     */
+    public static boolean hasSegments(final File directory) {
+        final String[] names = directory.list();
+        if ( names != null ) {
+            for(final String name : names) {
+                if ( getSegmentNumber(new File(directory, name)) != -1 ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static String getSegmentName(final long number) {
+        return SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX;
+    }
+
+    static long getSegmentNumber(final File file) {
+        final String name = file.getName();
+        if ( name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) ) {
+            try {
+                return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            } catch ( final NumberFormatException nfe ) {
+                // ignore
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The key of a job in the topic index: the creation date followed by the id.
+     */
+    private static final class OrderKey implements Comparable<OrderKey> {
+
+        private final long created;
+
+        private final String jobId;
+
+        OrderKey(final JournalRecord record) {
+            final Object value = record.getProperties().get(Job.PROPERTY_JOB_CREATED);
+            this.created = (value instanceof Calendar ? ((Calendar)value).getTimeInMillis() : 0);
+            this.jobId = record.getJobId();
+        }
+
+        @Override
+        public int compareTo(final OrderKey o) {
+            if ( this.created != o.created ) {
+                return this.created < o.created ? -1 : 1;
+            }
+            return this.jobId.compareTo(o.jobId);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof OrderKey && this.compareTo((OrderKey)obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.jobId.hashCode();
+        }
+    }
+}
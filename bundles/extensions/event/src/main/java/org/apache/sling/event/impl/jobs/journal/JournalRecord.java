@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+
+import org.apache.sling.event.impl.jobs.JobImpl;
+
+/**
+ * A record of the job journal.
+ * A record either contains the complete state of a job or marks
+ * the removal of a job.
+ *
+ * The journal supports the property types of the resource tree:
+ * strings, booleans, integers, longs, doubles, big decimals and calendars
+ * and arrays of these. Enums are stored as strings.
+ */
+class JournalRecord {
+
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_REMOVE = 2;
+
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_BOOLEAN = 2;
+    private static final byte VALUE_INTEGER = 3;
+    private static final byte VALUE_LONG = 4;
+    private static final byte VALUE_DOUBLE = 5;
+    private static final byte VALUE_DECIMAL = 6;
+    private static final byte VALUE_CALENDAR = 7;
+    private static final byte VALUE_ARRAY = 8;
+
+    private final String jobId;
+
+    private final String topic;
+
+    private final String name;
+
+    /** The job properties - {@code null} for a removal. */
+    private final Map<String, Object> properties;
+
+    /**
+     * Create a record with the complete job state.
+     * Unsupported property values are not stored.
+     */
+    JournalRecord(final String jobId, final String topic, final String name, final Map<String, Object> properties) {
+        this.jobId = jobId;
+        this.topic = topic;
+        this.name = name;
+        final Map<String, Object> props = new HashMap<String, Object>();
+        for(final Map.Entry<String, Object> entry : properties.entrySet()) {
+            final Object value = entry.getValue();
+            if ( value != null && value.getClass().isEnum() ) {
+                props.put(entry.getKey(), value.toString());
+            } else if ( value != null && isSupported(value) ) {
+                props.put(entry.getKey(), value);
+            }
+        }
+        props.remove(JobImpl.PROPERTY_RESOURCE_PATH);
+        this.properties = Collections.unmodifiableMap(props);
+    }
+
+    /**
+     * Create a removal record.
+     */
+    JournalRecord(final String jobId) {
+        this.jobId = jobId;
+        this.topic = null;
+        this.name = null;
+        this.properties = null;
+    }
+
+    String getJobId() {
+        return this.jobId;
+    }
+
+    String getTopic() {
+        return this.topic;
+    }
+
+    Map<String, Object> getProperties() {
+        return this.properties;
+    }
+
+    boolean isRemoval() {
+        return this.properties == null;
+    }
+
+    /**
+     * Create a new job object from this record.
+     */
+    JobImpl toJob() {
+        final Map<String, Object> props = new HashMap<String, Object>(this.properties);
+        props.put(JobImpl.PROPERTY_RESOURCE_PATH, JobJournal.PATH_PREFIX + this.jobId);
+        return new JobImpl(this.topic, this.name, this.jobId, props);
+    }
+
+    /**
+     * Check whether a value can be stored.
+     */
+    static boolean isSupported(final Object value) {
+        if ( value.getClass().isArray() ) {
+            return getValueType(value.getClass().getComponentType()) != -1;
+        }
+        return value.getClass().isEnum() || getValueType(value.getClass()) != -1;
+    }
+
+    private static byte getValueType(final Class<?> type) {
+        if ( type == String.class ) {
+            return VALUE_STRING;
+        } else if ( type == Boolean.class ) {
+            return VALUE_BOOLEAN;
+        } else if ( type == Integer.class ) {
+            return VALUE_INTEGER;
+        } else if ( type == Long.class ) {
+            return VALUE_LONG;
+        } else if ( type == Double.class ) {
+            return VALUE_DOUBLE;
+        } else if ( type == BigDecimal.class ) {
+            return VALUE_DECIMAL;
+        } else if ( Calendar.class.isAssignableFrom(type) ) {
+            return VALUE_CALENDAR;
+        }
+        return -1;
+    }
+
+    static int checksum(final byte[] data) {
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int)crc.getValue();
+    }
+
+    /**
+     * Serialize this record.
+     */
+    byte[] toBytes() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        final DataOutputStream out = new DataOutputStream(baos);
+        if ( this.isRemoval() ) {
+            out.writeByte(TYPE_REMOVE);
+            writeString(out, this.jobId);
+        } else {
+            out.writeByte(TYPE_PUT);
+            writeString(out, this.jobId);
+            writeString(out, this.topic);
+            out.writeBoolean(this.name != null);
+            if ( this.name != null ) {
+                writeString(out, this.name);
+            }
+            out.writeInt(this.properties.size());
+            for(final Map.Entry<String, Object> entry : this.properties.entrySet()) {
+                writeString(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+        out.flush();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Read a record.
+     * @param data The serialized record
+     * @param checksum The checksum of the data
+     * @return The record or {@code null} if the data is corrupt.
+     */
+    static JournalRecord read(final byte[] data, final int checksum) {
+        if ( checksum(data) != checksum ) {
+            return null;
+        }
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            final byte type = in.readByte();
+            final String jobId = readString(in);
+            if ( type == TYPE_REMOVE ) {
+                return new JournalRecord(jobId);
+            } else if ( type == TYPE_PUT ) {
+                final String topic = readString(in);
+                final String name = in.readBoolean() ? readString(in) : null;
+                final int count = in.readInt();
+                final Map<String, Object> props = new HashMap<String, Object>();
+                for(int i = 0; i < count; i++) {
+                    final String key = readString(in);
+                    props.put(key, readValue(in));
+                }
+                return new JournalRecord(jobId, topic, name, props);
+            }
+        } catch ( final IOException ioe ) {
+            // corrupt record
+        }
+        return null;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if ( length < 0 || length > in.available() ) {
+            throw new IOException("Invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if ( value.getClass().isArray() ) {
+            final byte type = getValueType(value.getClass().getComponentType());
+            final int length = Array.getLength(value);
+            out.writeByte(VALUE_ARRAY);
+            out.writeByte(type);
+            out.writeInt(length);
+            for(int i = 0; i < length; i++) {
+                writeSingleValue(out, type, Array.get(value, i));
+            }
+        } else {
+            final byte type = getValueType(value.getClass());
+            out.writeByte(type);
+            writeSingleValue(out, type, value);
+        }
+    }
+
+    private static void writeSingleValue(final DataOutputStream out, final byte type, final Object value)
+    throws IOException {
+        switch ( type ) {
+            case VALUE_STRING : writeString(out, (String)value); break;
+            case VALUE_BOOLEAN : out.writeBoolean((Boolean)value); break;
+            case VALUE_INTEGER : out.writeInt((Integer)value); break;
+            case VALUE_LONG : out.writeLong((Long)value); break;
+            case VALUE_DOUBLE : out.writeDouble((Double)value); break;
+            case VALUE_DECIMAL : writeString(out, value.toString()); break;
+            case VALUE_CALENDAR : final Calendar c = (Calendar)value;
+                                  out.writeLong(c.getTimeInMillis());
+                                  writeString(out, c.getTimeZone().getID());
+                                  break;
+            default : throw new IOException("Unsupported value " + value);
+        }
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        if ( type == VALUE_ARRAY ) {
+            final byte componentType = in.readByte();
+            final int length = in.readInt();
+            if ( length < 0 || length > in.available() ) {
+                throw new IOException("Invalid array length " + length);
+            }
+            final Object array = Array.newInstance(getValueClass(componentType), length);
+            for(int i = 0; i < length; i++) {
+                Array.set(array, i, readSingleValue(in, componentType));
+            }
+            return array;
+        }
+        return readSingleValue(in, type);
+    }
+
+    private static Object readSingleValue(final DataInputStream in, final byte type) throws IOException {
+        switch ( type ) {
+            case VALUE_STRING : return readString(in);
+            case VALUE_BOOLEAN : return in.readBoolean();
+            case VALUE_INTEGER : return in.readInt();
+            case VALUE_LONG : return in.readLong();
+            case VALUE_DOUBLE : return in.readDouble();
+            case VALUE_DECIMAL : return new BigDecimal(readString(in));
+            case VALUE_CALENDAR : final long time = in.readLong();
+                                  final Calendar c = Calendar.getInstance(TimeZone.getTimeZone(readString(in)));
+                                  c.setTimeInMillis(time);
+                                  return c;
+        }
+        throw new IOException("Unsupported value type " + type);
+    }
+
+    private static Class<?> getValueClass(final byte type) throws IOException {
+        switch ( type ) {
+            case VALUE_STRING : return String.class;
+            case VALUE_BOOLEAN : return Boolean.class;
+            case VALUE_INTEGER : return Integer.class;
+            case VALUE_LONG : return Long.class;
+            case VALUE_DOUBLE : return Double.class;
+            case VALUE_DECIMAL : return BigDecimal.class;
+            case VALUE_CALENDAR : return Calendar.class;
+        }
+        throw new IOException("Unsupported value type " + type);
+    }
+}
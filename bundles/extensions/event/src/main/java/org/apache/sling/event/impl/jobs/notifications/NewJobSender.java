@@ -101,16 +101,10 @@ public class NewJobSender implements EventHandler {
                 final String jobId = path.substring(topicEnd + 1);
 
                 if ( path.indexOf("_", topicEnd + 1) != -1 ) {
-                    // only job id and topic are guaranteed
-                    final Dictionary<String, Object> properties = new Hashtable<String, Object>();
-                    properties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID, jobId);
-                    properties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC, topic);
-
                     // we also set internally the queue name
                     final String queueName = this.configuration.getQueueConfigurationManager().getQueueInfo(topic).queueName;
-                    properties.put(Job.PROPERTY_JOB_QUEUE_NAME, queueName);
 
-                    final Event jobEvent = new Event(NotificationConstants.TOPIC_JOB_ADDED, properties);
+                    final Event jobEvent = createJobAddedEvent(topic, jobId, queueName);
                     // as this is send within handling an event, we do sync call
                     this.eventAdmin.sendEvent(jobEvent);
                 }
@@ -118,4 +112,20 @@ public class NewJobSender implements EventHandler {
         }
     }
 
+    /**
+     * Create the event notifying about a new job.
+     * @param topic The job topic
+     * @param jobId The job id
+     * @param queueName The name of the queue processing the job
+     * @return The event
+     */
+    public static Event createJobAddedEvent(final String topic, final String jobId, final String queueName) {
+        // only job id and topic are guaranteed
+        final Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID, jobId);
+        properties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC, topic);
+        properties.put(Job.PROPERTY_JOB_QUEUE_NAME, queueName);
+
+        return new Event(NotificationConstants.TOPIC_JOB_ADDED, properties);
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import java.util.Map;
+
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutionContext;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+
+/**
+ * Implementation of the execution context passed to
+ * batch job executors.
+ */
+public class BatchJobExecutionContextImpl implements BatchJobExecutionContext {
+
+    /** The contexts of the jobs by job id. */
+    private final Map<String, JobExecutionContextImpl> contexts;
+
+    public BatchJobExecutionContextImpl(final Map<String, JobExecutionContextImpl> contexts) {
+        this.contexts = contexts;
+    }
+
+    @Override
+    public JobExecutionContext getJobContext(final Job job) {
+        final JobExecutionContext ctx = this.contexts.get(job.getId());
+        if ( ctx == null ) {
+            throw new IllegalArgumentException("Job is not part of this batch: " + job.getId());
+        }
+        return ctx;
+    }
+
+    @Override
+    public boolean isStopped() {
+        for(final JobExecutionContextImpl ctx : this.contexts.values()) {
+            if ( ctx.isStopped() ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public BatchResultBuilder result() {
+        return new BatchResultBuilderImpl(this.contexts.keySet());
+    }
+}
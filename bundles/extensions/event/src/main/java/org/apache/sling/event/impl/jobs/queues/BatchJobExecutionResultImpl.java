@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import java.util.Map;
+
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutionResult;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
+
+/**
+ * The execution result of a batch.
+ */
+public class BatchJobExecutionResultImpl implements BatchJobExecutionResult {
+
+    /** The explicit results by job id. */
+    private final Map<String, JobExecutionResult> results;
+
+    /** The result of all other jobs. */
+    private final JobExecutionResult defaultResult;
+
+    public BatchJobExecutionResultImpl(final Map<String, JobExecutionResult> results,
+            final JobExecutionResult defaultResult) {
+        this.results = results;
+        this.defaultResult = defaultResult;
+    }
+
+    @Override
+    public JobExecutionResult getResult(final Job job) {
+        final JobExecutionResult result = this.results.get(job.getId());
+        return result != null ? result : this.defaultResult;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchJobExecutionResultImpl [results=" + results + ", defaultResult=" + defaultResult + "]";
+    }
+}
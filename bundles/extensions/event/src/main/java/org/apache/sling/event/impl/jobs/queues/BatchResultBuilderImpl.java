@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutionContext.BatchResultBuilder;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutionResult;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
+
+public class BatchResultBuilderImpl implements BatchResultBuilder {
+
+    /** The ids of all jobs of the batch. */
+    private final Set<String> jobIds;
+
+    private final Map<String, JobExecutionResult> results = new HashMap<String, JobExecutionResult>();
+
+    public BatchResultBuilderImpl(final Set<String> jobIds) {
+        this.jobIds = jobIds;
+    }
+
+    @Override
+    public synchronized BatchResultBuilder result(final Job job, final JobExecutionResult result) {
+        if ( !this.jobIds.contains(job.getId()) ) {
+            throw new IllegalArgumentException("Job is not part of this batch: " + job.getId());
+        }
+        this.results.put(job.getId(), result);
+        return this;
+    }
+
+    @Override
+    public BatchJobExecutionResult succeeded() {
+        return this.build(JobExecutionResultImpl.SUCCEEDED);
+    }
+
+    @Override
+    public BatchJobExecutionResult failed() {
+        return this.build(JobExecutionResultImpl.FAILED);
+    }
+
+    @Override
+    public BatchJobExecutionResult cancelled() {
+        return this.build(JobExecutionResultImpl.CANCELLED);
+    }
+
+    private synchronized BatchJobExecutionResult build(final JobExecutionResult defaultResult) {
+        return new BatchJobExecutionResultImpl(new HashMap<String, JobExecutionResult>(this.results), defaultResult);
+    }
+}
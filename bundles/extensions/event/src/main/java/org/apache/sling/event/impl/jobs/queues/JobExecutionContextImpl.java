@@ -52,6 +52,12 @@ public class JobExecutionContextImpl implements JobExecutionContext {
 
     private final JobHandler handler;
 
+    /**
+     * Create a new context.
+     * @param handler The job handler
+     * @param asyncHandler The call back for async processing, <code>null</code>
+     *                     if the job is processed synchronously as part of a batch
+     */
     public JobExecutionContextImpl(final JobHandler handler,
             final ASyncHandler asyncHandler) {
         this.handler = handler;
@@ -59,6 +65,10 @@ public class JobExecutionContextImpl implements JobExecutionContext {
     }
 
     public void markAsync() {
+        if ( asyncHandler == null ) {
+            throw new IllegalStateException("Job is processed as part of a batch and can't be processed async: "
+                    + handler.getJob().getId());
+        }
         this.isAsync.set(true);
     }
 
@@ -96,6 +106,10 @@ public class JobExecutionContextImpl implements JobExecutionContext {
 
     @Override
     public void asyncProcessingFinished(final JobExecutionResult result) {
+        if ( asyncHandler == null ) {
+            throw new IllegalStateException("Job is processed as part of a batch and can't be finished async, " +
+                    "the batch job executor must return the result instead: " + handler.getJob().getId());
+        }
         synchronized ( this ) {
             if ( isAsync.compareAndSet(true, false) ) {
                 Job.JobState state = null;
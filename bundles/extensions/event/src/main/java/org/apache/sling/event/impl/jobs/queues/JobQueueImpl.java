@@ -18,11 +18,15 @@
  */
 package org.apache.sling.event.impl.jobs.queues;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
@@ -44,6 +48,7 @@ import org.apache.sling.event.impl.jobs.Utility;
 import org.apache.sling.event.impl.jobs.config.InternalQueueConfiguration;
 import org.apache.sling.event.impl.jobs.deprecated.JobStatusNotifier;
 import org.apache.sling.event.impl.jobs.deprecated.JobStatusNotifierImpl;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
 import org.apache.sling.event.impl.jobs.notifications.NotificationUtility;
 import org.apache.sling.event.impl.support.BatchResourceRemover;
 import org.apache.sling.event.jobs.Job;
@@ -54,6 +59,9 @@ import org.apache.sling.event.jobs.NotificationConstants;
 import org.apache.sling.event.jobs.Queue;
 import org.apache.sling.event.jobs.QueueConfiguration.Type;
 import org.apache.sling.event.jobs.Statistics;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutionResult;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutor;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
 import org.osgi.service.event.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,9 +111,6 @@ public class JobQueueImpl
     /** A marker for closing the queue. */
     private final AtomicBoolean closeMarker = new AtomicBoolean(false);
 
-    /** A marker for doing a full cache search. */
-    private final AtomicBoolean doFullCacheSearch = new AtomicBoolean(false);
-
     /** The job cache. */
     private final QueueJobCache cache;
 
@@ -120,6 +125,9 @@ public class JobQueueImpl
 
     private volatile long isSleepingUntil = -1;
 
+    /** The worker pool for work stealing queues, {@code null} otherwise. */
+    private final WorkStealingPool pool;
+
     /**
      * Create a new queue.
      *
@@ -167,6 +175,27 @@ public class JobQueueImpl
         this.running = true;
         this.cache = cache;
         this.available = new Semaphore(config.getMaxParallel(), true);
+        if ( config.getType() == Type.WORK_STEALING ) {
+            this.pool = new WorkStealingPool(new WorkStealingPool.JobSource() {
+
+                @Override
+                public boolean isActive() {
+                    return running && !isOutdated.get() && !isSuspended();
+                }
+
+                @Override
+                public List<JobImpl> take(final int max) {
+                    return JobQueueImpl.this.cache.takeJobs(max);
+                }
+
+                @Override
+                public void process(final JobImpl job) {
+                    processJob(job);
+                }
+            }, this.threadPool, config.getMaxParallel());
+        } else {
+            this.pool = null;
+        }
         logger.info("Starting job queue {}", queueName);
         logger.debug("Configuration for job queue={}", configuration);
     }
@@ -206,42 +235,28 @@ public class JobQueueImpl
      * This method might be called concurrently, therefore we use a guard
      */
     private void startJobs(boolean justOne) {
+        if ( this.pool != null ) {
+            // the workers of the pool fetch the jobs themselves
+            if ( this.running && !this.isOutdated.get() && !this.isSuspended() ) {
+                this.pool.signal();
+            }
+            return;
+        }
         if ( this.startJobsGuard.compareAndSet(false, true) ) {
             // we start as many jobs in parallel as possible
             while ( this.running && !this.isOutdated.get() && !this.isSuspended() && this.available.tryAcquire() ) {
                 boolean started = false;
                 this.lock.writeLock().lock();
                 try {
-                    final JobHandler handler = this.cache.getNextJob(this.services.jobConsumerManager, this, this.doFullCacheSearch.getAndSet(false));
-                    if ( handler != null ) {
+                    final List<JobHandler> handlers = this.cache.getNextJobs(this.services.jobConsumerManager, this,
+                            this.configuration.getBatchSize());
+                    if ( !handlers.isEmpty() ) {
                         started = true;
                         this.threadPool.execute(new Runnable() {
 
                             @Override
                             public void run() {
-                                // update thread priority and name
-                                final Thread currentThread = Thread.currentThread();
-                                final String oldName = currentThread.getName();
-                                final int oldPriority = currentThread.getPriority();
-
-                                currentThread.setName(oldName + "-" + handler.getJob().getQueueName() + "(" + handler.getJob().getTopic() + ")");
-                                if ( configuration.getThreadPriority() != null ) {
-                                    switch ( configuration.getThreadPriority() ) {
-                                        case NORM : currentThread.setPriority(Thread.NORM_PRIORITY);
-                                                    break;
-                                        case MIN  : currentThread.setPriority(Thread.MIN_PRIORITY);
-                                                    break;
-                                        case MAX  : currentThread.setPriority(Thread.MAX_PRIORITY);
-                                                    break;
-                                    }
-                                }
-
-                                try {
-                                    startJob(handler);
-                                } finally {
-                                    currentThread.setPriority(oldPriority);
-                                    currentThread.setName(oldName);
-                                }
+                                runJobs(handlers);
                                 // and try to launch another job
                                 startJobs(true);
                             }
@@ -265,6 +280,61 @@ public class JobQueueImpl
         }
     }
 
+    /**
+     * Process a job of a work stealing queue in the current worker thread.
+     */
+    private void processJob(final JobImpl job) {
+        JobHandler handler = null;
+        this.lock.readLock().lock();
+        try {
+            if ( this.running ) {
+                handler = this.cache.startProcessing(this.services.jobConsumerManager, this, job);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        if ( handler != null ) {
+            // the number of workers never exceeds the max parallel setting
+            this.available.acquireUninterruptibly();
+            this.runJobs(Collections.singletonList(handler));
+        }
+    }
+
+    /**
+     * Run the jobs in the current thread, using the configured
+     * thread priority and a thread name containing queue and topic.
+     */
+    private void runJobs(final List<JobHandler> handlers) {
+        final JobHandler handler = handlers.get(0);
+        // update thread priority and name
+        final Thread currentThread = Thread.currentThread();
+        final String oldName = currentThread.getName();
+        final int oldPriority = currentThread.getPriority();
+
+        currentThread.setName(oldName + "-" + handler.getJob().getQueueName() + "(" + handler.getJob().getTopic() + ")");
+        if ( configuration.getThreadPriority() != null ) {
+            switch ( configuration.getThreadPriority() ) {
+                case NORM : currentThread.setPriority(Thread.NORM_PRIORITY);
+                            break;
+                case MIN  : currentThread.setPriority(Thread.MIN_PRIORITY);
+                            break;
+                case MAX  : currentThread.setPriority(Thread.MAX_PRIORITY);
+                            break;
+            }
+        }
+
+        try {
+            if ( handlers.size() == 1 ) {
+                startJob(handler);
+            } else {
+                startBatch(handlers);
+            }
+        } finally {
+            currentThread.setPriority(oldPriority);
+            currentThread.setName(oldName);
+        }
+    }
+
     private void startJob(final JobHandler handler) {
         try {
             this.closeMarker.set(false);
@@ -300,17 +370,7 @@ public class JobQueueImpl
                                 asyncCounter.incrementAndGet();
                                 ctx.markAsync();
                             } else {
-                                if ( result.succeeded() ) {
-                                    resultState = Job.JobState.SUCCEEDED;
-                                } else if ( result.failed() ) {
-                                    resultState = Job.JobState.QUEUED;
-                                } else if ( result.cancelled() ) {
-                                    if ( handler.isStopped() ) {
-                                        resultState = Job.JobState.STOPPED;
-                                    } else {
-                                        resultState = Job.JobState.ERROR;
-                                    }
-                                }
+                                resultState = this.getResultState(handler, result);
                             }
                         }
                     } catch (final Throwable t) { //NOSONAR
@@ -320,12 +380,7 @@ public class JobQueueImpl
                         resultState = Job.JobState.ERROR;
                     } finally {
                         if ( result != null ) {
-                            if ( result.getRetryDelayInMs() != null ) {
-                                job.setProperty(JobImpl.PROPERTY_DELAY_OVERRIDE, result.getRetryDelayInMs());
-                            }
-                            if ( result.getMessage() != null ) {
-                               job.setProperty(Job.PROPERTY_RESULT_MESSAGE, result.getMessage());
-                            }
+                            this.setResultProperties(job, result);
                             this.finishedJob(job.getId(), resultState, false);
                         }
                     }
@@ -407,6 +462,90 @@ public class JobQueueImpl
         }
     }
 
+    /**
+     * Process a batch of jobs of the same topic with a batch job executor.
+     * Each job is started and finished as if it had been processed on its own.
+     */
+    private void startBatch(final List<JobHandler> handlers) {
+        try {
+            this.closeMarker.set(false);
+            try {
+                final BatchJobExecutor executor = (BatchJobExecutor)handlers.get(0).getConsumer();
+                final List<Job> jobs = new ArrayList<Job>();
+                final Map<String, JobExecutionContextImpl> contexts = new LinkedHashMap<String, JobExecutionContextImpl>();
+                for(final JobHandler handler : handlers) {
+                    final JobImpl job = handler.getJob();
+                    handler.started = System.currentTimeMillis();
+
+                    this.services.configuration.getAuditLogger().debug("START OK : {}", job.getId());
+                    final long queueTime = handler.started - job.getProperty(JobImpl.PROPERTY_JOB_QUEUED, Calendar.class).getTime().getTime();
+                    NotificationUtility.sendNotification(this.services.eventAdmin, NotificationConstants.TOPIC_JOB_STARTED, job, queueTime);
+                    synchronized ( this.processingJobsLists ) {
+                        this.processingJobsLists.put(job.getId(), handler);
+                    }
+                    jobs.add(job);
+                    // batches are processed synchronously, without an async handler the
+                    // context rejects async results from the batch job executor
+                    contexts.put(job.getId(), new JobExecutionContextImpl(handler, null));
+                }
+
+                BatchJobExecutionResult result = null;
+                try {
+                    result = executor.process(Collections.unmodifiableList(jobs), new BatchJobExecutionContextImpl(contexts));
+                    if ( result == null ) {
+                        logger.error("Batch job executor {} returned no result for jobs {}", executor, jobs);
+                    }
+                } catch (final Throwable t) { //NOSONAR
+                    logger.error("Unhandled error occured in batch job executor " + t.getMessage() + " while processing jobs " + jobs, t);
+                    // we don't reschedule if an exception occurs
+                    result = null;
+                }
+
+                for(final JobHandler handler : handlers) {
+                    final JobImpl job = handler.getJob();
+                    final JobExecutionResult jobResult = (result == null ? null : result.getResult(job));
+                    if ( jobResult == null ) {
+                        this.finishedJob(job.getId(), Job.JobState.ERROR, false);
+                    } else {
+                        this.setResultProperties(job, jobResult);
+                        this.finishedJob(job.getId(), this.getResultState(handler, jobResult), false);
+                    }
+                }
+            } catch (final Exception re) {
+                // if an exception occurs, we just log
+                this.logger.error("Exception during batch job processing.", re);
+            }
+        } finally {
+            this.available.release();
+        }
+    }
+
+    /**
+     * Get the job state for the result of a job executor.
+     */
+    private Job.JobState getResultState(final JobHandler handler, final JobExecutionResult result) {
+        if ( result.succeeded() ) {
+            return Job.JobState.SUCCEEDED;
+        } else if ( result.failed() ) {
+            return Job.JobState.QUEUED;
+        } else if ( result.cancelled() && handler.isStopped() ) {
+            return Job.JobState.STOPPED;
+        }
+        return Job.JobState.ERROR;
+    }
+
+    /**
+     * Store the optional retry delay and message of the result in the job.
+     */
+    private void setResultProperties(final JobImpl job, final JobExecutionResult result) {
+        if ( result.getRetryDelayInMs() != null ) {
+            job.setProperty(JobImpl.PROPERTY_DELAY_OVERRIDE, result.getRetryDelayInMs());
+        }
+        if ( result.getMessage() != null ) {
+           job.setProperty(Job.PROPERTY_RESULT_MESSAGE, result.getMessage());
+        }
+    }
+
     /**
      * Outdate this queue.
      */
@@ -446,7 +585,8 @@ public class JobQueueImpl
     private boolean canBeClosed() {
         return !this.isSuspended()
             && this.asyncCounter.get() == 0
-            && this.available.availablePermits() == this.configuration.getMaxParallel();
+            && this.available.availablePermits() == this.configuration.getMaxParallel()
+            && (this.pool == null || this.isOutdated.get() || this.pool.getPendingCount() == 0);
     }
 
     /**
@@ -457,6 +597,9 @@ public class JobQueueImpl
         this.logger.debug("Shutting down job queue {}", queueName);
         this.resume();
 
+        if ( this.pool != null ) {
+            this.pool.close();
+        }
         synchronized ( this.processingJobsLists ) {
             this.processingJobsLists.clear();
         }
@@ -478,8 +621,11 @@ public class JobQueueImpl
             this.resume();
         }
 
-        // set full cache search
-        this.doFullCacheSearch.set(true);
+        // find jobs which have been added without a notification
+        if ( this.asyncCounter.get() == 0
+             && this.available.availablePermits() == this.configuration.getMaxParallel() ) {
+            this.cache.scanIfIdle();
+        }
 
         this.startJobs();
     }
@@ -493,6 +639,16 @@ public class JobQueueImpl
         this.startJobs();
     }
 
+    /**
+     * Inform the queue about a new job.
+     * @param topic The job topic
+     * @param jobId The job id
+     */
+    public void jobAdded(final String topic, final String jobId) {
+        this.cache.handleNewJob(topic, jobId);
+        this.startJobs();
+    }
+
     /**
      * Put a job back in the queue
      * @param handler The job handler
@@ -656,6 +812,7 @@ public class JobQueueImpl
         final Set<String> topics = this.cache.getTopics();
         logger.debug("Removing all jobs for queue {} : {}", queueName, topics);
 
+        this.cache.removeAll();
         if ( !topics.isEmpty() ) {
 
             final ResourceResolver resolver = this.services.configuration.createResourceResolver();
@@ -698,6 +855,15 @@ public class JobQueueImpl
             } finally {
                 resolver.close();
             }
+            final JobJournal journal = this.services.configuration.getJobJournal();
+            if ( journal != null ) {
+                // started jobs are finished by their consumer
+                for(final String t : topics) {
+                    for(final JobImpl job : journal.getJobs(t, true, -1)) {
+                        journal.remove(job.getId());
+                    }
+                }
+            }
         }
     }
 
@@ -719,6 +885,9 @@ public class JobQueueImpl
                 return this.isSleepingUntil;
             }
         }
+        if ( "queuedJobs".equals(key) ) {
+            return this.getQueuedJobCount();
+        }
         return null;
     }
 
@@ -730,8 +899,18 @@ public class JobQueueImpl
         return "outdated=" + this.isOutdated.get() +
                 ", suspendedSince=" + this.suspendedSince.get() +
                 ", asyncJobs=" + this.asyncCounter.get() +
-                ", jobCount=" + String.valueOf(this.configuration.getMaxParallel() - this.available.availablePermits() +
-                (this.configuration.getType() == Type.ORDERED ? ", isSleepingUntil=" + this.isSleepingUntil : ""));
+                ", jobCount=" + String.valueOf(this.configuration.getMaxParallel() - this.available.availablePermits()) +
+                ", queuedJobs=" + this.getQueuedJobCount() +
+                (this.configuration.getType() == Type.ORDERED ? ", isSleepingUntil=" + this.isSleepingUntil : "") +
+                (this.pool != null ? ", workers=" + this.pool.getWorkerCount() : "");
+    }
+
+    /**
+     * The number of queued jobs including the jobs already
+     * fetched by the workers of a work stealing queue.
+     */
+    int getQueuedJobCount() {
+        return this.cache.getQueuedJobCount() + (this.pool != null ? this.pool.getPendingCount() : 0);
     }
 
     /**
@@ -20,13 +20,17 @@ package org.apache.sling.event.impl.jobs.queues;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -36,24 +40,55 @@ import org.apache.sling.event.impl.jobs.JobImpl;
 import org.apache.sling.event.impl.jobs.JobTopicTraverser;
 import org.apache.sling.event.impl.jobs.Utility;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
+import org.apache.sling.event.impl.support.Environment;
 import org.apache.sling.event.jobs.Queue;
 import org.apache.sling.event.jobs.QueueConfiguration;
 import org.apache.sling.event.jobs.QueueConfiguration.Type;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutor;
 import org.apache.sling.event.jobs.consumer.JobExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The queue job cache caches jobs per queue based on the topics the queue is actively
- * processing.
+ * The queue job cache holds all queued jobs of a queue in an index per topic
+ * which is ordered by creation time.
+ *
+ * The cache is filled by scanning the resource tree and the job journal
+ * when the queue is created - which happens on startup and on topology
+ * or configuration changes - and for each topic which is added to the queue
+ * later on. In between, the cache is fed by the job added notifications
+ * via {@link #handleNewJob(String, String)}: the new job is read by its path
+ * when the next job is requested.
+ *
+ * At most {@link #DEFAULT_MAX_CACHED_JOBS} jobs are cached per topic. If a topic
+ * has more jobs, it is scanned again once its cached jobs are processed.
+ * As jobs might arrive without a notification, for example if they are
+ * reassigned from another instance, {@link #scanIfIdle()} requests a small
+ * scan of all topics if the cache has been empty for a while.
  */
 public class QueueJobCache {
 
+    /** The default maximum number of cached jobs per topic. */
+    public static final int DEFAULT_MAX_CACHED_JOBS = 1000;
+
+    /** The default minimum time in ms without any activity before an idle scan. */
+    public static final long DEFAULT_IDLE_SCAN_INTERVAL = 5 * 60 * 1000;
+
+    /** The number of jobs per topic loaded by an idle scan. */
+    static final int IDLE_SCAN_JOBS = 10;
+
     /** Logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    /** The maximum of pre loaded jobs for a topic. */
-    private final int maxPreloadLimit = 10;
+    /** The maximum number of cached jobs per topic. */
+    private final int maxCachedJobs;
+
+    /** The minimum time in ms without any activity before an idle scan. */
+    private final long idleScanInterval;
+
+    /** The time of the last scan, job notification or job taken. */
+    private final AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
 
     /** The job manager configuration. */
     private final JobManagerConfiguration configuration;
@@ -61,11 +96,27 @@ public class QueueJobCache {
     /** The set of topics handled by this queue. */
     private final Set<String> topics;
 
-    /** The set of new topics to scan. */
-    private final Set<String> topicsWithNewJobs = new HashSet<String>();
+    /** The queued jobs per topic - ordered by creation time. */
+    private final ConcurrentSkipListMap<String, ConcurrentSkipListSet<JobImpl>> jobsByTopic =
+            new ConcurrentSkipListMap<String, ConcurrentSkipListSet<JobImpl>>();
+
+    /** The number of jobs in {@link #jobsByTopic}. */
+    private final AtomicInteger queuedJobCount = new AtomicInteger();
+
+    /** The number of jobs in {@link #jobsByTopic} per topic. */
+    private final Map<String, AtomicInteger> cachedJobCounts = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /** Topics with more jobs than the cache holds, which are scanned once their cached jobs are processed. */
+    private final Set<String> topicsToScan = new ConcurrentSkipListSet<String>();
 
-    /** The cache of current objects. */
-    private final List<JobImpl> cache = new ArrayList<JobImpl>();
+    /** A marker for an idle scan of all topics. */
+    private final AtomicBoolean doIdleScan = new AtomicBoolean(false);
+
+    /** Notified new jobs which have not been read yet, as pairs of topic and job id. */
+    private final java.util.Queue<String[]> newJobs = new ConcurrentLinkedQueue<String[]>();
+
+    /** The number of entries in {@link #newJobs}. */
+    private final AtomicInteger newJobCount = new AtomicInteger();
 
     /** The queue type. */
     private final QueueConfiguration.Type queueType;
@@ -73,6 +124,12 @@ public class QueueJobCache {
     /** Block the cache - for ordered queues only. */
     private final AtomicBoolean queueIsBlocked = new AtomicBoolean(false);
 
+    /** Lock for taking jobs out of the cache. */
+    private final Object takeLock = new Object();
+
+    /** The topic of the last job for round robin queues, guarded by {@link #takeLock}. */
+    private String lastTopic;
+
     /**
      * Create a new queue job cache
      * @param configuration Current job manager configuration
@@ -82,11 +139,28 @@ public class QueueJobCache {
     public QueueJobCache(final JobManagerConfiguration configuration,
             final QueueConfiguration.Type queueType,
             final Set<String> topics) {
+        this(configuration, queueType, topics, DEFAULT_MAX_CACHED_JOBS, DEFAULT_IDLE_SCAN_INTERVAL);
+    }
+
+    /**
+     * Create a new queue job cache
+     * @param configuration Current job manager configuration
+     * @param queueType The queue type
+     * @param topics The topics handled by this queue.
+     * @param maxCachedJobs The maximum number of cached jobs per topic.
+     * @param idleScanInterval The minimum time in ms without any activity before an idle scan.
+     */
+    QueueJobCache(final JobManagerConfiguration configuration,
+            final QueueConfiguration.Type queueType,
+            final Set<String> topics,
+            final int maxCachedJobs,
+            final long idleScanInterval) {
+        this.maxCachedJobs = maxCachedJobs;
+        this.idleScanInterval = idleScanInterval;
         this.configuration = configuration;
         this.queueType = queueType;
         this.topics = new ConcurrentSkipListSet<String>(topics);
-        this.topicsWithNewJobs.addAll(topics);
-        this.fillCache();
+        this.loadJobs(this.topics, maxCachedJobs);
     }
 
     /**
@@ -102,16 +176,17 @@ public class QueueJobCache {
      * @return {@code true} if there is any job outstanding.
      */
     public boolean isEmpty() {
-        boolean result = true;
-        synchronized ( this.cache ) {
-            result = this.cache.isEmpty();
-        }
-        if ( result ) {
-            synchronized ( this.topicsWithNewJobs ) {
-                result = this.topicsWithNewJobs.isEmpty();
-            }
-        }
-        return result;
+        return this.getQueuedJobCount() == 0;
+    }
+
+    /**
+     * Get the number of queued jobs of this queue.
+     * This includes new jobs which have been notified but not read yet,
+     * but not the jobs of a topic exceeding the cache size.
+     * @return The number of queued jobs.
+     */
+    public int getQueuedJobCount() {
+        return this.queuedJobCount.get() + this.newJobCount.get();
     }
 
     public void setIsBlocked(final boolean value) {
@@ -119,83 +194,263 @@ public class QueueJobCache {
     }
 
     /**
-     * Fill the cache.
-     * No need to sync as this is called from the constructor.
+     * Get the next job.
+     * This method is potentially called concurrently, and
+     * {@link #reschedule(JobHandler)}, {@link #handleNewTopics(Set)}
+     * and {@link #handleNewJob(String, String)} can be called concurrently.
      */
-    private void fillCache() {
-        final Set<String> checkingTopics = new HashSet<String>();
-        checkingTopics.addAll(this.topics);
-        if ( !checkingTopics.isEmpty() ) {
-            this.loadJobs(checkingTopics);
-        }
+    public JobHandler getNextJob(final JobConsumerManager jobConsumerManager,
+            final Queue queue) {
+        final List<JobHandler> handlers = this.getNextJobs(jobConsumerManager, queue, 1);
+        return handlers.isEmpty() ? null : handlers.get(0);
     }
 
     /**
-     * Get the next job.
-     * This method is potentially called concurrently, and
-     * {@link #reschedule(JobHandler)} and {@link #handleNewTopics(Set)}
-     * can be called concurrently.
+     * Get the next jobs.
+     * If the executor of the next job is a {@link BatchJobExecutor}, further jobs
+     * of the same topic are added up to the batch size. Otherwise at most a
+     * single job is returned.
+     * @param batchSize The maximum number of jobs
+     * @return The handlers of the jobs, might be empty.
+     * @see #getNextJob(JobConsumerManager, Queue)
      */
-    public JobHandler getNextJob(final JobConsumerManager jobConsumerManager,
+    public List<JobHandler> getNextJobs(final JobConsumerManager jobConsumerManager,
             final Queue queue,
-            final boolean doFull) {
-        JobHandler handler = null;
+            final int batchSize) {
+        final List<JobHandler> handlers = new ArrayList<JobHandler>();
 
         if ( !this.queueIsBlocked.get() ) {
-            synchronized ( this.cache ) {
-                boolean retry;
+            synchronized ( this.takeLock ) {
+                this.readNewJobs();
+                this.scanTopics();
+
+                JobHandler handler = null;
+                JobImpl job;
                 do {
-                    retry = false;
-                    if ( this.cache.isEmpty() ) {
-                        final Set<String> checkingTopics = new HashSet<String>();
-                        synchronized ( this.topicsWithNewJobs ) {
-                            checkingTopics.addAll(this.topicsWithNewJobs);
-                            this.topicsWithNewJobs.clear();
-                        }
-                        if ( doFull ) {
-                            checkingTopics.addAll(this.topics);
-                        }
-                        if ( !checkingTopics.isEmpty() ) {
-                            this.loadJobs(checkingTopics);
-                        }
+                    job = this.takeNextJob();
+                    if ( job != null ) {
+                        handler = this.startProcessing(jobConsumerManager, queue, job);
                     }
+                } while ( handler == null && job != null );
 
-                    if ( !this.cache.isEmpty() ) {
-                        final JobImpl job = this.cache.remove(0);
-                        final JobExecutor consumer = jobConsumerManager.getExecutor(job.getTopic());
-
-                        handler = new JobHandler(job, consumer, this.configuration);
-                        if ( (consumer != null || (job.isBridgedEvent() && jobConsumerManager.supportsBridgedEvents())) ) {
-                            if ( !handler.startProcessing(queue) ) {
-                                if ( logger.isDebugEnabled() ) {
-                                    logger.debug("Discarding removed job {}", Utility.toString(job));
-                                }
-                                handler = null;
-                                retry = true;
-                            }
-                        } else {
-                            // no consumer on this instance, assign to another instance
-                            handler.reassign();
-
-                            handler = null;
-                            retry = true;
-                        }
+                if ( handler != null ) {
+                    handlers.add(handler);
+                    if ( batchSize > 1 && handler.getConsumer() instanceof BatchJobExecutor ) {
+                        this.addBatchJobs(handlers, queue, batchSize);
+                    }
+                }
+            }
+        }
+        return handlers;
+    }
 
+    /**
+     * Take up to the given number of jobs out of the cache.
+     * The processing of these jobs has not been started yet, this has to be
+     * done through {@link #startProcessing(JobConsumerManager, Queue, JobImpl)}.
+     * A job which is not started stays queued in the persistence and is picked
+     * up again by the next queue created for its topic.
+     * @param max The maximum number of jobs
+     * @return The jobs, might be empty.
+     */
+    public List<JobImpl> takeJobs(final int max) {
+        final List<JobImpl> jobs = new ArrayList<JobImpl>();
+        if ( !this.queueIsBlocked.get() ) {
+            synchronized ( this.takeLock ) {
+                this.readNewJobs();
+                this.scanTopics();
+                while ( jobs.size() < max ) {
+                    final JobImpl job = this.takeNextJob();
+                    if ( job == null ) {
+                        break;
                     }
-                } while ( handler == null && retry);
+                    jobs.add(job);
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Start the processing of a job taken out of the cache.
+     * If there is no consumer for the job on this instance, the job is reassigned.
+     * @return The job handler or {@code null} if the job can't be processed here.
+     */
+    public JobHandler startProcessing(final JobConsumerManager jobConsumerManager,
+            final Queue queue,
+            final JobImpl job) {
+        final JobExecutor consumer = jobConsumerManager.getExecutor(job.getTopic());
+
+        final JobHandler handler = new JobHandler(job, consumer, this.configuration);
+        if ( (consumer != null || (job.isBridgedEvent() && jobConsumerManager.supportsBridgedEvents())) ) {
+            if ( !handler.startProcessing(queue) ) {
+                if ( logger.isDebugEnabled() ) {
+                    logger.debug("Discarding removed job {}", Utility.toString(job));
+                }
+                return null;
+            }
+            return handler;
+        }
+        // no consumer on this instance, assign to another instance
+        handler.reassign();
+        return null;
+    }
+
+    /**
+     * Add the next jobs of the topic of the first job to the batch.
+     * The same executor is used for all jobs of a topic.
+     */
+    private void addBatchJobs(final List<JobHandler> handlers, final Queue queue, final int batchSize) {
+        final JobHandler first = handlers.get(0);
+        final ConcurrentSkipListSet<JobImpl> jobs = this.jobsByTopic.get(first.getJob().getTopic());
+        while ( jobs != null && handlers.size() < batchSize ) {
+            final JobImpl job = first(jobs);
+            if ( job == null ) {
+                break;
+            }
+            if ( this.remove(job) ) {
+                final JobHandler handler = new JobHandler(job, first.getConsumer(), this.configuration);
+                if ( handler.startProcessing(queue) ) {
+                    handlers.add(handler);
+                } else if ( logger.isDebugEnabled() ) {
+                    logger.debug("Discarding removed job {}", Utility.toString(job));
+                }
+            }
+        }
+    }
+
+    /**
+     * Take the next job out of the cache, depending on the queue type.
+     * @return The job or {@code null}
+     */
+    private JobImpl takeNextJob() {
+        while ( true ) {
+            final JobImpl job;
+            if ( this.queueType == Type.ORDERED
+                 || this.queueType == Type.UNORDERED
+                 || this.queueType == Type.WORK_STEALING ) {
+                job = this.getOldestJob();
+            } else {
+                job = this.getRoundRobinJob();
+            }
+            if ( job == null ) {
+                return null;
+            }
+            if ( this.remove(job) ) {
+                this.lastActivity.set(System.currentTimeMillis());
+                return job;
+            }
+        }
+    }
+
+    /**
+     * Get the oldest job of all topics.
+     */
+    private JobImpl getOldestJob() {
+        JobImpl oldest = null;
+        for(final ConcurrentSkipListSet<JobImpl> jobs : this.jobsByTopic.values()) {
+            final JobImpl job = first(jobs);
+            if ( job != null && (oldest == null || job.compareTo(oldest) < 0) ) {
+                oldest = job;
             }
         }
-        return handler;
+        return oldest;
     }
 
     /**
-     * Load the next N x numberOf(topics) jobs
+     * Get the oldest job of the topic following the topic of the last job.
+     */
+    private JobImpl getRoundRobinJob() {
+        final int count = this.jobsByTopic.size();
+        for(int i = 0; i < count; i++) {
+            Map.Entry<String, ConcurrentSkipListSet<JobImpl>> entry =
+                    (this.lastTopic == null ? null : this.jobsByTopic.higherEntry(this.lastTopic));
+            if ( entry == null ) {
+                entry = this.jobsByTopic.firstEntry();
+                if ( entry == null ) {
+                    return null;
+                }
+            }
+            this.lastTopic = entry.getKey();
+            final JobImpl job = first(entry.getValue());
+            if ( job != null ) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the first job of the set or {@code null} if the set is empty.
+     */
+    private static JobImpl first(final ConcurrentSkipListSet<JobImpl> jobs) {
+        final Iterator<JobImpl> i = jobs.iterator();
+        return i.hasNext() ? i.next() : null;
+    }
+
+    /**
+     * Add a queued job to the index.
+     * If the topic already has the maximum number of cached jobs,
+     * the job is not added and the topic is scanned later on.
+     * @return {@code true} if the job has been added.
+     */
+    private boolean add(final JobImpl job) {
+        AtomicInteger count = this.cachedJobCounts.get(job.getTopic());
+        if ( count == null ) {
+            count = new AtomicInteger();
+            this.cachedJobCounts.put(job.getTopic(), count);
+        }
+        if ( count.get() >= this.maxCachedJobs ) {
+            this.topicsToScan.add(job.getTopic());
+            return false;
+        }
+        ConcurrentSkipListSet<JobImpl> jobs = this.jobsByTopic.get(job.getTopic());
+        if ( jobs == null ) {
+            final ConcurrentSkipListSet<JobImpl> newJobs = new ConcurrentSkipListSet<JobImpl>();
+            jobs = this.jobsByTopic.putIfAbsent(job.getTopic(), newJobs);
+            if ( jobs == null ) {
+                jobs = newJobs;
+            }
+        }
+        if ( jobs.add(job) ) {
+            count.incrementAndGet();
+            this.queuedJobCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove a job from the index.
+     * @return {@code true} if the job has been removed.
+     */
+    private boolean remove(final JobImpl job) {
+        final ConcurrentSkipListSet<JobImpl> jobs = this.jobsByTopic.get(job.getTopic());
+        if ( jobs != null && jobs.remove(job) ) {
+            this.cachedJobCounts.get(job.getTopic()).decrementAndGet();
+            this.queuedJobCount.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a job is waiting for processing.
+     */
+    private boolean isQueued(final JobImpl job) {
+        return job.getProcessingStarted() == null && !job.hasReadErrors();
+    }
+
+    /**
+     * Load the queued jobs of the topics from the resource tree and the journal.
+     * If a topic has more jobs than the limit, it is scanned again once its
+     * cached jobs are processed.
      * @param checkingTopics The set of topics to check.
+     * @param limit The maximum number of jobs loaded per topic.
      */
-    private void loadJobs( final Set<String> checkingTopics) {
+    private void loadJobs(final Set<String> checkingTopics, final int limit) {
         logger.debug("Starting jobs loading from {}...", checkingTopics);
-
-        final Map<String, List<JobImpl>> topicCache = new HashMap<String, List<JobImpl>>();
+        this.lastActivity.set(System.currentTimeMillis());
 
         final ResourceResolver resolver = this.configuration.createResourceResolver();
         try {
@@ -206,96 +461,192 @@ public class QueueJobCache {
 
                     final Resource topicResource = baseResource.getChild(topic.replace('/', '.'));
                     if ( topicResource != null ) {
-                        topicCache.put(topic, loadJobs(topic, topicResource));
+                        loadJobs(topic, topicResource, limit);
                     }
                 }
             }
         } finally {
             resolver.close();
         }
-        orderTopics(topicCache);
-
-        logger.debug("Finished jobs loading {}", this.cache.size());
-    }
-
-    /**
-     * Order the topics based on the queue type and put them in the cache.
-     * @param topicCache The topic based cache
-     */
-    private void orderTopics(final Map<String, List<JobImpl>> topicCache) {
-        if ( this.queueType == Type.ORDERED
-             || this.queueType == Type.UNORDERED) {
-            for(final List<JobImpl> list : topicCache.values()) {
-                this.cache.addAll(list);
-            }
-            Collections.sort(this.cache);
-        } else {
-            // topic round robin
-            boolean done = true;
-            do {
-                done = true;
-                for(final Map.Entry<String, List<JobImpl>> entry : topicCache.entrySet()) {
-                    if ( !entry.getValue().isEmpty() ) {
-                        this.cache.add(entry.getValue().remove(0));
-                        if ( !entry.getValue().isEmpty() ) {
-                            done = false;
-                        }
-                    }
+        final JobJournal journal = this.configuration.getJobJournal();
+        if ( journal != null ) {
+            for(final String topic : checkingTopics) {
+                final List<JobImpl> jobs = journal.getJobs(topic, true, limit);
+                for(final JobImpl job : jobs) {
+                    this.add(job);
                 }
-            } while ( !done ) ;
+                if ( jobs.size() >= limit ) {
+                    this.topicsToScan.add(topic);
+                }
+            }
         }
+
+        logger.debug("Finished jobs loading {}", this.queuedJobCount.get());
     }
 
     /**
-     * Load the next N x numberOf(topics) jobs.
+     * Load the queued jobs of a topic from the resource tree.
      * @param topic The topic
      * @param topicResource The parent resource of the jobs
-     * @return The cache which will be filled with the jobs.
+     * @param limit The maximum number of jobs to load
      */
-    private List<JobImpl> loadJobs(final String topic, final Resource topicResource) {
+    private void loadJobs(final String topic, final Resource topicResource, final int limit) {
         logger.debug("Loading jobs from topic {}", topic);
-        final List<JobImpl> list = new ArrayList<JobImpl>();
-
-        final AtomicBoolean scanTopic = new AtomicBoolean(false);
+        final AtomicInteger count = new AtomicInteger();
 
         JobTopicTraverser.traverse(logger, topicResource, new JobTopicTraverser.JobCallback() {
 
             @Override
             public boolean handle(final JobImpl job) {
-                if ( job.getProcessingStarted() == null && !job.hasReadErrors() ) {
-                    list.add(job);
-                    if ( list.size() == maxPreloadLimit ) {
-                        scanTopic.set(true);
+                if ( isQueued(job) ) {
+                    if ( count.get() >= limit ) {
+                        // the remaining jobs are loaded later
+                        topicsToScan.add(topic);
+                        return false;
                     }
-                } else {
-                    if ( job.hasReadErrors() ) {
-                        scanTopic.set(true);
+                    if ( add(job) ) {
+                        count.incrementAndGet();
+                    } else if ( topicsToScan.contains(topic) ) {
+                        // cache is full, the remaining jobs are loaded later
+                        return false;
                     }
+                } else {
                     logger.debug("Ignoring job because {} or {}", job.getProcessingStarted(), job.hasReadErrors());
                 }
-                return list.size() < maxPreloadLimit;
+                return true;
             }
         });
-        if ( scanTopic.get() ) {
-            synchronized ( this.topicsWithNewJobs ) {
-                this.topicsWithNewJobs.add(topic);
+        logger.debug("Caching {} jobs for topic {}", count.get(), topic);
+    }
+
+    /**
+     * Read the notified new jobs and add them to the index.
+     * This is called while holding the {@link #takeLock}, so a job
+     * which is currently started is never added again.
+     */
+    private void readNewJobs() {
+        if ( this.newJobs.isEmpty() ) {
+            return;
+        }
+        final JobJournal journal = this.configuration.getJobJournal();
+        ResourceResolver resolver = null;
+        try {
+            String[] entry;
+            while ( (entry = this.newJobs.poll()) != null ) {
+                this.newJobCount.decrementAndGet();
+                final String topic = entry[0];
+                final String jobId = entry[1];
+
+                JobImpl job = (journal == null ? null : journal.getJob(jobId));
+                if ( job == null ) {
+                    if ( resolver == null ) {
+                        resolver = this.configuration.createResourceResolver();
+                    }
+                    final String path = this.configuration.getUniquePath(Environment.APPLICATION_ID, topic, jobId, null);
+                    job = Utility.readJob(logger, resolver.getResource(path));
+                }
+                if ( job != null && this.isQueued(job) ) {
+                    this.add(job);
+                } else {
+                    logger.debug("Ignoring new job {} for topic {}", jobId, topic);
+                }
+            }
+        } finally {
+            if ( resolver != null ) {
+                resolver.close();
             }
         }
-        logger.debug("Caching {} jobs for topic {}", list.size(), topic);
+    }
 
-        return list;
+    /**
+     * Scan the topics exceeding the cache size once their cached jobs are
+     * processed, or all topics if an idle scan has been requested.
+     * This is called while holding the {@link #takeLock}.
+     */
+    private void scanTopics() {
+        if ( this.doIdleScan.getAndSet(false) && this.queuedJobCount.get() == 0 ) {
+            this.loadJobs(this.topics, IDLE_SCAN_JOBS);
+        } else if ( !this.topicsToScan.isEmpty() ) {
+            for(final String topic : this.topicsToScan) {
+                final AtomicInteger count = this.cachedJobCounts.get(topic);
+                if ( count == null || count.get() == 0 ) {
+                    this.topicsToScan.remove(topic);
+                    this.loadJobs(Collections.singleton(topic), this.maxCachedJobs);
+                }
+            }
+        }
     }
 
     /**
-     * Inform the queue cache about topics containing new jobs
+     * Request a scan of all topics with the next job request, if the cache
+     * is empty and there has been no activity for the idle scan interval.
+     * This finds jobs which have been added without a notification. The
+     * scan loads only a few jobs per topic, topics with more jobs are
+     * scanned again once these are processed.
+     * This should only be called if no jobs of the queue are processed.
+     * @return {@code true} if a scan has been requested.
+     */
+    public boolean scanIfIdle() {
+        final long now = System.currentTimeMillis();
+        final long last = this.lastActivity.get();
+        if ( this.isEmpty() && now - last >= this.idleScanInterval
+             && this.lastActivity.compareAndSet(last, now) ) {
+            this.doIdleScan.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Inform the queue cache about a new job.
+     * The job is read when the next job is requested.
+     * @param topic The job topic
+     * @param jobId The job id
+     */
+    public void handleNewJob(final String topic, final String jobId) {
+        logger.debug("Update cache to handle new job {} for topic {}", jobId, topic);
+        this.topics.add(topic);
+        this.lastActivity.set(System.currentTimeMillis());
+        if ( this.newJobCount.get() >= this.maxCachedJobs ) {
+            // too many unread notifications, the topic is scanned instead
+            this.topicsToScan.add(topic);
+            return;
+        }
+        this.newJobs.add(new String[] {topic, jobId});
+        this.newJobCount.incrementAndGet();
+    }
+
+    /**
+     * Inform the queue cache about topics containing new jobs.
+     * Topics which are new to this queue are scanned.
      * @param topics The set of topics to scan
      */
     public void handleNewTopics(final Set<String> topics) {
         logger.debug("Update cache to handle new event for topics {}", topics);
-        synchronized ( this.topicsWithNewJobs ) {
-            this.topicsWithNewJobs.addAll(topics);
+        final Set<String> newTopics = new ConcurrentSkipListSet<String>(topics);
+        newTopics.removeAll(this.topics);
+        if ( !newTopics.isEmpty() ) {
+            synchronized ( this.takeLock ) {
+                this.loadJobs(newTopics, this.maxCachedJobs);
+            }
+            this.topics.addAll(newTopics);
+        }
+    }
+
+    /**
+     * Remove all jobs from the cache.
+     */
+    public void removeAll() {
+        synchronized ( this.takeLock ) {
+            this.newJobs.clear();
+            this.newJobCount.set(0);
+            this.topicsToScan.clear();
+            for(final ConcurrentSkipListSet<JobImpl> jobs : this.jobsByTopic.values()) {
+                for(final JobImpl job : jobs) {
+                    this.remove(job);
+                }
+            }
         }
-        this.topics.addAll(topics);
     }
 
     /**
@@ -304,13 +655,9 @@ public class QueueJobCache {
      * @param handler The job handler
      */
     public void reschedule(final JobHandler handler) {
-        synchronized ( this.cache ) {
+        synchronized ( this.takeLock ) {
             if ( handler.reschedule() ) {
-                if ( this.queueType == Type.ORDERED ) {
-                    this.cache.add(0, handler.getJob());
-                } else {
-                    this.cache.add(handler.getJob());
-                }
+                this.add(handler.getJob());
             }
         }
     }
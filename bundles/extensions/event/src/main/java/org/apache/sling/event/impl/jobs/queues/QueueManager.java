@@ -20,8 +20,10 @@ package org.apache.sling.event.impl.jobs.queues;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +43,7 @@ import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.commons.scheduler.Scheduler;
 import org.apache.sling.commons.threads.ThreadPool;
 import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.apache.sling.discovery.PropertyProvider;
 import org.apache.sling.event.impl.EventingThreadPool;
 import org.apache.sling.event.impl.jobs.JobConsumerManager;
 import org.apache.sling.event.impl.jobs.JobHandler;
@@ -50,8 +53,10 @@ import org.apache.sling.event.impl.jobs.config.InternalQueueConfiguration;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
 import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager;
 import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager.QueueInfo;
+import org.apache.sling.event.impl.jobs.config.TopologyCapabilities;
 import org.apache.sling.event.impl.jobs.jmx.QueueStatusEvent;
 import org.apache.sling.event.impl.jobs.jmx.QueuesMBeanImpl;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
 import org.apache.sling.event.impl.jobs.stats.StatisticsManager;
 import org.apache.sling.event.impl.support.Environment;
 import org.apache.sling.event.impl.support.ResourceHelper;
@@ -59,6 +64,8 @@ import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.NotificationConstants;
 import org.apache.sling.event.jobs.Queue;
 import org.apache.sling.event.jobs.jmx.QueuesMBean;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
@@ -126,12 +133,22 @@ public class QueueManager
     /** The queue services. */
     private volatile QueueServices queueServices;
 
+    /** Registration of the property provider publishing the number of queued jobs. */
+    private volatile ServiceRegistration loadRegistration;
+
+    /** The published number of queued jobs. */
+    private volatile int publishedLoad;
+
+    /** We count the load updates to make sure a modification event is really sent. */
+    private long loadChangeCount;
+
     /**
      * Activate this component.
+     * @param bc The bundle context
      * @param props Configuration properties
      */
     @Activate
-    protected void activate(final Map<String, Object> props) {
+    protected void activate(final BundleContext bc, final Map<String, Object> props) {
         logger.info("Apache Sling Queue Manager started on instance {}", Environment.APPLICATION_ID);
         this.queueServices = new QueueServices();
         queueServices.configuration = this.configuration;
@@ -142,6 +159,49 @@ public class QueueManager
         queueServices.statisticsManager = statisticsManager;
         queueServices.eventingThreadPool = this.threadPool;
         this.configuration.addListener(this);
+        this.loadRegistration = bc.registerService(PropertyProvider.class.getName(),
+                new PropertyProvider() {
+
+                    @Override
+                    public String getProperty(final String name) {
+                        if ( TopologyCapabilities.PROPERTY_QUEUED_JOBS.equals(name) ) {
+                            return String.valueOf(publishedLoad);
+                        }
+                        return null;
+                    }
+                }, this.getLoadRegistrationProperties());
+    }
+
+    private synchronized Dictionary<String, Object> getLoadRegistrationProperties() {
+        final Dictionary<String, Object> serviceProps = new Hashtable<String, Object>();
+        serviceProps.put(PropertyProvider.PROPERTY_PROPERTIES, TopologyCapabilities.PROPERTY_QUEUED_JOBS);
+        // we add a changing property to the service registration
+        // to make sure a modification event is really sent
+        serviceProps.put("changeCount", this.loadChangeCount++);
+        return serviceProps;
+    }
+
+    /**
+     * Publish the number of queued jobs of this instance through discovery.
+     * The number is rounded down to a power of two, so the topology
+     * is only updated if the load changes significantly.
+     */
+    private void publishLoad() {
+        int total = 0;
+        for(final JobQueueImpl jbq : this.queues.values() ) {
+            total += jbq.getQueuedJobCount();
+        }
+        final int load = Integer.highestOneBit(total);
+        final ServiceRegistration reg = this.loadRegistration;
+        if ( load != this.publishedLoad && reg != null ) {
+            logger.debug("Publishing number of queued jobs: {}", load);
+            this.publishedLoad = load;
+            try {
+                reg.setProperties(this.getLoadRegistrationProperties());
+            } catch (final IllegalStateException ise) {
+                // the registration is already unregistered
+            }
+        }
     }
 
     /**
@@ -152,6 +212,10 @@ public class QueueManager
         logger.debug("Apache Sling Queue Manager stopping on instance {}", Environment.APPLICATION_ID);
 
         this.configuration.removeListener(this);
+        if ( this.loadRegistration != null ) {
+            this.loadRegistration.unregister();
+            this.loadRegistration = null;
+        }
         final Iterator<JobQueueImpl> i = this.queues.values().iterator();
         while ( i.hasNext() ) {
             final JobQueueImpl jbq = i.next();
@@ -178,6 +242,7 @@ public class QueueManager
         for(final JobQueueImpl jbq : this.queues.values() ) {
             jbq.maintain();
         }
+        this.publishLoad();
 
         // we only do a full clean up on every fifth run
         final boolean doFullCleanUp = (schedulerRuns % 5 == 0);
@@ -212,9 +277,11 @@ public class QueueManager
      *
      * @param queueInfo The queue info
      * @param topics The topics
+     * @param newJobId The id of a new job of the topic or {@code null}
      */
     private void start(final QueueInfo queueInfo,
-                       final Set<String> topics) {
+                       final Set<String> topics,
+                       final String newJobId) {
         final InternalQueueConfiguration config = queueInfo.queueConfiguration;
         // get or create queue
         boolean isNewQueue = false;
@@ -241,6 +308,8 @@ public class QueueManager
         if ( queue != null ) {
             if ( isNewQueue ) {
                 queue.startJobs();
+            } else if ( newJobId != null ) {
+                queue.jobAdded(topics.iterator().next(), newJobId);
             } else {
                 queue.wakeUpQueue(topics);
             }
@@ -355,7 +424,7 @@ public class QueueManager
                 final Map<QueueInfo, Set<String>> mapping = this.updateTopicMapping(topics);
                 // start queues
                 for(final Map.Entry<QueueInfo, Set<String>> entry : mapping.entrySet() ) {
-                    this.start(entry.getKey(), entry.getValue());
+                    this.start(entry.getKey(), entry.getValue(), null);
                 }
             } else {
                 this.restart();
@@ -387,6 +456,13 @@ public class QueueManager
         } finally {
             resolver.close();
         }
+        final JobJournal journal = this.configuration.getJobJournal();
+        if ( journal != null ) {
+            for(final String topic : journal.getTopics()) {
+                logger.debug("Found topic {} in journal", topic);
+                topics.add(topic);
+            }
+        }
         return topics;
     }
 
@@ -397,8 +473,9 @@ public class QueueManager
     public void handleEvent(final Event event) {
         final String topic = (String)event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC);
         if ( this.isActive.get() && topic != null ) {
+            final String jobId = (String)event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID);
             final QueueInfo info = this.configuration.getQueueConfigurationManager().getQueueInfo(topic);
-            this.start(info, Collections.singleton(topic));
+            this.start(info, Collections.singleton(topic), jobId);
         }
     }
 
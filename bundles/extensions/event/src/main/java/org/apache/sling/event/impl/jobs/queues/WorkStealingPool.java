@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.event.impl.jobs.JobImpl;
+
+/**
+ * The worker pool of a work stealing queue.
+ *
+ * Each worker owns a deque of jobs. A worker processes the jobs from the head
+ * of its own deque and, once this is empty, steals jobs from the tail of the
+ * deques of the other workers. Only if all deques are empty, a worker fetches
+ * a new chunk of jobs from the {@link JobSource}. This way, the job cache is
+ * only contended once per chunk and not once per job.
+ *
+ * Workers are started on demand on the provided thread pool, up to the
+ * maximum number of parallel jobs, and stop after being idle for
+ * {@link #KEEP_ALIVE} milliseconds.
+ */
+public class WorkStealingPool {
+
+    /** The maximum number of jobs fetched from the source at once. */
+    static final int FETCH_SIZE = 8;
+
+    /** The time in ms an idle worker waits for new jobs before it stops. */
+    static final long KEEP_ALIVE = 1000;
+
+    /**
+     * The source of the jobs processed by the pool.
+     */
+    public interface JobSource {
+
+        /**
+         * Whether the source currently allows processing jobs.
+         */
+        boolean isActive();
+
+        /**
+         * Take the next jobs from the source.
+         * @param max The maximum number of jobs
+         * @return A list of jobs, which might be empty
+         */
+        List<JobImpl> take(int max);
+
+        /**
+         * Process a job. This method is invoked by the worker thread
+         * and returns once the job has been processed.
+         * @param job The job
+         */
+        void process(JobImpl job);
+    }
+
+    /** A worker slot. */
+    private static final class Worker {
+
+        public final LinkedBlockingDeque<JobImpl> jobs = new LinkedBlockingDeque<JobImpl>();
+
+        public final AtomicBoolean running = new AtomicBoolean(false);
+    }
+
+    private final JobSource source;
+
+    private final ThreadPool threadPool;
+
+    private final Worker[] workers;
+
+    /** The number of running workers. */
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+
+    /** The number of workers waiting for new jobs, guarded by {@link #idleLock}. */
+    private int idleWorkers;
+
+    /** The number of jobs in the deques of the workers. */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** Incremented on every signal to detect lost wake ups. */
+    private final AtomicLong signalCount = new AtomicLong();
+
+    private final Object idleLock = new Object();
+
+    private volatile boolean closed;
+
+    /**
+     * Create a new pool.
+     * @param source The job source
+     * @param threadPool The thread pool for the workers
+     * @param maxWorkers The maximum number of workers
+     */
+    public WorkStealingPool(final JobSource source, final ThreadPool threadPool, final int maxWorkers) {
+        this.source = source;
+        this.threadPool = threadPool;
+        this.workers = new Worker[Math.max(1, maxWorkers)];
+        for(int i = 0; i < this.workers.length; i++) {
+            this.workers[i] = new Worker();
+        }
+    }
+
+    /**
+     * Signal that new jobs might be available.
+     * An idle worker is woken up, if there is none, a new worker
+     * is started unless the maximum number of workers is reached.
+     */
+    public void signal() {
+        if ( this.closed ) {
+            return;
+        }
+        this.signalCount.incrementAndGet();
+        synchronized ( this.idleLock ) {
+            if ( this.idleWorkers > 0 ) {
+                this.idleLock.notifyAll();
+                return;
+            }
+        }
+        for(int i = 0; i < this.workers.length; i++) {
+            final Worker worker = this.workers[i];
+            if ( worker.running.compareAndSet(false, true) ) {
+                this.runningWorkers.incrementAndGet();
+                final int index = i;
+                try {
+                    this.threadPool.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            work(index);
+                        }
+                    });
+                } catch (final RuntimeException re) {
+                    this.runningWorkers.decrementAndGet();
+                    worker.running.set(false);
+                    throw re;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close the pool.
+     * Jobs which have been fetched but not processed yet are discarded, they
+     * have not been started and are therefore still queued in the persistence.
+     */
+    public void close() {
+        this.closed = true;
+        synchronized ( this.idleLock ) {
+            this.idleLock.notifyAll();
+        }
+        for(final Worker worker : this.workers) {
+            worker.jobs.clear();
+        }
+        this.pending.set(0);
+    }
+
+    /**
+     * The number of jobs fetched but not processed yet.
+     */
+    public int getPendingCount() {
+        return this.pending.get();
+    }
+
+    /**
+     * The number of running workers.
+     */
+    public int getWorkerCount() {
+        return this.runningWorkers.get();
+    }
+
+    /**
+     * The worker loop.
+     */
+    private void work(final int index) {
+        final Worker worker = this.workers[index];
+        long seenSignal = this.signalCount.get();
+        try {
+            while ( !this.closed && this.source.isActive() ) {
+                final JobImpl job = this.next(index);
+                if ( job != null ) {
+                    this.source.process(job);
+                    continue;
+                }
+                synchronized ( this.idleLock ) {
+                    if ( this.closed ) {
+                        break;
+                    }
+                    if ( this.signalCount.get() == seenSignal ) {
+                        this.idleWorkers++;
+                        try {
+                            this.idleLock.wait(KEEP_ALIVE);
+                        } catch (final InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            this.idleWorkers--;
+                        }
+                        if ( this.signalCount.get() == seenSignal ) {
+                            // nothing happened while we were waiting
+                            break;
+                        }
+                    }
+                    seenSignal = this.signalCount.get();
+                }
+            }
+        } finally {
+            worker.running.set(false);
+            this.runningWorkers.decrementAndGet();
+            // make sure a signal or a job arriving while we stopped is not lost
+            if ( !this.closed && (this.signalCount.get() != seenSignal || this.pending.get() > 0) && this.source.isActive() ) {
+                this.signal();
+            }
+        }
+    }
+
+    /**
+     * Get the next job for a worker: from its own deque, stolen
+     * from another worker or fetched from the source.
+     */
+    private JobImpl next(final int index) {
+        final Worker worker = this.workers[index];
+        JobImpl job = worker.jobs.pollFirst();
+        if ( job == null ) {
+            for(int i = 1; job == null && i < this.workers.length; i++) {
+                job = this.workers[(index + i) % this.workers.length].jobs.pollLast();
+            }
+        }
+        if ( job != null ) {
+            this.pending.decrementAndGet();
+            return job;
+        }
+        final List<JobImpl> jobs = this.source.take(FETCH_SIZE);
+        if ( jobs.isEmpty() ) {
+            return null;
+        }
+        for(int i = 1; i < jobs.size(); i++) {
+            this.pending.incrementAndGet();
+            worker.jobs.offerLast(jobs.get(i));
+        }
+        if ( jobs.size() > 1 ) {
+            // let other workers steal the remaining jobs
+            this.signal();
+        }
+        return jobs.get(0);
+    }
+}
@@ -22,36 +22,40 @@ import org.apache.sling.event.jobs.Statistics;
 
 /**
  * Implementation of the statistics.
+ *
+ * The counters are striped and the waiting and processing times are
+ * recorded in rolling histograms, therefore updating the statistics
+ * from many job threads does not require any locking.
  */
-public class StatisticsImpl implements Statistics {
+public class StatisticsImpl implements Statistics, TimingStatistics {
 
-    private long startTime;
+    private volatile long startTime;
 
-    private long activeJobs;
+    private final StripedCounter activeJobs = new StripedCounter();
 
-    private long queuedJobs;
+    private final StripedCounter queuedJobs = new StripedCounter();
 
-    private long lastActivated = -1;
+    private volatile long lastActivated = -1;
 
-    private long lastFinished = -1;
+    private volatile long lastFinished = -1;
 
-    private long averageWaitingTime;
+    private final StripedCounter waitingTime = new StripedCounter();
 
-    private long averageProcessingTime;
+    private final StripedCounter processingTime = new StripedCounter();
 
-    private long waitingTime;
+    private final StripedCounter waitingCount = new StripedCounter();
 
-    private long processingTime;
+    private final StripedCounter processingCount = new StripedCounter();
 
-    private long waitingCount;
+    private final StripedCounter finishedJobs = new StripedCounter();
 
-    private long processingCount;
+    private final StripedCounter failedJobs = new StripedCounter();
 
-    private long finishedJobs;
+    private final StripedCounter cancelledJobs = new StripedCounter();
 
-    private long failedJobs;
+    private final TimingHistogram waitingTimes = new TimingHistogram();
 
-    private long cancelledJobs;
+    private final TimingHistogram processingTimes = new TimingHistogram();
 
     public StatisticsImpl() {
         this(System.currentTimeMillis());
@@ -65,7 +69,7 @@ public class StatisticsImpl implements Statistics {
      * @see org.apache.sling.event.jobs.Statistics#getStartTime()
      */
     @Override
-    public synchronized long getStartTime() {
+    public long getStartTime() {
         return startTime;
     }
 
@@ -73,7 +77,7 @@ public class StatisticsImpl implements Statistics {
      * @see org.apache.sling.event.jobs.Statistics#getNumberOfProcessedJobs()
      */
     @Override
-    public synchronized long getNumberOfProcessedJobs() {
+    public long getNumberOfProcessedJobs() {
         return getNumberOfCancelledJobs() + getNumberOfFailedJobs() + getNumberOfFinishedJobs();
     }
 
@@ -81,71 +85,89 @@ public class StatisticsImpl implements Statistics {
      * @see org.apache.sling.event.jobs.Statistics#getNumberOfActiveJobs()
      */
     @Override
-    public synchronized long getNumberOfActiveJobs() {
-        return activeJobs;
+    public long getNumberOfActiveJobs() {
+        return activeJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getNumberOfQueuedJobs()
      */
     @Override
-    public synchronized long getNumberOfQueuedJobs() {
-        return queuedJobs;
+    public long getNumberOfQueuedJobs() {
+        return queuedJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getNumberOfJobs()
      */
     @Override
-    public synchronized long getNumberOfJobs() {
-        return activeJobs + queuedJobs;
+    public long getNumberOfJobs() {
+        return activeJobs.sum() + queuedJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getAverageWaitingTime()
      */
     @Override
-    public synchronized long getAverageWaitingTime() {
-        return averageWaitingTime;
+    public long getAverageWaitingTime() {
+        final long count = waitingCount.sum();
+        return count == 0 ? 0 : waitingTime.sum() / count;
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getAverageProcessingTime()
      */
     @Override
-    public synchronized long getAverageProcessingTime() {
-        return averageProcessingTime;
+    public long getAverageProcessingTime() {
+        final long count = processingCount.sum();
+        return count == 0 ? 0 : processingTime.sum() / count;
+    }
+
+    /**
+     * @see org.apache.sling.event.impl.jobs.stats.TimingStatistics#getWaitingTimePercentile(double)
+     */
+    @Override
+    public long getWaitingTimePercentile(final double percentile) {
+        return waitingTimes.getPercentile(percentile);
+    }
+
+    /**
+     * @see org.apache.sling.event.impl.jobs.stats.TimingStatistics#getProcessingTimePercentile(double)
+     */
+    @Override
+    public long getProcessingTimePercentile(final double percentile) {
+        return processingTimes.getPercentile(percentile);
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getNumberOfFinishedJobs()
      */
     @Override
-    public synchronized long getNumberOfFinishedJobs() {
-        return finishedJobs;
+    public long getNumberOfFinishedJobs() {
+        return finishedJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getNumberOfCancelledJobs()
      */
     @Override
-    public synchronized long getNumberOfCancelledJobs() {
-        return cancelledJobs;
+    public long getNumberOfCancelledJobs() {
+        return cancelledJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getNumberOfFailedJobs()
      */
     @Override
-    public synchronized long getNumberOfFailedJobs() {
-        return failedJobs;
+    public long getNumberOfFailedJobs() {
+        return failedJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#getLastActivatedJobTime()
      */
     @Override
-    public synchronized long getLastActivatedJobTime() {
+    public long getLastActivatedJobTime() {
         return this.lastActivated;
     }
 
@@ -153,7 +175,7 @@ public class StatisticsImpl implements Statistics {
      * @see org.apache.sling.event.jobs.Statistics#getLastFinishedJobTime()
      */
     @Override
-    public synchronized long getLastFinishedJobTime() {
+    public long getLastFinishedJobTime() {
         return this.lastFinished;
     }
 
@@ -161,160 +183,126 @@ public class StatisticsImpl implements Statistics {
      * Add a finished job
      * @param jobTime The processing time for this job.
      */
-    public synchronized void finishedJob(final long jobTime) {
+    public void finishedJob(final long jobTime) {
         this.lastFinished = System.currentTimeMillis();
-        this.processingTime += jobTime;
-        this.processingCount++;
-        this.averageProcessingTime = this.processingTime / this.processingCount;
-        this.finishedJobs++;
-        this.activeJobs--;
+        this.processingTime.add(jobTime);
+        this.processingCount.increment();
+        this.processingTimes.record(jobTime);
+        this.finishedJobs.increment();
+        this.activeJobs.decrement();
     }
 
     /**
      * Add a failed job.
      */
-    public synchronized void failedJob() {
-        this.failedJobs++;
-        this.activeJobs--;
-        this.queuedJobs++;
+    public void failedJob() {
+        this.failedJobs.increment();
+        this.activeJobs.decrement();
+        this.queuedJobs.increment();
     }
 
     /**
      * Add a cancelled job.
      */
-    public synchronized void cancelledJob() {
-        this.cancelledJobs++;
-        this.activeJobs--;
+    public void cancelledJob() {
+        this.cancelledJobs.increment();
+        this.activeJobs.decrement();
     }
 
     /**
      * New job in the queue
      */
-    public synchronized void incQueued() {
-        this.queuedJobs++;
+    public void incQueued() {
+        this.queuedJobs.increment();
     }
 
     /**
      * Job not processed by us
      */
-    public synchronized void decQueued() {
-        this.queuedJobs--;
+    public void decQueued() {
+        this.queuedJobs.decrement();
     }
 
     /**
      * Clear all queued
      */
-    public synchronized void clearQueued() {
-        this.queuedJobs = 0;
+    public void clearQueued() {
+        this.queuedJobs.set(0);
     }
 
     /**
      * Add a job from the queue to status active
      * @param queueTime The time the job stayed in the queue.
      */
-    public synchronized void addActive(final long queueTime) {
-        this.queuedJobs--;
-        this.activeJobs++;
-        this.waitingCount++;
-        this.waitingTime += queueTime;
-        this.averageWaitingTime = this.waitingTime / this.waitingCount;
+    public void addActive(final long queueTime) {
+        this.queuedJobs.decrement();
+        this.activeJobs.increment();
+        this.waitingCount.increment();
+        this.waitingTime.add(queueTime);
+        this.waitingTimes.record(queueTime);
         this.lastActivated = System.currentTimeMillis();
     }
 
     /**
      * Add another statistics information.
      */
-    public synchronized void add(final StatisticsImpl other) {
-        synchronized ( other ) {
-            if ( other.lastActivated > this.lastActivated ) {
-                this.lastActivated = other.lastActivated;
-            }
-            if ( other.lastFinished > this.lastFinished ) {
-                this.lastFinished = other.lastFinished;
-            }
-            this.queuedJobs += other.queuedJobs;
-            this.waitingTime += other.waitingTime;
-            this.waitingCount += other.waitingCount;
-            if ( this.waitingCount > 0 ) {
-                this.averageWaitingTime = this.waitingTime / this.waitingCount;
-            }
-            this.processingTime += other.processingTime;
-            this.processingCount += other.processingCount;
-            if ( this.processingCount > 0 ) {
-                this.averageProcessingTime = this.processingTime / this.processingCount;
-            }
-            this.finishedJobs += other.finishedJobs;
-            this.failedJobs += other.failedJobs;
-            this.cancelledJobs += other.cancelledJobs;
-            this.activeJobs += other.activeJobs;
+    public void add(final StatisticsImpl other) {
+        if ( other.lastActivated > this.lastActivated ) {
+            this.lastActivated = other.lastActivated;
         }
+        if ( other.lastFinished > this.lastFinished ) {
+            this.lastFinished = other.lastFinished;
+        }
+        this.queuedJobs.add(other.queuedJobs.sum());
+        this.waitingTime.add(other.waitingTime.sum());
+        this.waitingCount.add(other.waitingCount.sum());
+        this.processingTime.add(other.processingTime.sum());
+        this.processingCount.add(other.processingCount.sum());
+        this.finishedJobs.add(other.finishedJobs.sum());
+        this.failedJobs.add(other.failedJobs.sum());
+        this.cancelledJobs.add(other.cancelledJobs.sum());
+        this.activeJobs.add(other.activeJobs.sum());
+        this.waitingTimes.add(other.waitingTimes);
+        this.processingTimes.add(other.processingTimes);
     }
 
     /**
      * Create a new statistics object with exactly the same values.
      */
     public void copyFrom(final StatisticsImpl other) {
-        final long localQueuedJobs;
-        final long localLastActivated;
-        final long localLastFinished;
-        final long localAverageWaitingTime;
-        final long localAverageProcessingTime;
-        final long localWaitingTime;
-        final long localProcessingTime;
-        final long localWaitingCount;
-        final long localProcessingCount;
-        final long localFinishedJobs;
-        final long localFailedJobs;
-        final long localCancelledJobs;
-        final long localActiveJobs;
-        synchronized ( other ) {
-            localQueuedJobs = other.queuedJobs;
-            localLastActivated = other.lastActivated;
-            localLastFinished = other.lastFinished;
-            localAverageWaitingTime = other.averageWaitingTime;
-            localAverageProcessingTime = other.averageProcessingTime;
-            localWaitingTime = other.waitingTime;
-            localProcessingTime = other.processingTime;
-            localWaitingCount = other.waitingCount;
-            localProcessingCount = other.processingCount;
-            localFinishedJobs = other.finishedJobs;
-            localFailedJobs = other.failedJobs;
-            localCancelledJobs = other.cancelledJobs;
-            localActiveJobs = other.activeJobs;
-        }
-        synchronized ( this ) {
-            this.queuedJobs = localQueuedJobs;
-            this.lastActivated = localLastActivated;
-            this.lastFinished = localLastFinished;
-            this.averageWaitingTime = localAverageWaitingTime;
-            this.averageProcessingTime = localAverageProcessingTime;
-            this.waitingTime = localWaitingTime;
-            this.processingTime = localProcessingTime;
-            this.waitingCount = localWaitingCount;
-            this.processingCount = localProcessingCount;
-            this.finishedJobs = localFinishedJobs;
-            this.failedJobs = localFailedJobs;
-            this.cancelledJobs = localCancelledJobs;
-            this.activeJobs = localActiveJobs;
-        }
+        this.queuedJobs.set(other.queuedJobs.sum());
+        this.lastActivated = other.lastActivated;
+        this.lastFinished = other.lastFinished;
+        this.waitingTime.set(other.waitingTime.sum());
+        this.processingTime.set(other.processingTime.sum());
+        this.waitingCount.set(other.waitingCount.sum());
+        this.processingCount.set(other.processingCount.sum());
+        this.finishedJobs.set(other.finishedJobs.sum());
+        this.failedJobs.set(other.failedJobs.sum());
+        this.cancelledJobs.set(other.cancelledJobs.sum());
+        this.activeJobs.set(other.activeJobs.sum());
+        this.waitingTimes.clear();
+        this.waitingTimes.add(other.waitingTimes);
+        this.processingTimes.clear();
+        this.processingTimes.add(other.processingTimes);
     }
 
     /**
      * @see org.apache.sling.event.jobs.Statistics#reset()
      */
     @Override
-    public synchronized void reset() {
+    public void reset() {
         this.startTime = System.currentTimeMillis();
         this.lastActivated = -1;
         this.lastFinished = -1;
-        this.averageWaitingTime = 0;
-        this.averageProcessingTime = 0;
-        this.waitingTime = 0;
-        this.processingTime = 0;
-        this.waitingCount = 0;
-        this.processingCount = 0;
-        this.finishedJobs = 0;
-        this.failedJobs = 0;
-        this.cancelledJobs = 0;
+        this.waitingTime.set(0);
+        this.processingTime.set(0);
+        this.waitingCount.set(0);
+        this.processingCount.set(0);
+        this.finishedJobs.set(0);
+        this.failedJobs.set(0);
+        this.cancelledJobs.set(0);
+        this.waitingTimes.clear();
+        this.processingTimes.clear();
     }
 }
@@ -18,21 +18,33 @@
  */
 package org.apache.sling.event.impl.jobs.stats;
 
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import javax.management.ObjectName;
+
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.jobs.jmx.TopicStatisticsMBean;
+import org.apache.sling.event.impl.jobs.jmx.TopicStatisticsMBeanImpl;
 import org.apache.sling.event.impl.jobs.notifications.NotificationUtility;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.NotificationConstants;
 import org.apache.sling.event.jobs.Statistics;
 import org.apache.sling.event.jobs.TopicStatistics;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
@@ -63,9 +75,10 @@ public class StatisticsManager implements EventHandler {
     private final StatisticsImpl globalStatistics = new StatisticsImpl() {
 
         @Override
-        public synchronized void reset() {
+        public void reset() {
             super.reset();
             topicStatistics.clear();
+            unregisterTopicMBeans();
             for(final Statistics s : queueStatistics.values()) {
                 s.reset();
             }
@@ -79,6 +92,53 @@ public class StatisticsManager implements EventHandler {
     /** Statistics per queue. */
     private final ConcurrentMap<String, Statistics> queueStatistics = new ConcurrentHashMap<String, Statistics>();
 
+    /** The registrations of the topic statistics mbeans. */
+    private final Map<String, ServiceRegistration> topicMBeans = new HashMap<String, ServiceRegistration>();
+
+    /** The bundle context, {@code null} if not active. */
+    private volatile BundleContext bundleContext;
+
+    @Activate
+    protected void activate(final BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        this.bundleContext = null;
+        this.unregisterTopicMBeans();
+    }
+
+    /**
+     * Register a management bean for the statistics of a new topic.
+     */
+    private void registerTopicMBean(final TopicStatisticsImpl ts) {
+        synchronized ( this.topicMBeans ) {
+            final BundleContext bc = this.bundleContext;
+            if ( bc != null && !this.topicMBeans.containsKey(ts.getTopic()) ) {
+                final Dictionary<String, Object> props = new Hashtable<String, Object>();
+                props.put("jmx.objectname", "org.apache.sling:type=topics,name=" + ObjectName.quote(ts.getTopic()));
+                props.put(Constants.SERVICE_DESCRIPTION, "TopicStatisticsMBean for topic " + ts.getTopic());
+                props.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+                this.topicMBeans.put(ts.getTopic(),
+                        bc.registerService(TopicStatisticsMBean.class.getName(), new TopicStatisticsMBeanImpl(ts), props));
+            }
+        }
+    }
+
+    private void unregisterTopicMBeans() {
+        synchronized ( this.topicMBeans ) {
+            for(final ServiceRegistration reg : this.topicMBeans.values()) {
+                try {
+                    reg.unregister();
+                } catch ( final IllegalStateException ise ) {
+                    // ignore
+                }
+            }
+            this.topicMBeans.clear();
+        }
+    }
+
     /**
      * Get the global statistics.
      * @return The global statistics.
@@ -137,8 +197,12 @@ public class StatisticsManager implements EventHandler {
 
             TopicStatisticsImpl ts = (TopicStatisticsImpl)this.topicStatistics.get(topic);
             if ( ts == null ) {
-                this.topicStatistics.putIfAbsent(topic, new TopicStatisticsImpl(topic));
-                ts = (TopicStatisticsImpl)this.topicStatistics.get(topic);
+                final TopicStatisticsImpl newStatistics = new TopicStatisticsImpl(topic);
+                ts = (TopicStatisticsImpl)this.topicStatistics.putIfAbsent(topic, newStatistics);
+                if ( ts == null ) {
+                    ts = newStatistics;
+                    this.registerTopicMBean(ts);
+                }
             }
 
             if ( event.getTopic().equals(NotificationConstants.TOPIC_JOB_ADDED) ) {
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which spreads updates over several cells to avoid
+ * contention between threads updating it at the same time.
+ * Each thread updates the cell selected by its thread id, the
+ * value of the counter is the sum of all cells.
+ */
+public class StripedCounter {
+
+    /** Number of stripes, a power of two. */
+    private static final int STRIPES = 16;
+
+    /** Distance between two cells, keeps each cell on its own cache line. */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    private static int index() {
+        final long id = Thread.currentThread().getId();
+        return (int)((id ^ (id >>> 16)) & (STRIPES - 1)) * PADDING;
+    }
+
+    /**
+     * Add the value to the counter.
+     */
+    public void add(final long value) {
+        cells.addAndGet(index(), value);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    /**
+     * The current value of the counter.
+     * Concurrent updates might or might not be included.
+     */
+    public long sum() {
+        long sum = 0;
+        for(int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Set the counter to the value.
+     * This is not atomic with respect to concurrent updates.
+     */
+    public void set(final long value) {
+        for(int i = 1; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+        cells.set(0, value);
+    }
+}
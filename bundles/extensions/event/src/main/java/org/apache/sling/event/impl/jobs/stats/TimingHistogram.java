@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of timings over a rolling time window.
+ *
+ * Timings are recorded in milliseconds into buckets with an
+ * exponential layout: values below 16ms have their own bucket,
+ * above that each power of two is split into 8 buckets. This
+ * keeps the error of a reported percentile below 12.5%.
+ *
+ * The window is divided into slots. A slot is cleared and reused
+ * once it is older than the window, so percentiles only reflect
+ * the recent past. Recording is lock-free, readers sum up all slots
+ * of the window.
+ */
+public class TimingHistogram {
+
+    /** Default window: five slots of one minute. */
+    public static final long DEFAULT_SLOT_LENGTH = 60 * 1000;
+
+    public static final int DEFAULT_SLOTS = 5;
+
+    private static final int LINEAR_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Number of buckets: linear ones plus sub buckets for the exponents 4 to 62 */
+    static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+    private final long slotLength;
+
+    private final Slot[] slots;
+
+    private static final class Slot {
+
+        /** The number of the time slot this slot currently holds. */
+        final AtomicLong epoch = new AtomicLong(-1);
+
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    }
+
+    public TimingHistogram() {
+        this(DEFAULT_SLOT_LENGTH, DEFAULT_SLOTS);
+    }
+
+    public TimingHistogram(final long slotLength, final int slotCount) {
+        this.slotLength = slotLength;
+        this.slots = new Slot[slotCount];
+        for(int i = 0; i < slotCount; i++) {
+            this.slots[i] = new Slot();
+        }
+    }
+
+    static int getBucket(final long value) {
+        if ( value < LINEAR_BUCKETS ) {
+            return (int)value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * The value reported for a bucket: the middle of its range.
+     */
+    static long getBucketValue(final int bucket) {
+        if ( bucket < LINEAR_BUCKETS ) {
+            return bucket;
+        }
+        final int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        final int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        final long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + sub * width + width / 2;
+    }
+
+    private Slot getCurrentSlot(final long now) {
+        final long epoch = now / this.slotLength;
+        final Slot slot = this.slots[(int)(epoch % this.slots.length)];
+        final long slotEpoch = slot.epoch.get();
+        if ( slotEpoch != epoch && slot.epoch.compareAndSet(slotEpoch, epoch) ) {
+            // the winner clears the outdated counts, concurrent
+            // recordings might get lost which is acceptable here
+            for(int i = 0; i < BUCKETS; i++) {
+                slot.counts.set(i, 0);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Record a timing. Negative timings are ignored.
+     * @param time The time in milliseconds.
+     */
+    public void record(final long time) {
+        if ( time >= 0 ) {
+            this.getCurrentSlot(System.currentTimeMillis()).counts.incrementAndGet(getBucket(time));
+        }
+    }
+
+    /**
+     * Get the counts of all buckets within the window.
+     */
+    private long[] snapshot() {
+        final long minEpoch = System.currentTimeMillis() / this.slotLength - this.slots.length + 1;
+        final long[] result = new long[BUCKETS];
+        for(final Slot slot : this.slots) {
+            if ( slot.epoch.get() >= minEpoch ) {
+                for(int i = 0; i < BUCKETS; i++) {
+                    result[i] += slot.counts.get(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of timings recorded within the window.
+     */
+    public long getCount() {
+        long count = 0;
+        for(final long c : this.snapshot()) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * Get a percentile of the timings within the window.
+     * @param percentile The percentile between 0 and 100, e.g. 95 or 99
+     * @return The timing in milliseconds or {@code 0} if no timing
+     *         has been recorded within the window.
+     */
+    public long getPercentile(final double percentile) {
+        final long[] counts = this.snapshot();
+        long total = 0;
+        for(final long c : counts) {
+            total += c;
+        }
+        if ( total == 0 ) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long)Math.ceil(total * percentile / 100.0));
+        long current = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            current += counts[i];
+            if ( current >= rank ) {
+                return getBucketValue(i);
+            }
+        }
+        return getBucketValue(BUCKETS - 1);
+    }
+
+    /**
+     * Add all timings of the other histogram within its window
+     * to the current slot of this histogram.
+     */
+    public void add(final TimingHistogram other) {
+        final long[] counts = other.snapshot();
+        final Slot slot = this.getCurrentSlot(System.currentTimeMillis());
+        for(int i = 0; i < BUCKETS; i++) {
+            if ( counts[i] > 0 ) {
+                slot.counts.addAndGet(i, counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove all timings.
+     */
+    public void clear() {
+        for(final Slot slot : this.slots) {
+            slot.epoch.set(-1);
+            for(int i = 0; i < BUCKETS; i++) {
+                slot.counts.set(i, 0);
+            }
+        }
+    }
+}
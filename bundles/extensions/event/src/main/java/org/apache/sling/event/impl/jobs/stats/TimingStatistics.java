@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.stats;
+
+/**
+ * Percentiles of the waiting and processing times of jobs
+ * within the recent time window of a {@link TimingHistogram}.
+ */
+public interface TimingStatistics {
+
+    /**
+     * The waiting time of a job in the queue at the given percentile.
+     * @param percentile The percentile between 0 and 100
+     * @return The time in milliseconds
+     */
+    long getWaitingTimePercentile(double percentile);
+
+    /**
+     * The processing time of a job at the given percentile.
+     * @param percentile The percentile between 0 and 100
+     * @return The time in milliseconds
+     */
+    long getProcessingTimePercentile(double percentile);
+}
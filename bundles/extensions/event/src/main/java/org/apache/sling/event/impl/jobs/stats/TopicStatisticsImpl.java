@@ -21,33 +21,36 @@ package org.apache.sling.event.impl.jobs.stats;
 import org.apache.sling.event.jobs.TopicStatistics;
 
 /**
- * Implementation of the statistics.
+ * Implementation of the topic statistics.
+ *
+ * The counters and histograms are updated the same way as in
+ * {@link StatisticsImpl}.
  */
-public class TopicStatisticsImpl implements TopicStatistics {
+public class TopicStatisticsImpl implements TopicStatistics, TimingStatistics {
 
     private final String topic;
 
-    private long lastActivated = -1;
+    private volatile long lastActivated = -1;
 
-    private long lastFinished = -1;
+    private volatile long lastFinished = -1;
 
-    private long averageWaitingTime;
+    private final StripedCounter waitingTime = new StripedCounter();
 
-    private long averageProcessingTime;
+    private final StripedCounter processingTime = new StripedCounter();
 
-    private long waitingTime;
+    private final StripedCounter waitingCount = new StripedCounter();
 
-    private long processingTime;
+    private final StripedCounter processingCount = new StripedCounter();
 
-    private long waitingCount;
+    private final StripedCounter finishedJobs = new StripedCounter();
 
-    private long processingCount;
+    private final StripedCounter failedJobs = new StripedCounter();
 
-    private long finishedJobs;
+    private final StripedCounter cancelledJobs = new StripedCounter();
 
-    private long failedJobs;
+    private final TimingHistogram waitingTimes = new TimingHistogram();
 
-    private long cancelledJobs;
+    private final TimingHistogram processingTimes = new TimingHistogram();
 
     /** Constructor. */
     public TopicStatisticsImpl(final String topic) {
@@ -66,7 +69,7 @@ public class TopicStatisticsImpl implements TopicStatistics {
      * @see org.apache.sling.event.jobs.TopicStatistics#getNumberOfProcessedJobs()
      */
     @Override
-    public synchronized long getNumberOfProcessedJobs() {
+    public long getNumberOfProcessedJobs() {
         return getNumberOfCancelledJobs() + getNumberOfFailedJobs() + getNumberOfFinishedJobs();
     }
 
@@ -74,47 +77,65 @@ public class TopicStatisticsImpl implements TopicStatistics {
      * @see org.apache.sling.event.jobs.TopicStatistics#getAverageWaitingTime()
      */
     @Override
-    public synchronized long getAverageWaitingTime() {
-        return averageWaitingTime;
+    public long getAverageWaitingTime() {
+        final long count = waitingCount.sum();
+        return count == 0 ? 0 : waitingTime.sum() / count;
     }
 
     /**
      * @see org.apache.sling.event.jobs.TopicStatistics#getAverageProcessingTime()
      */
     @Override
-    public synchronized long getAverageProcessingTime() {
-        return averageProcessingTime;
+    public long getAverageProcessingTime() {
+        final long count = processingCount.sum();
+        return count == 0 ? 0 : processingTime.sum() / count;
+    }
+
+    /**
+     * @see org.apache.sling.event.impl.jobs.stats.TimingStatistics#getWaitingTimePercentile(double)
+     */
+    @Override
+    public long getWaitingTimePercentile(final double percentile) {
+        return waitingTimes.getPercentile(percentile);
+    }
+
+    /**
+     * @see org.apache.sling.event.impl.jobs.stats.TimingStatistics#getProcessingTimePercentile(double)
+     */
+    @Override
+    public long getProcessingTimePercentile(final double percentile) {
+        return processingTimes.getPercentile(percentile);
     }
 
     /**
      * @see org.apache.sling.event.jobs.TopicStatistics#getNumberOfFinishedJobs()
      */
     @Override
-    public synchronized long getNumberOfFinishedJobs() {
-        return finishedJobs;
+    public long getNumberOfFinishedJobs() {
+        return finishedJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.TopicStatistics#getNumberOfCancelledJobs()
      */
     @Override
-    public synchronized long getNumberOfCancelledJobs() {
-        return cancelledJobs;
+    public long getNumberOfCancelledJobs() {
+        return cancelledJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.TopicStatistics#getNumberOfFailedJobs()
      */
     @Override
-    public synchronized long getNumberOfFailedJobs() {
-        return failedJobs;
+    public long getNumberOfFailedJobs() {
+        return failedJobs.sum();
     }
 
     /**
      * @see org.apache.sling.event.jobs.TopicStatistics#getLastActivatedJobTime()
      */
     @Override
-    public synchronized long getLastActivatedJobTime() {
+    public long getLastActivatedJobTime() {
         return this.lastActivated;
     }
 
@@ -122,7 +143,7 @@ public class TopicStatisticsImpl implements TopicStatistics {
      * @see org.apache.sling.event.jobs.TopicStatistics#getLastFinishedJobTime()
      */
     @Override
-    public synchronized long getLastFinishedJobTime() {
+    public long getLastFinishedJobTime() {
         return this.lastFinished;
     }
 
@@ -130,13 +151,13 @@ public class TopicStatisticsImpl implements TopicStatistics {
      * Add a finished job.
      * @param jobTime The time of the job processing.
      */
-    public synchronized void addFinished(final long jobTime) {
-        this.finishedJobs++;
+    public void addFinished(final long jobTime) {
+        this.finishedJobs.increment();
         this.lastFinished = System.currentTimeMillis();
         if ( jobTime > 0 ) {
-            this.processingTime += jobTime;
-            this.processingCount++;
-            this.averageProcessingTime = this.processingTime / this.processingCount;
+            this.processingTime.add(jobTime);
+            this.processingCount.increment();
+            this.processingTimes.record(jobTime);
         }
     }
 
@@ -144,26 +165,26 @@ public class TopicStatisticsImpl implements TopicStatistics {
      * Add a started job.
      * @param queueTime The time of the job in the queue.
      */
-    public synchronized void addActivated(final long queueTime) {
+    public void addActivated(final long queueTime) {
         this.lastActivated = System.currentTimeMillis();
         if ( queueTime > 0 ) {
-            this.waitingTime += queueTime;
-            this.waitingCount++;
-            this.averageWaitingTime = this.waitingTime / this.waitingCount;
+            this.waitingTime.add(queueTime);
+            this.waitingCount.increment();
+            this.waitingTimes.record(queueTime);
         }
     }
 
     /**
      * Add a failed job.
      */
-    public synchronized void addFailed() {
-        this.failedJobs++;
+    public void addFailed() {
+        this.failedJobs.increment();
     }
 
     /**
      * Add a cancelled job.
      */
-    public synchronized void addCancelled() {
-        this.cancelledJobs++;
+    public void addCancelled() {
+        this.cancelledJobs.increment();
     }
 }
@@ -27,6 +27,7 @@ import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.event.impl.jobs.JobImpl;
 import org.apache.sling.event.impl.jobs.JobTopicTraverser;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
 import org.apache.sling.event.jobs.Job;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +54,26 @@ public class FindUnfinishedJobsTask {
 
     public void run() {
         this.initialScan();
+        this.initJournal();
+    }
+
+    /**
+     * Reset started time and increase retry count of unfinished jobs
+     * in the job journal.
+     */
+    private void initJournal() {
+        final JobJournal journal = configuration.getJobJournal();
+        if ( journal != null ) {
+            logger.debug("Scanning job journal for unfinished jobs...");
+            for(final JobImpl job : journal.getJobs(null, false, -1)) {
+                if ( job.getProcessingStarted() != null ) {
+                    job.retry();
+                    if ( !journal.update(job) ) {
+                        logger.error("Unable to update unfinished job {}", job);
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -36,7 +36,8 @@ public interface QueueConfiguration {
         @Deprecated
         IGNORE,             // This queue type is not supported anymore
         @Deprecated
-        DROP                // This queue type is not supported anymore
+        DROP,               // This queue type is not supported anymore
+        WORK_STEALING       // unordered, parallel processing by workers stealing jobs from each other (since 1.7)
     }
 
     /**
@@ -123,4 +124,12 @@ public interface QueueConfiguration {
      * @since 1.4
      */
     boolean isPreferRunOnCreationInstance();
+
+    /**
+     * The maximum number of jobs of the same topic handed to a
+     * {@link org.apache.sling.event.jobs.consumer.BatchJobExecutor} at once.
+     * @return A positive number, <code>1</code> disables batch processing.
+     * @since 1.7
+     */
+    int getBatchSize();
 }
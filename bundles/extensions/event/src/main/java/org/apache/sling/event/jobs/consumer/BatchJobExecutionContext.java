@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.jobs.consumer;
+
+import org.apache.sling.event.jobs.Job;
+
+import aQute.bnd.annotation.ProviderType;
+
+/**
+ * The execution context passed to a {@link BatchJobExecutor}.
+ *
+ * @since 1.3
+ */
+@ProviderType
+public interface BatchJobExecutionContext {
+
+    /**
+     * Get the execution context of a single job of the batch.
+     * This context can be used to report progress, to log and to
+     * build the result of that job.
+     * @param job A job of the batch
+     * @return The context of the job
+     * @throws IllegalArgumentException If the job is not part of the batch
+     */
+    JobExecutionContext getJobContext(final Job job);
+
+    /**
+     * If one of the jobs of the batch has been stopped, this method returns <code>true</code>.
+     * Use {@link JobExecutionContext#isStopped()} of the job context to check a single job.
+     * @return Whether any job of the batch has been stopped
+     */
+    boolean isStopped();
+
+    /**
+     * Build a result for the batch.
+     * @return The builder
+     */
+    BatchResultBuilder result();
+
+    public interface BatchResultBuilder {
+
+        /**
+         * Set the result of a single job.
+         * @param job A job of the batch
+         * @param result The result, created by the job context of the job
+         */
+        BatchResultBuilder result(final Job job, final JobExecutionResult result);
+
+        /**
+         * All jobs without an explicit result finished successfully.
+         */
+        BatchJobExecutionResult succeeded();
+
+        /**
+         * All jobs without an explicit result failed and might be retried.
+         */
+        BatchJobExecutionResult failed();
+
+        /**
+         * All jobs without an explicit result failed permanently.
+         */
+        BatchJobExecutionResult cancelled();
+    }
+}
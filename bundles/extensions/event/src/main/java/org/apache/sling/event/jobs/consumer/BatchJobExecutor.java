@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.jobs.consumer;
+
+import java.util.List;
+
+import org.apache.sling.event.jobs.Job;
+
+import aQute.bnd.annotation.ConsumerType;
+
+/**
+ * A batch job executor consumes several jobs of the same topic at once.
+ * <p>
+ * A batch job executor is registered as a {@link JobExecutor} service, the
+ * topic matching and the selection of the executor are exactly the same.
+ * If the queue of a job is configured with a batch size greater than one
+ * (see {@link org.apache.sling.event.jobs.QueueConfiguration#getBatchSize()}),
+ * up to this number of queued jobs of the same topic are handed to
+ * {@link #process(List, BatchJobExecutionContext)} in a single call. Otherwise
+ * each job is processed on its own by {@link JobExecutor#process(Job, JobExecutionContext)}.
+ * <p>
+ * The jobs are passed in the order of the queue. For an ordered queue, the executor
+ * should not process jobs following a failed job in the same batch but report them
+ * as failed as well, so they are retried in order.
+ * <p>
+ * Batch processing is always synchronous: the executor must return a result
+ * for the batch; it must not call {@link JobExecutionContext#asyncProcessingFinished(JobExecutionResult)}.
+ *
+ * @since 1.3
+ */
+@ConsumerType
+public interface BatchJobExecutor extends JobExecutor {
+
+    /**
+     * Execute a batch of jobs.
+     *
+     * The result for each job is set with the builder available from
+     * {@link BatchJobExecutionContext#result()}, for example
+     * <code>context.result().result(job, context.getJobContext(job).result().failed()).succeeded()</code>
+     * marks a single job as failed and all other jobs of the batch as succeeded.
+     *
+     * If the processing fails with throwing an exception/throwable or returns <code>null</code>,
+     * the jobs will not be rescheduled and are treated as cancelled.
+     *
+     * @param jobs The jobs, all of the same topic.
+     * @param context The execution context for the batch.
+     * @return The execution result for the batch.
+     */
+    BatchJobExecutionResult process(List<Job> jobs, BatchJobExecutionContext context);
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 10000;
+
+    private Map<String, Integer> createNodes(final int instances, final int virtualNodes) {
+        final Map<String, Integer> nodes = new HashMap<String, Integer>();
+        for(int i = 0; i < instances; i++) {
+            nodes.put("instance-" + i, virtualNodes);
+        }
+        return nodes;
+    }
+
+    private Map<String, Integer> count(final ConsistentHashRing ring) {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for(int i = 0; i < KEYS; i++) {
+            final String target = ring.getTarget("job-" + i);
+            final Integer old = counts.get(target);
+            counts.put(target, old == null ? 1 : old + 1);
+        }
+        return counts;
+    }
+
+    @Test public void testEmptyRing() {
+        assertNull(new ConsistentHashRing(Collections.<String, Integer>emptyMap()).getTarget("job"));
+    }
+
+    @Test public void testDistribution() {
+        final Map<String, Integer> counts = this.count(new ConsistentHashRing(this.createNodes(4, ConsistentHashRing.VIRTUAL_NODES)));
+        assertEquals(4, counts.size());
+        for(final Integer c : counts.values()) {
+            // each instance gets roughly a quarter of the keys
+            assertTrue(c > KEYS / 8 && c < KEYS / 2);
+        }
+    }
+
+    @Test public void testMinimalReassignment() {
+        final Map<String, Integer> nodes = this.createNodes(12, ConsistentHashRing.VIRTUAL_NODES);
+        final ConsistentHashRing before = new ConsistentHashRing(nodes);
+        nodes.remove("instance-5");
+        final ConsistentHashRing after = new ConsistentHashRing(nodes);
+
+        for(int i = 0; i < KEYS; i++) {
+            final String key = "job-" + i;
+            final String oldTarget = before.getTarget(key);
+            if ( !"instance-5".equals(oldTarget) ) {
+                // only the keys of the removed instance move
+                assertEquals(oldTarget, after.getTarget(key));
+            }
+        }
+    }
+
+    @Test public void testWeights() {
+        final Map<String, Integer> nodes = this.createNodes(2, ConsistentHashRing.VIRTUAL_NODES);
+        nodes.put("instance-0", ConsistentHashRing.VIRTUAL_NODES / 4);
+        final Map<String, Integer> counts = this.count(new ConsistentHashRing(nodes));
+        assertTrue(counts.get("instance-0") < counts.get("instance-1"));
+    }
+}
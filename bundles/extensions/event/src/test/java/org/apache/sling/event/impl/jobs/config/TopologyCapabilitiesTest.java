@@ -21,10 +21,17 @@ package org.apache.sling.event.impl.jobs.config;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.sling.discovery.ClusterView;
 import org.apache.sling.discovery.InstanceDescription;
 import org.apache.sling.discovery.TopologyView;
+import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager.QueueInfo;
+import org.apache.sling.event.impl.support.ResourceHelper;
+import org.apache.sling.event.jobs.QueueConfiguration;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -68,4 +75,93 @@ public class TopologyCapabilitiesTest {
         assertEquals(0, caps.getPotentialTargets("x/y", null).size());
         assertEquals(1, caps.getPotentialTargets("d/1/2", null).size());
     }
+
+    private InstanceDescription createInstance(final ClusterView cv, final String id, final int queuedJobs) {
+        final InstanceDescription desc = Mockito.mock(InstanceDescription.class);
+        Mockito.when(desc.getSlingId()).thenReturn(id);
+        Mockito.when(desc.getProperty(TopologyCapabilities.PROPERTY_TOPICS)).thenReturn("foo");
+        Mockito.when(desc.getProperty(TopologyCapabilities.PROPERTY_QUEUED_JOBS)).thenReturn(String.valueOf(queuedJobs));
+        Mockito.when(desc.getClusterView()).thenReturn(cv);
+        return desc;
+    }
+
+    private TopologyView createView(final int... queuedJobs) {
+        final ClusterView cv = Mockito.mock(ClusterView.class);
+        Mockito.when(cv.getId()).thenReturn("cluster");
+        final Set<InstanceDescription> instances = new LinkedHashSet<InstanceDescription>();
+        for(int i=0; i<queuedJobs.length; i++) {
+            instances.add(createInstance(cv, "instance" + i, queuedJobs[i]));
+        }
+        final TopologyView tv = Mockito.mock(TopologyView.class);
+        Mockito.when(tv.getInstances()).thenReturn(instances);
+        Mockito.when(tv.getLocalInstance()).thenReturn(instances.iterator().next());
+        return tv;
+    }
+
+    @Test public void testLoadLevelHysteresis() {
+        final Map<String, Integer> loads = new HashMap<String, Integer>();
+        loads.put("a", 100);
+        loads.put("b", 100);
+        final Map<String, Integer> levels = TopologyCapabilities.getLoadLevels(loads, Collections.<String, Integer>emptyMap());
+        assertEquals(Integer.valueOf(0), levels.get("a"));
+        assertEquals(Integer.valueOf(0), levels.get("b"));
+
+        // just beyond the middle between two levels: no change
+        loads.put("a", 70);
+        loads.put("b", 130);
+        assertEquals(levels, TopologyCapabilities.getLoadLevels(loads, levels));
+
+        // clearly in another level
+        loads.put("a", 10);
+        loads.put("b", 190);
+        final Map<String, Integer> newLevels = TopologyCapabilities.getLoadLevels(loads, levels);
+        assertEquals(Integer.valueOf(1), newLevels.get("a"));
+        assertEquals(Integer.valueOf(-1), newLevels.get("b"));
+
+        // bounded
+        loads.put("a", 0);
+        loads.put("b", 100000);
+        loads.put("c", 0);
+        loads.put("d", 0);
+        final Map<String, Integer> boundLevels = TopologyCapabilities.getLoadLevels(loads, newLevels);
+        assertEquals(Integer.valueOf(TopologyCapabilities.MAX_LOAD_LEVEL), boundLevels.get("a"));
+        assertEquals(Integer.valueOf(TopologyCapabilities.MIN_LOAD_LEVEL), boundLevels.get("b"));
+    }
+
+    @Test public void testExistingJobsIgnoreLoad() {
+        final JobManagerConfiguration config = Mockito.mock(JobManagerConfiguration.class);
+        final TopologyCapabilities loadCaps = new TopologyCapabilities(createView(10, 10, 10), config);
+
+        final InternalQueueConfiguration queueConfig = Mockito.mock(InternalQueueConfiguration.class);
+        Mockito.when(queueConfig.getType()).thenReturn(QueueConfiguration.Type.UNORDERED);
+        final QueueInfo info = new QueueInfo();
+        info.queueConfiguration = queueConfig;
+        info.queueName = "queue";
+
+        final Map<String, String> targets = new HashMap<String, String>();
+        for(int i=0; i<100; i++) {
+            final Map<String, Object> props = new HashMap<String, Object>();
+            props.put(ResourceHelper.PROPERTY_JOB_ID, "job_" + i);
+            targets.put("job_" + i, loadCaps.detectTarget("foo", props, info));
+        }
+
+        // the load changes drastically, existing jobs must stay where they are
+        loadCaps.updateLoads(createView(0, 1000, 10));
+        for(int i=0; i<100; i++) {
+            final Map<String, Object> props = new HashMap<String, Object>();
+            props.put(ResourceHelper.PROPERTY_JOB_ID, "job_" + i);
+            assertEquals(targets.get("job_" + i), loadCaps.detectTarget("foo", props, info));
+        }
+
+        // new jobs prefer the instance with the lowest load
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for(int i=0; i<300; i++) {
+            final String target = loadCaps.detectTarget("foo", null, info);
+            final Integer count = counts.get(target);
+            counts.put(target, count == null ? 1 : count + 1);
+        }
+        final int low = counts.get("instance0") == null ? 0 : counts.get("instance0");
+        final int high = counts.get("instance1") == null ? 0 : counts.get("instance1");
+        assertEquals(true, low > high);
+    }
 }
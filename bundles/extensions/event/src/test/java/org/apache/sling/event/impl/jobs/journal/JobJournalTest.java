@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.event.impl.jobs.JobImpl;
+import org.apache.sling.event.jobs.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JobJournalTest {
+
+    private static final String TOPIC = "sling/test";
+
+    private File directory;
+
+    private JobJournal journal;
+
+    @Before public void setup() throws IOException {
+        this.directory = File.createTempFile("journal", "");
+        this.directory.delete();
+        this.journal = this.open(4096);
+    }
+
+    @After public void cleanup() {
+        this.journal.close();
+        final File[] files = this.directory.listFiles();
+        if ( files != null ) {
+            for(final File f : files) {
+                f.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private JobJournal open(final long segmentSize) throws IOException {
+        final JobJournal j = new JobJournal(this.directory, segmentSize);
+        j.open();
+        return j;
+    }
+
+    private JobJournal reopen() throws IOException {
+        this.journal.close();
+        this.journal = this.open(4096);
+        return this.journal;
+    }
+
+    private JobImpl add(final String jobId) throws IOException {
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Job.PROPERTY_JOB_CREATED, Calendar.getInstance());
+        props.put(Job.PROPERTY_JOB_RETRY_COUNT, 0);
+        props.put("text", "hello " + jobId);
+        props.put("tags", new String[] {"a", "b"});
+        props.put("size", 5L);
+        return this.journal.add(TOPIC, null, jobId, props);
+    }
+
+    @Test public void testAddAndReplay() throws IOException {
+        final JobImpl job = this.add("2014/1/1/app_1");
+        assertTrue(JobJournal.isJournalPath(job.getResourcePath()));
+
+        this.reopen();
+        final JobImpl read = this.journal.getJob("2014/1/1/app_1");
+        assertNotNull(read);
+        assertEquals(TOPIC, read.getTopic());
+        assertEquals("hello 2014/1/1/app_1", read.getProperty("text"));
+        assertEquals(5L, read.getProperty("size"));
+        assertEquals(0, read.getRetryCount());
+        assertArrayEquals(new String[] {"a", "b"}, read.getProperty("tags", String[].class));
+        assertEquals(job.getCreated().getTimeInMillis(), read.getCreated().getTimeInMillis());
+    }
+
+    @Test public void testUpdateAndRemove() throws IOException {
+        final JobImpl job = this.add("2014/1/1/app_1");
+        this.add("2014/1/1/app_2");
+
+        job.retry();
+        job.getProperties().put(Job.PROPERTY_JOB_STARTED_TIME, Calendar.getInstance());
+        assertTrue(this.journal.update(job));
+        assertTrue(this.journal.remove("2014/1/1/app_2"));
+        assertFalse(this.journal.remove("2014/1/1/app_2"));
+
+        this.reopen();
+        assertNull(this.journal.getJob("2014/1/1/app_2"));
+        final JobImpl read = this.journal.getJob("2014/1/1/app_1");
+        assertEquals(1, read.getRetryCount());
+        assertNotNull(read.getProcessingStarted());
+        assertTrue(this.journal.getJobs(TOPIC, true, -1).isEmpty());
+        assertEquals(1, this.journal.getJobs(TOPIC, false, -1).size());
+    }
+
+    @Test public void testUnsupportedProperties() {
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put("text", "hello");
+        props.put("state", Job.JobState.QUEUED);
+        assertTrue(JobJournal.isSupported(props));
+        props.put("object", new Object());
+        assertFalse(JobJournal.isSupported(props));
+    }
+
+    @Test public void testOrderAndLimit() throws IOException {
+        for(int i = 0; i < 5; i++) {
+            this.add("2014/1/1/app_" + i);
+        }
+        final List<JobImpl> jobs = this.journal.getJobs(TOPIC, true, 3);
+        assertEquals(3, jobs.size());
+        assertEquals("2014/1/1/app_0", jobs.get(0).getId());
+        assertEquals("2014/1/1/app_2", jobs.get(2).getId());
+    }
+
+    @Test public void testSegmentsAndCompaction() throws IOException {
+        for(int i = 0; i < JobJournal.COMPACTION_MIN_RECORDS + 10; i++) {
+            this.add("2014/1/1/app_" + i);
+        }
+        assertTrue(this.journal.getSegmentCount() > 1);
+        assertFalse(this.journal.compactIfNeeded());
+
+        for(int i = 0; i < JobJournal.COMPACTION_MIN_RECORDS; i++) {
+            this.journal.remove("2014/1/1/app_" + i);
+        }
+        assertTrue(this.journal.compactIfNeeded());
+        assertEquals(1, this.journal.getSegmentCount());
+
+        this.reopen();
+        assertEquals(10, this.journal.getJobs(TOPIC, false, -1).size());
+        assertNotNull(this.journal.getJob("2014/1/1/app_" + JobJournal.COMPACTION_MIN_RECORDS));
+        this.add("2014/1/2/app_1");
+        this.reopen();
+        assertEquals(11, this.journal.getJobs(TOPIC, false, -1).size());
+    }
+
+    @Test public void testCompactionForcesAllSegments() throws IOException {
+        final List<MappedByteBuffer> forced = new ArrayList<MappedByteBuffer>();
+        this.journal.close();
+        this.journal = new JobJournal(this.directory, 4096) {
+
+            @Override
+            void forceSegment(final MappedByteBuffer segment) {
+                forced.add(segment);
+                super.forceSegment(segment);
+            }
+        };
+        this.journal.open();
+        for(int i = 0; i < 100; i++) {
+            this.add("2014/1/1/app_" + i);
+        }
+
+        forced.clear();
+        this.journal.compact();
+        // the compacted jobs span several segments, each of them is forced
+        final int segments = this.journal.getSegmentCount();
+        assertTrue(segments > 1);
+        assertEquals(segments, forced.size());
+        assertEquals(segments, this.directory.list().length);
+
+        this.reopen();
+        assertEquals(100, this.journal.getJobs(TOPIC, false, -1).size());
+    }
+
+    @Test public void testIncompleteRecord() throws IOException {
+        this.add("2014/1/1/app_1");
+        this.add("2014/1/1/app_2");
+        this.journal.close();
+
+        // simulate a crash while writing the second record
+        final File segment = new File(this.directory, JobJournal.getSegmentName(1));
+        final RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            final int firstLength = raf.readInt();
+            raf.seek(8 + firstLength + 8 + 4);
+            raf.writeInt(0xCAFE);
+        } finally {
+            raf.close();
+        }
+
+        this.journal = this.open(4096);
+        assertNotNull(this.journal.getJob("2014/1/1/app_1"));
+        assertNull(this.journal.getJob("2014/1/1/app_2"));
+
+        // new records overwrite the incomplete one
+        this.add("2014/1/1/app_3");
+        this.reopen();
+        assertNotNull(this.journal.getJob("2014/1/1/app_1"));
+        assertNotNull(this.journal.getJob("2014/1/1/app_3"));
+    }
+
+    @Test public void testTopicIndex() throws IOException {
+        final JobImpl job = this.add("2014/1/1/app_1");
+        this.add("2014/1/1/app_2");
+        assertEquals(Collections.singleton(TOPIC), this.journal.getTopics());
+
+        job.getProperties().put(Job.PROPERTY_JOB_STARTED_TIME, Calendar.getInstance());
+        assertTrue(this.journal.update(job));
+        assertEquals(2, this.journal.getJobs(TOPIC, false, -1).size());
+        assertEquals(1, this.journal.getJobs(TOPIC, true, -1).size());
+        assertEquals("2014/1/1/app_2", this.journal.getJobs(TOPIC, true, 1).get(0).getId());
+        assertEquals(2, this.journal.getJobs(null, false, -1).size());
+        assertTrue(this.journal.getJobs("sling/other", false, -1).isEmpty());
+
+        this.journal.remove("2014/1/1/app_1");
+        this.journal.remove("2014/1/1/app_2");
+        assertTrue(this.journal.getTopics().isEmpty());
+        assertTrue(this.journal.getJobs(TOPIC, false, -1).isEmpty());
+    }
+
+    @Test public void testConcurrentAdds() throws Exception {
+        final List<Thread> threads = new ArrayList<Thread>();
+        for(int t = 0; t < 4; t++) {
+            final int index = t;
+            threads.add(new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        for(int i = 0; i < 50; i++) {
+                            add("2014/1/1/app_" + index + "_" + i);
+                        }
+                    } catch ( final IOException ioe ) {
+                        throw new RuntimeException(ioe);
+                    }
+                }
+            });
+        }
+        for(final Thread t : threads) {
+            t.start();
+        }
+        for(final Thread t : threads) {
+            t.join();
+        }
+        this.reopen();
+        assertEquals(200, this.journal.getJobs(TOPIC, false, -1).size());
+    }
+
+    @Test public void testHasSegments() throws IOException {
+        this.add("2014/1/1/app_1");
+        assertTrue(JobJournal.hasSegments(this.directory));
+        final File empty = File.createTempFile("journal", "");
+        empty.delete();
+        empty.mkdirs();
+        try {
+            assertFalse(JobJournal.hasSegments(empty));
+        } finally {
+            empty.delete();
+        }
+    }
+}
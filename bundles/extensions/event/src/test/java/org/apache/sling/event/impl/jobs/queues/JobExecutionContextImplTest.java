@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.sling.event.impl.jobs.JobHandler;
+import org.apache.sling.event.impl.jobs.JobImpl;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.consumer.JobExecutor;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class JobExecutionContextImplTest {
+
+    private JobHandler createHandler() {
+        final JobImpl job = new JobImpl("topic", null, "2015/1/1/1/1/id_1", new HashMap<String, Object>());
+        return new JobHandler(job, Mockito.mock(JobExecutor.class), null);
+    }
+
+    @Test public void testAsyncFinished() {
+        final AtomicReference<Job.JobState> state = new AtomicReference<Job.JobState>();
+        final JobExecutionContextImpl ctx = new JobExecutionContextImpl(createHandler(), new JobExecutionContextImpl.ASyncHandler() {
+
+            @Override
+            public void finished(final Job.JobState s) {
+                state.set(s);
+            }
+        });
+        ctx.markAsync();
+        ctx.asyncProcessingFinished(ctx.result().succeeded());
+        assertEquals(Job.JobState.SUCCEEDED, state.get());
+    }
+
+    @Test public void testBatchContextRejectsAsyncResult() {
+        final JobExecutionContextImpl ctx = new JobExecutionContextImpl(createHandler(), null);
+        try {
+            ctx.asyncProcessingFinished(ctx.result().succeeded());
+            fail("Batch job context must not accept an async result");
+        } catch ( final IllegalStateException expected ) {
+            assertTrue(expected.getMessage().contains("batch"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBatchContextCannotBeAsync() {
+        new JobExecutionContextImpl(createHandler(), null).markAsync();
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.event.impl.jobs.JobConsumerManager;
+import org.apache.sling.event.impl.jobs.JobHandler;
+import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.jobs.journal.JobJournal;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.Queue;
+import org.apache.sling.event.jobs.QueueConfiguration;
+import org.apache.sling.event.jobs.consumer.BatchJobExecutor;
+import org.apache.sling.event.jobs.consumer.JobExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class QueueJobCacheTest {
+
+    private File directory;
+
+    private JobJournal journal;
+
+    private JobManagerConfiguration configuration;
+
+    private JobConsumerManager consumerManager;
+
+    private Queue queue;
+
+    private long created = System.currentTimeMillis();
+
+    @Before public void setup() throws IOException {
+        this.directory = File.createTempFile("journal", "");
+        this.directory.delete();
+        this.journal = new JobJournal(this.directory, 4096);
+        this.journal.open();
+
+        this.configuration = Mockito.mock(JobManagerConfiguration.class);
+        Mockito.when(this.configuration.getJobJournal()).thenReturn(this.journal);
+        Mockito.when(this.configuration.getLocalJobsPath()).thenReturn("/var/eventing/jobs/assigned/test");
+        Mockito.when(this.configuration.createResourceResolver()).thenAnswer(new Answer<ResourceResolver>() {
+
+            @Override
+            public ResourceResolver answer(final InvocationOnMock invocation) {
+                return Mockito.mock(ResourceResolver.class);
+            }
+        });
+
+        this.consumerManager = Mockito.mock(JobConsumerManager.class);
+        Mockito.when(this.consumerManager.getExecutor(Mockito.anyString())).thenReturn(Mockito.mock(JobExecutor.class));
+
+        final QueueConfiguration queueConfig = Mockito.mock(QueueConfiguration.class);
+        Mockito.when(queueConfig.getMaxRetries()).thenReturn(10);
+        this.queue = Mockito.mock(Queue.class);
+        Mockito.when(this.queue.getName()).thenReturn("test");
+        Mockito.when(this.queue.getConfiguration()).thenReturn(queueConfig);
+    }
+
+    @After public void cleanup() {
+        this.journal.close();
+        final File[] files = this.directory.listFiles();
+        if ( files != null ) {
+            for(final File f : files) {
+                f.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private String add(final String topic, final int counter) throws IOException {
+        final String jobId = "2014/1/1/app_" + counter;
+        final Map<String, Object> props = new HashMap<String, Object>();
+        final Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(created++);
+        props.put(Job.PROPERTY_JOB_CREATED, cal);
+        props.put(Job.PROPERTY_JOB_RETRY_COUNT, 0);
+        this.journal.add(topic, null, jobId, props);
+        return jobId;
+    }
+
+    private String next(final QueueJobCache cache) {
+        final JobHandler handler = cache.getNextJob(this.consumerManager, this.queue);
+        return handler == null ? null : handler.getJob().getId();
+    }
+
+    @Test public void testLoadAndOrder() throws IOException {
+        final String id1 = this.add("a", 1);
+        final String id2 = this.add("b", 2);
+        final String id3 = this.add("a", 3);
+
+        final Set<String> topics = new HashSet<String>();
+        topics.add("a");
+        topics.add("b");
+        final QueueJobCache cache = new QueueJobCache(this.configuration, QueueConfiguration.Type.ORDERED, topics);
+        assertEquals(3, cache.getQueuedJobCount());
+
+        assertEquals(id1, this.next(cache));
+        assertEquals(id2, this.next(cache));
+        assertEquals(id3, this.next(cache));
+        assertNull(this.next(cache));
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test public void testRoundRobin() throws IOException {
+        final String id1 = this.add("a", 1);
+        final String id2 = this.add("a", 2);
+        final String id3 = this.add("b", 3);
+
+        final Set<String> topics = new HashSet<String>();
+        topics.add("a");
+        topics.add("b");
+        final QueueJobCache cache = new QueueJobCache(this.configuration, QueueConfiguration.Type.TOPIC_ROUND_ROBIN, topics);
+
+        assertEquals(id1, this.next(cache));
+        assertEquals(id3, this.next(cache));
+        assertEquals(id2, this.next(cache));
+        assertNull(this.next(cache));
+    }
+
+    @Test public void testNewJobs() throws IOException {
+        final QueueJobCache cache = new QueueJobCache(this.configuration, QueueConfiguration.Type.UNORDERED,
+                Collections.singleton("a"));
+        assertTrue(cache.isEmpty());
+
+        final String id1 = this.add("a", 1);
+        final String id2 = this.add("c", 2);
+        cache.handleNewJob("a", id1);
+        cache.handleNewJob("c", id2);
+        assertEquals(2, cache.getQueuedJobCount());
+        assertTrue(cache.getTopics().contains("c"));
+
+        assertEquals(id1, this.next(cache));
+        // a started job is not added again
+        cache.handleNewJob("a", id1);
+        assertEquals(id2, this.next(cache));
+        assertNull(this.next(cache));
+        assertEquals(0, cache.getQueuedJobCount());
+    }
+
+    @Test public void testBatch() throws IOException {
+        final String id1 = this.add("a", 1);
+        final String id2 = this.add("b", 2);
+        final String id3 = this.add("a", 3);
+        final String id4 = this.add("a", 4);
+        final String id5 = this.add("a", 5);
+
+        final Set<String> topics = new HashSet<String>();
+        topics.add("a");
+        topics.add("b");
+        final QueueJobCache cache = new QueueJobCache(this.configuration, QueueConfiguration.Type.UNORDERED, topics);
+
+        // no batch executor: single jobs
+        final List<JobHandler> single = cache.getNextJobs(this.consumerManager, this.queue, 3);
+        assertEquals(1, single.size());
+        assertEquals(id1, single.get(0).getJob().getId());
+
+        // batches only contain jobs of the same topic
+        Mockito.when(this.consumerManager.getExecutor(Mockito.anyString())).thenReturn(Mockito.mock(BatchJobExecutor.class));
+        final List<JobHandler> batch = cache.getNextJobs(this.consumerManager, this.queue, 2);
+        assertEquals(1, batch.size());
+        assertEquals(id2, batch.get(0).getJob().getId());
+
+        final List<JobHandler> next = cache.getNextJobs(this.consumerManager, this.queue, 2);
+        assertEquals(2, next.size());
+        assertEquals(id3, next.get(0).getJob().getId());
+        assertEquals(id4, next.get(1).getJob().getId());
+
+        final List<JobHandler> last = cache.getNextJobs(this.consumerManager, this.queue, 5);
+        assertEquals(1, last.size());
+        assertEquals(id5, last.get(0).getJob().getId());
+        assertTrue(cache.getNextJobs(this.consumerManager, this.queue, 5).isEmpty());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test public void testBoundedCache() throws IOException {
+        final String id1 = this.add("a", 1);
+        final String id2 = this.add("a", 2);
+        final String id3 = this.add("a", 3);
+
+        final QueueJobCache cache = new QueueJobCache(this.configuration, QueueConfiguration.Type.ORDERED,
+                Collections.singleton("a"), 2, QueueJobCache.DEFAULT_IDLE_SCAN_INTERVAL);
+        assertEquals(2, cache.getQueuedJobCount());
+
+        // the notification does not grow the cache
+        final String id4 = this.add("a", 4);
+        cache.handleNewJob("a", id4);
+        assertEquals(id1, this.next(cache));
+        assertEquals(1, cache.getQueuedJobCount());
+
+        // the topic is scanned again once the cached jobs are processed
+        assertEquals(id2, this.next(cache));
+        assertEquals(id3, this.next(cache));
+        assertEquals(id4, this.next(cache));
+        assertNull(this.next(cache));
+    }
+
+    @Test public void testIdleScan() throws Exception {
+        final QueueJobCache cache = new QueueJobCache(this.configuration, QueueConfiguration.Type.UNORDERED,
+                Collections.singleton("a"), QueueJobCache.DEFAULT_MAX_CACHED_JOBS, 50);
+
+        // a job without a notification is only found by an idle scan
+        final List<String> ids = new ArrayList<String>();
+        for(int i = 0; i < QueueJobCache.IDLE_SCAN_JOBS + 2; i++) {
+            ids.add(this.add("a", i));
+        }
+        assertNull(this.next(cache));
+        assertFalse(cache.scanIfIdle());
+
+        Thread.sleep(60);
+        assertTrue(cache.scanIfIdle());
+        // rate limited
+        assertFalse(cache.scanIfIdle());
+
+        // the scan is bounded, the remaining jobs are loaded once these are processed
+        assertEquals(ids.get(0), this.next(cache));
+        assertEquals(QueueJobCache.IDLE_SCAN_JOBS - 1, cache.getQueuedJobCount());
+        for(int i = 1; i < ids.size(); i++) {
+            assertEquals(ids.get(i), this.next(cache));
+        }
+        assertNull(this.next(cache));
+    }
+
+    @Test public void testNoIdleScanWithCachedJobs() throws Exception {
+        this.add("a", 1);
+        final QueueJobCache cache = new QueueJobCache(this.configuration, QueueConfiguration.Type.UNORDERED,
+                Collections.singleton("a"), QueueJobCache.DEFAULT_MAX_CACHED_JOBS, 0);
+        assertFalse(cache.scanIfIdle());
+        this.next(cache);
+        assertTrue(cache.scanIfIdle());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.event.impl.jobs.JobImpl;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class WorkStealingPoolTest {
+
+    private static final int MAX_WORKERS = 4;
+
+    private final Queue<JobImpl> jobs = new ConcurrentLinkedQueue<JobImpl>();
+
+    private final Set<String> processed = Collections.synchronizedSet(new HashSet<String>());
+
+    private final AtomicInteger parallel = new AtomicInteger();
+
+    private final AtomicInteger maxParallel = new AtomicInteger();
+
+    private volatile boolean active = true;
+
+    private volatile CountDownLatch latch;
+
+    private final WorkStealingPool.JobSource source = new WorkStealingPool.JobSource() {
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public List<JobImpl> take(final int max) {
+            final List<JobImpl> result = new ArrayList<JobImpl>();
+            JobImpl job;
+            while ( result.size() < max && (job = jobs.poll()) != null ) {
+                result.add(job);
+            }
+            return result;
+        }
+
+        @Override
+        public void process(final JobImpl job) {
+            final int current = parallel.incrementAndGet();
+            int max;
+            while ( (max = maxParallel.get()) < current && !maxParallel.compareAndSet(max, current) ) {
+                // retry
+            }
+            try {
+                Thread.sleep(2);
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(processed.add(job.getId()));
+            parallel.decrementAndGet();
+            latch.countDown();
+        }
+    };
+
+    private ThreadPool createThreadPool() {
+        final ThreadPool threadPool = Mockito.mock(ThreadPool.class);
+        Mockito.doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                new Thread((Runnable)invocation.getArguments()[0]).start();
+                return null;
+            }
+        }).when(threadPool).execute(Mockito.any(Runnable.class));
+        return threadPool;
+    }
+
+    private void addJobs(final int count) {
+        for(int i = 0; i < count; i++) {
+            final String id = "2014/1/1/app_" + this.jobs.size() + "_" + System.nanoTime();
+            this.jobs.add(new JobImpl("sling/test", null, id, new HashMap<String, Object>()));
+        }
+    }
+
+    @Test public void testProcessAllJobs() throws InterruptedException {
+        final WorkStealingPool pool = new WorkStealingPool(this.source, this.createThreadPool(), MAX_WORKERS);
+        this.latch = new CountDownLatch(200);
+        this.addJobs(200);
+        pool.signal();
+
+        assertTrue(this.latch.await(20, TimeUnit.SECONDS));
+        assertEquals(200, this.processed.size());
+        assertEquals(0, pool.getPendingCount());
+        assertTrue(this.maxParallel.get() <= MAX_WORKERS);
+
+        // idle workers stop after the keep alive time
+        final long end = System.currentTimeMillis() + 20 * WorkStealingPool.KEEP_ALIVE;
+        while ( pool.getWorkerCount() > 0 && System.currentTimeMillis() < end ) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, pool.getWorkerCount());
+
+        // new jobs start the workers again
+        this.latch = new CountDownLatch(10);
+        this.addJobs(10);
+        pool.signal();
+        assertTrue(this.latch.await(20, TimeUnit.SECONDS));
+        assertEquals(210, this.processed.size());
+        pool.close();
+    }
+
+    @Test public void testInactiveSource() throws InterruptedException {
+        final WorkStealingPool pool = new WorkStealingPool(this.source, this.createThreadPool(), MAX_WORKERS);
+        this.active = false;
+        this.latch = new CountDownLatch(1);
+        this.addJobs(5);
+        pool.signal();
+
+        assertFalse(this.latch.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(5, this.jobs.size());
+        pool.close();
+    }
+}
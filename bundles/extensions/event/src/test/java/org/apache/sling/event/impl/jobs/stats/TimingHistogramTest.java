@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TimingHistogramTest {
+
+    @Test public void testBuckets() {
+        for(long value = 0; value < 100000; value++) {
+            final long reported = TimingHistogram.getBucketValue(TimingHistogram.getBucket(value));
+            assertTrue("Value " + value + " reported as " + reported, Math.abs(reported - value) <= value / 8 + 1);
+        }
+        assertTrue(TimingHistogram.getBucket(Long.MAX_VALUE) < TimingHistogram.BUCKETS);
+    }
+
+    @Test public void testPercentiles() {
+        final TimingHistogram h = new TimingHistogram();
+        assertEquals(0, h.getPercentile(50));
+        for(int i = 1; i <= 100; i++) {
+            h.record(i);
+        }
+        h.record(-1);
+        assertEquals(100, h.getCount());
+        assertTrue(Math.abs(h.getPercentile(50) - 50) <= 4);
+        assertTrue(Math.abs(h.getPercentile(95) - 95) <= 6);
+        assertTrue(Math.abs(h.getPercentile(99) - 99) <= 6);
+
+        final TimingHistogram copy = new TimingHistogram();
+        copy.add(h);
+        assertEquals(h.getPercentile(95), copy.getPercentile(95));
+
+        h.clear();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getPercentile(99));
+    }
+
+    @Test public void testWindow() throws InterruptedException {
+        final TimingHistogram h = new TimingHistogram(20, 2);
+        h.record(5);
+        assertEquals(1, h.getCount());
+        Thread.sleep(70);
+        assertEquals(0, h.getCount());
+        h.record(500);
+        assertEquals(1, h.getCount());
+        assertTrue(h.getPercentile(50) > 400);
+    }
+
+    @Test public void testStripedCounter() throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        final Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for(int n = 0; n < 1000; n++) {
+                        counter.increment();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(final Thread t : threads) {
+            t.join();
+        }
+        assertEquals(8000, counter.sum());
+        counter.set(5);
+        assertEquals(5, counter.sum());
+    }
+}
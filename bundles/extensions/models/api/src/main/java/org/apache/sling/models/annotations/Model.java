@@ -60,4 +60,11 @@ public @interface Model {
      */
     public ValidationStrategy validation() default ValidationStrategy.DISABLED;
 
+    /**
+     * @return {@code true} if the adapted instances should be cached for the lifetime of the adaptable,
+     *  i.e. for the current request if adapted from a request. Adapting the same adaptable again
+     *  returns the same instance. Only use this for models which don't change after they have been created.
+     */
+    public boolean cache() default false;
+
 }
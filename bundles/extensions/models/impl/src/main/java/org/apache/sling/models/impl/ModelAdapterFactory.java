@@ -42,8 +42,6 @@ import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-import javax.annotation.PostConstruct;
-
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -140,6 +138,11 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     @Property(label = "Maximum Recursion Depth", description = "Maximum depth adaptation will be attempted.", intValue = DEFAULT_MAX_RECURSION_DEPTH)
     private static final String PROP_MAX_RECURSION_DEPTH = "max.recursion.depth";
 
+    private static final int DEFAULT_CACHE_MAX_ADAPTABLES = 10000;
+
+    @Property(label = "Maximum Cached Adaptables", description = "Maximum number of adaptables other than requests for which instances of models with cache=true are cached.", intValue = DEFAULT_CACHE_MAX_ADAPTABLES)
+    private static final String PROP_CACHE_MAX_ADAPTABLES = "cache.max.adaptables";
+
     @Reference(name = "injector", referenceInterface = Injector.class,
             cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC)
     private final Map<Object, Injector> injectors = new TreeMap<Object, Injector>();
@@ -180,6 +183,8 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     // Use threadlocal to count recursive invocations and break recursing if a max. limit is reached (to avoid cyclic dependencies)
     private ThreadLocal<ThreadInvocationCounter> invocationCountThreadLocal;
 
+    private ModelCache modelCache = new ModelCache(DEFAULT_CACHE_MAX_ADAPTABLES);
+
     public <AdapterType> AdapterType getAdapter(Object adaptable, Class<AdapterType> type) {
         Result<AdapterType> result = internalCreateModel(adaptable, type);
         result.logFailures(log);
@@ -270,6 +275,13 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             boolean isAdaptable = false;
 
             Model modelAnnotation = modelClass.getModelAnnotation();
+            if (modelAnnotation.cache()) {
+                ModelType cachedModel = (ModelType) modelCache.get(adaptable, requestedType);
+                if (cachedModel != null) {
+                    result.setModel(cachedModel);
+                    return result;
+                }
+            }
             Class<?>[] declaredAdaptable = modelAnnotation.adaptables();
             for (Class<?> clazz : declaredAdaptable) {
                 if (clazz.isInstance(adaptable)) {
@@ -287,11 +299,17 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                     if (handler != null) {
                         ModelType model = (ModelType) Proxy.newProxyInstance(modelClass.getType().getClassLoader(), new Class<?>[] { modelClass.getType() }, handler);
                         result.setModel(model);
+                        if (modelAnnotation.cache()) {
+                            modelCache.put(adaptable, requestedType, model);
+                        }
                     }
                 } else {
                     try {
                         ModelType model = createObject(adaptable, modelClass, result);
                         result.setModel(model);
+                        if (model != null && modelAnnotation.cache()) {
+                            modelCache.put(adaptable, requestedType, model);
+                        }
                         return result;
                     } catch (Exception e) {
                         result.addFailure(FailureType.OTHER, "Unable to create object", e);
@@ -386,7 +404,6 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             final InjectCallback callback, Result<?> result) {
 
         InjectAnnotationProcessor annotationProcessor = null;
-        String source = element.getSource();
         boolean wasInjectionSuccessful = false;
 
         // find an appropriate annotation processor
@@ -409,15 +426,13 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         Object injectionAdaptable = getAdaptable(adaptable, element, annotationProcessor);
 
         if (injectionAdaptable != null) {
-            // find the right injector
-            for (Injector injector : sortedInjectors) {
-                if (source == null || source.equals(injector.getName())) {
-                    if (name != null || injector instanceof AcceptsNullName) {
-                        Object value = injector.getValue(injectionAdaptable, name, element.getType(), element.getAnnotatedElement(), registry);
-                        if (callback.inject(element, value, result)) {
-                            wasInjectionSuccessful = true;
-                            break;
-                        }
+            // find the right injector - the injectors matching the source are selected once per element
+            for (Injector injector : element.getInjectors(sortedInjectors)) {
+                if (name != null || injector instanceof AcceptsNullName) {
+                    Object value = injector.getValue(injectionAdaptable, name, element.getType(), element.getAnnotatedElement(), registry);
+                    if (callback.inject(element, value, result)) {
+                        wasInjectionSuccessful = true;
+                        break;
                     }
                 }
             }
@@ -523,7 +538,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             return null;
         }
         try {
-            invokePostConstruct(object);
+            invokePostConstruct(object, modelClass);
             return object;
         } catch (InvocationTargetException e) {
             result.addFailure(FailureType.FAILED_CALLING_POST_CONSTRUCT, e.getCause());
@@ -671,43 +686,10 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return element.getName();
     }
 
-    private boolean addMethodIfNotOverriden(List<Method> methods, Method newMethod) {
-        for (Method method : methods) {
-            if (method.getName().equals(newMethod.getName())) {
-                if (Arrays.equals(method.getParameterTypes(),newMethod.getParameterTypes())) {
-                    return false;
-                }
-            }
-        }
-        methods.add(newMethod);
-        return true;
-    }
-
-    private void invokePostConstruct(Object object) throws InvocationTargetException, IllegalAccessException {
-        Class<?> clazz = object.getClass();
-        List<Method> postConstructMethods = new ArrayList<Method>();
-        while (clazz != null) {
-            Method[] methods = clazz.getDeclaredMethods();
-            for (Method method : methods) {
-                if (method.isAnnotationPresent(PostConstruct.class)) {
-                    addMethodIfNotOverriden(postConstructMethods, method);
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        Collections.reverse(postConstructMethods);
-        for (Method method : postConstructMethods) {
-            boolean accessible = method.isAccessible();
-            try {
-                if (!accessible) {
-                    method.setAccessible(true);
-                }
-                method.invoke(object);
-            } finally {
-                if (!accessible) {
-                    method.setAccessible(false);
-                }
-            }
+    private void invokePostConstruct(Object object, ModelClass<?> modelClass) throws InvocationTargetException, IllegalAccessException {
+        // the methods are collected and made accessible once per model class
+        for (Method method : modelClass.getPostConstructMethods()) {
+            method.invoke(object);
         }
     }
 
@@ -719,20 +701,13 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             if (value == null) {
                 return false;
             }
-            boolean accessible = field.isAccessible();
+            // the field has been made accessible once by the injectable field
             try {
-                if (!accessible) {
-                    field.setAccessible(true);
-                }
                 field.set(createdObject, value);
                 return true;
             } catch (Exception e) {
                 log.error("unable to inject field", e);
                 return false;
-            } finally {
-                if (!accessible) {
-                    field.setAccessible(false);
-                }
             }
         } else {
             return false;
@@ -854,6 +829,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     protected void activate(final ComponentContext ctx) {
         Dictionary<?, ?> props = ctx.getProperties();
         final int maxRecursionDepth = PropertiesUtil.toInteger(props.get(PROP_MAX_RECURSION_DEPTH), DEFAULT_MAX_RECURSION_DEPTH);
+        this.modelCache = new ModelCache(PropertiesUtil.toInteger(props.get(PROP_CACHE_MAX_ADAPTABLES), DEFAULT_CACHE_MAX_ADAPTABLES));
         this.invocationCountThreadLocal = new ThreadLocal<ThreadInvocationCounter>() {
             @Override
             protected ThreadInvocationCounter initialValue() {
@@ -889,6 +865,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     protected void deactivate() {
         this.listener.unregisterAll();
         this.adapterImplementations.removeAll();
+        this.modelCache.clear();
         if (jobRegistration != null) {
             jobRegistration.unregister();
             jobRegistration = null;
@@ -984,6 +961,10 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return staticInjectAnnotationProcessorFactories.values();
     }
 
+    ModelCache getModelCache() {
+        return modelCache;
+    }
+
     ImplementationPicker[] getImplementationPickers() {
         return adapterImplementations.getImplementationPickers();
     }
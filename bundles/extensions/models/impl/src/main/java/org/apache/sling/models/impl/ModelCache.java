@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletRequest;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+
+/**
+ * Cache for the instances of models with {@code @Model(cache = true)}.
+ * <p>
+ * Models adapted from a request are stored in a request attribute and live as long as the request.
+ * As the current resource of a Sling request changes with includes, they are cached per resource.
+ * Models adapted from other adaptables, e.g. resources, are stored in a map weakly keyed by the identity
+ * of the adaptable, so adaptables which are equal but different instances, e.g. value maps, don't share
+ * models and changes of mutable adaptables don't affect the lookup. As a model often references its
+ * adaptable, these models are only softly referenced and the number of adaptables is limited: once the
+ * limit is reached, the models of the least recently used adaptable are removed.
+ */
+class ModelCache {
+
+    static final String REQUEST_CACHE_ATTRIBUTE = ModelCache.class.getName();
+
+    private final Map<AdaptableKey, Map<Class<?>, SoftReference<Object>>> adaptableCache;
+
+    /** Queue of the keys whose adaptables have been garbage collected. */
+    private final ReferenceQueue<Object> collectedAdaptables = new ReferenceQueue<Object>();
+
+    private final int maxAdaptables;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public ModelCache(final int maxAdaptables) {
+        this.maxAdaptables = maxAdaptables;
+        this.adaptableCache = new LinkedHashMap<AdaptableKey, Map<Class<?>, SoftReference<Object>>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AdaptableKey, Map<Class<?>, SoftReference<Object>>> eldest) {
+                return size() > maxAdaptables;
+            }
+        };
+    }
+
+    /**
+     * @return The cached model or null
+     */
+    public Object get(Object adaptable, Class<?> type) {
+        Object model = null;
+        if (adaptable instanceof ServletRequest) {
+            Map<RequestKey, Object> models = getRequestCache((ServletRequest) adaptable, false);
+            if (models != null) {
+                model = models.get(new RequestKey((ServletRequest) adaptable, type));
+            }
+        } else {
+            synchronized (adaptableCache) {
+                removeCollectedAdaptables();
+                Map<Class<?>, SoftReference<Object>> models = adaptableCache.get(new AdaptableKey(adaptable, null));
+                if (models != null) {
+                    SoftReference<Object> reference = models.get(type);
+                    if (reference != null) {
+                        model = reference.get();
+                    }
+                }
+            }
+        }
+        if (model == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return model;
+    }
+
+    public void put(Object adaptable, Class<?> type, Object model) {
+        if (adaptable instanceof ServletRequest) {
+            getRequestCache((ServletRequest) adaptable, true).put(new RequestKey((ServletRequest) adaptable, type), model);
+        } else {
+            if (maxAdaptables <= 0) {
+                return;
+            }
+            synchronized (adaptableCache) {
+                removeCollectedAdaptables();
+                Map<Class<?>, SoftReference<Object>> models = adaptableCache.get(new AdaptableKey(adaptable, null));
+                if (models == null) {
+                    models = new WeakHashMap<Class<?>, SoftReference<Object>>();
+                    adaptableCache.put(new AdaptableKey(adaptable, collectedAdaptables), models);
+                }
+                models.put(type, new SoftReference<Object>(model));
+            }
+        }
+    }
+
+    /**
+     * Remove the models of the adaptables which have been garbage collected.
+     * Must be called while holding the lock of the adaptable cache.
+     */
+    private void removeCollectedAdaptables() {
+        Reference<?> key;
+        while ((key = collectedAdaptables.poll()) != null) {
+            adaptableCache.remove(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<RequestKey, Object> getRequestCache(ServletRequest request, boolean create) {
+        Map<RequestKey, Object> models = (Map<RequestKey, Object>) request.getAttribute(REQUEST_CACHE_ATTRIBUTE);
+        if (models == null && create) {
+            models = new ConcurrentHashMap<RequestKey, Object>();
+            request.setAttribute(REQUEST_CACHE_ATTRIBUTE, models);
+        }
+        return models;
+    }
+
+    public void clear() {
+        synchronized (adaptableCache) {
+            adaptableCache.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int getMaxAdaptables() {
+        return maxAdaptables;
+    }
+
+    /**
+     * @return Number of cached non-request adaptables
+     */
+    public int getAdaptableCount() {
+        synchronized (adaptableCache) {
+            removeCollectedAdaptables();
+            return adaptableCache.size();
+        }
+    }
+
+    /**
+     * Weak key of the models of an adaptable, compared by the identity of the adaptable.
+     */
+    private static final class AdaptableKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        private AdaptableKey(Object adaptable, ReferenceQueue<Object> queue) {
+            super(adaptable, queue);
+            this.hash = System.identityHashCode(adaptable);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof AdaptableKey)) {
+                return false;
+            }
+            Object adaptable = get();
+            return adaptable != null && adaptable == ((AdaptableKey) obj).get();
+        }
+    }
+
+    /**
+     * Key of a model in the request cache: the model type and the current resource.
+     */
+    private static final class RequestKey {
+
+        private final Class<?> type;
+        private final Object resource;
+
+        private RequestKey(ServletRequest request, Class<?> type) {
+            this.type = type;
+            this.resource = request instanceof SlingHttpServletRequest ? ((SlingHttpServletRequest) request).getResource() : null;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + System.identityHashCode(resource);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RequestKey)) {
+                return false;
+            }
+            RequestKey other = (RequestKey) obj;
+            return type == other.type && resource == other.resource;
+        }
+    }
+
+}
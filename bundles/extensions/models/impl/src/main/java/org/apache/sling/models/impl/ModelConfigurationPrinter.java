@@ -85,6 +85,15 @@ public class ModelConfigurationPrinter {
                 printWriter.println();
             }
         }
+        printWriter.println();
+
+        // model cache
+        printWriter.println("Sling Models Cache:");
+        ModelCache modelCache = modelAdapterFactory.getModelCache();
+        printWriter.printf("Hits: %d, Misses: %d", modelCache.getHits(), modelCache.getMisses());
+        printWriter.println();
+        printWriter.printf("Cached Adaptables: %d (max. %d)", modelCache.getAdaptableCount(), modelCache.getMaxAdaptables());
+        printWriter.println();
     }
 
 }
\ No newline at end of file
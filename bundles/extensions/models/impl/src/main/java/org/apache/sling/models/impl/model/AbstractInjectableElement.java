@@ -20,6 +20,8 @@ package org.apache.sling.models.impl.model;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.inject.Named;
 
@@ -32,6 +34,7 @@ import org.apache.sling.models.annotations.Source;
 import org.apache.sling.models.annotations.Via;
 import org.apache.sling.models.impl.ModelAdapterFactory;
 import org.apache.sling.models.impl.ReflectionUtil;
+import org.apache.sling.models.spi.Injector;
 import org.apache.sling.models.spi.injectorspecific.InjectAnnotationProcessor;
 import org.apache.sling.models.spi.injectorspecific.InjectAnnotationProcessor2;
 import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProcessorFactory;
@@ -52,6 +55,7 @@ abstract class AbstractInjectableElement implements InjectableElement {
     private final boolean isRequired;
     private final DefaultInjectionStrategy injectionStrategy;
     private final DefaultInjectionStrategy defaultInjectionStrategy;
+    private volatile InjectorSelection injectorSelection;
     
     private static final Logger log = LoggerFactory.getLogger(ModelAdapterFactory.class);
     
@@ -264,6 +268,22 @@ abstract class AbstractInjectableElement implements InjectableElement {
         return this.defaultValue;
     }
 
+    @Override
+    public Injector[] getInjectors(Injector[] injectors) {
+        InjectorSelection selection = this.injectorSelection;
+        if (selection == null || selection.injectors != injectors) {
+            List<Injector> selected = new ArrayList<Injector>();
+            for (Injector injector : injectors) {
+                if (source == null || source.equals(injector.getName())) {
+                    selected.add(injector);
+                }
+            }
+            selection = new InjectorSelection(injectors, selected.toArray(new Injector[selected.size()]));
+            this.injectorSelection = selection;
+        }
+        return selection.selected;
+    }
+
     @Override
     public boolean isOptional(InjectAnnotationProcessor annotationProcessor) {
         DefaultInjectionStrategy injectionStrategy = this.injectionStrategy;
@@ -283,4 +303,18 @@ abstract class AbstractInjectableElement implements InjectableElement {
         }
     }
 
+    /**
+     * The injectors selected for a specific array of registered injectors.
+     */
+    private static final class InjectorSelection {
+
+        private final Injector[] injectors;
+        private final Injector[] selected;
+
+        private InjectorSelection(Injector[] injectors, Injector[] selected) {
+            this.injectors = injectors;
+            this.selected = selected;
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ package org.apache.sling.models.impl.model;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
 
+import org.apache.sling.models.spi.Injector;
 import org.apache.sling.models.spi.injectorspecific.InjectAnnotationProcessor;
 
 @SuppressWarnings("deprecation")
@@ -71,4 +72,11 @@ public interface InjectableElement {
      */
     boolean isOptional(InjectAnnotationProcessor annotationProcessor);
 
+    /**
+     * @param injectors All registered injectors, ordered by service ranking
+     * @return The injectors matching the source of this element, in the same order.
+     *         The selection is only done again if a different injector array is passed.
+     */
+    Injector[] getInjectors(Injector[] injectors);
+
 }
@@ -31,6 +31,14 @@ public class InjectableField extends AbstractInjectableElement {
     public InjectableField(Field field, StaticInjectAnnotationProcessorFactory[] processorFactories, DefaultInjectionStrategy defaultInjectionStrategy) {
         super(field, ReflectionUtil.mapPrimitiveClasses(field.getGenericType()), field.getName(), processorFactories, defaultInjectionStrategy);
         this.field = field;
+        // make the field accessible once instead of on every injection
+        if (!field.isAccessible()) {
+            try {
+                field.setAccessible(true);
+            } catch (SecurityException e) {
+                // injection will fail and log the reason
+            }
+        }
     }
     
     public Field getField() {
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.models.impl.injectors.RequestAttributeInjector;
+import org.apache.sling.models.impl.injectors.ValueMapInjector;
+import org.apache.sling.models.testmodels.classes.CachedModel;
+import org.apache.sling.models.testmodels.classes.SimplePropertyModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingTest {
+
+    @Mock
+    private ComponentContext componentCtx;
+
+    @Mock
+    private BundleContext bundleContext;
+
+    @Mock
+    private SlingHttpServletRequest request;
+
+    private ModelAdapterFactory factory;
+
+    @Before
+    public void setup() {
+        when(componentCtx.getBundleContext()).thenReturn(bundleContext);
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("cache.max.adaptables", 2);
+        when(componentCtx.getProperties()).thenReturn(props);
+
+        factory = new ModelAdapterFactory();
+        factory.activate(componentCtx);
+        factory.bindInjector(new ValueMapInjector(), new ServicePropertiesMap(0, 0));
+        factory.bindInjector(new RequestAttributeInjector(), new ServicePropertiesMap(1, 1));
+
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        when(request.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(request).setAttribute(anyString(), any());
+    }
+
+    private Resource createResource() {
+        ValueMap vm = new ValueMapDecorator(Collections.<String, Object>singletonMap("testValue", "test"));
+        Resource res = mock(Resource.class);
+        when(res.adaptTo(ValueMap.class)).thenReturn(vm);
+        return res;
+    }
+
+    @Test
+    public void testCachedResourceModel() {
+        Resource res = createResource();
+        CachedModel model = factory.getAdapter(res, CachedModel.class);
+        assertNotNull(model);
+        assertEquals("test", model.getTestValue());
+        assertSame(model, factory.getAdapter(res, CachedModel.class));
+        assertNotSame(model, factory.getAdapter(createResource(), CachedModel.class));
+
+        assertEquals(1, factory.getModelCache().getHits());
+        assertEquals(2, factory.getModelCache().getMisses());
+    }
+
+    @Test
+    public void testCachedRequestModel() {
+        Resource res = createResource();
+        when(request.getResource()).thenReturn(res);
+
+        CachedModel model = factory.getAdapter(request, CachedModel.class);
+        assertNotNull(model);
+        assertSame(model, factory.getAdapter(request, CachedModel.class));
+
+        // a different current resource, e.g. in an include, gets its own instance
+        Resource otherRes = createResource();
+        when(request.getResource()).thenReturn(otherRes);
+        assertNotSame(model, factory.getAdapter(request, CachedModel.class));
+        assertEquals(0, factory.getModelCache().getAdaptableCount());
+    }
+
+    @Test
+    public void testMaxAdaptables() {
+        Resource[] resources = new Resource[3];
+        CachedModel[] models = new CachedModel[3];
+        for (int i = 0; i < 3; i++) {
+            resources[i] = createResource();
+            models[i] = factory.getAdapter(resources[i], CachedModel.class);
+        }
+        assertEquals(2, factory.getModelCache().getAdaptableCount());
+        // the least recently used adaptable has been removed
+        assertSame(models[2], factory.getAdapter(resources[2], CachedModel.class));
+        assertSame(models[1], factory.getAdapter(resources[1], CachedModel.class));
+        assertNotSame(models[0], factory.getAdapter(resources[0], CachedModel.class));
+    }
+
+    @Test
+    public void testAdaptablesComparedByIdentity() {
+        ModelCache cache = factory.getModelCache();
+        Map<String, Object> adaptable = new HashMap<String, Object>();
+        adaptable.put("testValue", "test");
+        Object model = new Object();
+        cache.put(adaptable, CachedModel.class, model);
+
+        // an equal adaptable does not share the model
+        assertNull(cache.get(new HashMap<String, Object>(adaptable), CachedModel.class));
+        // a modified adaptable still finds its model
+        adaptable.put("otherValue", "other");
+        assertSame(model, cache.get(adaptable, CachedModel.class));
+    }
+
+    @Test
+    public void testUncachedModel() {
+        ValueMap vm = new ValueMapDecorator(Collections.<String, Object>singletonMap("first", "first-value"));
+        Resource res = mock(Resource.class);
+        when(res.adaptTo(ValueMap.class)).thenReturn(vm);
+
+        factory.getAdapter(res, SimplePropertyModel.class);
+        assertEquals(0, factory.getModelCache().getHits());
+        assertEquals(0, factory.getModelCache().getMisses());
+    }
+
+}
@@ -30,7 +30,11 @@ import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.Source;
 import org.apache.sling.models.impl.injectors.BindingsInjector;
 import org.apache.sling.models.impl.injectors.RequestAttributeInjector;
+import org.apache.sling.models.impl.model.InjectableField;
+import org.apache.sling.models.impl.model.ModelClass;
 import org.apache.sling.models.spi.DisposalCallbackRegistry;
+import org.apache.sling.models.spi.Injector;
+import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProcessorFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -115,6 +119,22 @@ public class MultipleInjectorTest {
         verifyNoMoreInteractions(bindingsInjector);
     }
 
+    @Test
+    public void testInjectorSelectionIsCached() {
+        ModelClass<ForTwoInjectorsWithSource> modelClass = new ModelClass<ForTwoInjectorsWithSource>(ForTwoInjectorsWithSource.class,
+                new StaticInjectAnnotationProcessorFactory[0]);
+        InjectableField field = modelClass.getInjectableFields()[0];
+
+        Injector[] selected = field.getInjectors(factory.getInjectors());
+        assertArrayEquals(new Injector[] { attributesInjector }, selected);
+        assertSame(selected, field.getInjectors(factory.getInjectors()));
+
+        // binding another injector updates the selection
+        RequestAttributeInjector secondAttributesInjector = new RequestAttributeInjector();
+        factory.bindInjector(secondAttributesInjector, new ServicePropertiesMap(3, 3));
+        assertArrayEquals(new Injector[] { attributesInjector, secondAttributesInjector }, field.getInjectors(factory.getInjectors()));
+    }
+
     @Model(adaptables = SlingHttpServletRequest.class)
     public static class ForTwoInjectors {
 
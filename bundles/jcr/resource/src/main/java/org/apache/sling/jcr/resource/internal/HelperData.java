@@ -18,6 +18,10 @@
  */
 package org.apache.sling.jcr.resource.internal;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
@@ -35,10 +39,78 @@ public class HelperData {
 
     private volatile String[] namespacePrefixes;
 
+    /**
+     * Value maps shared by all adaptations of the same node, keyed by node path.
+     * This is {@code null} if value map caching is disabled.
+     */
+    private final Map<String, JcrValueMap> valueMaps;
+
     public HelperData(final ClassLoader dynamicClassLoader,
             final PathMapper pathMapper) {
+        this(dynamicClassLoader, pathMapper, 0);
+    }
+
+    /**
+     * @param valueMapCacheSize Maximum number of value maps to share, a value
+     *                          of zero or lower disables sharing.
+     */
+    public HelperData(final ClassLoader dynamicClassLoader,
+            final PathMapper pathMapper,
+            final int valueMapCacheSize) {
         this.dynamicClassLoader = dynamicClassLoader;
         this.pathMapper = pathMapper;
+        if ( valueMapCacheSize > 0 ) {
+            this.valueMaps = new LinkedHashMap<String, JcrValueMap>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, JcrValueMap> eldest) {
+                    return size() > valueMapCacheSize;
+                }
+            };
+        } else {
+            this.valueMaps = null;
+        }
+    }
+
+    /**
+     * Get a value map for the node.
+     * If caching is enabled, all calls for the same node return the same
+     * read only value map - properties are therefore only read and converted
+     * once. As soon as the session has pending changes, the cached maps
+     * are dropped and fresh maps are returned until the changes are
+     * committed or reverted.
+     */
+    public JcrValueMap getValueMap(final Node node) {
+        if ( this.valueMaps == null ) {
+            return new JcrValueMap(node, this);
+        }
+        try {
+            if ( node.getSession().hasPendingChanges() ) {
+                this.clearValueMaps();
+                return new JcrValueMap(node, this);
+            }
+            final String path = node.getPath();
+            JcrValueMap map = this.valueMaps.get(path);
+            if ( map == null ) {
+                map = new JcrValueMap(node, this);
+                this.valueMaps.put(path, map);
+            }
+            return map;
+        } catch (final RepositoryException re) {
+            // fall back to an uncached map
+            return new JcrValueMap(node, this);
+        }
+    }
+
+    /**
+     * Drop all shared value maps.
+     */
+    public void clearValueMaps() {
+        if ( this.valueMaps != null ) {
+            this.valueMaps.clear();
+        }
     }
 
     public String[] getNamespacePrefixes(final Session session)
@@ -51,5 +123,6 @@ public class HelperData {
 
     public void clearCache() {
         this.namespacePrefixes = null;
+        this.clearValueMaps();
     }
 }
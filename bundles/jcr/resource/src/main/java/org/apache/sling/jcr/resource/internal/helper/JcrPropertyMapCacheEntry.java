@@ -59,6 +59,12 @@ public class JcrPropertyMapCacheEntry {
     /** The value of the object. */
     private final Object propertyValue;
 
+    /**
+     * Already converted immutable values, stored as pairs of
+     * target type and converted value. Lazily created.
+     */
+    private Object[] convertedValues;
+
     /**
      * Create a new cache entry from a property.
      */
@@ -200,6 +206,52 @@ public class JcrPropertyMapCacheEntry {
     public <T> T convertToType(final Class<T> type,
             final Node node,
             final ClassLoader dynamicClassLoader) {
+        final boolean memoize = this.propertyValue != null && isImmutableType(type);
+        if ( memoize && this.convertedValues != null ) {
+            for(int i=0; i<this.convertedValues.length; i+=2) {
+                if ( this.convertedValues[i] == type ) {
+                    return (T) this.convertedValues[i+1];
+                }
+            }
+        }
+        final T result = doConvertToType(type, node, dynamicClassLoader);
+        if ( memoize && result != null ) {
+            final int pos;
+            if ( this.convertedValues == null ) {
+                pos = 0;
+                this.convertedValues = new Object[2];
+            } else {
+                pos = this.convertedValues.length;
+                final Object[] newValues = new Object[pos + 2];
+                System.arraycopy(this.convertedValues, 0, newValues, 0, pos);
+                this.convertedValues = newValues;
+            }
+            this.convertedValues[pos] = type;
+            this.convertedValues[pos+1] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Check whether converted values of this type can be handed out
+     * several times without the risk of being modified by the caller.
+     */
+    private static boolean isImmutableType(final Class<?> type) {
+        return type == String.class
+            || type == Boolean.class
+            || type == Long.class
+            || type == Integer.class
+            || type == Short.class
+            || type == Byte.class
+            || type == Double.class
+            || type == Float.class
+            || type == BigDecimal.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T doConvertToType(final Class<T> type,
+            final Node node,
+            final ClassLoader dynamicClassLoader) {
         T result = null;
 
         try {
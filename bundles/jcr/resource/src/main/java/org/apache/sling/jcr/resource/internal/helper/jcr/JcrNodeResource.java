@@ -42,7 +42,6 @@ import org.apache.sling.jcr.resource.JcrModifiablePropertyMap;
 import org.apache.sling.jcr.resource.JcrResourceConstants;
 import org.apache.sling.jcr.resource.internal.HelperData;
 import org.apache.sling.jcr.resource.internal.JcrModifiableValueMap;
-import org.apache.sling.jcr.resource.internal.JcrValueMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -127,7 +126,7 @@ class JcrNodeResource extends JcrItemResource<Node> { // this should be package
         } else if (type == InputStream.class) {
             return (Type) getInputStream(); // unchecked cast
         } else if (type == Map.class || type == ValueMap.class) {
-            return (Type) new JcrValueMap(getNode(), this.helper); // unchecked cast
+            return (Type) this.helper.getValueMap(getNode()); // unchecked cast
         } else if (type == PersistableValueMap.class ) {
             // check write
             try {
@@ -119,8 +119,16 @@ public class JcrResourceProvider
                                final ClassLoader dynamicClassLoader,
                                final RepositoryHolder repositoryHolder,
                                final PathMapper pathMapper) {
+        this(session, dynamicClassLoader, repositoryHolder, pathMapper, 0);
+    }
+
+    public JcrResourceProvider(final Session session,
+                               final ClassLoader dynamicClassLoader,
+                               final RepositoryHolder repositoryHolder,
+                               final PathMapper pathMapper,
+                               final int valueMapCacheSize) {
         this.session = session;
-        this.helper = new HelperData(dynamicClassLoader, pathMapper);
+        this.helper = new HelperData(dynamicClassLoader, pathMapper, valueMapCacheSize);
         this.repositoryHolder = repositoryHolder;
     }
 
@@ -619,6 +627,7 @@ public class JcrResourceProvider
      * @see org.apache.sling.api.resource.ModifyingResourceProvider#revert(ResourceResolver)
      */
     public void revert(final ResourceResolver resolver) {
+        this.helper.clearValueMaps();
         try {
             this.session.refresh(false);
         } catch (final RepositoryException ignore) {
@@ -630,6 +639,7 @@ public class JcrResourceProvider
      * @see org.apache.sling.api.resource.ModifyingResourceProvider#commit(ResourceResolver)
      */
     public void commit(final ResourceResolver resolver) throws PersistenceException {
+        this.helper.clearValueMaps();
         try {
             this.session.save();
         } catch (final RepositoryException e) {
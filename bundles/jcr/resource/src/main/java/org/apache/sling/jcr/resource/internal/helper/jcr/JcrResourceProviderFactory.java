@@ -101,6 +101,16 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
             description = "Maximum number of pending revisions in a observation listener queue")
     private static final String OBSERVATION_QUEUE_LENGTH = "oak.observation.queue-length";
 
+    private static final int DEFAULT_VALUE_MAP_CACHE_SIZE = 0;
+    @Property(
+            intValue = DEFAULT_VALUE_MAP_CACHE_SIZE,
+            label = "Value Map Cache Size",
+            description = "Maximum number of value maps shared per resource resolver. If enabled, adapting the same node " +
+                          "to a value map several times reads and converts its properties only once. Shared value maps " +
+                          "are dropped on commit, revert, refresh and as soon as the session has pending changes. " +
+                          "Changes saved directly through the JCR API are not detected. A value of 0 disables sharing.")
+    private static final String VALUE_MAP_CACHE_SIZE = "resource.valuemap.cache.size";
+
     private static final String REPOSITORY_REFERNENCE_NAME = "repository";
 
     /** The dynamic class loader */
@@ -122,6 +132,9 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
     /** The JCR observation listener. */
     private Closeable listener;
 
+    /** Maximum number of shared value maps per resource provider. */
+    private volatile int valueMapCacheSize = DEFAULT_VALUE_MAP_CACHE_SIZE;
+
     @Activate
     protected void activate(final ComponentContext context) throws RepositoryException {
 
@@ -136,6 +149,7 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
         }
 
         this.repository = repository;
+        this.valueMapCacheSize = PropertiesUtil.toInteger(context.getProperties().get(VALUE_MAP_CACHE_SIZE), DEFAULT_VALUE_MAP_CACHE_SIZE);
         // check for Oak
         final boolean optimizeForOak = PropertiesUtil.toBoolean(context.getProperties().get(PROPERTY_OPTIMIZE_FOR_OAK), DEFAULT_OPTIMIZE_FOR_OAK);
         boolean isOak = false;
@@ -356,7 +370,7 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
             holder.setSession(session);
         }
 
-        return new JcrResourceProvider(session, this.getDynamicClassLoader(), holder, pathMapper);
+        return new JcrResourceProvider(session, this.getDynamicClassLoader(), holder, pathMapper, this.valueMapCacheSize);
     }
 
     /**
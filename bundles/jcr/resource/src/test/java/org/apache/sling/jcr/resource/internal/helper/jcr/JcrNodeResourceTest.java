@@ -30,6 +30,7 @@ import javax.jcr.RepositoryException;
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.jcr.resource.JcrResourceConstants;
 import org.apache.sling.jcr.resource.internal.HelperData;
 import org.apache.sling.jcr.resource.internal.PathMapperImpl;
@@ -225,6 +226,34 @@ public class JcrNodeResourceTest extends JcrItemResourceTestBase {
         assertTrue(crossCheck2.isEmpty());
     }
 
+    public void testSharedValueMap() throws Exception {
+        String name = "sharedValueMap";
+        Node res = rootNode.addNode(name, JcrConstants.NT_UNSTRUCTURED);
+        res.setProperty("title", "first");
+        getSession().save();
+
+        final HelperData helper = new HelperData(null, new PathMapperImpl(), 10);
+        final Resource first = new JcrNodeResource(null, res.getPath(), null, res, helper);
+        final Resource second = new JcrNodeResource(null, res.getPath(), null, rootNode.getNode(name), helper);
+
+        final ValueMap props = first.adaptTo(ValueMap.class);
+        assertEquals("first", props.get("title", String.class));
+        assertSame(props, second.adaptTo(ValueMap.class));
+
+        // pending changes must not be hidden by the shared map
+        res.setProperty("title", "second");
+        final ValueMap changed = second.adaptTo(ValueMap.class);
+        assertNotSame(props, changed);
+        assertEquals("second", changed.get("title", String.class));
+
+        // after a revert, maps are shared again
+        getSession().refresh(false);
+        helper.clearValueMaps();
+        final ValueMap reverted = first.adaptTo(ValueMap.class);
+        assertEquals("first", reverted.get("title", String.class));
+        assertSame(reverted, second.adaptTo(ValueMap.class));
+    }
+
     public void testCorrectUTF8ByteLength() throws Exception {
         byte[] utf8bytes = "Übersättigung".getBytes("UTF-8");
         String name = "utf8file";
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.api;
+
+import java.util.Set;
+
+/**
+ * A {@link BindingsValuesProvider} which declares the keys it adds to the
+ * Bindings object. The Sling script support calls {@link #addBindings(javax.script.Bindings)}
+ * of such a provider only when one of these keys is accessed for the first time, so
+ * scripts not using the values don't pay for computing them.
+ * <p>
+ * Entries added by {@link #addBindings(javax.script.Bindings)} for keys not
+ * returned by {@link #getKeys()} are only added if the key is not yet set.
+ * @since 2.3
+ */
+public interface LazyBindingsValuesProvider extends BindingsValuesProvider {
+
+    /**
+     * Return the keys of the entries added by this provider.
+     *
+     * @return the set of keys, must not be <code>null</code>
+     */
+    Set<String> getKeys();
+
+}
@@ -72,6 +72,8 @@ import org.apache.sling.api.scripting.SlingScript;
 import org.apache.sling.api.scripting.SlingScriptConstants;
 import org.apache.sling.api.scripting.SlingScriptHelper;
 import org.apache.sling.scripting.api.BindingsValuesProvider;
+import org.apache.sling.scripting.api.LazyBindingsValuesProvider;
+import org.apache.sling.scripting.core.impl.helper.LazyBindings;
 import org.apache.sling.scripting.core.impl.helper.ProtectedBindings;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
@@ -196,7 +198,8 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
                 private Writer writer = (Writer) b.get(OUT);
                 private Writer errorWriter = new LogWriter((Logger) b.get(LOG));
                 private Reader reader = (Reader)b.get(READER);
-                private Bindings slingScope = new SimpleBindings();
+                // created on first use, most scripts never use the sling scope
+                private Bindings slingScope;
 
 
                 /**
@@ -220,13 +223,26 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
                  */
                 public Bindings getBindings(final int scope) {
                     switch (scope) {
-                        case SlingScriptConstants.SLING_SCOPE : return slingScope;
+                        case SlingScriptConstants.SLING_SCOPE : if (slingScope == null) {
+                                                                    slingScope = new SimpleBindings();
+                                                                }
+                                                                return slingScope;
                         case 100: return this.engineScope;
                         case 200: return this.globalScope;
                     }
                     throw new IllegalArgumentException("Invaild scope");
                 }
 
+                /**
+                 * Like {@link #getBindings(int)} but without creating the sling scope.
+                 */
+                private Bindings getExistingBindings(final int scope) {
+                    if (scope == SlingScriptConstants.SLING_SCOPE) {
+                        return slingScope;
+                    }
+                    return getBindings(scope);
+                }
+
                 /**
                  * @see javax.script.ScriptContext#setAttribute(java.lang.String, java.lang.Object, int)
                  */
@@ -243,7 +259,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
                  */
                 public Object getAttribute(final String name, final int scope) {
                     if (name == null) throw new IllegalArgumentException("Name is null");
-                    final Bindings bindings = getBindings(scope);
+                    final Bindings bindings = getExistingBindings(scope);
                     if (bindings != null) {
                         return bindings.get(name);
                     }
@@ -255,7 +271,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
                  */
                 public Object removeAttribute(final String name, final int scope) {
                     if (name == null) throw new IllegalArgumentException("Name is null");
-                    final Bindings bindings = getBindings(scope);
+                    final Bindings bindings = getExistingBindings(scope);
                     if (bindings != null) {
                         return bindings.remove(name);
                     }
@@ -268,7 +284,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
                 public Object getAttribute(String name) {
                     if (name == null) throw new IllegalArgumentException("Name is null");
                     for (final int scope : SCOPES) {
-                        final Bindings bindings = getBindings(scope);
+                        final Bindings bindings = getExistingBindings(scope);
                         if ( bindings != null ) {
                             final Object o = bindings.get(name);
                             if ( o != null ) {
@@ -285,7 +301,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
                 public int getAttributesScope(String name) {
                     if (name == null) throw new IllegalArgumentException("Name is null");
                     for (final int scope : SCOPES) {
-                       if ((getBindings(scope) != null) && (getBindings(scope).containsKey(name))) {
+                       if ((getExistingBindings(scope) != null) && (getExistingBindings(scope).containsKey(name))) {
                            return scope;
                        }
                     }
@@ -603,7 +619,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
 
     private Bindings verifySlingBindings(final SlingBindings slingBindings) throws IOException {
 
-    	final Bindings bindings = new SimpleBindings();
+    	final LazyBindings bindings = new LazyBindings(PROTECTED_KEYS);
 
         final SlingHttpServletRequest request = slingBindings.getRequest();
 
@@ -688,12 +704,17 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
         }
 
         if (!bindingsValuesProviders.isEmpty()) {
-            Set<String> protectedKeys = new HashSet<String>();
-            protectedKeys.addAll(PROTECTED_KEYS);
-
-            ProtectedBindings protectedBindings = new ProtectedBindings(bindings, protectedKeys);
+            ProtectedBindings protectedBindings = null;
             for (BindingsValuesProvider provider : bindingsValuesProviders) {
-                provider.addBindings(protectedBindings);
+                if (provider instanceof LazyBindingsValuesProvider) {
+                    // evaluated when one of the keys is accessed
+                    bindings.addProvider((LazyBindingsValuesProvider) provider);
+                } else {
+                    if (protectedBindings == null) {
+                        protectedBindings = new ProtectedBindings(bindings, PROTECTED_KEYS);
+                    }
+                    provider.addBindings(protectedBindings);
+                }
             }
         }
 
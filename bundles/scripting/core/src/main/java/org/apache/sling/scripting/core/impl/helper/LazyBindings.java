@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.core.impl.helper;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.Bindings;
+
+import org.apache.sling.scripting.api.LazyBindingsValuesProvider;
+
+/**
+ * Bindings which call the {@link LazyBindingsValuesProvider}s only when
+ * one of their keys is accessed for the first time.
+ * <p>
+ * The values of the providers are added in the order of the providers:
+ * a key set after adding a provider, e.g. by a later provider, replaces
+ * the value of the provider. Operations working on all entries, like
+ * {@link #entrySet()}, evaluate all pending providers first.
+ */
+public class LazyBindings extends AbstractMap<String, Object> implements Bindings {
+
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    /** The providers of the keys not evaluated yet. */
+    private final Map<String, LazyBindingsValuesProvider> pending = new HashMap<String, LazyBindingsValuesProvider>();
+
+    private final Set<String> protectedKeys;
+
+    public LazyBindings(final Set<String> protectedKeys) {
+        this.protectedKeys = protectedKeys;
+    }
+
+    /**
+     * Add a provider whose keys are evaluated on first access.
+     * Protected keys can't be provided.
+     */
+    public void addProvider(final LazyBindingsValuesProvider provider) {
+        for (final String key : provider.getKeys()) {
+            if (!protectedKeys.contains(key)) {
+                pending.put(key, provider);
+            }
+        }
+    }
+
+    private void resolve(final Object key) {
+        if (!pending.isEmpty()) {
+            final LazyBindingsValuesProvider provider = pending.get(key);
+            if (provider != null) {
+                evaluate(provider);
+            }
+        }
+    }
+
+    private void resolveAll() {
+        while (!pending.isEmpty()) {
+            evaluate(pending.values().iterator().next());
+        }
+    }
+
+    private void evaluate(final LazyBindingsValuesProvider provider) {
+        // remove the keys first, the provider might read its own keys
+        final Set<String> keys = new HashSet<String>();
+        final Iterator<Map.Entry<String, LazyBindingsValuesProvider>> i = pending.entrySet().iterator();
+        while (i.hasNext()) {
+            final Map.Entry<String, LazyBindingsValuesProvider> entry = i.next();
+            if (entry.getValue() == provider) {
+                keys.add(entry.getKey());
+                i.remove();
+            }
+        }
+        provider.addBindings(new ProtectedBindings(new EvaluationBindings(keys), protectedKeys));
+    }
+
+    @Override
+    public Object get(final Object key) {
+        resolve(key);
+        return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        // a provider might not set all of its keys
+        resolve(key);
+        return values.containsKey(key);
+    }
+
+    /**
+     * Whether the key is set or provided by a pending provider, without
+     * evaluating the provider.
+     */
+    private boolean isSetOrPending(final Object key) {
+        return values.containsKey(key) || pending.containsKey(key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+        final Object old;
+        if (pending.remove(key) != null) {
+            old = null;
+        } else {
+            old = values.get(key);
+        }
+        values.put(key, value);
+        return old;
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        pending.remove(key);
+        return values.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        pending.clear();
+        values.clear();
+    }
+
+    @Override
+    public int size() {
+        resolveAll();
+        return values.size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        resolveAll();
+        return values.entrySet();
+    }
+
+    /**
+     * The bindings passed to a provider while it is evaluated: the values
+     * of its declared keys are set, undeclared keys only if not set yet.
+     */
+    private final class EvaluationBindings extends AbstractMap<String, Object> implements Bindings {
+
+        private final Set<String> keys;
+
+        private EvaluationBindings(final Set<String> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public Object put(final String key, final Object value) {
+            if (keys.contains(key) || !isSetOrPending(key)) {
+                return values.put(key, value);
+            }
+            return LazyBindings.this.get(key);
+        }
+
+        @Override
+        public Object get(final Object key) {
+            return LazyBindings.this.get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return LazyBindings.this.containsKey(key);
+        }
+
+        @Override
+        public Object remove(final Object key) {
+            return LazyBindings.this.remove(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return LazyBindings.this.entrySet();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.scripting.core.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineFactory;
+import javax.script.SimpleBindings;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.apache.sling.scripting.api.BindingsValuesProvider;
+import org.apache.sling.scripting.api.LazyBindingsValuesProvider;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Test of the bindings of the DefaultSlingScript.
+ */
+@RunWith(JMock.class)
+public class DefaultSlingScriptTest {
+
+    private Mockery context = new JUnit4Mockery();
+
+    private BundleContext bundleCtx;
+
+    private Resource scriptResource;
+
+    @Before
+    public void setup() {
+        bundleCtx = context.mock(BundleContext.class);
+        scriptResource = context.mock(Resource.class);
+        context.checking(new Expectations(){{
+            allowing(scriptResource).getPath();
+            will(returnValue("/apps/test/test.dummy"));
+            allowing(scriptResource).getResourceMetadata();
+            will(returnValue(new ResourceMetadata()));
+            allowing(scriptResource).getResourceResolver();
+            will(returnValue(null));
+        }});
+    }
+
+    @Test
+    public void testLazyProviderOnlyCalledForReadKeys() {
+        final CountingProvider used = new CountingProvider("used");
+        final CountingProvider unused = new CountingProvider("unused");
+        final DefaultSlingScript script = new DefaultSlingScript(bundleCtx, scriptResource, new ReadingScriptEngine("used"),
+                Arrays.<BindingsValuesProvider>asList(used, unused), null);
+
+        assertEquals("used-value", script.eval(new SlingBindings()));
+        assertEquals(1, used.calls);
+        assertEquals(0, unused.calls);
+    }
+
+    /**
+     * A script engine which returns the value of a single key of the engine scope.
+     */
+    private static final class ReadingScriptEngine extends AbstractScriptEngine {
+
+        private final String key;
+
+        ReadingScriptEngine(final String key) {
+            this.key = key;
+        }
+
+        public Object eval(final String script, final ScriptContext ctx) {
+            return ctx.getBindings(ScriptContext.ENGINE_SCOPE).get(key);
+        }
+
+        public Object eval(final Reader reader, final ScriptContext ctx) {
+            return ctx.getBindings(ScriptContext.ENGINE_SCOPE).get(key);
+        }
+
+        public Bindings createBindings() {
+            return new SimpleBindings();
+        }
+
+        public ScriptEngineFactory getFactory() {
+            return null;
+        }
+    }
+
+    private static final class CountingProvider implements LazyBindingsValuesProvider {
+
+        private final Set<String> keys;
+
+        private int calls;
+
+        CountingProvider(final String... keys) {
+            this.keys = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(keys)));
+        }
+
+        public Set<String> getKeys() {
+            return keys;
+        }
+
+        public void addBindings(final Bindings bindings) {
+            calls++;
+            for (final String key : keys) {
+                bindings.put(key, key + "-value");
+            }
+        }
+    }
+}
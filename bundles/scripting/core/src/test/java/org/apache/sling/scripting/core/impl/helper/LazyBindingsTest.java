@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.scripting.core.impl.helper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.script.Bindings;
+
+import org.apache.sling.scripting.api.LazyBindingsValuesProvider;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Test of LazyBindings.
+ *
+ */
+public class LazyBindingsTest {
+
+    private LazyBindings bindings;
+
+    @Before
+    public void setup() {
+        this.bindings = new LazyBindings(Collections.singleton("protected"));
+        this.bindings.put("protected", "value");
+    }
+
+    @Test
+    public void testEvaluatedOnFirstAccess() {
+        final CountingProvider provider = new CountingProvider("a", "b");
+        bindings.addProvider(provider);
+        assertEquals(0, provider.calls);
+
+        assertEquals("a-value", bindings.get("a"));
+        assertEquals("b-value", bindings.get("b"));
+        assertEquals(1, provider.calls);
+    }
+
+    @Test
+    public void testContainsKeyEvaluatesProvider() {
+        final CountingProvider provider = new CountingProvider("a", "b") {
+            @Override
+            public void addBindings(final Bindings b) {
+                calls++;
+                b.put("a", "a-value");
+            }
+        };
+        bindings.addProvider(provider);
+        assertTrue(bindings.containsKey("a"));
+        assertEquals(1, provider.calls);
+        // a declared key the provider did not set
+        assertFalse(bindings.containsKey("b"));
+        assertNull(bindings.get("b"));
+        assertEquals(1, provider.calls);
+    }
+
+    @Test
+    public void testNotEvaluatedIfUnused() {
+        final CountingProvider provider = new CountingProvider("a");
+        bindings.addProvider(provider);
+        bindings.get("protected");
+        bindings.get("other");
+        assertEquals(0, provider.calls);
+    }
+
+    @Test
+    public void testLaterPutOverridesProvider() {
+        final CountingProvider provider = new CountingProvider("a", "b");
+        bindings.addProvider(provider);
+        bindings.put("a", "explicit");
+
+        assertEquals("explicit", bindings.get("a"));
+        assertEquals(0, provider.calls);
+        assertEquals("b-value", bindings.get("b"));
+        assertEquals("explicit", bindings.get("a"));
+    }
+
+    @Test
+    public void testUndeclaredKeysDoNotOverride() {
+        bindings.put("c", "existing");
+        bindings.addProvider(new CountingProvider("a") {
+            @Override
+            public void addBindings(final Bindings b) {
+                super.addBindings(b);
+                b.put("c", "replaced");
+                b.put("d", "added");
+            }
+        });
+
+        bindings.get("a");
+        assertEquals("existing", bindings.get("c"));
+        assertEquals("added", bindings.get("d"));
+    }
+
+    @Test
+    public void testProviderReadsOwnKey() {
+        bindings.addProvider(new CountingProvider("a") {
+            @Override
+            public void addBindings(final Bindings b) {
+                assertNull(b.get("a"));
+                super.addBindings(b);
+                assertEquals("a-value", b.get("a"));
+            }
+        });
+        assertEquals("a-value", bindings.get("a"));
+    }
+
+    @Test
+    public void testProtectedKeys() {
+        final CountingProvider provider = new CountingProvider("protected");
+        bindings.addProvider(provider);
+        assertEquals("value", bindings.get("protected"));
+        assertEquals(0, provider.calls);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testProviderCannotOverwriteProtectedKey() {
+        bindings.addProvider(new CountingProvider("a") {
+            @Override
+            public void addBindings(final Bindings b) {
+                b.put("protected", "other");
+            }
+        });
+        bindings.get("a");
+    }
+
+    @Test
+    public void testEntrySetEvaluatesAll() {
+        final CountingProvider provider = new CountingProvider("a");
+        bindings.addProvider(provider);
+        assertEquals(2, bindings.size());
+        assertEquals(1, provider.calls);
+        assertEquals("a-value", bindings.get("a"));
+    }
+
+    private static class CountingProvider implements LazyBindingsValuesProvider {
+
+        private final Set<String> keys;
+
+        int calls;
+
+        CountingProvider(final String... keys) {
+            this.keys = new HashSet<String>(Arrays.asList(keys));
+        }
+
+        public Set<String> getKeys() {
+            return keys;
+        }
+
+        public void addBindings(final Bindings b) {
+            calls++;
+            for (final String key : keys) {
+                b.put(key, key + "-value");
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import javax.script.ScriptContext;
 import javax.script.ScriptEngineFactory;
 import javax.script.ScriptException;
 
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScriptHelper;
 import org.apache.sling.scripting.api.AbstractSlingScriptEngine;
@@ -33,6 +34,7 @@ import org.apache.sling.scripting.javascript.io.EspReader;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
@@ -59,10 +61,16 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine {
             throws ScriptException {
         Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
         String scriptName = "NO_SCRIPT_NAME";
+        long lastModified = -1;
+        ScriptCache cache = null;
         {
             SlingScriptHelper helper = (SlingScriptHelper) bindings.get(SlingBindings.SLING);
             if (helper != null) {
-                scriptName = helper.getScript().getScriptResource().getPath();
+                final Resource scriptResource = helper.getScript().getScriptResource();
+                scriptName = scriptResource.getPath();
+                lastModified = scriptResource.getResourceMetadata().getModificationTime();
+                // only scripts from resources are cached
+                cache = ((RhinoJavaScriptEngineFactory) getFactory()).getScriptCache();
             }
         }
 
@@ -113,8 +121,17 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine {
             final int lineNumber = 1;
             final Object securityDomain = null;
 
-            Object result = rhinoContext.evaluateReader(scope, scriptReader, scriptName,
+            // compiled scripts are shared between requests, only the scope is per request
+            Script script = (cache != null ? cache.get(scriptName, lastModified) : null);
+            if (script == null) {
+                script = rhinoContext.compileReader(scriptReader, scriptName,
                     lineNumber, securityDomain);
+                if (cache != null) {
+                    cache.put(scriptName, lastModified, script);
+                }
+            }
+
+            Object result = script.exec(rhinoContext, scope);
 
             if (result instanceof Wrapper) {
                 result = ((Wrapper) result).unwrap();
@@ -25,6 +25,7 @@ import java.util.Set;
 import javax.script.ScriptEngine;
 
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
@@ -70,11 +71,18 @@ import org.slf4j.LoggerFactory;
 @Reference(name="HostObjectProvider", referenceInterface=RhinoHostObjectProvider.class,
            cardinality=ReferenceCardinality.OPTIONAL_MULTIPLE, policy=ReferencePolicy.DYNAMIC,
            bind="addHostObjectProvider", unbind="removeHostObjectProvider")
-@Property(
-        name = RhinoJavaScriptEngineFactory.OPTIMIZATION_CONFIG,
-        label = "Rhino optimization level",
-        intValue = RhinoJavaScriptEngineFactory.DEFAULT_OPTIMIZATION_LEVEL,
-        description = "The level of optimization for the bytecode generated by Rhino. Provide values between 0-9, 9 being the most aggressive level of optimization. A value of -1 will run scripts in interpreted mode")
+@Properties({
+    @Property(
+            name = RhinoJavaScriptEngineFactory.OPTIMIZATION_CONFIG,
+            label = "Rhino optimization level",
+            intValue = RhinoJavaScriptEngineFactory.DEFAULT_OPTIMIZATION_LEVEL,
+            description = "The level of optimization for the bytecode generated by Rhino. Provide values between 0-9, 9 being the most aggressive level of optimization. A value of -1 will run scripts in interpreted mode"),
+    @Property(
+            name = RhinoJavaScriptEngineFactory.CACHE_SIZE_CONFIG,
+            label = "Compiled script cache size",
+            intValue = RhinoJavaScriptEngineFactory.DEFAULT_CACHE_SIZE,
+            description = "The maximum number of compiled scripts kept in memory. A value of 0 disables the cache. The cache is not used while debugging.")
+})
 public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
         implements ScopeProvider {
 
@@ -82,6 +90,10 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
 
     public final static int DEFAULT_OPTIMIZATION_LEVEL = - 1;
 
+    public final static String CACHE_SIZE_CONFIG = "org.apache.sling.scripting.javascript.cache.size";
+
+    public final static int DEFAULT_CACHE_SIZE = 200;
+
     public final static String ECMA_SCRIPT_EXTENSION = "ecma";
 
     public final static String ESP_SCRIPT_EXTENSION = "esp";
@@ -103,6 +115,8 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
 
     private Scriptable rootScope;
 
+    private volatile ScriptCache scriptCache;
+
     private final Set<RhinoHostObjectProvider> hostObjectProvider = new HashSet<RhinoHostObjectProvider>();
 
     @Reference
@@ -146,6 +160,14 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
         return wrapFactory;
     }
 
+    /**
+     * Get the cache for compiled scripts.
+     * @return The cache or <code>null</code> if scripts should not be cached.
+     */
+    ScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
     @SuppressWarnings("unchecked")
     private Scriptable getRootScope() {
         if (rootScope == null) {
@@ -206,6 +228,14 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
 
         optimizationLevel = readOptimizationLevel(props);
 
+        // the debugger needs to see each script being compiled
+        final int cacheSize = PropertiesUtil.toInteger(props.get(CACHE_SIZE_CONFIG), DEFAULT_CACHE_SIZE);
+        if (cacheSize > 0 && !debugging) {
+            scriptCache = new ScriptCache(cacheSize);
+        } else {
+            scriptCache = null;
+        }
+
         // setup the wrap factory
         wrapFactory = new SlingWrapFactory();
 
@@ -233,7 +263,8 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
             contextFactory.initApplicationClassLoader(dynamicClassLoaderManager.getDynamicClassLoader());
         }
         
-        log.info("Activated with optimization level {}", optimizationLevel);
+        log.info("Activated with optimization level {} and {}", optimizationLevel,
+            scriptCache != null ? "a script cache of size " + cacheSize : "no script cache");
     }
 
     protected void deactivate(ComponentContext context) {
@@ -241,6 +272,9 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory
         // remove the root scope
         dropRootScope();
 
+        // remove the compiled scripts
+        scriptCache = null;
+
         // remove our context factory
         SlingContextFactory.teardown();
 
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.javascript.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Script;
+
+/**
+ * The <code>ScriptCache</code> holds compiled scripts keyed by the
+ * script path. An entry is only returned as long as the last modification
+ * time of the script did not change, scripts without a modification time
+ * are not cached.
+ * The cache is bounded, the least recently used scripts are removed first.
+ * <p>
+ * Compiled scripts do not keep a reference to a scope and can therefore
+ * be executed concurrently with different per request scopes.
+ */
+class ScriptCache {
+
+    private final Map<String, CachedScript> scripts;
+
+    ScriptCache(final int maxSize) {
+        this.scripts = new LinkedHashMap<String, CachedScript>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedScript> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a compiled script.
+     * @param path The script path
+     * @param lastModified The last modification time of the script
+     * @return The compiled script or <code>null</code> if the script is not
+     *         cached or has been modified since it has been cached.
+     */
+    synchronized Script get(final String path, final long lastModified) {
+        if (lastModified <= 0) {
+            return null;
+        }
+        final CachedScript cached = this.scripts.get(path);
+        if (cached != null) {
+            if (cached.lastModified == lastModified) {
+                return cached.script;
+            }
+            this.scripts.remove(path);
+        }
+        return null;
+    }
+
+    /**
+     * Add a compiled script.
+     * @param path The script path
+     * @param lastModified The last modification time of the script
+     * @param script The compiled script
+     */
+    synchronized void put(final String path, final long lastModified, final Script script) {
+        if (lastModified > 0) {
+            this.scripts.put(path, new CachedScript(lastModified, script));
+        }
+    }
+
+    synchronized void clear() {
+        this.scripts.clear();
+    }
+
+    synchronized int size() {
+        return this.scripts.size();
+    }
+
+    private static final class CachedScript {
+
+        final long lastModified;
+
+        final Script script;
+
+        CachedScript(final long lastModified, final Script script) {
+            this.lastModified = lastModified;
+            this.script = script;
+        }
+    }
+}
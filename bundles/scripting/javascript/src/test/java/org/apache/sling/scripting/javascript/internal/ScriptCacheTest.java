@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.javascript.internal;
+
+import junit.framework.TestCase;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+public class ScriptCacheTest extends TestCase {
+
+    private Script compile(final String source) {
+        final Context cx = Context.enter();
+        try {
+            return cx.compileString(source, "test", 1, null);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    public void testLastModified() {
+        final ScriptCache cache = new ScriptCache(10);
+        final Script script = compile("1");
+        cache.put("/apps/a/a.esp", 1, script);
+        assertSame(script, cache.get("/apps/a/a.esp", 1));
+        assertNull(cache.get("/apps/a/a.esp", 2));
+        // a modified script is removed
+        assertNull(cache.get("/apps/a/a.esp", 1));
+    }
+
+    public void testBounded() {
+        final ScriptCache cache = new ScriptCache(2);
+        final Script script = compile("1");
+        cache.put("/apps/a.esp", 1, script);
+        cache.put("/apps/b.esp", 1, script);
+        // access a, so b is the least recently used one
+        assertNotNull(cache.get("/apps/a.esp", 1));
+        cache.put("/apps/c.esp", 1, script);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("/apps/a.esp", 1));
+        assertNull(cache.get("/apps/b.esp", 1));
+    }
+
+    public void testWithoutModificationTime() {
+        final ScriptCache cache = new ScriptCache(10);
+        final Script script = compile("1");
+        // changes of a script without modification time can't be detected
+        cache.put("/apps/a/a.esp", -1, script);
+        assertEquals(0, cache.size());
+        assertNull(cache.get("/apps/a/a.esp", -1));
+    }
+
+    public void testExecuteWithDifferentScopes() {
+        final Script script = compile("x * 2");
+        final Context cx = Context.enter();
+        try {
+            for (int i = 1; i <= 2; i++) {
+                final Scriptable scope = cx.initStandardObjects();
+                scope.put("x", scope, i);
+                assertEquals(i * 2, Context.toNumber(script.exec(cx, scope)), 0.0);
+            }
+        } finally {
+            Context.exit();
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.util.Dictionary;
+import java.util.Map;
 
 import javax.script.Bindings;
 import javax.script.ScriptContext;
@@ -43,6 +44,8 @@ import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.SlingException;
@@ -50,6 +53,7 @@ import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingIOException;
 import org.apache.sling.api.SlingServletException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScript;
 import org.apache.sling.api.scripting.SlingScriptConstants;
@@ -58,14 +62,18 @@ import org.apache.sling.commons.classloader.ClassLoaderWriter;
 import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.commons.compiler.JavaCompiler;
 import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.apache.sling.commons.threads.ThreadPoolManager;
 import org.apache.sling.scripting.api.AbstractScriptEngineFactory;
 import org.apache.sling.scripting.api.AbstractSlingScriptEngine;
 import org.apache.sling.scripting.jsp.jasper.compiler.JspRuntimeContext;
 import org.apache.sling.scripting.jsp.jasper.compiler.JspRuntimeContext.JspFactoryHandler;
+import org.apache.sling.scripting.jsp.jasper.compiler.JspUtil;
 import org.apache.sling.scripting.jsp.jasper.runtime.AnnotationProcessor;
 import org.apache.sling.scripting.jsp.jasper.runtime.JspApplicationContextImpl;
 import org.apache.sling.scripting.jsp.jasper.servlet.JspServletWrapper;
 import org.apache.sling.scripting.jsp.util.TagUtil;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventConstants;
@@ -106,6 +114,14 @@ public class JspScriptEngineFactory
     @Property(boolValue = true)
     private static final String PROP_DEFAULT_IS_SESSION = "default.is.session";
 
+    @Property(boolValue = false)
+    private static final String PROP_WARMUP = "warmup.enabled";
+
+    private static final int DEFAULT_WARMUP_THREADS = 4;
+
+    @Property(intValue = DEFAULT_WARMUP_THREADS)
+    private static final String PROP_WARMUP_THREADS = "warmup.threads";
+
     /** Default logger */
     private final Logger logger = LoggerFactory.getLogger(JspScriptEngineFactory.class);
 
@@ -123,6 +139,14 @@ public class JspScriptEngineFactory
     @Reference
     private JavaCompiler javaCompiler;
 
+    /** Only used for the warm up. */
+    @Reference(cardinality=ReferenceCardinality.OPTIONAL_UNARY, policy=ReferencePolicy.DYNAMIC)
+    private volatile ResourceResolverFactory resourceResolverFactory;
+
+    /** Only used for the warm up. */
+    @Reference(cardinality=ReferenceCardinality.OPTIONAL_UNARY, policy=ReferencePolicy.DYNAMIC)
+    private volatile ThreadPoolManager threadPoolManager;
+
     /** The io provider for reading and writing. */
     private SlingIOProvider ioProvider;
 
@@ -141,6 +165,18 @@ public class JspScriptEngineFactory
     /** The handler for the jsp factories. */
     private JspFactoryHandler jspFactoryHandler;
 
+    /** The number of warm up threads, <code>0</code> if the warm up is disabled. */
+    private int warmupThreads;
+
+    /** The bundle context, for registering the warm up health check. */
+    private BundleContext bundleContext;
+
+    /** The warm up - if enabled. */
+    private JspWarmup warmup;
+
+    /** The health check for the warm up. */
+    private ServiceRegistration warmupHealthCheck;
+
     public static final String[] SCRIPT_TYPE = { "jsp", "jspf", "jspx" };
 
     public static final String[] NAMES = { "jsp", "JSP" };
@@ -366,6 +402,84 @@ public class JspScriptEngineFactory
 
         logger.info("Activating Apache Sling Script Engine for JSP with options {}", options.getProperties());
         logger.debug("IMPORTANT: Do not modify the generated servlet classes directly");
+
+        if ( PropertiesUtil.toBoolean(properties.get(PROP_WARMUP), false) ) {
+            synchronized ( this ) {
+                this.bundleContext = componentContext.getBundleContext();
+                this.warmupThreads = Math.max(1,
+                        PropertiesUtil.toInteger(properties.get(PROP_WARMUP_THREADS), DEFAULT_WARMUP_THREADS));
+            }
+            this.startWarmup();
+        }
+    }
+
+    /**
+     * Start compiling all JSPs in the background, if the warm up is
+     * enabled and the required services are available.
+     */
+    private synchronized void startWarmup() {
+        final ResourceResolverFactory factory = this.resourceResolverFactory;
+        final ThreadPoolManager manager = this.threadPoolManager;
+        if ( this.warmupThreads == 0 || this.warmup != null ) {
+            return;
+        }
+        if ( factory == null || manager == null ) {
+            logger.info("JSP warm-up is waiting for the resource resolver factory and the thread pool manager");
+            return;
+        }
+        this.warmup = new JspWarmup(factory, manager, this.warmupThreads,
+            new JspWarmup.Compiler() {
+
+                public void compile(final String path, final ResourceResolver resolver) throws Exception {
+                    compileJsp(path, resolver);
+                }
+            });
+        try {
+            this.warmupHealthCheck = JspWarmupHealthCheck.register(this.bundleContext, this.warmup);
+        } catch (final NoClassDefFoundError ncdfe) {
+            logger.debug("Health check API not available, no health check for the JSP warm-up");
+        }
+        this.warmup.start();
+    }
+
+    /**
+     * Cancel a running warm up.
+     * @param always Whether a finished warm up is removed as well
+     */
+    private synchronized void stopWarmup(final boolean always) {
+        if ( this.warmup != null && (always || !this.warmup.isFinished()) ) {
+            if ( this.warmupHealthCheck != null ) {
+                this.warmupHealthCheck.unregister();
+                this.warmupHealthCheck = null;
+            }
+            this.warmup.cancel();
+            this.warmup = null;
+        }
+    }
+
+    /**
+     * Compile and load a JSP without processing a request.
+     */
+    private void compileJsp(final String path, final ResourceResolver resolver) throws Exception {
+        final SlingIOProvider io = this.ioProvider;
+        final JspFactoryHandler jspfh = this.jspFactoryHandler;
+
+        // abort if JSP Support is shut down concurrently
+        if (io == null || jspfh == null) {
+            throw new IllegalStateException("JSP Script Engine is shut down.");
+        }
+
+        final ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(this.dynamicClassLoader);
+        final ResourceResolver oldResolver = io.setRequestResourceResolver(resolver);
+        jspfh.incUsage();
+        try {
+            getJspWrapper(path, null).prepare();
+        } finally {
+            jspfh.decUsage();
+            io.resetRequestResourceResolver(oldResolver);
+            Thread.currentThread().setContextClassLoader(old);
+        }
     }
 
     /**
@@ -374,6 +488,12 @@ public class JspScriptEngineFactory
     protected void deactivate(final ComponentContext componentContext) {
         logger.info("Deactivating Apache Sling Script Engine for JSP");
 
+        synchronized ( this ) {
+            this.warmupThreads = 0;
+            this.stopWarmup(true);
+            this.bundleContext = null;
+        }
+
         if ( this.tldLocationsCache != null ) {
             this.tldLocationsCache.deactivate(componentContext.getBundleContext());
             this.tldLocationsCache = null;
@@ -496,6 +616,30 @@ public class JspScriptEngineFactory
         }
     }
 
+    protected void bindResourceResolverFactory(final ResourceResolverFactory factory) {
+        this.resourceResolverFactory = factory;
+        this.startWarmup();
+    }
+
+    protected void unbindResourceResolverFactory(final ResourceResolverFactory factory) {
+        if ( this.resourceResolverFactory == factory ) {
+            this.resourceResolverFactory = null;
+            this.stopWarmup(false);
+        }
+    }
+
+    protected void bindThreadPoolManager(final ThreadPoolManager manager) {
+        this.threadPoolManager = manager;
+        this.startWarmup();
+    }
+
+    protected void unbindThreadPoolManager(final ThreadPoolManager manager) {
+        if ( this.threadPoolManager == manager ) {
+            this.threadPoolManager = null;
+            this.stopWarmup(false);
+        }
+    }
+
     /**
      * Get the class loader
      */
@@ -723,6 +867,28 @@ public class JspScriptEngineFactory
                 pw.println("' method='POST'>");
                 pw.println("<input type='submit' value='Recompile all JSPs'>");
                 pw.println("</form>");
+                final JspWarmup w;
+                synchronized ( this ) {
+                    w = this.warmup;
+                }
+                if ( w != null ) {
+                    pw.println("<h2>Warm-up</h2>");
+                    pw.print("<p>");
+                    pw.print(w.getStatus());
+                    pw.println("</p>");
+                    final Map<String, String> failures = w.getFailures();
+                    if ( !failures.isEmpty() ) {
+                        pw.println("<ul>");
+                        for(final Map.Entry<String, String> entry : failures.entrySet()) {
+                            pw.print("<li>");
+                            pw.print(JspUtil.escapeXml(entry.getKey()));
+                            pw.print(" : ");
+                            pw.print(JspUtil.escapeXml(entry.getValue()));
+                            pw.println("</li>");
+                        }
+                        pw.println("</ul>");
+                    }
+                }
                 return;
             }
         }
@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.threads.ModifiableThreadPoolConfig;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>JspWarmup</code> compiles all JSPs found below the search
+ * paths of the resource resolver before they are requested for the first time.
+ *
+ * Tag files are compiled together with the first JSP using them. To avoid
+ * that parallel compilations of JSPs wait for the same tag files, JSPs are
+ * compiled upfront until each tag file used by any JSP has been compiled.
+ * All other JSPs are compiled in parallel afterwards.
+ *
+ * The warm up runs on its own pool of the thread pool manager and reads the
+ * JSPs with a service resource resolver of this bundle.
+ */
+class JspWarmup implements Runnable {
+
+    /** Callback compiling a single JSP. */
+    interface Compiler {
+
+        /**
+         * Compile and load the JSP.
+         * @param path The path of the JSP
+         * @param resolver The resource resolver to read the JSP and its dependencies
+         * @throws Exception If compilation fails.
+         */
+        void compile(String path, ResourceResolver resolver) throws Exception;
+    }
+
+    /** Pattern for taglib directives. */
+    private static final Pattern TAGLIB_PATTERN = Pattern.compile("<%@\\s*taglib\\s([^%]*)%>");
+
+    /** Pattern for the tag directory attribute of a taglib directive. */
+    private static final Pattern TAGDIR_PATTERN = Pattern.compile("tagdir\\s*=\\s*[\"']([^\"']+)[\"']");
+
+    /** Pattern for the prefix attribute of a taglib directive. */
+    private static final Pattern PREFIX_PATTERN = Pattern.compile("prefix\\s*=\\s*[\"']([^\"']+)[\"']");
+
+    private final Logger logger = LoggerFactory.getLogger(JspWarmup.class);
+
+    private final ResourceResolverFactory resourceResolverFactory;
+
+    private final ThreadPoolManager threadPoolManager;
+
+    private final int parallelism;
+
+    private final Compiler compiler;
+
+    private final AtomicInteger compiled = new AtomicInteger();
+
+    /** The thread pool while the warm up is running. */
+    private ThreadPool threadPool;
+
+    private final Map<String, String> failures = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+
+    private volatile boolean running = false;
+
+    private volatile boolean finished = false;
+
+    private volatile boolean cancelled = false;
+
+    private volatile int total = -1;
+
+    private volatile long startTime;
+
+    private volatile long discoveryTime;
+
+    private volatile long tagFileTime;
+
+    private volatile long endTime;
+
+    JspWarmup(final ResourceResolverFactory resourceResolverFactory,
+            final ThreadPoolManager threadPoolManager,
+            final int parallelism,
+            final Compiler compiler) {
+        this.resourceResolverFactory = resourceResolverFactory;
+        this.threadPoolManager = threadPoolManager;
+        this.parallelism = Math.max(1, parallelism);
+        this.compiler = compiler;
+    }
+
+    /**
+     * Start the warm up in the background.
+     */
+    void start() {
+        final ModifiableThreadPoolConfig config = new ModifiableThreadPoolConfig();
+        config.setMinPoolSize(this.parallelism);
+        config.setMaxPoolSize(this.parallelism);
+        config.setQueueSize(-1);
+        config.setDaemon(true);
+        synchronized ( this ) {
+            this.threadPool = this.threadPoolManager.create(config, "Apache Sling JSP Warm-up Thread Pool");
+            this.running = true;
+            this.threadPool.execute(this);
+        }
+    }
+
+    /**
+     * Stop the warm up and release its thread pool.
+     * JSPs which are currently compiled are finished.
+     */
+    void cancel() {
+        this.cancelled = true;
+        this.releaseThreadPool();
+    }
+
+    private synchronized void releaseThreadPool() {
+        if ( this.threadPool != null ) {
+            this.threadPoolManager.release(this.threadPool);
+            this.threadPool = null;
+        }
+    }
+
+    private synchronized ThreadPool getThreadPool() {
+        return this.threadPool;
+    }
+
+    private ResourceResolver getResourceResolver() throws LoginException {
+        return this.resourceResolverFactory.getServiceResourceResolver(null);
+    }
+
+    /**
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+        this.startTime = System.currentTimeMillis();
+        logger.info("Starting JSP warm-up with {} threads", this.parallelism);
+        try {
+            final List<String> jsps = new ArrayList<String>();
+            final List<String> tagFileJsps = new ArrayList<String>();
+
+            final ResourceResolver resolver = this.getResourceResolver();
+            try {
+                // discover
+                final Set<String> tagFiles = new HashSet<String>();
+                for (final String searchPath : resolver.getSearchPath()) {
+                    final Resource root = resolver.getResource(searchPath);
+                    if (root != null) {
+                        this.collect(resolver, root, jsps, tagFiles, tagFileJsps);
+                    }
+                }
+                this.total = jsps.size();
+                this.discoveryTime = System.currentTimeMillis();
+                logger.info("JSP warm-up found {} JSPs using {} tag files in {}ms",
+                        new Object[] {jsps.size(), tagFiles.size(), this.discoveryTime - this.startTime});
+
+                // compile the JSPs which together use all tag files first
+                for (final String path : tagFileJsps) {
+                    if (this.cancelled) {
+                        break;
+                    }
+                    jsps.remove(path);
+                    this.compile(path, resolver);
+                }
+                this.tagFileTime = System.currentTimeMillis();
+            } finally {
+                resolver.close();
+            }
+
+            // compile all other JSPs in parallel, this thread is one of the workers
+            final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<String>(jsps);
+            final int workers = Math.min(this.parallelism, jsps.size()) - 1;
+            final CountDownLatch latch = new CountDownLatch(Math.max(0, workers));
+            for (int i = 0; i < workers; i++) {
+                final ThreadPool pool = this.getThreadPool();
+                if (pool == null) {
+                    break;
+                }
+                try {
+                    pool.execute(new Runnable() {
+
+                        public void run() {
+                            try {
+                                compileAll(queue);
+                            } finally {
+                                latch.countDown();
+                            }
+                        }
+                    });
+                } catch (final RejectedExecutionException ree) {
+                    // cancelled concurrently
+                    break;
+                }
+            }
+            this.compileAll(queue);
+            while (!this.cancelled && !latch.await(1, TimeUnit.SECONDS)) {
+                // wait for the other workers
+            }
+        } catch (final LoginException le) {
+            logger.error("Unable to get service resource resolver for JSP warm-up", le);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (final Exception e) {
+            logger.error("JSP warm-up failed", e);
+        } finally {
+            this.endTime = System.currentTimeMillis();
+            this.running = false;
+            this.finished = true;
+        }
+        this.releaseThreadPool();
+        logger.info("JSP warm-up {} : compiled {} of {} JSPs with {} failures in {}ms",
+                new Object[] {this.cancelled ? "cancelled" : "finished", this.compiled.get(),
+                        this.total, this.failures.size(), this.endTime - this.startTime});
+    }
+
+    /**
+     * Compile JSPs from the queue until the queue is empty.
+     */
+    private void compileAll(final ConcurrentLinkedQueue<String> queue) {
+        ResourceResolver resolver = null;
+        try {
+            resolver = this.getResourceResolver();
+            String path;
+            while (!this.cancelled && (path = queue.poll()) != null) {
+                this.compile(path, resolver);
+            }
+        } catch (final LoginException le) {
+            logger.error("Unable to get service resource resolver for JSP warm-up", le);
+        } finally {
+            if (resolver != null) {
+                resolver.close();
+            }
+        }
+    }
+
+    private void compile(final String path, final ResourceResolver resolver) {
+        final long start = System.currentTimeMillis();
+        try {
+            this.compiler.compile(path, resolver);
+            this.compiled.incrementAndGet();
+            logger.debug("Compiled {} in {}ms", path, System.currentTimeMillis() - start);
+        } catch (final Throwable t) {
+            logger.warn("Unable to compile " + path, t);
+            this.failures.put(path, String.valueOf(t.getMessage()));
+        }
+    }
+
+    /**
+     * Collect all JSPs below the resource.
+     * A JSP using a tag file which is not used by any JSP collected before
+     * is added to the JSPs compiled upfront.
+     */
+    private void collect(final ResourceResolver resolver,
+            final Resource resource,
+            final List<String> jsps,
+            final Set<String> tagFiles,
+            final List<String> tagFileJsps) {
+        final Iterator<Resource> children = resolver.listChildren(resource);
+        while (children.hasNext() && !this.cancelled) {
+            final Resource child = children.next();
+            final String path = child.getPath();
+            if (path.endsWith(".jsp") || path.endsWith(".jspx")) {
+                jsps.add(path);
+                if (tagFiles.addAll(this.getTagFiles(child))) {
+                    tagFileJsps.add(path);
+                }
+            } else {
+                this.collect(resolver, child, jsps, tagFiles, tagFileJsps);
+            }
+        }
+    }
+
+    /**
+     * Get the tag files used by a JSP, as tag directory and tag name.
+     */
+    static Set<String> getTagFiles(final CharSequence source) {
+        final Map<String, String> tagDirs = new HashMap<String, String>();
+        final Matcher directives = TAGLIB_PATTERN.matcher(source);
+        while (directives.find()) {
+            final Matcher tagDir = TAGDIR_PATTERN.matcher(directives.group(1));
+            final Matcher prefix = PREFIX_PATTERN.matcher(directives.group(1));
+            if (tagDir.find() && prefix.find()) {
+                tagDirs.put(prefix.group(1), tagDir.group(1));
+            }
+        }
+        if (tagDirs.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final Set<String> tagFiles = new HashSet<String>();
+        for (final Map.Entry<String, String> entry : tagDirs.entrySet()) {
+            final Matcher m = Pattern.compile("<" + Pattern.quote(entry.getKey()) + ":([\\w.-]+)").matcher(source);
+            while (m.find()) {
+                tagFiles.add(entry.getValue() + '/' + m.group(1));
+            }
+        }
+        return tagFiles;
+    }
+
+    /**
+     * Get the tag files used by a JSP.
+     */
+    private Set<String> getTagFiles(final Resource jsp) {
+        final InputStream is = jsp.adaptTo(InputStream.class);
+        if (is == null) {
+            return Collections.emptySet();
+        }
+        try {
+            final Reader reader = new InputStreamReader(is, "UTF-8");
+            final StringBuilder sb = new StringBuilder();
+            final char[] buffer = new char[2048];
+            int length;
+            while ((length = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, length);
+            }
+            return getTagFiles(sb);
+        } catch (final IOException ioe) {
+            // ignore, the JSP is compiled without ordering
+            return Collections.emptySet();
+        } finally {
+            try {
+                is.close();
+            } catch (final IOException ignore) {
+                // ignore
+            }
+        }
+    }
+
+    boolean isRunning() {
+        return this.running;
+    }
+
+    boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * The number of JSPs to compile, <code>-1</code> if unknown yet.
+     */
+    int getTotal() {
+        return this.total;
+    }
+
+    int getCompiled() {
+        return this.compiled.get();
+    }
+
+    Map<String, String> getFailures() {
+        synchronized (this.failures) {
+            return new LinkedHashMap<String, String>(this.failures);
+        }
+    }
+
+    /**
+     * Return a readable report of the progress and timings.
+     */
+    String getStatus() {
+        final StringBuilder sb = new StringBuilder();
+        if (this.finished) {
+            sb.append(this.cancelled ? "Cancelled" : "Finished");
+        } else if (this.running) {
+            sb.append("Running");
+        } else {
+            sb.append("Not started");
+        }
+        sb.append(" : compiled ").append(this.compiled.get());
+        if (this.total >= 0) {
+            sb.append(" of ").append(this.total);
+        }
+        sb.append(" JSPs, ").append(this.failures.size()).append(" failures");
+        if (this.discoveryTime > 0) {
+            sb.append(", discovery ").append(this.discoveryTime - this.startTime).append("ms");
+        }
+        if (this.tagFileTime > 0) {
+            sb.append(", tag files ").append(this.tagFileTime - this.discoveryTime).append("ms");
+        }
+        if (this.finished) {
+            sb.append(", total ").append(this.endTime - this.startTime).append("ms");
+        }
+        return sb.toString();
+    }
+}
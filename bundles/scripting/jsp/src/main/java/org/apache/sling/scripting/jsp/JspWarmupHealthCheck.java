@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.hc.api.HealthCheck;
+import org.apache.sling.hc.api.Result;
+import org.apache.sling.hc.util.FormattingResultLog;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Health check reporting a warning until the JSP warm-up is finished.
+ * This class is only used if the health check API is available.
+ */
+class JspWarmupHealthCheck implements HealthCheck {
+
+    private final JspWarmup warmup;
+
+    JspWarmupHealthCheck(final JspWarmup warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * Register a health check for the warm-up.
+     * @throws NoClassDefFoundError If the health check API is not available.
+     */
+    static ServiceRegistration register(final BundleContext bundleContext, final JspWarmup warmup) {
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(HealthCheck.NAME, "JSP Warm-up");
+        props.put(HealthCheck.TAGS, new String[] {"jsp", "warmup"});
+        return bundleContext.registerService(HealthCheck.class.getName(), new JspWarmupHealthCheck(warmup), props);
+    }
+
+    /**
+     * @see org.apache.sling.hc.api.HealthCheck#execute()
+     */
+    public Result execute() {
+        final FormattingResultLog resultLog = new FormattingResultLog();
+        if (this.warmup.isFinished()) {
+            resultLog.info("JSP warm-up done: {}", this.warmup.getStatus());
+            for (final Map.Entry<String, String> failure : this.warmup.getFailures().entrySet()) {
+                resultLog.warn("Unable to compile {} : {}", failure.getKey(), failure.getValue());
+            }
+        } else {
+            resultLog.warn("JSP warm-up not finished yet: {}", this.warmup.getStatus());
+        }
+        return new Result(resultLog);
+    }
+}
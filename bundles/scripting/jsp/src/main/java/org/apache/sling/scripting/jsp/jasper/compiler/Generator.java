@@ -145,6 +145,19 @@ class Generator {
         return b.toString();
     }
 
+    /**
+     * @param n
+     *            the custom tag implementing BodyTag
+     * @return the statement pushing the body content of the tag
+     */
+    static String pushBody(Node.CustomTag n) {
+        if (n.implementsPassThroughBodyTag()) {
+            // Write the body directly to the enclosing writer
+            return "out = _jspx_page_context.pushBody(out);";
+        }
+        return "out = _jspx_page_context.pushBody();";
+    }
+
     /**
      * Single quote and escape a character
      */
@@ -2230,7 +2243,7 @@ class Generator {
                             .println(" != javax.servlet.jsp.tagext.Tag.EVAL_BODY_INCLUDE) {");
                     // Assume EVAL_BODY_BUFFERED
                     out.pushIndent();
-                    out.printil("out = _jspx_page_context.pushBody();");
+                    out.printil(pushBody(n));
                     if (n.implementsTryCatchFinally()) {
                         out.printin(tagPushBodyCountVar);
                         out.println("[0]++;");
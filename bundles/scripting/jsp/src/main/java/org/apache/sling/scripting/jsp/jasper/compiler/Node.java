@@ -41,6 +41,7 @@ import javax.servlet.jsp.tagext.VariableInfo;
 
 import org.apache.sling.scripting.jsp.jasper.JasperException;
 import org.apache.sling.scripting.jsp.jasper.compiler.tagplugin.TagPluginContext;
+import org.apache.sling.scripting.jsp.jasper.runtime.PassThroughBodyTag;
 import org.xml.sax.Attributes;
 
 /**
@@ -1394,6 +1395,8 @@ abstract class Node implements TagConstants {
 
         private boolean implementsBodyTag;
 
+        private boolean implementsPassThroughBodyTag;
+
         private boolean implementsTryCatchFinally;
 
         private boolean implementsJspIdConsumer;
@@ -1457,6 +1460,8 @@ abstract class Node implements TagConstants {
                     .isAssignableFrom(tagHandlerClass);
             this.implementsBodyTag = BodyTag.class
                     .isAssignableFrom(tagHandlerClass);
+            this.implementsPassThroughBodyTag = PassThroughBodyTag.class
+                    .isAssignableFrom(tagHandlerClass);
             this.implementsTryCatchFinally = TryCatchFinally.class
                     .isAssignableFrom(tagHandlerClass);
             this.implementsSimpleTag = SimpleTag.class
@@ -1497,6 +1502,7 @@ abstract class Node implements TagConstants {
 
             this.implementsIterationTag = false;
             this.implementsBodyTag = false;
+            this.implementsPassThroughBodyTag = false;
             this.implementsTryCatchFinally = false;
             this.implementsSimpleTag = true;
             this.implementsJspIdConsumer = false;
@@ -1598,6 +1604,10 @@ abstract class Node implements TagConstants {
             return implementsBodyTag;
         }
 
+        public boolean implementsPassThroughBodyTag() {
+            return implementsPassThroughBodyTag;
+        }
+
         public boolean implementsTryCatchFinally() {
             return implementsTryCatchFinally;
         }
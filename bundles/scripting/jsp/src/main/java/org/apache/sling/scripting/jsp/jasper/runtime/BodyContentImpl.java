@@ -43,6 +43,7 @@ public class BodyContentImpl extends BodyContent {
         System.getProperty("line.separator");
     private static final boolean LIMIT_BUFFER = 
         Boolean.valueOf(System.getProperty("org.apache.sling.scripting.jsp.jasper.runtime.BodyContentImpl.LIMIT_BUFFER", "false")).booleanValue();
+    private static final char[] EMPTY_BUFFER = new char[0];
     
     private char[] cb;
     private int nextChar;
@@ -60,7 +61,7 @@ public class BodyContentImpl extends BodyContent {
     public BodyContentImpl(JspWriter enclosingWriter) {
         super(enclosingWriter);
         bufferSize = Constants.DEFAULT_TAG_BUFFER_SIZE;
-        cb = new char[bufferSize];
+        cb = CharBufferPool.get(bufferSize);
         nextChar = 0;
         closed = false;
     }
@@ -473,7 +474,8 @@ public class BodyContentImpl extends BodyContent {
             nextChar = 0;
             if (LIMIT_BUFFER && (cb.length > Constants.DEFAULT_TAG_BUFFER_SIZE)) {
                 bufferSize = Constants.DEFAULT_TAG_BUFFER_SIZE;
-                cb = new char[bufferSize];
+                CharBufferPool.release(cb);
+                cb = CharBufferPool.get(bufferSize);
             }
         }
     }
@@ -522,7 +524,13 @@ public class BodyContentImpl extends BodyContent {
      * @return the value of this BodyJspWriter as a Reader
      */
     public Reader getReader() {
-        return (writer == null) ? new CharArrayReader (cb, 0, nextChar) : null;
+        if (writer != null) {
+            return null;
+        }
+        // the buffer goes back to the pool, the reader might be used longer
+        final char[] content = new char[nextChar];
+        System.arraycopy(cb, 0, content, 0, nextChar);
+        return new CharArrayReader(content);
     }
     
     /**
@@ -578,6 +586,19 @@ public class BodyContentImpl extends BodyContent {
         }
     }
     
+    /**
+     * Returns the buffer to the pool once the page is released. The
+     * content is discarded, a body content held on to by a tag handler
+     * is empty afterwards.
+     */
+    void recycle() {
+        CharBufferPool.release(cb);
+        cb = EMPTY_BUFFER;
+        nextChar = 0;
+        bufferSize = 0;
+        writer = null;
+    }
+
     private void ensureOpen() throws IOException {
         if (closed) throw new IOException("Stream closed");
     }
@@ -596,10 +617,11 @@ public class BodyContentImpl extends BodyContent {
             len = cb.length;
         }
         
-        bufferSize = cb.length + len;
-        char[] tmp = new char[bufferSize];
+        char[] tmp = CharBufferPool.get(cb.length + len);
+        bufferSize = tmp.length;
         
-        System.arraycopy(cb, 0, tmp, 0, cb.length);
+        System.arraycopy(cb, 0, tmp, 0, nextChar);
+        CharBufferPool.release(cb);
         cb = tmp;
         tmp = null;
         
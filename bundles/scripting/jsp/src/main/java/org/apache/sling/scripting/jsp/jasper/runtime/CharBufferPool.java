@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import org.apache.sling.scripting.jsp.jasper.Constants;
+
+/**
+ * Thread-affine pool for the character buffers of {@link JspWriterImpl}
+ * and {@link BodyContentImpl}.
+ *
+ * A page is executed and released by the same thread, so the buffers
+ * are kept per thread and no synchronization is needed. The buffers are
+ * pooled in size classes, doubling from
+ * {@link Constants#DEFAULT_TAG_BUFFER_SIZE} up to {@link #MAX_SIZE}
+ * characters; larger buffers are not pooled.
+ *
+ * At most {@link #MAX_IDLE} buffers are kept per size class, and the idle
+ * buffers of a size class hold at most {@link #MAX_IDLE_CHARS} characters,
+ * but at least one buffer is kept. With the defaults a thread keeps at most
+ * 220K characters. The thread local only holds arrays, so it does not
+ * keep the class loader of this bundle alive.
+ */
+final class CharBufferPool {
+
+    private static final boolean USE_POOL =
+        Boolean.valueOf(System.getProperty("org.apache.sling.scripting.jsp.jasper.runtime.CharBufferPool.USE_POOL", "true")).booleanValue();
+
+    /** The maximum number of idle buffers per size class and thread. */
+    static final int MAX_IDLE =
+        Integer.getInteger("org.apache.sling.scripting.jsp.jasper.runtime.CharBufferPool.MAX_IDLE", 8).intValue();
+
+    /** The maximum number of idle characters per size class and thread. */
+    static final int MAX_IDLE_CHARS = 32 * 1024;
+
+    private static final int MIN_SIZE = Constants.DEFAULT_TAG_BUFFER_SIZE;
+
+    /** The size of the largest pooled buffers. */
+    static final int MAX_SIZE = 64 * 1024;
+
+    private static final int SIZE_CLASSES = sizeClass(MAX_SIZE) + 1;
+
+    /** The idle buffers of a thread by size class, <code>null</code> marks a free slot. */
+    private static final ThreadLocal<char[][][]> POOLS = new ThreadLocal<char[][][]>();
+
+    private CharBufferPool() {
+    }
+
+    /**
+     * Returns a buffer of at least the given size, its length is the size
+     * of the size class.
+     */
+    static char[] get(int minSize) {
+        if (!USE_POOL || minSize > MAX_SIZE) {
+            return new char[minSize];
+        }
+        final int sizeClass = sizeClass(minSize);
+        final char[][] idle = getPool()[sizeClass];
+        for (int i = idle.length - 1; i >= 0; i--) {
+            final char[] buffer = idle[i];
+            if (buffer != null) {
+                idle[i] = null;
+                return buffer;
+            }
+        }
+        return new char[MIN_SIZE << sizeClass];
+    }
+
+    /**
+     * Returns a buffer to the pool of the current thread. The buffer must
+     * not be used by the caller anymore.
+     */
+    static void release(char[] buffer) {
+        if (!USE_POOL || buffer == null || buffer.length > MAX_SIZE) {
+            return;
+        }
+        final int sizeClass = sizeClass(buffer.length);
+        // only buffers handed out by the pool have the size of their class
+        if (buffer.length == MIN_SIZE << sizeClass) {
+            final char[][] idle = getPool()[sizeClass];
+            for (int i = 0; i < idle.length; i++) {
+                if (idle[i] == null) {
+                    idle[i] = buffer;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of idle buffers of a size class of the current thread.
+     */
+    static int getIdleCount(int size) {
+        int count = 0;
+        for (char[] buffer : getPool()[sizeClass(size)]) {
+            if (buffer != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the maximum number of idle buffers of a size class.
+     */
+    private static int getMaxIdle(int sizeClass) {
+        return Math.max(1, Math.min(MAX_IDLE, MAX_IDLE_CHARS / (MIN_SIZE << sizeClass)));
+    }
+
+    private static char[][][] getPool() {
+        char[][][] pool = POOLS.get();
+        if (pool == null) {
+            pool = new char[SIZE_CLASSES][][];
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                pool[i] = new char[getMaxIdle(i)][];
+            }
+            POOLS.set(pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the smallest size class whose buffers hold the given size.
+     */
+    private static int sizeClass(int size) {
+        int sizeClass = 0;
+        while ((MIN_SIZE << sizeClass) < size) {
+            sizeClass++;
+        }
+        return sizeClass;
+    }
+}
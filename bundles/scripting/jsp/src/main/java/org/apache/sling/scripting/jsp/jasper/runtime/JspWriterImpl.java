@@ -80,14 +80,16 @@ public class JspWriterImpl extends JspWriter {
         if (sz < 0)
             throw new IllegalArgumentException("Buffer size <= 0");
         this.response = response;
-        cb = sz == 0 ? null : new char[sz];
+        cb = sz == 0 ? null : CharBufferPool.get(sz);
         nextChar = 0;
     }
     
     void init( ServletResponse response, int sz, boolean autoFlush ) {
         this.response= response;
-        if( sz > 0 && ( cb == null || sz > cb.length ) )
-            cb=new char[sz];
+        if( sz > 0 && ( cb == null || sz > cb.length ) ) {
+            CharBufferPool.release(cb);
+            cb=CharBufferPool.get(sz);
+        }
         nextChar = 0;
         this.autoFlush=autoFlush;
         this.bufferSize=sz;
@@ -101,6 +103,9 @@ public class JspWriterImpl extends JspWriter {
         out = null;
         nextChar = 0;
         response = null;
+        // the buffer is handed out again, init() gets a new one
+        CharBufferPool.release(cb);
+        cb = null;
     }
     
     /**
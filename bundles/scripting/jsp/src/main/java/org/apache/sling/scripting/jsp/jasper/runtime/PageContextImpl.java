@@ -204,6 +204,10 @@ public class PageContextImpl extends PageContext {
 		    response = null;
 		    depth = -1;
 		    baseOut.recycle();
+		    for (int i = 0; i < outs.length; i++) {
+		        outs[i].recycle();
+		    }
+		    outs = new BodyContentImpl[0];
 		    session = null;
 		    attributes.clear();
         }
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import javax.servlet.jsp.tagext.BodyTag;
+
+/**
+ * Marker for body tags which only pass their body through to the
+ * enclosing writer.
+ *
+ * For such tags the body is not buffered: the body content returned by
+ * {@link javax.servlet.jsp.tagext.BodyTag#setBodyContent} writes directly
+ * to the enclosing writer, as for
+ * {@link javax.servlet.jsp.JspContext#pushBody(java.io.Writer)}. Its
+ * {@link javax.servlet.jsp.tagext.BodyContent#getString()} and
+ * {@link javax.servlet.jsp.tagext.BodyContent#getReader()} return
+ * <code>null</code> and
+ * {@link javax.servlet.jsp.tagext.BodyContent#writeOut(java.io.Writer)}
+ * does nothing, so the tag must neither read nor rewrite its body.
+ *
+ * The JSP has to be recompiled when a tag starts or stops implementing
+ * this interface.
+ */
+public interface PassThroughBodyTag extends BodyTag {
+}
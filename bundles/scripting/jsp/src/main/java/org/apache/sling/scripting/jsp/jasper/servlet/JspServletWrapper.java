@@ -434,6 +434,26 @@ public class JspServletWrapper {
         this.theServlet = this.loadServlet();
     }
 
+    /**
+     * Compile (if needed) and load the servlet without processing a request.
+     * This is used to warm up the servlet before the first request.
+     */
+    public void prepare() throws ServletException, IOException {
+        if ( theServlet == null ) {
+            synchronized ( this ) {
+                if ( compileException != null ) {
+                    throw compileException;
+                }
+                if ( theServlet == null ) {
+                    this.prepareServlet(null, null);
+                }
+            }
+        }
+        if ( compileException != null ) {
+            throw compileException;
+        }
+    }
+
     /**
      * @param bindings
      * @throws SlingIOException
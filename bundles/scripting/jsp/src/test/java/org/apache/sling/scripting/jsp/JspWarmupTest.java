@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.commons.threads.ThreadPoolConfig;
+import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class JspWarmupTest {
+
+    private final Map<String, String> scripts = new LinkedHashMap<String, String>();
+
+    private final List<String> compiled = Collections.synchronizedList(new ArrayList<String>());
+
+    private ResourceResolverFactory factory;
+
+    private ThreadPoolManager manager;
+
+    private ThreadPool pool;
+
+    @Before public void setup() throws Exception {
+        final Resource root = Mockito.mock(Resource.class);
+        Mockito.when(root.getPath()).thenReturn("/apps");
+
+        final ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
+        Mockito.when(resolver.getSearchPath()).thenReturn(new String[] {"/apps/"});
+        Mockito.when(resolver.getResource("/apps/")).thenReturn(root);
+        Mockito.when(resolver.listChildren(root)).thenAnswer(new Answer<Iterator<Resource>>() {
+
+            public Iterator<Resource> answer(final InvocationOnMock invocation) throws Throwable {
+                final List<Resource> children = new ArrayList<Resource>();
+                for (final Map.Entry<String, String> entry : scripts.entrySet()) {
+                    children.add(script(entry.getKey(), entry.getValue()));
+                }
+                return children.iterator();
+            }
+        });
+
+        this.factory = Mockito.mock(ResourceResolverFactory.class);
+        Mockito.when(this.factory.getServiceResourceResolver(null)).thenReturn(resolver);
+
+        // run all tasks in the calling thread
+        this.pool = Mockito.mock(ThreadPool.class);
+        Mockito.doAnswer(new Answer<Object>() {
+
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(this.pool).execute(Mockito.any(Runnable.class));
+        this.manager = Mockito.mock(ThreadPoolManager.class);
+        Mockito.when(this.manager.create(Mockito.any(ThreadPoolConfig.class), Mockito.anyString())).thenReturn(this.pool);
+    }
+
+    private Resource script(final String path, final String source) throws UnsupportedEncodingException {
+        final Resource r = Mockito.mock(Resource.class);
+        Mockito.when(r.getPath()).thenReturn(path);
+        final byte[] bytes = source.getBytes("UTF-8");
+        Mockito.when(r.adaptTo(InputStream.class)).thenAnswer(new Answer<InputStream>() {
+
+            public InputStream answer(final InvocationOnMock invocation) throws Throwable {
+                return new ByteArrayInputStream(bytes);
+            }
+        });
+        return r;
+    }
+
+    private JspWarmup warmup(final int threads) {
+        return new JspWarmup(this.factory, this.manager, threads, new JspWarmup.Compiler() {
+
+            public void compile(final String path, final ResourceResolver resolver) throws Exception {
+                if (path.contains("broken")) {
+                    throw new Exception("Syntax error");
+                }
+                compiled.add(path);
+            }
+        });
+    }
+
+    @Test public void testTagFiles() {
+        final Set<String> tagFiles = JspWarmup.getTagFiles(
+                "<%@ taglib tagdir=\"/WEB-INF/tags/a\" prefix=\"a\" %>\n"
+                + "<%@taglib prefix='b' tagdir='/WEB-INF/tags/b'%>\n"
+                + "<%@ taglib prefix=\"c\" uri=\"http://java.sun.com/jsp/jstl/core\" %>\n"
+                + "<a:header/><a:footer title=\"x\"/><b:item-list/><c:out value=\"1\"/><a:header/>");
+        assertEquals(3, tagFiles.size());
+        assertTrue(tagFiles.contains("/WEB-INF/tags/a/header"));
+        assertTrue(tagFiles.contains("/WEB-INF/tags/a/footer"));
+        assertTrue(tagFiles.contains("/WEB-INF/tags/b/item-list"));
+
+        assertTrue(JspWarmup.getTagFiles("<p>no tags</p>").isEmpty());
+    }
+
+    @Test public void testTagFileJspsFirst() {
+        final String taglib = "<%@ taglib prefix=\"t\" tagdir=\"/WEB-INF/tags\" %>";
+        scripts.put("/apps/a.jsp", "plain");
+        scripts.put("/apps/b.jsp", taglib + "<t:one/>");
+        scripts.put("/apps/c.jsp", taglib + "<t:one/>");
+        scripts.put("/apps/d.jsp", taglib + "<t:one/><t:two/>");
+        scripts.put("/apps/e.jsp", taglib + "<t:two/>");
+
+        final JspWarmup warmup = this.warmup(2);
+        warmup.start();
+
+        assertTrue(warmup.isFinished());
+        assertEquals(5, warmup.getCompiled());
+        // each tag file is compiled by the first JSP using it, before all others
+        assertEquals("/apps/b.jsp", compiled.get(0));
+        assertEquals("/apps/d.jsp", compiled.get(1));
+        Mockito.verify(this.manager).release(this.pool);
+    }
+
+    @Test public void testFailuresAreNotCompiled() {
+        scripts.put("/apps/a.jsp", "plain");
+        scripts.put("/apps/broken.jsp", "<% broken");
+
+        final JspWarmup warmup = this.warmup(1);
+        warmup.start();
+
+        assertEquals(2, warmup.getTotal());
+        assertEquals(1, warmup.getCompiled());
+        assertEquals(Collections.singleton("/apps/broken.jsp"), warmup.getFailures().keySet());
+    }
+
+    @Test public void testCancelReleasesPool() {
+        // don't run the warm up
+        final ThreadPool idle = Mockito.mock(ThreadPool.class);
+        Mockito.when(this.manager.create(Mockito.any(ThreadPoolConfig.class), Mockito.anyString())).thenReturn(idle);
+
+        final JspWarmup warmup = this.warmup(1);
+        warmup.start();
+        warmup.cancel();
+        Mockito.verify(this.manager).release(idle);
+
+        // cancelling twice does not release twice
+        warmup.cancel();
+        Mockito.verify(this.manager, Mockito.times(1)).release(idle);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.compiler;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.servlet.jsp.tagext.BodyTagSupport;
+
+import org.apache.sling.scripting.jsp.jasper.runtime.PassThroughBodyTag;
+import org.junit.Test;
+
+public class GeneratorTest {
+
+    public static class BufferedTag extends BodyTagSupport {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static class PassThroughTag extends BodyTagSupport implements PassThroughBodyTag {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private Node.CustomTag createTag(final Class<?> tagHandlerClass) {
+        return new Node.CustomTag("t:tag", "t", "tag", "urn:test", null, null, null, null, tagHandlerClass);
+    }
+
+    @Test public void testBodyIsBuffered() {
+        assertEquals("out = _jspx_page_context.pushBody();",
+                Generator.pushBody(createTag(BufferedTag.class)));
+    }
+
+    @Test public void testBodyIsPassedThrough() {
+        assertEquals("out = _jspx_page_context.pushBody(out);",
+                Generator.pushBody(createTag(PassThroughTag.class)));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CharBufferPoolTest {
+
+    @Test public void testBufferIsReused() {
+        final char[] buffer = CharBufferPool.get(512);
+        CharBufferPool.release(buffer);
+        assertSame(buffer, CharBufferPool.get(512));
+    }
+
+    @Test public void testSizeClasses() {
+        assertEquals(1024, CharBufferPool.get(600).length);
+        assertEquals(CharBufferPool.MAX_SIZE, CharBufferPool.get(CharBufferPool.MAX_SIZE).length);
+        // larger buffers are not pooled
+        final char[] large = CharBufferPool.get(CharBufferPool.MAX_SIZE + 1);
+        assertEquals(CharBufferPool.MAX_SIZE + 1, large.length);
+        CharBufferPool.release(large);
+        assertNotSame(large, CharBufferPool.get(CharBufferPool.MAX_SIZE + 1));
+    }
+
+    @Test public void testForeignBuffersAreNotPooled() {
+        final char[] buffer = new char[600];
+        CharBufferPool.release(buffer);
+        assertNotSame(buffer, CharBufferPool.get(600));
+    }
+
+    @Test public void testIdleBuffersAreBounded() {
+        release(10, 512);
+        assertEquals(CharBufferPool.MAX_IDLE, CharBufferPool.getIdleCount(512));
+
+        release(3, 16 * 1024);
+        assertEquals(2, CharBufferPool.getIdleCount(16 * 1024));
+
+        release(3, CharBufferPool.MAX_SIZE);
+        assertEquals(1, CharBufferPool.getIdleCount(CharBufferPool.MAX_SIZE));
+    }
+
+    private void release(final int count, final int size) {
+        final List<char[]> buffers = new ArrayList<char[]>();
+        for (int i = 0; i < count; i++) {
+            buffers.add(CharBufferPool.get(size));
+        }
+        for (final char[] buffer : buffers) {
+            CharBufferPool.release(buffer);
+        }
+    }
+
+    @Test public void testPoolIsPerThread() throws Exception {
+        final char[] buffer = CharBufferPool.get(2048);
+        CharBufferPool.release(buffer);
+        final char[][] other = new char[1][];
+        final Thread t = new Thread() {
+
+            @Override
+            public void run() {
+                other[0] = CharBufferPool.get(2048);
+            }
+        };
+        t.start();
+        t.join();
+        assertNotSame(buffer, other[0]);
+        assertSame(buffer, CharBufferPool.get(2048));
+    }
+
+    @Test public void testBodyContentGrowthReleasesBuffer() throws Exception {
+        final BodyContentImpl body = new BodyContentImpl(null);
+        final int idle = CharBufferPool.getIdleCount(512);
+        final char[] content = new char[1000];
+        Arrays.fill(content, 'a');
+        body.write(content);
+        assertEquals(new String(content), body.getString());
+        // the initial buffer went back to the pool
+        assertEquals(idle + 1, CharBufferPool.getIdleCount(512));
+    }
+
+    @Test public void testReaderSurvivesRecycle() throws Exception {
+        final BodyContentImpl body = new BodyContentImpl(null);
+        body.write("hello");
+        final Reader reader = body.getReader();
+        body.recycle();
+
+        // the buffer is handed out and overwritten
+        Arrays.fill(CharBufferPool.get(512), 'x');
+
+        final char[] read = new char[10];
+        assertEquals(5, reader.read(read));
+        assertEquals("hello", new String(read, 0, 5));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The <code>IOBufferPool</code> keeps a bounded number of equally sized byte
+ * buffers for reuse by the streaming servlets, sparing each request the
+ * allocation of its own copy buffer.
+ * <p>
+ * Buffers obtained from {@link #acquire()} must be handed back with
+ * {@link #release(byte[])} once they are no longer used. Buffers not fitting
+ * into the pool are simply left to the garbage collector.
+ */
+class IOBufferPool {
+
+    private final int bufferSize;
+
+    private final int maxBuffers;
+
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+
+    /** The number of buffers in the pool, maintained next to the queue. */
+    private final AtomicInteger size = new AtomicInteger();
+
+    IOBufferPool(final int bufferSize, final int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+    }
+
+    /**
+     * Returns a pooled buffer or a new one if the pool is empty.
+     */
+    byte[] acquire() {
+        final byte[] buffer = buffers.poll();
+        if (buffer != null) {
+            size.decrementAndGet();
+            return buffer;
+        }
+        return new byte[bufferSize];
+    }
+
+    /**
+     * Returns the buffer to the pool unless the pool is full or the buffer
+     * has not been created by this pool.
+     */
+    void release(final byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) {
+            return;
+        }
+        if (size.incrementAndGet() <= maxBuffers) {
+            buffers.offer(buffer);
+        } else {
+            size.decrementAndGet();
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
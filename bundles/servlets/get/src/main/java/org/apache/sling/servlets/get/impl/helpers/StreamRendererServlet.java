@@ -20,12 +20,17 @@ import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static org.apache.sling.api.servlets.HttpConstants.HEADER_IF_MODIFIED_SINCE;
 import static org.apache.sling.api.servlets.HttpConstants.HEADER_LAST_MODIFIED;
 
-import java.io.BufferedInputStream;
 import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
@@ -73,7 +78,15 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
      */
     private static ArrayList<Range> FULL = new ArrayList<Range>(0);
 
-    static final int IO_BUFFER_SIZE = 2048;
+    static final int IO_BUFFER_SIZE = 8192;
+
+    /**
+     * Maximum number of copy buffers kept for reuse.
+     */
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static final IOBufferPool BUFFER_POOL = new IOBufferPool(
+        IO_BUFFER_SIZE, MAX_POOLED_BUFFERS);
 
     /** default log */
     private final Logger log = LoggerFactory.getLogger(getClass());
@@ -194,6 +207,9 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
             final InputStream stream, final boolean included,
             final SlingHttpServletRequest request,
             final SlingHttpServletResponse response) throws IOException {
+        // use the file channel for the copy, if the resource is a file
+        final FileInputStream fileStream = getFileStream(resource, stream);
+
         // finally stream the resource
         try {
 
@@ -225,10 +241,19 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
                 // return full resource
                 setContentLength(response,
                     resource.getResourceMetadata().getContentLength());
-                byte[] buf = new byte[IO_BUFFER_SIZE];
-                int rd;
-                while ((rd = stream.read(buf)) >= 0) {
-                    out.write(buf, 0, rd);
+                if (fileStream != null) {
+                    final FileChannel channel = fileStream.getChannel();
+                    staticCopyRange(channel, out, 0, channel.size());
+                } else {
+                    final byte[] buf = BUFFER_POOL.acquire();
+                    try {
+                        int rd;
+                        while ((rd = stream.read(buf)) >= 0) {
+                            out.write(buf, 0, rd);
+                        }
+                    } finally {
+                        BUFFER_POOL.release(buf);
+                    }
                 }
 
             } else {
@@ -243,23 +268,53 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
                         + "-" + range.end + "/" + range.length);
                     setContentLength(response, range.end - range.start + 1);
 
-                    copy(stream, out, range);
+                    if (fileStream != null) {
+                        copy(fileStream.getChannel(), out, range);
+                    } else {
+                        copy(stream, 0, out, range);
+                    }
 
                 } else {
 
                     response.setContentType("multipart/byteranges; boundary="
                         + mimeSeparation);
 
-                    copy(resource, out, ranges.iterator());
+                    copy(resource, fileStream, out, ranges.iterator());
                 }
 
             }
 
         } finally {
+            closeSilently(fileStream);
             closeSilently(stream);
         }
     }
 
+    /**
+     * Returns a <code>FileInputStream</code> for the resource, if the resource
+     * is backed by a file: either the resource stream itself is a
+     * <code>FileInputStream</code> or the resource adapts to a readable
+     * <code>File</code>. Otherwise <code>null</code> is returned.
+     */
+    private FileInputStream getFileStream(final Resource resource,
+            final InputStream stream) {
+        if (stream instanceof FileInputStream) {
+            return (FileInputStream) stream;
+        }
+
+        final File file = resource.adaptTo(File.class);
+        if (file != null && file.isFile() && file.canRead()) {
+            try {
+                return new FileInputStream(file);
+            } catch (IOException ioe) {
+                log.debug("getFileStream: Cannot open file {}, streaming instead",
+                    file);
+            }
+        }
+
+        return null;
+    }
+
     private void renderDirectory(final SlingHttpServletRequest request,
             final SlingHttpServletResponse response, final boolean included)
             throws ServletException, IOException {
@@ -449,26 +504,31 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
      * Copy the contents of the specified input stream to the specified output
      * stream, and ensure that both streams are closed before returning (even in
      * the face of an exception).
+     * <p>
+     * If the resource is backed by a file, the ranges are read from the file
+     * channel by position. Otherwise the resource stream is reused for
+     * ascending ranges and only reopened if a range starts before the current
+     * stream position.
      *
      * @param resource The resource from which to send ranges
+     * @param fileStream The file stream of the resource or <code>null</code>
+     *            if the resource is not backed by a file
      * @param ostream The output stream to write to
      * @param ranges Iterator of the ranges the client wanted to retrieve
-     * @param contentType Content type of the resource
      * @exception IOException if an input/output error occurs
      */
-    private void copy(Resource resource, ServletOutputStream ostream,
-            Iterator<Range> ranges) throws IOException {
+    private void copy(Resource resource, FileInputStream fileStream,
+            ServletOutputStream ostream, Iterator<Range> ranges)
+            throws IOException {
 
         String contentType = resource.getResourceMetadata().getContentType();
         IOException exception = null;
 
-        while ((exception == null) && (ranges.hasNext())) {
-
-            InputStream resourceInputStream = resource.adaptTo(InputStream.class);
-            InputStream istream = new BufferedInputStream(resourceInputStream,
-                IO_BUFFER_SIZE);
+        InputStream istream = null;
+        long position = 0;
+        try {
+            while ((exception == null) && (ranges.hasNext())) {
 
-            try {
                 Range currentRange = ranges.next();
 
                 // Writing MIME header.
@@ -483,14 +543,22 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
 
                 // Copy content
                 try {
-                    copy(istream, ostream, currentRange);
+                    if (fileStream != null) {
+                        copy(fileStream.getChannel(), ostream, currentRange);
+                    } else {
+                        if (istream == null || currentRange.start < position) {
+                            closeSilently(istream);
+                            istream = resource.adaptTo(InputStream.class);
+                            position = 0;
+                        }
+                        position = copy(istream, position, ostream, currentRange);
+                    }
                 } catch(IOException e) {
                     exception = e;
                 }
-            } finally {
-                closeSilently(istream);
             }
-
+        } finally {
+            closeSilently(istream);
         }
 
         ostream.println();
@@ -506,50 +574,148 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
     * output stream.
     *
     * @param istream The input stream to read from
+    * @param position The current position of the input stream
     * @param ostream The output stream to write to
     * @param range Range the client wanted to retrieve
+    * @return The position of the input stream after the copy
     * @exception IOException if an input/output error occurs
     */
-    private void copy(InputStream istream, OutputStream ostream,
+    private long copy(InputStream istream, long position, OutputStream ostream,
             Range range) throws IOException {
         // HTTP Range 0-9 means "byte 9 included"
         final long endIndex = range.end + 1;
         log.debug("copy: Serving bytes: {}-{}", range.start, endIndex);
-        staticCopyRange(istream, ostream, range.start, endIndex);
+        return staticCopyRange(istream, ostream, position, range.start, endIndex);
+    }
+
+    /**
+    * Copy the contents of the specified file channel to the specified
+    * output stream.
+    *
+    * @param channel The file channel to read from
+    * @param ostream The output stream to write to
+    * @param range Range the client wanted to retrieve
+    * @exception IOException if an input/output error occurs
+    */
+    private void copy(FileChannel channel, OutputStream ostream, Range range)
+            throws IOException {
+        // HTTP Range 0-9 means "byte 9 included"
+        final long endIndex = range.end + 1;
+        log.debug("copy: Serving bytes from file: {}-{}", range.start, endIndex);
+        staticCopyRange(channel, ostream, range.start, endIndex);
     }
 
     // static, package-private method to make unit testing easier
     static void staticCopyRange(InputStream istream,
             OutputStream ostream, long start, long end) throws IOException {
-        long position = 0;
-        byte buffer[] = new byte[IO_BUFFER_SIZE];
-
-        while (position < start) {
-            long skipped = istream.skip(start - position);
-            if (skipped == 0) {
-                // skip() may return zero if for whatever reason it wasn't
-                // able to advance the stream. In such cases we need to
-                // fall back to read() to force the skipping of bytes.
-                int len = (int) Math.min(start - position, buffer.length);
-                skipped = istream.read(buffer, 0, len);
-                if (skipped == -1) {
-                    throw new IOException("Failed to skip " + start
-                            + " bytes; only skipped " + position + " bytes");
+        staticCopyRange(istream, ostream, 0, start, end);
+    }
+
+    /**
+     * Copies the bytes from <code>start</code> (inclusive) to
+     * <code>end</code> (exclusive) of the stream, which is currently at
+     * <code>position</code>, to the output stream. Bytes before
+     * <code>start</code> are skipped using <code>InputStream.skip</code> and
+     * only read if the stream is not able to skip.
+     *
+     * @return The position of the input stream after the copy
+     */
+    static long staticCopyRange(InputStream istream, OutputStream ostream,
+            long position, long start, long end) throws IOException {
+        byte buffer[] = BUFFER_POOL.acquire();
+        try {
+            while (position < start) {
+                long skipped = istream.skip(start - position);
+                if (skipped <= 0) {
+                    // skip() may return zero if for whatever reason it wasn't
+                    // able to advance the stream. In such cases we need to
+                    // fall back to read() to force the skipping of bytes.
+                    int len = (int) Math.min(start - position, buffer.length);
+                    skipped = istream.read(buffer, 0, len);
+                    if (skipped == -1) {
+                        throw new IOException("Failed to skip " + start
+                                + " bytes; only skipped " + position + " bytes");
+                    }
                 }
+                position += skipped;
             }
-            position += skipped;
+
+            while (position < end) {
+                int len = (int) Math.min(end - position, buffer.length);
+                int read = istream.read(buffer, 0, len);
+                if (read != -1) {
+                    position += read;
+                    ostream.write(buffer, 0, read);
+                } else {
+                    break;
+                }
+            }
+        } finally {
+            BUFFER_POOL.release(buffer);
         }
+        return position;
+    }
 
-        while (position < end) {
-            int len = (int) Math.min(end - position, buffer.length);
-            int read = istream.read(buffer, 0, len);
-            if (read != -1) {
-                position += read;
-                ostream.write(buffer, 0, read);
-            } else {
-                break;
+    /**
+     * Copies the bytes from <code>start</code> (inclusive) to
+     * <code>end</code> (exclusive) of the file channel to the output stream.
+     * The channel is read by position, its own position is not changed.
+     * <p>
+     * If the output stream is backed by a channel itself, the bytes are
+     * transferred with <code>FileChannel.transferTo</code>, which allows the
+     * operating system to copy the bytes without passing them through the
+     * Java heap. Otherwise the bytes are read into a pooled buffer.
+     */
+    // static, package-private method to make unit testing easier
+    static void staticCopyRange(FileChannel channel, OutputStream ostream,
+            long start, long end) throws IOException {
+        end = Math.min(end, channel.size());
+
+        final WritableByteChannel target = getChannel(ostream);
+        if (target != null) {
+            long position = start;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position,
+                    target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            return;
+        }
+
+        byte buffer[] = BUFFER_POOL.acquire();
+        try {
+            final ByteBuffer bb = ByteBuffer.wrap(buffer);
+            long position = start;
+            while (position < end) {
+                bb.clear();
+                bb.limit((int) Math.min(end - position, buffer.length));
+                int read = channel.read(bb, position);
+                if (read != -1) {
+                    position += read;
+                    ostream.write(buffer, 0, read);
+                } else {
+                    break;
+                }
             }
+        } finally {
+            BUFFER_POOL.release(buffer);
+        }
+    }
+
+    /**
+     * Returns the channel to write to the output stream directly or
+     * <code>null</code> if the output stream is not backed by a channel.
+     */
+    private static WritableByteChannel getChannel(final OutputStream ostream) {
+        if (ostream instanceof WritableByteChannel) {
+            return (WritableByteChannel) ostream;
+        } else if (ostream instanceof FileOutputStream) {
+            return ((FileOutputStream) ostream).getChannel();
         }
+        return null;
     }
 
     /**
@@ -18,13 +18,18 @@
  */
 package org.apache.sling.servlets.get.impl.helpers;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Random;
 
 import org.junit.Test;
@@ -47,6 +52,82 @@ public class StreamRendererServletTest {
         assertEquals("34", result);
     }
     
+    @Test
+    public void testCopyRangeWithPosition() throws IOException {
+        final ByteArrayInputStream in = new ByteArrayInputStream("12345678".getBytes());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long position = StreamRendererServlet.staticCopyRange(in, out, 0, 1, 3);
+        assertEquals(3, position);
+        position = StreamRendererServlet.staticCopyRange(in, out, position, 5, 7);
+        assertEquals(7, position);
+        assertEquals("2367", out.toString());
+    }
+
+    @Test
+    public void testCopyFileRange() throws IOException {
+        final Random random = new Random(1234);
+        final byte[] expected = new byte[StreamRendererServlet.IO_BUFFER_SIZE * 2 + 42];
+        random.nextBytes(expected);
+
+        final File source = File.createTempFile("streamrenderer", ".bin");
+        final File target = File.createTempFile("streamrenderer", ".out");
+        try {
+            final FileOutputStream fos = new FileOutputStream(source);
+            fos.write(expected);
+            fos.close();
+
+            final FileInputStream fis = new FileInputStream(source);
+            try {
+                final FileChannel channel = fis.getChannel();
+                assertCopyFileRange(expected, channel, 0, expected.length, target);
+                assertCopyFileRange(expected, channel, 0, 1, target);
+                assertCopyFileRange(expected, channel, 42, 42, target);
+                for (int i = 0; i < 20; i++) {
+                    final int a = random.nextInt(expected.length);
+                    final int b = random.nextInt(expected.length);
+                    assertCopyFileRange(expected, channel, Math.min(a, b), Math.max(a, b), target);
+                }
+                assertEquals(0, channel.position());
+            } finally {
+                fis.close();
+            }
+        } finally {
+            source.delete();
+            target.delete();
+        }
+    }
+
+    private void assertCopyFileRange(byte[] expected, FileChannel channel,
+            int a, int b, File target) throws IOException {
+        final byte[] range = new byte[b - a];
+        System.arraycopy(expected, a, range, 0, range.length);
+
+        // positional reads into a buffer
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StreamRendererServlet.staticCopyRange(channel, output, a, b);
+        assertArrayEquals(range, output.toByteArray());
+
+        // transfer to a channel
+        final FileOutputStream fos = new FileOutputStream(target);
+        try {
+            StreamRendererServlet.staticCopyRange(channel, fos, a, b);
+        } finally {
+            fos.close();
+        }
+        assertEquals(range.length, target.length());
+        final byte[] actual = new byte[range.length];
+        final FileInputStream fis = new FileInputStream(target);
+        try {
+            int off = 0;
+            while (off < actual.length) {
+                off += fis.read(actual, off, actual.length - off);
+            }
+        } finally {
+            fis.close();
+        }
+        assertArrayEquals(range, actual);
+    }
+
     private void runTests(int randomSeed) throws IOException {
         final Random random = new Random(randomSeed);
         assertCopyRange(random, StreamRendererServlet.IO_BUFFER_SIZE * 2 + 42);
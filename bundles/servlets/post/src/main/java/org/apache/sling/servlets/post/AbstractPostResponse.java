@@ -317,8 +317,10 @@ public abstract class AbstractPostResponse implements PostResponse {
                 int statusCode = ((Number) status).intValue();
                 response.setStatus(statusCode);
 
-                // special treatment of 201/CREATED and 3xx: Requires Location
-                if (statusCode == HttpServletResponse.SC_CREATED || statusCode / 100 == 3) {
+                // special treatment of 201/CREATED, 202/ACCEPTED and 3xx: Requires Location
+                if (statusCode == HttpServletResponse.SC_CREATED
+                        || statusCode == HttpServletResponse.SC_ACCEPTED
+                        || statusCode / 100 == 3) {
                     response.setHeader("Location", getLocation());
                 }
             }
@@ -168,6 +168,22 @@ public interface SlingPostConstants {
      */
     public static final String OPERATION_IMPORT = "import";
 
+    /**
+     * Name of the predefined bulk operation (value is "bulk").
+     * <p>
+     * The bulk operation reads a stream of JSON objects, one per line, either
+     * from the {@link #RP_CONTENT} request parameter or from the request body.
+     * Each object has a <code>path</code> property addressing the resource to
+     * operate on and a <code>parameters</code> object providing the request
+     * parameters for the operation, including an optional
+     * {@link #RP_OPERATION} parameter. Changes are committed in batches of
+     * {@link #RP_BATCH_SIZE} entries; if an entry fails, the not yet committed
+     * changes of its batch are reverted.
+     *
+     * @since 2.3.7 (Bundle version 2.3.7)
+     */
+    public static final String OPERATION_BULK = "bulk";
+
     /**
      * Name of the request parameter used to indicate the resource to apply the
      * operation to (value is ":applyTo").
@@ -179,6 +195,15 @@ public interface SlingPostConstants {
      */
     public static final String RP_APPLY_TO = RP_PREFIX + "applyTo";
 
+    /**
+     * Name of the request parameter defining the number of entries of a
+     * {@link #OPERATION_BULK} operation committed together (value is
+     * ":batchSize"). If not set, the configured default batch size is used.
+     *
+     * @since 2.3.7 (Bundle version 2.3.7)
+     */
+    public static final String RP_BATCH_SIZE = RP_PREFIX + "batchSize";
+
     /**
      * Name of the request parameter used to indicate the destination for the
      * copy and move operations (value is ":dest"). This request parameter is
@@ -198,6 +223,21 @@ public interface SlingPostConstants {
      */
     public static final String RP_REPLACE = RP_PREFIX + "replace";
 
+    /**
+     * Name of the request parameter indicating whether a copy or move
+     * operation is to be executed asynchronously (value is ":async"). If set
+     * to the case-insignificant value true and the operation applies to a
+     * single resource, the request returns immediately with status
+     * <code>202/ACCEPTED</code> and the location of a status resource
+     * reporting the progress of the operation. Copies are partitioned and
+     * executed in parallel with separate sessions. Asynchronous operations
+     * can't be combined with {@link #RP_ORDER}, such requests are rejected
+     * with status <code>400/BAD REQUEST</code>.
+     *
+     * @since 2.3.7 (Bundle version 2.3.7)
+     */
+    public static final String RP_ASYNC = RP_PREFIX + "async";
+
     /**
      * Name of the request parameter indicating whether the destination for a
      * property change during an import operation is to be replaced if existing.
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.servlets.post.JSONResponse;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationStatus;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationTracker;
+
+/**
+ * The <code>AsyncOperationStatusServlet</code> reports the progress of an
+ * asynchronous copy or move operation as JSON, for example with
+ * <code>GET /system/sling/post/operations.&lt;id&gt;.json</code>. The status
+ * is only reported to the user having requested the operation.
+ * <p>
+ * This servlet is registered by the {@link SlingPostServlet} at
+ * {@link AsyncOperationTracker#STATUS_PATH}.
+ */
+public class AsyncOperationStatusServlet extends SlingSafeMethodsServlet {
+
+    private static final long serialVersionUID = 4521864385128456170L;
+
+    private final AsyncOperationTracker tracker;
+
+    public AsyncOperationStatusServlet(final AsyncOperationTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    protected void doGet(final SlingHttpServletRequest request,
+            final SlingHttpServletResponse response) throws IOException {
+        final String[] selectors = request.getRequestPathInfo().getSelectors();
+        final AsyncOperationStatus status = selectors.length == 1
+                ? tracker.get(selectors[0])
+                : null;
+        if (status == null || !isOwner(request, status)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                "Unknown operation");
+            return;
+        }
+        try {
+            response.setContentType(JSONResponse.RESPONSE_CONTENT_TYPE);
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Cache-Control", "no-cache");
+            status.toJSON().write(response.getWriter());
+        } catch (final JSONException je) {
+            throw new IOException("Unable to write operation status: " + je.getMessage());
+        }
+    }
+
+    private boolean isOwner(final SlingHttpServletRequest request,
+            final AsyncOperationStatus status) {
+        final String userId = request.getResourceResolver().getUserID();
+        return userId != null && userId.equals(status.getUserId());
+    }
+}
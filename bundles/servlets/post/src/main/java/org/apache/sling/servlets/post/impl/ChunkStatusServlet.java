@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl;
+
+import java.io.IOException;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.servlets.post.JSONResponse;
+import org.apache.sling.servlets.post.impl.helper.ChunkUploadStatus;
+import org.apache.sling.servlets.post.impl.helper.SlingFileUploadHandler;
+
+/**
+ * The <code>ChunkStatusServlet</code> reports the state of a chunk upload in
+ * progress as JSON: the byte ranges uploaded so far and the byte ranges still
+ * missing. Clients use it to resume an interrupted upload, for example with
+ * <code>GET /content/file.pdf.chunks.json</code>.
+ */
+@Component
+@Service(value = Servlet.class)
+@Properties({
+    @Property(name = "service.description", value = "Sling Chunk Upload Status Servlet"),
+    @Property(name = "service.vendor", value = "The Apache Software Foundation"),
+    @Property(name = "sling.servlet.resourceTypes", value = "sling/servlet/default"),
+    @Property(name = "sling.servlet.selectors", value = "chunks"),
+    @Property(name = "sling.servlet.extensions", value = "json"),
+    @Property(name = "sling.servlet.methods", value = "GET") })
+public class ChunkStatusServlet extends SlingSafeMethodsServlet {
+
+    private static final long serialVersionUID = -3212431278416398613L;
+
+    private final SlingFileUploadHandler uploadHandler = new SlingFileUploadHandler();
+
+    @Override
+    protected void doGet(final SlingHttpServletRequest request,
+            final SlingHttpServletResponse response) throws IOException {
+        final Node node = request.getResource().adaptTo(Node.class);
+        if (node == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try {
+            final ChunkUploadStatus status = uploadHandler.getChunkUploadStatus(node);
+            if (status == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "No chunk upload in progress at " + node.getPath());
+                return;
+            }
+            response.setContentType(JSONResponse.RESPONSE_CONTENT_TYPE);
+            response.setCharacterEncoding("UTF-8");
+            status.toJSON().write(response.getWriter());
+        } catch (final RepositoryException re) {
+            throw new IOException("Unable to read chunk upload status: " + re.getMessage());
+        } catch (final JSONException je) {
+            throw new IOException("Unable to write chunk upload status: " + je.getMessage());
+        }
+    }
+}
@@ -46,6 +46,8 @@ import org.apache.sling.api.resource.ResourceNotFoundException;
 import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.api.servlets.SlingAllMethodsServlet;
 import org.apache.sling.commons.osgi.OsgiUtil;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.commons.threads.ThreadPoolManager;
 import org.apache.sling.jcr.contentloader.ContentImporter;
 import org.apache.sling.servlets.post.HtmlResponse;
 import org.apache.sling.servlets.post.JSONResponse;
@@ -57,9 +59,11 @@ import org.apache.sling.servlets.post.SlingPostConstants;
 import org.apache.sling.servlets.post.SlingPostOperation;
 import org.apache.sling.servlets.post.SlingPostProcessor;
 import org.apache.sling.servlets.post.VersioningConfiguration;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationTracker;
 import org.apache.sling.servlets.post.impl.helper.DateParser;
 import org.apache.sling.servlets.post.impl.helper.DefaultNodeNameGenerator;
 import org.apache.sling.servlets.post.impl.helper.MediaRangeList;
+import org.apache.sling.servlets.post.impl.operations.BulkOperation;
 import org.apache.sling.servlets.post.impl.operations.CheckinOperation;
 import org.apache.sling.servlets.post.impl.operations.CheckoutOperation;
 import org.apache.sling.servlets.post.impl.operations.CopyOperation;
@@ -91,7 +95,8 @@ import org.slf4j.LoggerFactory;
     @Reference(name = "postOperation", referenceInterface = PostOperation.class, cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC),
     @Reference(name = "nodeNameGenerator", referenceInterface = NodeNameGenerator.class, cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC),
     @Reference(name = "postResponseCreator", referenceInterface = PostResponseCreator.class, cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC),
-    @Reference(name = "contentImporter", referenceInterface = ContentImporter.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC) })
+    @Reference(name = "contentImporter", referenceInterface = ContentImporter.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC),
+    @Reference(name = "threadPoolManager", referenceInterface = ThreadPoolManager.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC) })
 public class SlingPostServlet extends SlingAllMethodsServlet {
 
     private static final long serialVersionUID = 1837674988291697074L;
@@ -140,13 +145,32 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
     @Property(value = DEFAULT_IGNORED_PARAMETER_NAME_PATTERN)
     private static final String PROP_IGNORED_PARAMETER_NAME_PATTERN = "servlet.post.ignorePattern";
 
+    @Property(intValue = BulkOperation.DEFAULT_BATCH_SIZE)
+    private static final String PROP_BULK_BATCH_SIZE = "servlet.post.bulkBatchSize";
+
+    @Property(intValue = AsyncOperationTracker.DEFAULT_BATCH_SIZE)
+    private static final String PROP_ASYNC_BATCH_SIZE = "servlet.post.asyncBatchSize";
+
+    @Property(intValue = AsyncOperationTracker.DEFAULT_PARTITIONS)
+    private static final String PROP_ASYNC_PARTITIONS = "servlet.post.asyncPartitions";
+
+    /** Name of the thread pool executing asynchronous copy and move operations. */
+    private static final String ASYNC_THREAD_POOL_NAME = "org.apache.sling.servlets.post";
+
     private final ModifyOperation modifyOperation = new ModifyOperation();
 
     private ServiceRegistration[] internalOperations;
 
+    /** Executes asynchronous copy and move operations and keeps their status. */
+    private final AsyncOperationTracker asyncOperationTracker = new AsyncOperationTracker();
+
+    private ServiceRegistration asyncOperationStatusServlet;
+
     /** Map of post operations. */
     private final Map<String, PostOperation> postOperations = new HashMap<String, PostOperation>();
 
+    private final BulkOperation bulkOperation = new BulkOperation(postOperations, modifyOperation);
+
     /** Sorted list of post processor holders. */
     private final List<PostProcessorHolder> postProcessors = new ArrayList<PostProcessorHolder>();
 
@@ -172,6 +196,14 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
      */
 	private ContentImporter contentImporter;
 
+    /**
+     * The thread pool manager reference, providing the thread pool for
+     * asynchronous operations.
+     */
+    private ThreadPoolManager threadPoolManager;
+
+    private ThreadPool asyncThreadPool;
+
     private VersioningConfiguration baseVersioningConfiguration;
 
     @Override
@@ -186,6 +218,14 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
         htmlResponse.setReferer(request.getHeader("referer"));
 
         final PostOperation operation = getSlingPostOperation(request);
+        if (operation == bulkOperation) {
+            // the bulk operation streams its results
+            request.getRequestProgressTracker().log(
+                    "Calling PostOperation: {0}", operation.getClass().getName());
+            bulkOperation.run(request, response, this.cachedPostProcessors);
+            return;
+        }
+
         if (operation == null) {
 
             htmlResponse.setStatus(
@@ -389,10 +429,14 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
         final BundleContext bundleContext = context.getBundleContext();
         providedServices.add(registerOperation(bundleContext,
             SlingPostConstants.OPERATION_MODIFY, modifyOperation));
+        final CopyOperation copyOperation = new CopyOperation();
+        copyOperation.setAsyncOperationTracker(asyncOperationTracker);
         providedServices.add(registerOperation(bundleContext,
-            SlingPostConstants.OPERATION_COPY, new CopyOperation()));
+            SlingPostConstants.OPERATION_COPY, copyOperation));
+        final MoveOperation moveOperation = new MoveOperation();
+        moveOperation.setAsyncOperationTracker(asyncOperationTracker);
         providedServices.add(registerOperation(bundleContext,
-            SlingPostConstants.OPERATION_MOVE, new MoveOperation()));
+            SlingPostConstants.OPERATION_MOVE, moveOperation));
         providedServices.add(registerOperation(bundleContext,
             SlingPostConstants.OPERATION_DELETE, new DeleteOperation()));
         providedServices.add(registerOperation(bundleContext,
@@ -405,8 +449,21 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
                 SlingPostConstants.OPERATION_RESTORE, new RestoreOperation()));
         providedServices.add(registerOperation(bundleContext,
             SlingPostConstants.OPERATION_IMPORT, importOperation));
+        providedServices.add(registerOperation(bundleContext,
+            SlingPostConstants.OPERATION_BULK, bulkOperation));
 
         internalOperations = providedServices.toArray(new ServiceRegistration[providedServices.size()]);
+
+        // status of asynchronous operations
+        final Properties properties = new Properties();
+        properties.put("sling.servlet.paths", AsyncOperationTracker.STATUS_PATH);
+        properties.put(Constants.SERVICE_DESCRIPTION,
+            "Apache Sling POST Servlet Asynchronous Operation Status");
+        properties.put(Constants.SERVICE_VENDOR,
+            bundleContext.getBundle().getHeaders().get(Constants.BUNDLE_VENDOR));
+        asyncOperationStatusServlet = bundleContext.registerService(
+            Servlet.class.getName(),
+            new AsyncOperationStatusServlet(asyncOperationTracker), properties);
     }
 
     private ServiceRegistration registerOperation(final BundleContext context,
@@ -458,6 +515,14 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
         this.importOperation.setDefaultNodeNameGenerator(nodeNameGenerator);
         this.modifyOperation.setIgnoredParameterNamePattern(paramMatchPattern);
         this.importOperation.setIgnoredParameterNamePattern(paramMatchPattern);
+
+        this.bulkOperation.setBatchSize(OsgiUtil.toInteger(
+            configuration.get(PROP_BULK_BATCH_SIZE), BulkOperation.DEFAULT_BATCH_SIZE));
+
+        this.asyncOperationTracker.setBatchSize(OsgiUtil.toInteger(
+            configuration.get(PROP_ASYNC_BATCH_SIZE), AsyncOperationTracker.DEFAULT_BATCH_SIZE));
+        this.asyncOperationTracker.setPartitions(OsgiUtil.toInteger(
+            configuration.get(PROP_ASYNC_PARTITIONS), AsyncOperationTracker.DEFAULT_PARTITIONS));
     }
 
     @Override
@@ -473,6 +538,10 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
             }
             internalOperations = null;
         }
+        if (asyncOperationStatusServlet != null) {
+            asyncOperationStatusServlet.unregister();
+            asyncOperationStatusServlet = null;
+        }
         modifyOperation.setExtraNodeNameGenerators(null);
         importOperation.setExtraNodeNameGenerators(null);
         importOperation.setContentImporter(null);
@@ -675,6 +744,21 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
         }
     }
 
+    protected synchronized void bindThreadPoolManager(final ThreadPoolManager manager) {
+        this.threadPoolManager = manager;
+        this.asyncThreadPool = manager.get(ASYNC_THREAD_POOL_NAME);
+        asyncOperationTracker.setThreadPool(this.asyncThreadPool);
+    }
+
+    protected synchronized void unbindThreadPoolManager(final ThreadPoolManager manager) {
+        if ( this.threadPoolManager == manager ) {
+            asyncOperationTracker.setThreadPool(null);
+            manager.release(this.asyncThreadPool);
+            this.asyncThreadPool = null;
+            this.threadPoolManager = null;
+        }
+    }
+
     private VersioningConfiguration createBaseVersioningConfiguration(Map<?, ?> props) {
         VersioningConfiguration cfg = new VersioningConfiguration();
         cfg.setCheckinOnNewVersionableNode(OsgiUtil.toBoolean(
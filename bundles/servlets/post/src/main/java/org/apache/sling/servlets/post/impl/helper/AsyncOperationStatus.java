@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+
+/**
+ * <code>AsyncOperationStatus</code> describes the progress of an asynchronous
+ * copy or move operation. An operation is split into partitions executed
+ * independently; it has finished once all partitions have finished and
+ * succeeded if none of them failed.
+ * <p>
+ * Instances are shared between the threads executing the partitions and the
+ * requests reading the status.
+ */
+public class AsyncOperationStatus {
+
+    public static final String STATE_QUEUED = "queued";
+
+    public static final String STATE_RUNNING = "running";
+
+    public static final String STATE_SUCCEEDED = "succeeded";
+
+    public static final String STATE_FAILED = "failed";
+
+    private final String id;
+
+    private final String operation;
+
+    private final String source;
+
+    private final String destination;
+
+    private final String userId;
+
+    private final long created = System.currentTimeMillis();
+
+    private volatile String state = STATE_QUEUED;
+
+    private volatile long finished = -1;
+
+    private final AtomicLong items = new AtomicLong();
+
+    private final AtomicInteger partitions = new AtomicInteger();
+
+    private final AtomicInteger pendingPartitions = new AtomicInteger();
+
+    private final List<String> errors = new ArrayList<String>();
+
+    public AsyncOperationStatus(final String id, final String operation,
+            final String source, final String destination, final String userId) {
+        this.id = id;
+        this.operation = operation;
+        this.source = source;
+        this.destination = destination;
+        this.userId = userId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * Return the id of the user having requested the operation.
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return finished >= 0;
+    }
+
+    /**
+     * Return the time the operation has finished or -1 if it is still
+     * queued or running.
+     */
+    public long getFinished() {
+        return finished;
+    }
+
+    /**
+     * Return the number of items copied or moved so far.
+     */
+    public long getItems() {
+        return items.get();
+    }
+
+    public int getPartitions() {
+        return partitions.get();
+    }
+
+    public void started() {
+        state = STATE_RUNNING;
+    }
+
+    /**
+     * Record items copied or moved.
+     */
+    public void addItems(final long count) {
+        items.addAndGet(count);
+    }
+
+    /**
+     * Register a partition to be executed. The operation does not finish
+     * before all registered partitions have finished.
+     */
+    public void addPartition() {
+        partitions.incrementAndGet();
+        pendingPartitions.incrementAndGet();
+    }
+
+    /**
+     * Mark a registered partition as finished. If it has been the last
+     * pending partition, the operation is finished.
+     *
+     * @param error The error message if the partition failed or
+     *            <code>null</code> if it succeeded
+     * @return <code>true</code> if the operation is finished now
+     */
+    public boolean partitionFinished(final String error) {
+        if (error != null) {
+            addError(error);
+        }
+        if (pendingPartitions.decrementAndGet() == 0) {
+            finish();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Mark the operation as failed and finished, for example because the
+     * operation could not be partitioned or scheduled.
+     */
+    public void failed(final String error) {
+        addError(error);
+        finish();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<String>(errors);
+        }
+    }
+
+    private void addError(final String error) {
+        synchronized (errors) {
+            errors.add(error);
+        }
+    }
+
+    private void finish() {
+        synchronized (errors) {
+            state = errors.isEmpty() ? STATE_SUCCEEDED : STATE_FAILED;
+        }
+        finished = System.currentTimeMillis();
+    }
+
+    /**
+     * Return the status as JSON object.
+     */
+    public JSONObject toJSON() throws JSONException {
+        final JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("operation", operation);
+        json.put("source", source);
+        json.put("destination", destination);
+        json.put("state", state);
+        json.put("items", getItems());
+        json.put("partitions", getPartitions());
+        json.put("pendingPartitions", Math.max(0, pendingPartitions.get()));
+        json.put("created", created);
+        if (isFinished()) {
+            json.put("finished", finished);
+        }
+        final JSONArray errorArray = new JSONArray();
+        for (final String error : getErrors()) {
+            errorArray.put(error);
+        }
+        json.put("errors", errorArray);
+        return json;
+    }
+}
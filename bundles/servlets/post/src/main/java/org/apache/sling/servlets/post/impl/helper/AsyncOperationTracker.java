@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.sling.commons.threads.ThreadPool;
+
+/**
+ * The <code>AsyncOperationTracker</code> executes the partitions of
+ * asynchronous copy and move operations on a thread pool and keeps the
+ * {@link AsyncOperationStatus} of these operations for the
+ * {@link #STATUS_PATH status resource}.
+ * <p>
+ * The status of a finished operation is kept for
+ * {@link #DEFAULT_RETENTION_TIME} milliseconds.
+ */
+public class AsyncOperationTracker {
+
+    /** The path of the servlet reporting the status of the operations. */
+    public static final String STATUS_PATH = "/system/sling/post/operations";
+
+    /** The default number of nodes committed together by a partition. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /** The default number of partitions a copy is split into. */
+    public static final int DEFAULT_PARTITIONS = 8;
+
+    /** Time in milliseconds the status of finished operations is kept. */
+    public static final long DEFAULT_RETENTION_TIME = 60L * 60L * 1000L;
+
+    private final Map<String, AsyncOperationStatus> operations = new ConcurrentHashMap<String, AsyncOperationStatus>();
+
+    private volatile ThreadPool threadPool;
+
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    private volatile int partitions = DEFAULT_PARTITIONS;
+
+    /**
+     * Set the thread pool executing the operations. Asynchronous operations
+     * are only available while a thread pool is set.
+     */
+    public void setThreadPool(final ThreadPool threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    public boolean isAvailable() {
+        return this.threadPool != null;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Return the number of partitions a copy should be split into.
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(final int partitions) {
+        this.partitions = partitions > 0 ? partitions : DEFAULT_PARTITIONS;
+    }
+
+    /**
+     * Create and register the status of a new operation.
+     */
+    public AsyncOperationStatus create(final String operation,
+            final String source, final String destination, final String userId) {
+        purge();
+        final String id = UUID.randomUUID().toString();
+        final AsyncOperationStatus status = new AsyncOperationStatus(id,
+            operation, source, destination, userId);
+        this.operations.put(id, status);
+        return status;
+    }
+
+    /**
+     * Return the status of the operation or <code>null</code> if the
+     * operation is unknown or its status has expired.
+     */
+    public AsyncOperationStatus get(final String id) {
+        return this.operations.get(id);
+    }
+
+    /**
+     * Execute a partition of an operation.
+     *
+     * @throws IllegalStateException If no thread pool is available
+     */
+    public void execute(final Runnable partition) {
+        final ThreadPool pool = this.threadPool;
+        if (pool == null) {
+            throw new IllegalStateException("No thread pool available for asynchronous operations");
+        }
+        pool.execute(partition);
+    }
+
+    /**
+     * Remove the status of operations finished before the retention time.
+     */
+    private void purge() {
+        final long expired = System.currentTimeMillis() - DEFAULT_RETENTION_TIME;
+        final Iterator<AsyncOperationStatus> iter = this.operations.values().iterator();
+        while (iter.hasNext()) {
+            final AsyncOperationStatus status = iter.next();
+            if (status.isFinished() && status.getFinished() < expired) {
+                iter.remove();
+            }
+        }
+    }
+}
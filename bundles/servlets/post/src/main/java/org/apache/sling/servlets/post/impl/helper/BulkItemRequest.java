@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.request.RequestParameterMap;
+import org.apache.sling.api.resource.NonExistingResource;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.wrappers.SlingHttpServletRequestWrapper;
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.servlets.post.SlingPostConstants;
+
+/**
+ * The <code>BulkItemRequest</code> presents a single entry of a bulk
+ * operation to a post operation as if it were a request of its own: the
+ * request resource is the resource addressed by the entry and the request
+ * parameters are the parameters of the entry.
+ * <p>
+ * Session handling is always skipped for the wrapped operation, the
+ * bulk operation commits the changes of several entries at once.
+ */
+public class BulkItemRequest extends SlingHttpServletRequestWrapper {
+
+    /** Name of the entry property holding the resource path. */
+    public static final String PROP_PATH = "path";
+
+    /** Name of the entry property holding the request parameters. */
+    public static final String PROP_PARAMETERS = "parameters";
+
+    private final Resource resource;
+
+    private final ItemParameterMap parameters = new ItemParameterMap();
+
+    /**
+     * Creates the request for a single bulk entry.
+     *
+     * @param request The bulk request
+     * @param entry The JSON object describing the entry
+     * @throws JSONException If the entry has no path or invalid parameters
+     */
+    public BulkItemRequest(final SlingHttpServletRequest request,
+            final JSONObject entry)
+    throws JSONException {
+        super(request);
+        final String path = entry.getString(PROP_PATH);
+        final Resource existing = request.getResourceResolver().getResource(path);
+        if (existing != null) {
+            this.resource = existing;
+        } else {
+            this.resource = new NonExistingResource(request.getResourceResolver(), path);
+        }
+
+        final JSONObject params = entry.optJSONObject(PROP_PARAMETERS);
+        if (params != null) {
+            final Iterator<?> names = params.keys();
+            while (names.hasNext()) {
+                final String name = names.next().toString();
+                final Object value = params.get(name);
+                final RequestParameter[] values;
+                if (value instanceof JSONArray) {
+                    final JSONArray array = (JSONArray) value;
+                    values = new RequestParameter[array.length()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = new StringRequestParameter(array.getString(i));
+                    }
+                } else {
+                    values = new RequestParameter[] { new StringRequestParameter(
+                        JSONObject.NULL.equals(value) ? "" : value.toString()) };
+                }
+                this.parameters.put(name, values);
+            }
+        }
+    }
+
+    @Override
+    public Resource getResource() {
+        return this.resource;
+    }
+
+    @Override
+    public Object getAttribute(final String name) {
+        if (SlingPostConstants.ATTR_SKIP_SESSION_HANDLING.equals(name)) {
+            return "true";
+        }
+        return super.getAttribute(name);
+    }
+
+    @Override
+    public RequestParameter getRequestParameter(final String name) {
+        return this.parameters.getValue(name);
+    }
+
+    @Override
+    public RequestParameter[] getRequestParameters(final String name) {
+        return this.parameters.getValues(name);
+    }
+
+    @Override
+    public RequestParameterMap getRequestParameterMap() {
+        return this.parameters;
+    }
+
+    @Override
+    public String getParameter(final String name) {
+        final RequestParameter value = this.parameters.getValue(name);
+        return value == null ? null : value.getString();
+    }
+
+    @Override
+    public String[] getParameterValues(final String name) {
+        final RequestParameter[] values = this.parameters.getValues(name);
+        if (values == null) {
+            return null;
+        }
+        final String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i].getString();
+        }
+        return result;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(this.parameters.keySet());
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        final Map<String, String[]> result = new LinkedHashMap<String, String[]>();
+        for (final String name : this.parameters.keySet()) {
+            result.put(name, getParameterValues(name));
+        }
+        return result;
+    }
+
+    private static final class ItemParameterMap
+        extends LinkedHashMap<String, RequestParameter[]>
+        implements RequestParameterMap {
+
+        private static final long serialVersionUID = 1L;
+
+        public RequestParameter[] getValues(final String name) {
+            return get(name);
+        }
+
+        public RequestParameter getValue(final String name) {
+            final RequestParameter[] values = get(name);
+            return (values == null || values.length == 0) ? null : values[0];
+        }
+    }
+
+    private static final class StringRequestParameter implements RequestParameter {
+
+        private static final String ENCODING = "UTF-8";
+
+        private final String value;
+
+        StringRequestParameter(final String value) {
+            this.value = value;
+        }
+
+        public boolean isFormField() {
+            return true;
+        }
+
+        public String getContentType() {
+            return null;
+        }
+
+        public long getSize() {
+            return get().length;
+        }
+
+        public byte[] get() {
+            try {
+                return this.value.getBytes(ENCODING);
+            } catch (final UnsupportedEncodingException uee) {
+                // UTF-8 is always supported
+                return this.value.getBytes();
+            }
+        }
+
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(get());
+        }
+
+        public String getFileName() {
+            return null;
+        }
+
+        public String getString() {
+            return this.value;
+        }
+
+        public String getString(final String encoding) {
+            return this.value;
+        }
+
+        @Override
+        public String toString() {
+            return this.value;
+        }
+    }
+}
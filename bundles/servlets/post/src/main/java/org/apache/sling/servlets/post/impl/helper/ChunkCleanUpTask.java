@@ -79,6 +79,11 @@ public class ChunkCleanUpTask implements Runnable {
     @Property(intValue = 360, description = "The chunk's age in minutes before it is considered for clean up.")
     private static final String CHUNK_CLEANUP_AGE = "chunk.cleanup.age";
 
+    /**
+     * Number of removed chunk uploads persisted together.
+     */
+    private static final int SAVE_BATCH_SIZE = 100;
+
     private SlingFileUploadHandler uploadhandler = new SlingFileUploadHandler();
 
     /**
@@ -117,25 +122,23 @@ public class ChunkCleanUpTask implements Runnable {
             QueryResult queryres = qm.createQuery(
                 "SELECT * FROM [sling:chunks] ", Query.JCR_SQL2).execute();
             NodeIterator nodeItr = queryres.getNodes();
+            final long now = System.currentTimeMillis();
+            int pending = 0;
             while (nodeItr.hasNext()) {
                 Node node = nodeItr.nextNode();
-                if (isEligibleForCleanUp(node)) {
+                if (isEligibleForCleanUp(node, now)) {
                     numCleaned++;
                     uploadhandler.deleteChunks(node);
+                    pending++;
+                    if (pending >= SAVE_BATCH_SIZE) {
+                        save(admin);
+                        pending = 0;
+                    }
                 } else {
                     numLive++;
                 }
             }
-            if (admin.hasPendingChanges()) {
-                try {
-                    admin.refresh(true);
-                    admin.save();
-                } catch (InvalidItemStateException iise) {
-                    log.info("ChunkCleanUpTask: Concurrent modification to one or more of the chunk to be removed. Retrying later");
-                } catch (RepositoryException re) {
-                    log.info("ChunkCleanUpTask: Failed persisting chunk removal. Retrying later");
-                }
-            }
+            save(admin);
 
         } catch (Throwable t) {
             log.error(
@@ -152,24 +155,65 @@ public class ChunkCleanUpTask implements Runnable {
             new Object[] { numCleaned, (end - start), numLive });
     }
 
+    /**
+     * Persist the removal of chunks. Failures are logged only, the chunks are
+     * removed during the next run.
+     */
+    private void save(final Session admin) {
+        try {
+            if (admin.hasPendingChanges()) {
+                admin.refresh(true);
+                admin.save();
+            }
+        } catch (InvalidItemStateException iise) {
+            log.info("ChunkCleanUpTask: Concurrent modification to one or more of the chunk to be removed. Retrying later");
+            refresh(admin);
+        } catch (RepositoryException re) {
+            log.info("ChunkCleanUpTask: Failed persisting chunk removal. Retrying later");
+            refresh(admin);
+        }
+    }
+
+    private void refresh(final Session admin) {
+        try {
+            admin.refresh(false);
+        } catch (RepositoryException re) {
+            log.debug("ChunkCleanUpTask: Unable to drop pending changes", re);
+        }
+    }
+
     /**
      * Check if {@link Node} is eligible of
      * {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE} cleanup. To be
-     * eligible the age of last
-     * {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE} uploaded should be
-     * greater than @link {@link #chunkCleanUpAge}
+     * eligible the time of the last chunk upload should be longer ago than
+     * {@link #chunkCleanUpAge}.
+     * <p>
+     * Every chunk upload request updates the <code>jcr:lastModified</code>
+     * property of the node holding the chunks, so usually a single property
+     * is read. Only if that property is missing, the creation dates of the
+     * chunks are checked.
      *
      * @param node {@link Node} containing
      *            {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE}
      *            {@link Node}s
+     * @param now the current time
      * @return true if eligible else false.
      * @throws RepositoryException
      */
-    private boolean isEligibleForCleanUp(Node node) throws RepositoryException {
-        Node lastChunkNode = uploadhandler.getLastChunk(node);
-        return lastChunkNode != null
-            && (System.currentTimeMillis() - lastChunkNode.getProperty(
-                javax.jcr.Property.JCR_CREATED).getDate().getTimeInMillis()) > chunkCleanUpAge;
+    private boolean isEligibleForCleanUp(final Node node, final long now) throws RepositoryException {
+        final long lastUpload;
+        if (node.hasProperty(SlingFileUploadHandler.JCR_LASTMODIFIED)) {
+            lastUpload = node.getProperty(SlingFileUploadHandler.JCR_LASTMODIFIED).getDate().getTimeInMillis();
+        } else {
+            final Node lastChunkNode = uploadhandler.getLastChunk(node);
+            if (lastChunkNode == null) {
+                // no chunks at all, nothing to wait for
+                return true;
+            }
+            lastUpload = lastChunkNode.getProperty(
+                javax.jcr.Property.JCR_CREATED).getDate().getTimeInMillis();
+        }
+        return (now - lastUpload) > chunkCleanUpAge;
     }
 
     @Activate
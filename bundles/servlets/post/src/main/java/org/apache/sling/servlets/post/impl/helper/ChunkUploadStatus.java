@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+
+/**
+ * <code>ChunkUploadStatus</code> describes a chunk upload in progress: the
+ * byte ranges already uploaded and, if the file length is known, the byte
+ * ranges still missing.
+ * <p>
+ * Chunks have to be added in offset order.
+ */
+public class ChunkUploadStatus {
+
+    private final String path;
+
+    private final long fileLength;
+
+    private final List<long[]> chunks = new ArrayList<long[]>();
+
+    /**
+     * @param path The path of the node holding the chunks
+     * @param fileLength The length of the complete file or -1 if not known yet
+     */
+    public ChunkUploadStatus(final String path, final long fileLength) {
+        this.path = path;
+        this.fileLength = fileLength;
+    }
+
+    /**
+     * Add an uploaded chunk. The end is inclusive.
+     */
+    public void addChunk(final long start, final long end) {
+        this.chunks.add(new long[] {start, end});
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Return the length of the complete file or -1 if not known yet.
+     */
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    /**
+     * Return the number of bytes uploaded so far.
+     */
+    public long getUploadedLength() {
+        long length = 0;
+        for (final long[] chunk : chunks) {
+            length += chunk[1] - chunk[0] + 1;
+        }
+        return length;
+    }
+
+    /**
+     * Return the uploaded byte ranges as pairs of start and inclusive end.
+     */
+    public List<long[]> getUploadedRanges() {
+        return merge(chunks);
+    }
+
+    /**
+     * Return the missing byte ranges as pairs of start and inclusive end.
+     * If the file length is not known yet, only the gaps before the last
+     * uploaded chunk are returned.
+     */
+    public List<long[]> getMissingRanges() {
+        final List<long[]> missing = new ArrayList<long[]>();
+        long next = 0;
+        for (final long[] range : getUploadedRanges()) {
+            if (range[0] > next) {
+                missing.add(new long[] {next, range[0] - 1});
+            }
+            next = range[1] + 1;
+        }
+        if (fileLength > next) {
+            missing.add(new long[] {next, fileLength - 1});
+        }
+        return missing;
+    }
+
+    /**
+     * Return the status as JSON object.
+     */
+    public JSONObject toJSON() throws JSONException {
+        final JSONObject json = new JSONObject();
+        json.put("path", path);
+        if (fileLength >= 0) {
+            json.put("fileLength", fileLength);
+        }
+        json.put("uploadedLength", getUploadedLength());
+        json.put("uploaded", toJSON(getUploadedRanges()));
+        json.put("missing", toJSON(getMissingRanges()));
+        return json;
+    }
+
+    private static JSONArray toJSON(final List<long[]> ranges) {
+        final JSONArray array = new JSONArray();
+        for (final long[] range : ranges) {
+            final JSONArray pair = new JSONArray();
+            pair.put(range[0]);
+            pair.put(range[1]);
+            array.put(pair);
+        }
+        return array;
+    }
+
+    /**
+     * Merge adjacent ranges.
+     */
+    private static List<long[]> merge(final List<long[]> ranges) {
+        final List<long[]> result = new ArrayList<long[]>();
+        long[] current = null;
+        for (final long[] range : ranges) {
+            if (current != null && range[0] == current[1] + 1) {
+                current[1] = range[1];
+            } else {
+                current = new long[] {range[0], range[1]};
+                result.add(current);
+            }
+        }
+        return result;
+    }
+}
@@ -16,22 +16,16 @@
  */
 package org.apache.sling.servlets.post.impl.helper;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.SequenceInputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
@@ -40,7 +34,6 @@ import javax.jcr.nodetype.NodeType;
 import javax.jcr.nodetype.NodeTypeManager;
 import javax.servlet.ServletContext;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.jackrabbit.util.Text;
 import org.apache.sling.api.request.RequestParameter;
 import org.apache.sling.api.resource.ModifiableValueMap;
@@ -106,6 +99,16 @@ public class SlingFileUploadHandler {
     
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    /**
+     * Locks serializing the chunk uploads to the same file in this instance.
+     */
+    private static final Object[] CHUNK_LOCKS = new Object[64];
+    static {
+        for (int i = 0; i < CHUNK_LOCKS.length; i++) {
+            CHUNK_LOCKS[i] = new Object();
+        }
+    }
+
     /**
      * The servlet context.
      */
@@ -180,7 +183,7 @@ public class SlingFileUploadHandler {
         try {
             // process chunk upload request separately
             if (prop.isChunkUpload()) {
-                processChunk(resParent, res, prop, value, changes);
+                processChunk(res, prop, value, changes);
             } else {
                 changes.add(Modification.onModified(res.setProperty(JCR_DATA,
                         value.getInputStream()).getPath()));
@@ -240,178 +243,291 @@ public class SlingFileUploadHandler {
         }
     }
     /**
-     * Process chunk upload. For first and intermediate chunks request persists
-     * chunks at jcr:content/chunk_start_end/jcr:data or
-     * nt:resource/chunk_start_end/jcr:data. For last last chunk,
-     * merge all previous chunks and last chunk and replace binary at
-     * destination.
+     * Process chunk upload. Chunks may arrive in any order as long as they do
+     * not overlap. Every chunk except the one completing the file is persisted
+     * at jcr:content/chunk_start_end/jcr:data or
+     * nt:resource/chunk_start_end/jcr:data. Once the chunks cover the whole
+     * file without gaps, all chunks are streamed in offset order into the
+     * binary at destination and the chunk nodes are removed.
+     * <p>
+     * The file length is taken from the {@link SlingPostConstants#SUFFIX_LENGTH}
+     * parameter of any chunk or, if a chunk is flagged with
+     * {@link SlingPostConstants#SUFFIX_COMPLETED}, from the end of that chunk.
+     * <p>
+     * The chunk and the upload state are only recorded as modifications of the
+     * session, committing them is left to the session handling of the post
+     * operation. The chunks are checked while holding a lock for the file, so
+     * requests of this instance do not check the same chunks at the same time;
+     * chunks which are not committed yet are not seen by other requests.
      */
-    private void processChunk(final Resource resParent, final Node res,
-            final RequestProperty prop, RequestParameter value,
-            final List<Modification> changes) throws RepositoryException {
-        try {
-            long chunkOffset = prop.getChunk().getOffset();
-            if (chunkOffset == 0) {
-                // first chunk
-                // check if another chunk upload is already in progress. throw
-                // exception
-                NodeIterator itr = res.getNodes(SlingPostConstants.CHUNK_NODE_NAME
-                    + "*");
-                if (itr.hasNext()) {
-                    throw new RepositoryException(
-                        "Chunk upload already in progress at {" + res.getPath()
-                            + "}");
+    void processChunk(final Node res, final RequestProperty prop,
+            final RequestParameter value, final List<Modification> changes)
+            throws RepositoryException {
+        synchronized (getChunkLock(res.getPath())) {
+            try {
+                final long chunkOffset = prop.getChunk().getOffset();
+                final long chunkEnd = chunkOffset + value.getSize() - 1;
+                if (!hasChunks(res)) {
+                    // start a new upload session
+                    res.addMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
+                    if (!res.hasProperty(JCR_DATA)) {
+                        // create a empty jcr:data property
+                        res.setProperty(JCR_DATA,
+                            new ByteArrayInputStream("".getBytes()));
+                    }
                 }
-                res.addMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
-                changes.add(Modification.onModified(res.setProperty(
-                    SlingPostConstants.NT_SLING_CHUNKS_LENGTH, 0).getPath()));
-                if (!res.hasProperty(JCR_DATA)) {
-                    // create a empty jcr:data property
-                    res.setProperty(JCR_DATA,
-                        new ByteArrayInputStream("".getBytes()));
+
+                final List<ChunkRange> chunks = getChunks(res);
+                for (final ChunkRange chunk : chunks) {
+                    if (chunk.start <= chunkEnd && chunkOffset <= chunk.end) {
+                        throw new RepositoryException("Chunk already present at {"
+                            + chunk.node.getPath() + "}");
+                    }
+                }
+
+                final long totalLength = getFileLength(res, prop, chunkEnd);
+                if (totalLength != 0 && chunkEnd >= totalLength) {
+                    throw new RepositoryException("Chunk {" + chunkOffset + "-"
+                        + chunkEnd + "} exceeds file length {" + totalLength + "}");
+                }
+
+                final ChunkRange current = new ChunkRange(chunkOffset, chunkEnd, null);
+                chunks.add(current);
+                Collections.sort(chunks);
+
+                if (totalLength != 0 && isContiguous(chunks, totalLength)) {
+                    completeUpload(res, chunks, value.getInputStream(), changes);
+                } else {
+                    String nodeName = SlingPostConstants.CHUNK_NODE_NAME + "_"
+                        + String.valueOf(chunkOffset) + "_"
+                        + String.valueOf(chunkEnd);
+                    Node rangeNode = res.addNode(nodeName,
+                        SlingPostConstants.NT_SLING_CHUNK_NODETYPE);
+                    changes.add(Modification.onCreated(rangeNode.getPath()));
+                    changes.add(Modification.onModified(rangeNode.setProperty(
+                        JCR_DATA, value.getInputStream()).getPath()));
+                    changes.add(Modification.onModified(rangeNode.setProperty(
+                        SlingPostConstants.NT_SLING_CHUNK_OFFSET, chunkOffset).getPath()));
+                    changes.add(Modification.onModified(res.setProperty(
+                        SlingPostConstants.NT_SLING_CHUNKS_LENGTH,
+                        getUploadedLength(chunks)).getPath()));
                 }
+            } catch (IOException e) {
+                throw new RepositoryException(
+                    "Error while retrieving inputstream from parameter value.", e);
             }
-            if (!res.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH)) {
-                throw new RepositoryException("no chunk upload found at {"
-                    + res.getPath() + "}");
+        }
+    }
+
+    /**
+     * Return the lock for the chunk uploads to the node at the path.
+     */
+    private static Object getChunkLock(final String path) {
+        return CHUNK_LOCKS[(path.hashCode() & Integer.MAX_VALUE) % CHUNK_LOCKS.length];
+    }
+
+    /**
+     * Return the length of the file, <code>0</code> if it is not known yet.
+     * The length is stored at the node when it is first known.
+     */
+    private long getFileLength(final Node res, final RequestProperty prop,
+            final long chunkEnd) throws RepositoryException {
+        long totalLength = prop.getChunk().getLength();
+        if (totalLength == 0 && prop.getChunk().isCompleted()) {
+            totalLength = chunkEnd + 1;
+        }
+        if (res.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
+            final long expectedLength = res.getProperty(
+                SlingPostConstants.NT_SLING_FILE_LENGTH).getLong();
+            if (totalLength != 0 && totalLength != expectedLength) {
+                throw new RepositoryException("File length {"
+                    + totalLength + "} doesn't match expected length {"
+                    + expectedLength + "}");
             }
-            long currentLength = res.getProperty(
-                SlingPostConstants.NT_SLING_CHUNKS_LENGTH).getLong();
-            long totalLength = prop.getChunk().getLength();
-            if (chunkOffset != currentLength) {
-                throw new RepositoryException("Chunk's offset {"
-                    + chunkOffset
-                    + "} doesn't match expected offset {"
-                    + res.getProperty(
-                        SlingPostConstants.NT_SLING_CHUNKS_LENGTH).getLong()
-                    + "}");
+            totalLength = expectedLength;
+        } else if (totalLength != 0) {
+            res.setProperty(SlingPostConstants.NT_SLING_FILE_LENGTH,
+                totalLength);
+        }
+        return totalLength;
+    }
+
+    /**
+     * Merge the complete chunks into the binary of the node and remove the
+     * chunk nodes and the upload state.
+     * @param currentChunkStream The stream of the chunk without node.
+     */
+    private void completeUpload(final Node res, final List<ChunkRange> chunks,
+            final InputStream currentChunkStream, final List<Modification> changes)
+            throws RepositoryException {
+        changes.add(Modification.onModified(res.setProperty(
+            JCR_DATA, new ChunkInputStream(chunks, currentChunkStream)).getPath()));
+        for (final ChunkRange chunk : chunks) {
+            if (chunk.node != null) {
+                changes.add(Modification.onDeleted(chunk.node.getPath()));
+                chunk.node.remove();
             }
-            if (totalLength != 0) {
-                if (res.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
-                    long expectedLength = res.getProperty(
-                        SlingPostConstants.NT_SLING_FILE_LENGTH).getLong();
-                    if (totalLength != expectedLength) {
-                        throw new RepositoryException("File length {"
-                            + totalLength + "} doesn't match expected length {"
-                            + expectedLength + "}");
-                    }
+        }
+        if (res.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
+            javax.jcr.Property expLenProp = res.getProperty(SlingPostConstants.NT_SLING_FILE_LENGTH);
+            changes.add(Modification.onDeleted(expLenProp.getPath()));
+            expLenProp.remove();
+        }
+        if (res.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH)) {
+            javax.jcr.Property currLenProp = res.getProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH);
+            changes.add(Modification.onDeleted(currLenProp.getPath()));
+            currLenProp.remove();
+        }
+        res.removeMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
+    }
+
+    /**
+     * A stream of all chunks in offset order. The binaries of the persisted
+     * chunks are only opened when the stream reaches them, the chunk without
+     * node is read from the given stream. Nothing is buffered, the repository
+     * reads every byte exactly once.
+     */
+    private final class ChunkInputStream extends InputStream {
+
+        private final Iterator<ChunkRange> chunks;
+
+        private final InputStream currentChunkStream;
+
+        private InputStream current;
+
+        ChunkInputStream(final List<ChunkRange> chunks,
+                final InputStream currentChunkStream) {
+            this.chunks = chunks.iterator();
+            this.currentChunkStream = currentChunkStream;
+        }
+
+        /**
+         * Return the stream of the current chunk, <code>null</code> at the end.
+         */
+        private InputStream getCurrent() throws IOException {
+            if (current == null && chunks.hasNext()) {
+                final ChunkRange chunk = chunks.next();
+                if (chunk.node == null) {
+                    current = currentChunkStream;
                 } else {
-                    res.setProperty(SlingPostConstants.NT_SLING_FILE_LENGTH,
-                        totalLength);
+                    log.debug("adding chunk {} to merge stream", chunk);
+                    try {
+                        current = chunk.node.getProperty(
+                            javax.jcr.Property.JCR_DATA).getBinary().getStream();
+                    } catch (final RepositoryException re) {
+                        final IOException ioe = new IOException("Unable to read chunk " + chunk);
+                        ioe.initCause(re);
+                        throw ioe;
+                    }
                 }
             }
-            NodeIterator itr = res.getNodes(SlingPostConstants.CHUNK_NODE_NAME
-                + "_" + String.valueOf(chunkOffset) + "*");
-            if (itr.hasNext()) {
-                throw new RepositoryException("Chunk already present at {"
-                    + itr.nextNode().getPath() + "}");
-            }
-            String nodeName = SlingPostConstants.CHUNK_NODE_NAME + "_"
-                + String.valueOf(chunkOffset) + "_"
-                + String.valueOf(chunkOffset + value.getSize() - 1);
-            if (totalLength == (currentLength + value.getSize())
-                || prop.getChunk().isCompleted()) {
-                File file = null;
-                InputStream fileIns = null;
-                try {
-                    file = mergeChunks(res, value.getInputStream());
-                    fileIns = new FileInputStream(file);
-                    changes.add(Modification.onModified(res.setProperty(
-                        JCR_DATA, fileIns).getPath()));
-                    NodeIterator nodeItr = res.getNodes(SlingPostConstants.CHUNK_NODE_NAME
-                        + "*");
-                    while (nodeItr.hasNext()) {
-                        Node nodeRange = nodeItr.nextNode();
-                        changes.add(Modification.onDeleted(nodeRange.getPath()));
-                        nodeRange.remove();
-                    }
-                    if (res.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
-                        javax.jcr.Property expLenProp = res.getProperty(SlingPostConstants.NT_SLING_FILE_LENGTH);
-                        changes.add(Modification.onDeleted(expLenProp.getPath()));
-                        expLenProp.remove();
-                    }
-                    if (res.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH)) {
-                        javax.jcr.Property currLenProp = res.getProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH);
-                        changes.add(Modification.onDeleted(currLenProp.getPath()));
-                        currLenProp.remove();
-                    }
-                    res.removeMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
-                } finally {
-                    try {
-                        fileIns.close();
-                        file.delete();
-                    } catch (IOException ign) {
+            return current;
+        }
 
-                    }
+        @Override
+        public int read() throws IOException {
+            InputStream in;
+            while ((in = getCurrent()) != null) {
+                final int b = in.read();
+                if (b != -1) {
+                    return b;
+                }
+                nextChunk();
+            }
+            return -1;
+        }
 
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            InputStream in;
+            while ((in = getCurrent()) != null) {
+                final int n = in.read(b, off, len);
+                if (n > 0) {
+                    return n;
                 }
-            } else {
-                Node rangeNode = res.addNode(nodeName,
-                    SlingPostConstants.NT_SLING_CHUNK_NODETYPE);
-                changes.add(Modification.onCreated(rangeNode.getPath()));
-                changes.add(Modification.onModified(rangeNode.setProperty(
-                    JCR_DATA, value.getInputStream()).getPath()));
-                changes.add(Modification.onModified(rangeNode.setProperty(
-                    SlingPostConstants.NT_SLING_CHUNK_OFFSET, chunkOffset).getPath()));
-                changes.add(Modification.onModified(res.setProperty(
-                    SlingPostConstants.NT_SLING_CHUNKS_LENGTH,
-                    currentLength + value.getSize()).getPath()));
+                nextChunk();
+            }
+            return -1;
+        }
+
+        private void nextChunk() throws IOException {
+            final InputStream in = current;
+            current = null;
+            in.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            while (current != null) {
+                nextChunk();
             }
-        } catch (IOException e) {
-            throw new RepositoryException(
-                "Error while retrieving inputstream from parameter value.", e);
         }
     }
 
     /**
-     * Merge all previous chunks with last chunk's stream into a temporary file
-     * and return it.
+     * Check whether the sorted chunks cover the complete file.
      */
-    private File mergeChunks(final Node parentNode,
-            final InputStream lastChunkStream) throws PersistenceException,
-            RepositoryException {
-        OutputStream out = null;
-        SequenceInputStream  mergeStrm = null;
-        File file = null;
-        try {
-            file = File.createTempFile("tmp-", "-mergechunk");
-            out = new FileOutputStream(file);
-            String startPattern = SlingPostConstants.CHUNK_NODE_NAME + "_"
-                + "0_*";
-            NodeIterator nodeItr = parentNode.getNodes(startPattern);
-            InputStream ins = null;
-            int i = 0;
-            Set<InputStream> inpStrmSet = new LinkedHashSet<InputStream>();
-            while (nodeItr.hasNext()) {
-                if (nodeItr.getSize() > 1) {
-                    throw new RepositoryException(
-                        "more than one node found for pattern: " + startPattern);
-                }
-                Node rangeNode = nodeItr.nextNode();
-
-                inpStrmSet.add(rangeNode.getProperty(
-                    javax.jcr.Property.JCR_DATA).getBinary().getStream());
-                log.debug("added chunk {} to merge stream", rangeNode.getName());
-                String[] indexBounds = rangeNode.getName().substring(
-                    (SlingPostConstants.CHUNK_NODE_NAME + "_").length()).split(
-                    "_");
-                startPattern = SlingPostConstants.CHUNK_NODE_NAME + "_"
-                    + String.valueOf(Long.valueOf(indexBounds[1]) + 1) + "_*";
-                nodeItr = parentNode.getNodes(startPattern);
+    private static boolean isContiguous(final List<ChunkRange> chunks, final long fileLength) {
+        long next = 0;
+        for (final ChunkRange chunk : chunks) {
+            if (chunk.start != next) {
+                return false;
             }
+            next = chunk.end + 1;
+        }
+        return next == fileLength;
+    }
 
-            inpStrmSet.add(lastChunkStream);
-            mergeStrm = new SequenceInputStream(
-                Collections.enumeration(inpStrmSet));
-            IOUtils.copyLarge(mergeStrm, out);
-        } catch (IOException e) {
-            throw new PersistenceException("excepiton occured", e);
-        } finally {
-            IOUtils.closeQuietly(out);
-            IOUtils.closeQuietly(mergeStrm);
+    private static long getUploadedLength(final List<ChunkRange> chunks) {
+        long length = 0;
+        for (final ChunkRange chunk : chunks) {
+            length += chunk.end - chunk.start + 1;
+        }
+        return length;
+    }
 
+    /**
+     * Return all persisted chunks of the node sorted by offset. The ranges
+     * are taken from the chunk node names, which avoids reading properties.
+     */
+    private List<ChunkRange> getChunks(final Node chunkParent) throws RepositoryException {
+        final List<ChunkRange> chunks = new ArrayList<ChunkRange>();
+        final String prefix = SlingPostConstants.CHUNK_NODE_NAME + "_";
+        final NodeIterator nodeItr = chunkParent.getNodes(prefix + "*");
+        while (nodeItr.hasNext()) {
+            final Node rangeNode = nodeItr.nextNode();
+            final String[] indexBounds = rangeNode.getName().substring(
+                prefix.length()).split("_");
+            try {
+                chunks.add(new ChunkRange(Long.parseLong(indexBounds[0]),
+                    Long.parseLong(indexBounds[1]), rangeNode));
+            } catch (final RuntimeException e) {
+                log.warn("Ignoring chunk with invalid name {}", rangeNode.getPath());
+            }
+        }
+        Collections.sort(chunks);
+        return chunks;
+    }
+
+    /**
+     * Return the node holding the chunks: either the node itself or its
+     * jcr:content child node. Returns <code>null</code> if no chunk upload
+     * is in progress.
+     */
+    private Node getChunkParent(final Node node) throws RepositoryException {
+        if (hasChunks(node)) {
+            return node;
         }
-        return file;
+        if (node.hasNode(JCR_CONTENT)) {
+            final Node jcrContentNode = node.getNode(JCR_CONTENT);
+            if (hasChunks(jcrContentNode)) {
+                return jcrContentNode;
+            }
+        }
+        return null;
     }
 
     /**
@@ -420,15 +536,7 @@ public class SlingFileUploadHandler {
     public void deleteChunks(final Node node) throws RepositoryException {
         // parent node containing all chunks and has mixin sling:chunks applied
         // on it.
-        Node chunkParent = null;
-        Node jcrContentNode = null;
-        if (hasChunks(node)) {
-            chunkParent = node;
-        } else if (node.hasNode(JCR_CONTENT)
-            && hasChunks((jcrContentNode = node.getNode(JCR_CONTENT)))) {
-            chunkParent = jcrContentNode;
-
-        }
+        final Node chunkParent = getChunkParent(node);
         if (chunkParent != null) {
             NodeIterator nodeItr = chunkParent.getNodes(SlingPostConstants.CHUNK_NODE_NAME
                 + "*");
@@ -448,45 +556,59 @@ public class SlingFileUploadHandler {
     }
 
     /**
-     * Get the last {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE}
-     * {@link Node}.
-     * 
+     * Get the most recently uploaded
+     * {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE} {@link Node}. As
+     * chunks may be uploaded in any order, this is not necessarily the chunk
+     * with the highest offset.
+     *
      * @param node {@link Node} containing
      *            {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE}
      *            {@link Node}s
      * @return the {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE} chunk
-     *         node.
+     *         node or <code>null</code> if there is none.
      * @throws RepositoryException
      */
     public Node getLastChunk(Node node) throws RepositoryException {
-        // parent node containing all chunks and has mixin sling:chunks applied
-        // on it.
-        Node chunkParent = null;
-        Node jcrContentNode = null;
-        if (hasChunks(node)) {
-            chunkParent = node;
-        } else if (node.hasNode(JCR_CONTENT)
-            && hasChunks((jcrContentNode = node.getNode(JCR_CONTENT)))) {
-            chunkParent = jcrContentNode;
-
+        final Node chunkParent = getChunkParent(node);
+        if (chunkParent == null) {
+            return null;
         }
-        String startPattern = SlingPostConstants.CHUNK_NODE_NAME + "_" + "0_*";
-        NodeIterator nodeItr = chunkParent.getNodes(startPattern);
-        Node chunkNode = null;
+        Node lastChunk = null;
+        long lastCreated = Long.MIN_VALUE;
+        final NodeIterator nodeItr = chunkParent.getNodes(SlingPostConstants.CHUNK_NODE_NAME + "*");
         while (nodeItr.hasNext()) {
-            if (nodeItr.getSize() > 1) {
-                throw new RepositoryException(
-                    "more than one node found for pattern: " + startPattern);
+            final Node chunkNode = nodeItr.nextNode();
+            final long created = chunkNode.getProperty(
+                javax.jcr.Property.JCR_CREATED).getDate().getTimeInMillis();
+            if (lastChunk == null || created > lastCreated) {
+                lastChunk = chunkNode;
+                lastCreated = created;
             }
-            chunkNode = nodeItr.nextNode();
+        }
+        return lastChunk;
+    }
 
-            String[] indexBounds = chunkNode.getName().substring(
-                (SlingPostConstants.CHUNK_NODE_NAME + "_").length()).split("_");
-            startPattern = SlingPostConstants.CHUNK_NODE_NAME + "_"
-                + String.valueOf(Long.valueOf(indexBounds[1]) + 1) + "_*";
-            nodeItr = chunkParent.getNodes(startPattern);
+    /**
+     * Return the state of the chunk upload at the node or its jcr:content
+     * child node.
+     *
+     * @return the status or <code>null</code> if no chunk upload is in
+     *         progress.
+     */
+    public ChunkUploadStatus getChunkUploadStatus(final Node node) throws RepositoryException {
+        final Node chunkParent = getChunkParent(node);
+        if (chunkParent == null) {
+            return null;
+        }
+        long fileLength = -1;
+        if (chunkParent.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
+            fileLength = chunkParent.getProperty(SlingPostConstants.NT_SLING_FILE_LENGTH).getLong();
         }
-        return chunkNode;
+        final ChunkUploadStatus status = new ChunkUploadStatus(chunkParent.getPath(), fileLength);
+        for (final ChunkRange chunk : getChunks(chunkParent)) {
+            status.addChunk(chunk.start, chunk.end);
+        }
+        return status;
     }
 
     /**
@@ -597,4 +719,31 @@ public class SlingFileUploadHandler {
         return result;
     }
 
-}
\ No newline at end of file
+    /**
+     * The byte range of a chunk. The node is <code>null</code> for the chunk
+     * of the current request, which is not persisted.
+     */
+    private static final class ChunkRange implements Comparable<ChunkRange> {
+
+        final long start;
+
+        final long end;
+
+        final Node node;
+
+        ChunkRange(final long start, final long end, final Node node) {
+            this.start = start;
+            this.end = end;
+            this.node = node;
+        }
+
+        public int compareTo(final ChunkRange o) {
+            return this.start < o.start ? -1 : (this.start == o.start ? 0 : 1);
+        }
+
+        @Override
+        public String toString() {
+            return this.start + "-" + this.end;
+        }
+    }
+}
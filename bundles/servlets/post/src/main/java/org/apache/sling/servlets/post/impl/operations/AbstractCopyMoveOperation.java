@@ -26,13 +26,18 @@ import javax.jcr.Session;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.wrappers.SlingRequestPaths;
 import org.apache.sling.servlets.post.AbstractPostOperation;
 import org.apache.sling.servlets.post.Modification;
 import org.apache.sling.servlets.post.PostResponse;
 import org.apache.sling.servlets.post.SlingPostConstants;
 import org.apache.sling.servlets.post.VersioningConfiguration;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationStatus;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationTracker;
 
 /**
  * The <code>AbstractCopyMoveOperation</code> is the abstract base close for
@@ -41,6 +46,16 @@ import org.apache.sling.servlets.post.VersioningConfiguration;
  */
 abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
 
+    private AsyncOperationTracker asyncOperationTracker;
+
+    /**
+     * Set the tracker used to execute asynchronous operations. If not set,
+     * all operations are executed synchronously.
+     */
+    public void setAsyncOperationTracker(final AsyncOperationTracker tracker) {
+        this.asyncOperationTracker = tracker;
+    }
+
     @Override
     protected final void doRun(SlingHttpServletRequest request,
             PostResponse response,
@@ -73,6 +88,21 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
         // destination parent and name
         String dstParent = trailingSlash ? dest : ResourceUtil.getParent(dest);
 
+        Iterator<Resource> resources = getApplyToResources(request);
+
+        // asynchronous operations checkout nothing, the versionable state of
+        // the destination could change before the operation is executed
+        final boolean async = resources == null && isAsync(request);
+
+        // the destination does not exist before the asynchronous operation
+        // has finished, hence it can't be ordered
+        if (async && request.getParameter(SlingPostConstants.RP_ORDER) != null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST,
+                "Cannot " + getOperationName() + " " + resource + " asynchronously with "
+                    + SlingPostConstants.RP_ORDER);
+            return;
+        }
+
         // delete destination if already exists
         if (!trailingSlash && session.itemExists(dest)) {
 
@@ -83,7 +113,7 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
                     "Cannot " + getOperationName() + " " + resource + " to "
                         + dest + ": destination exists");
                 return;
-            } else {
+            } else if (!async) {
                 checkoutIfNecessary(session.getItem(dest).getParent(), changes, versioningConfiguration);
             }
 
@@ -93,7 +123,9 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
             // if it's a descendant of the current node
             if (!dstParent.equals("")) {
                 if (session.itemExists(dstParent)) {
-                    checkoutIfNecessary((Node) session.getItem(dstParent), changes, versioningConfiguration);
+                    if (!async) {
+                        checkoutIfNecessary((Node) session.getItem(dstParent), changes, versioningConfiguration);
+                    }
                 } else {
                     response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED,
                         "Cannot " + getOperationName() + " " + resource + " to "
@@ -106,7 +138,6 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
             response.setCreateRequest(true);
         }
 
-        Iterator<Resource> resources = getApplyToResources(request);
         Item destItem = null;
         if (resources == null) {
 
@@ -119,6 +150,10 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
             }
 
             String dstName = trailingSlash ? null : ResourceUtil.getName(dest);
+            if (async && item.isNode()) {
+                executeAsync(request, response, item, dstParent, dstName);
+                return;
+            }
             destItem = execute(changes, item, dstParent, dstName, versioningConfiguration);
 
         } else {
@@ -149,6 +184,61 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
         orderNode(request, destItem, changes);
     }
 
+    /**
+     * Returns <code>true</code> if the operation is requested to be executed
+     * asynchronously and asynchronous execution is available. Operations
+     * skipping the session handling are always executed synchronously.
+     */
+    private boolean isAsync(final SlingHttpServletRequest request) {
+        return asyncOperationTracker != null
+            && asyncOperationTracker.isAvailable()
+            && "true".equalsIgnoreCase(request.getParameter(SlingPostConstants.RP_ASYNC))
+            && !isSkipSessionHandling(request);
+    }
+
+    /**
+     * Schedules the asynchronous execution of the operation with a resource
+     * resolver cloned from the request's resolver and sets the response to
+     * <code>202/ACCEPTED</code> with the location of the status resource.
+     */
+    private void executeAsync(final SlingHttpServletRequest request,
+            final PostResponse response,
+            final Item source,
+            final String destParent,
+            final String destName)
+    throws RepositoryException {
+        final String sourcePath = source.getPath();
+        final String dest = ("/".equals(destParent) ? "" : destParent) + "/"
+            + (destName == null ? source.getName() : destName);
+
+        final ResourceResolver resolver;
+        try {
+            resolver = request.getResourceResolver().clone(null);
+        } catch (final LoginException le) {
+            throw new RepositoryException("Unable to create session for asynchronous "
+                + getOperationName(), le);
+        }
+
+        final AsyncOperationStatus status = asyncOperationTracker.create(
+            getOperationName(), sourcePath, dest, resolver.getUserID());
+        try {
+            asyncOperationTracker.execute(createAsyncJob(asyncOperationTracker,
+                status, resolver, sourcePath, destParent, destName));
+        } catch (final RuntimeException re) {
+            resolver.close();
+            status.failed("Unable to schedule " + getOperationName() + ": " + re);
+            throw re;
+        }
+        log.debug("scheduled asynchronous {} of {} to {}", new Object[] {
+            getOperationName(), sourcePath, dest });
+
+        response.setStatus(HttpServletResponse.SC_ACCEPTED, "Accepted "
+            + getOperationName() + " of " + sourcePath + " to " + dest);
+        response.setLocation(SlingRequestPaths.getContextPath(request)
+            + request.getResourceResolver().map(AsyncOperationTracker.STATUS_PATH)
+            + "." + status.getId() + ".json");
+    }
+
     /**
      * Returns a short name to be used in log and status messages.
      */
@@ -171,4 +261,22 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
             String destParent, String destName,
             VersioningConfiguration versioningConfiguration) throws RepositoryException;
 
+    /**
+     * Creates the job executing the operation asynchronously. The job runs
+     * with the given resource resolver, which it has to close when done, and
+     * reports its progress to the status.
+     *
+     * @param tracker The tracker to execute further partitions with.
+     * @param status The status of the operation.
+     * @param resolver The resource resolver to use for the operation.
+     * @param source The absolute path of the source node.
+     * @param destParent The absolute path of the parent of the target node.
+     * @param destName The name of the target node inside the
+     *            <code>destParent</code>. If <code>null</code> the name of
+     *            the <code>source</code> is used as the target node name.
+     */
+    protected abstract Runnable createAsyncJob(AsyncOperationTracker tracker,
+            AsyncOperationStatus status, ResourceResolver resolver,
+            String source, String destParent, String destName);
+
 }
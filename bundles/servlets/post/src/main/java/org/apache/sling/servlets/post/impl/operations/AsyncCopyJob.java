@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationStatus;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>AsyncCopyJob</code> copies a subtree asynchronously in
+ * parallel partitions.
+ * <p>
+ * The job first copies the top levels of the subtree without their child
+ * nodes, breadth first, until a level has at least as many nodes as
+ * {@link AsyncOperationTracker#getPartitions() partitions} are requested.
+ * The nodes of this last level are distributed over the partitions, each of
+ * which copies the remaining descendants of its nodes with a session of its
+ * own. Since every partition creates the child nodes of distinct nodes only,
+ * the order of the child nodes is kept.
+ * <p>
+ * Changes are committed every {@link AsyncOperationTracker#getBatchSize()}
+ * nodes, hence a failed copy is not rolled back but leaves the nodes copied
+ * so far.
+ */
+class AsyncCopyJob implements Runnable {
+
+    /** The maximum number of levels copied before partitioning. */
+    private static final int MAX_PARTITION_DEPTH = 3;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final AsyncOperationTracker tracker;
+
+    private final AsyncOperationStatus status;
+
+    /**
+     * The resolver of the job, partitions clone it. It is closed once the
+     * last partition has finished.
+     */
+    private final ResourceResolver resolver;
+
+    private final String source;
+
+    private final String destParent;
+
+    private final String destName;
+
+    AsyncCopyJob(final AsyncOperationTracker tracker,
+            final AsyncOperationStatus status,
+            final ResourceResolver resolver,
+            final String source,
+            final String destParent,
+            final String destName) {
+        this.tracker = tracker;
+        this.status = status;
+        this.resolver = resolver;
+        this.source = source;
+        this.destParent = destParent;
+        this.destName = destName;
+    }
+
+    public void run() {
+        status.started();
+
+        // the job itself is a partition, ensuring the operation does not
+        // finish before all other partitions have been scheduled
+        status.addPartition();
+
+        String error = null;
+        try {
+            final Batch batch = new Batch(resolver);
+            final Session session = resolver.adaptTo(Session.class);
+            final Node src = session.getNode(source);
+            final Node parent = session.getNode(destParent);
+
+            // replace an existing destination
+            final String name = destName == null ? src.getName() : destName;
+            if (parent.hasNode(name)) {
+                parent.getNode(name).remove();
+                batch.commit();
+            }
+
+            final Node dst = CopyOperation.copyNode(src, parent, name);
+            batch.added();
+
+            // copy the top levels until there are enough nodes to partition
+            List<Node[]> level = Collections.singletonList(new Node[] {src, dst});
+            for (int depth = 0; depth < MAX_PARTITION_DEPTH
+                    && !level.isEmpty()
+                    && level.size() < tracker.getPartitions(); depth++) {
+                final List<Node[]> next = new ArrayList<Node[]>();
+                for (final Node[] pair : level) {
+                    for (NodeIterator iter = pair[0].getNodes(); iter.hasNext();) {
+                        final Node child = iter.nextNode();
+                        if (!child.getDefinition().isProtected()) {
+                            next.add(new Node[] {child,
+                                CopyOperation.copyNode(child, pair[1], null)});
+                            batch.added();
+                        }
+                    }
+                }
+                level = next;
+            }
+            batch.commit();
+
+            schedule(level);
+
+        } catch (final Exception e) {
+            log.warn("Asynchronous copy of " + source + " failed", e);
+            error = "Copy of " + source + " failed: " + e;
+        }
+        finished(error);
+    }
+
+    /**
+     * Distribute the node pairs over the partitions and schedule them.
+     */
+    private void schedule(final List<Node[]> pairs) throws RepositoryException {
+        final int count = Math.min(pairs.size(), tracker.getPartitions());
+        for (int p = 0; p < count; p++) {
+            final List<String[]> partition = new ArrayList<String[]>();
+            final int start = p * pairs.size() / count;
+            final int end = (p + 1) * pairs.size() / count;
+            for (final Node[] pair : pairs.subList(start, end)) {
+                partition.add(new String[] {pair[0].getPath(), pair[1].getPath()});
+            }
+
+            status.addPartition();
+            try {
+                tracker.execute(new Partition(partition));
+            } catch (final RuntimeException re) {
+                log.warn("Unable to schedule partition of asynchronous copy of "
+                    + source, re);
+                finished("Unable to schedule partition: " + re);
+            }
+        }
+    }
+
+    private void finished(final String error) {
+        if (status.partitionFinished(error)) {
+            resolver.close();
+            log.debug("asynchronous copy of {} to {} {}", new Object[] {
+                status.getSource(), status.getDestination(), status.getState() });
+        }
+    }
+
+    /**
+     * Copy the child nodes of <code>src</code> to <code>dst</code>
+     * recursively.
+     */
+    private static void copyChildren(final Node src, final Node dst,
+            final Batch batch) throws RepositoryException, PersistenceException {
+        for (NodeIterator iter = src.getNodes(); iter.hasNext();) {
+            final Node child = iter.nextNode();
+            if (!child.getDefinition().isProtected()) {
+                final Node copy = CopyOperation.copyNode(child, dst, null);
+                batch.added();
+                copyChildren(child, copy, batch);
+            }
+        }
+    }
+
+    /**
+     * A partition copies the descendants of a number of already copied
+     * nodes with a session of its own.
+     */
+    private final class Partition implements Runnable {
+
+        /** Pairs of source and destination path. */
+        private final List<String[]> pairs;
+
+        Partition(final List<String[]> pairs) {
+            this.pairs = pairs;
+        }
+
+        public void run() {
+            String error = null;
+            ResourceResolver partitionResolver = null;
+            try {
+                partitionResolver = resolver.clone(null);
+                final Session session = partitionResolver.adaptTo(Session.class);
+                final Batch batch = new Batch(partitionResolver);
+                for (final String[] pair : pairs) {
+                    copyChildren(session.getNode(pair[0]),
+                        session.getNode(pair[1]), batch);
+                }
+                batch.commit();
+            } catch (final Exception e) {
+                log.warn("Partition of asynchronous copy of " + source + " failed", e);
+                error = "Copy of " + pairs.get(0)[0] + " failed: " + e;
+            } finally {
+                if (partitionResolver != null) {
+                    partitionResolver.close();
+                }
+            }
+            finished(error);
+        }
+    }
+
+    /**
+     * Commits the changes every {@link AsyncOperationTracker#getBatchSize()}
+     * added nodes and reports them to the status.
+     */
+    private final class Batch {
+
+        private final ResourceResolver batchResolver;
+
+        private final int size = tracker.getBatchSize();
+
+        private int pending;
+
+        Batch(final ResourceResolver batchResolver) {
+            this.batchResolver = batchResolver;
+        }
+
+        void added() throws PersistenceException {
+            pending++;
+            if (pending >= size) {
+                commit();
+            }
+        }
+
+        void commit() throws PersistenceException {
+            if (batchResolver.hasChanges()) {
+                batchResolver.commit();
+            }
+            status.addItems(pending);
+            pending = 0;
+        }
+    }
+}
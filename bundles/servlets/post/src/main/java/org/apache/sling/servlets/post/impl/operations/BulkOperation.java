@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.servlets.post.AbstractPostResponse;
+import org.apache.sling.servlets.post.JSONResponse;
+import org.apache.sling.servlets.post.PostOperation;
+import org.apache.sling.servlets.post.PostResponse;
+import org.apache.sling.servlets.post.SlingPostConstants;
+import org.apache.sling.servlets.post.SlingPostProcessor;
+import org.apache.sling.servlets.post.impl.helper.BulkItemRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>BulkOperation</code> class implements the
+ * {@link org.apache.sling.servlets.post.SlingPostConstants#OPERATION_BULK bulk}
+ * operation for the Sling default POST servlet.
+ * <p>
+ * The bulk operation reads one JSON object per line and runs the post
+ * operation requested by each entry through a {@link BulkItemRequest}. The
+ * changes are committed every {@link #getBatchSize(SlingHttpServletRequest)}
+ * entries. If an entry fails, all uncommitted changes of its batch are
+ * reverted and the other entries of that batch are reported as rolled back.
+ * <p>
+ * The results are reported per entry once the batch of the entry has been
+ * committed or reverted, either streamed as JSON lines to the HTTP response
+ * or recorded as <code>bulk</code> changes of a {@link PostResponse}.
+ */
+public class BulkOperation implements PostOperation {
+
+    /** The content type of the streamed response. */
+    public static final String RESPONSE_CONTENT_TYPE = "application/x-ndjson";
+
+    /** The default number of entries committed together. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String RESPONSE_CHARSET = "UTF-8";
+
+    private static final String PN_INDEX = "index";
+
+    private static final String PN_CHANGES = "changes";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /** The operations by name, guarded by the map itself. */
+    private final Map<String, PostOperation> postOperations;
+
+    /** The operation used if an entry does not name one. */
+    private final PostOperation defaultOperation;
+
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    public BulkOperation(final Map<String, PostOperation> postOperations,
+            final PostOperation defaultOperation) {
+        this.postOperations = postOperations;
+        this.defaultOperation = defaultOperation;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Runs the bulk operation recording the result of each entry as a
+     * <code>bulk</code> change with the arguments index, path, status code
+     * and status message.
+     */
+    public void run(final SlingHttpServletRequest request,
+                    final PostResponse response,
+                    final SlingPostProcessor[] processors) {
+        response.setPath(request.getResource().getPath());
+        try {
+            process(request, processors, new ResultHandler() {
+
+                public void onResult(final ItemResult result) {
+                    response.onChange(SlingPostConstants.OPERATION_BULK,
+                        String.valueOf(result.index), result.path,
+                        String.valueOf(result.statusCode), result.statusMessage);
+                }
+
+                public void onBatchDone() {
+                    // nothing to do
+                }
+            });
+        } catch (final IOException ioe) {
+            log.error("Exception during bulk processing.", ioe);
+            response.setError(ioe);
+        }
+    }
+
+    /**
+     * Runs the bulk operation streaming the result of each entry as a line of
+     * JSON to the response. The results of each batch are flushed once the
+     * batch has been committed or reverted.
+     */
+    public void run(final SlingHttpServletRequest request,
+                    final SlingHttpServletResponse response,
+                    final SlingPostProcessor[] processors)
+    throws IOException {
+        response.setContentType(RESPONSE_CONTENT_TYPE);
+        response.setCharacterEncoding(RESPONSE_CHARSET);
+        final PrintWriter writer = response.getWriter();
+        process(request, processors, new ResultHandler() {
+
+            public void onResult(final ItemResult result) {
+                writer.println(result.toJSON());
+            }
+
+            public void onBatchDone() {
+                writer.flush();
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Returns the batch size requested with the
+     * {@link SlingPostConstants#RP_BATCH_SIZE} parameter or the configured
+     * default batch size.
+     */
+    protected int getBatchSize(final SlingHttpServletRequest request) {
+        final String value = request.getParameter(SlingPostConstants.RP_BATCH_SIZE);
+        if (value != null) {
+            try {
+                final int requested = Integer.parseInt(value.trim());
+                if (requested > 0) {
+                    return requested;
+                }
+            } catch (final NumberFormatException nfe) {
+                log.debug("Ignoring invalid batch size {}", value);
+            }
+        }
+        return this.batchSize;
+    }
+
+    private void process(final SlingHttpServletRequest request,
+            final SlingPostProcessor[] processors,
+            final ResultHandler handler)
+    throws IOException {
+        final ResourceResolver resolver = request.getResourceResolver();
+        final int size = getBatchSize(request);
+        final List<ItemResult> batch = new ArrayList<ItemResult>();
+
+        final BufferedReader reader = new BufferedReader(getContentReader(request));
+        try {
+            int index = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                final ItemResult result = runEntry(request, processors, index, line);
+                index++;
+                batch.add(result);
+
+                if (result.isSuccessful()) {
+                    if (batch.size() >= size) {
+                        commit(resolver, batch);
+                        report(batch, handler);
+                    }
+                } else {
+                    rollback(resolver, batch, result);
+                    report(batch, handler);
+                }
+            }
+            if (!batch.isEmpty()) {
+                commit(resolver, batch);
+                report(batch, handler);
+            }
+        } finally {
+            reader.close();
+            if (resolver.hasChanges()) {
+                resolver.revert();
+            }
+        }
+    }
+
+    private Reader getContentReader(final SlingHttpServletRequest request)
+    throws IOException {
+        final RequestParameter content = request.getRequestParameter(SlingPostConstants.RP_CONTENT);
+        if (content != null) {
+            return new InputStreamReader(content.getInputStream(), RESPONSE_CHARSET);
+        }
+        return request.getReader();
+    }
+
+    private ItemResult runEntry(final SlingHttpServletRequest request,
+            final SlingPostProcessor[] processors,
+            final int index,
+            final String line) {
+        final BulkItemRequest itemRequest;
+        try {
+            itemRequest = new BulkItemRequest(request, new JSONObject(line));
+        } catch (final JSONException je) {
+            return new ItemResult(index, null, HttpServletResponse.SC_BAD_REQUEST,
+                "Invalid bulk entry: " + je.getMessage());
+        }
+        final String path = itemRequest.getResource().getPath();
+
+        final PostOperation operation = getOperation(itemRequest);
+        if (operation == null) {
+            return new ItemResult(index, path, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                "Invalid operation specified for bulk entry");
+        }
+
+        final JSONResponse itemResponse = new JSONResponse();
+        try {
+            operation.run(itemRequest, itemResponse, processors);
+        } catch (final Exception e) {
+            log.warn("Exception while handling bulk entry " + path
+                + " with " + operation.getClass().getName(), e);
+            itemResponse.setError(e);
+        }
+        return new ItemResult(index, path, itemResponse);
+    }
+
+    private PostOperation getOperation(final SlingHttpServletRequest itemRequest) {
+        final String name = itemRequest.getParameter(SlingPostConstants.RP_OPERATION);
+        if (name == null || name.length() == 0) {
+            return this.defaultOperation;
+        }
+        if (SlingPostConstants.OPERATION_BULK.equals(name)) {
+            // no nested bulk operations
+            return null;
+        }
+        synchronized (this.postOperations) {
+            return this.postOperations.get(name);
+        }
+    }
+
+    private void commit(final ResourceResolver resolver, final List<ItemResult> batch) {
+        if (!resolver.hasChanges()) {
+            return;
+        }
+        try {
+            resolver.commit();
+        } catch (final PersistenceException pe) {
+            log.warn("Unable to commit bulk batch.", pe);
+            resolver.revert();
+            for (final ItemResult result : batch) {
+                result.fail(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Commit failed: " + pe.getMessage());
+            }
+        }
+    }
+
+    private void rollback(final ResourceResolver resolver,
+            final List<ItemResult> batch,
+            final ItemResult failed) {
+        resolver.revert();
+        for (final ItemResult result : batch) {
+            if (result != failed) {
+                result.fail(HttpServletResponse.SC_CONFLICT,
+                    "Rolled back because bulk entry " + failed.index + " failed");
+            }
+        }
+    }
+
+    private void report(final List<ItemResult> batch, final ResultHandler handler) {
+        for (final ItemResult result : batch) {
+            handler.onResult(result);
+        }
+        handler.onBatchDone();
+        batch.clear();
+    }
+
+    /**
+     * Receives the results of the bulk entries in order.
+     */
+    private interface ResultHandler {
+
+        void onResult(ItemResult result);
+
+        void onBatchDone();
+    }
+
+    /**
+     * The outcome of a single bulk entry.
+     */
+    private static final class ItemResult {
+
+        final int index;
+
+        final String path;
+
+        int statusCode;
+
+        String statusMessage;
+
+        Object changes;
+
+        ItemResult(final int index, final String path,
+                final int statusCode, final String statusMessage) {
+            this.index = index;
+            this.path = path;
+            this.statusCode = statusCode;
+            this.statusMessage = statusMessage;
+        }
+
+        ItemResult(final int index, final String path, final JSONResponse response) {
+            this.index = index;
+            this.path = path;
+            this.statusCode = response.getStatusCode();
+            if (response.getError() != null) {
+                this.statusCode = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+                this.statusMessage = response.getError().toString();
+            } else {
+                this.statusMessage = response.getStatusMessage();
+            }
+            this.changes = response.getProperty(PN_CHANGES);
+        }
+
+        boolean isSuccessful() {
+            return this.statusCode / 100 == 2;
+        }
+
+        void fail(final int code, final String message) {
+            if (isSuccessful()) {
+                this.statusCode = code;
+                this.statusMessage = message;
+                this.changes = null;
+            }
+        }
+
+        String toJSON() {
+            try {
+                final JSONObject json = new JSONObject();
+                json.put(PN_INDEX, this.index);
+                json.put(AbstractPostResponse.PN_PATH, this.path);
+                json.put(AbstractPostResponse.PN_STATUS_CODE, this.statusCode);
+                json.put(AbstractPostResponse.PN_STATUS_MESSAGE, this.statusMessage);
+                if (this.changes != null) {
+                    json.put(PN_CHANGES, this.changes);
+                }
+                return json.toString();
+            } catch (final JSONException je) {
+                // only thrown for invalid numbers, which we never put
+                throw new IllegalStateException(je);
+            }
+        }
+    }
+}
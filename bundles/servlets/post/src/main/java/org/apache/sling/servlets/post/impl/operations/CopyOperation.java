@@ -26,8 +26,11 @@ import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.nodetype.NodeType;
 
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.servlets.post.Modification;
 import org.apache.sling.servlets.post.VersioningConfiguration;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationStatus;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationTracker;
 
 /**
  * The <code>CopyOperation</code> class implements the
@@ -54,6 +57,14 @@ public class CopyOperation extends AbstractCopyMoveOperation {
         return destItem;
     }
 
+    @Override
+    protected Runnable createAsyncJob(AsyncOperationTracker tracker,
+            AsyncOperationStatus status, ResourceResolver resolver,
+            String source, String destParent, String destName) {
+        return new AsyncCopyJob(tracker, status, resolver, source, destParent,
+            destName);
+    }
+
     /**
      * Copy the <code>src</code> item into the <code>dstParent</code> node.
      * The name of the newly created item is set to <code>name</code>.
@@ -97,6 +108,38 @@ public class CopyOperation extends AbstractCopyMoveOperation {
     static Item copy(Node src, Node dstParent, String name)
             throws RepositoryException {
 
+        Node dst = copyNode(src, dstParent, name);
+
+        // copy the child nodes
+        for (NodeIterator iter = src.getNodes(); iter.hasNext();) {
+            Node n = iter.nextNode();
+            if (!n.getDefinition().isProtected()) {
+                copy(n, dst, null);
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Copy the <code>src</code> node into the <code>dstParent</code> node
+     * without its child nodes. The name of the newly created node is set to
+     * <code>name</code>.
+     * <p>
+     * The primary type, mixin types and properties of the node are copied,
+     * any protected properties are not copied.
+     *
+     * @param src The node to copy to the new location
+     * @param dstParent The node into which the <code>src</code> node is to be
+     *            copied
+     * @param name The name of the newly created node. If this is
+     *            <code>null</code> the new node gets the same name as the
+     *            <code>src</code> node.
+     * @throws RepositoryException May be thrown in case of any problem copying
+     *             the content.
+     */
+    static Node copyNode(Node src, Node dstParent, String name)
+            throws RepositoryException {
+
         if(isAncestorOrSameNode(src, dstParent)) {
             throw new RepositoryException(
                     "Cannot copy ancestor " + src.getPath() + " to descendant " + dstParent.getPath());
@@ -122,14 +165,6 @@ public class CopyOperation extends AbstractCopyMoveOperation {
         for (PropertyIterator iter = src.getProperties(); iter.hasNext();) {
             copy(iter.nextProperty(), dst, null);
         }
-
-        // copy the child nodes
-        for (NodeIterator iter = src.getNodes(); iter.hasNext();) {
-            Node n = iter.nextNode();
-            if (!n.getDefinition().isProtected()) {
-                copy(n, dst, null);
-            }
-        }
         return dst;
     }
     
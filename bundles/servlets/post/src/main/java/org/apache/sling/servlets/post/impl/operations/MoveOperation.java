@@ -22,13 +22,19 @@ import javax.jcr.Item;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.servlets.post.Modification;
 import org.apache.sling.servlets.post.VersioningConfiguration;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationStatus;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationTracker;
 
 /**
  * The <code>MoveOperation</code> class implements the
  * {@link org.apache.sling.servlets.post.SlingPostConstants#OPERATION_MOVE move}
  * operation for the Sling default POST servlet.
+ * <p>
+ * A move is a single repository operation, hence an asynchronous move is not
+ * partitioned but executed as a whole in the background.
  */
 public class MoveOperation extends AbstractCopyMoveOperation {
 
@@ -64,4 +70,34 @@ public class MoveOperation extends AbstractCopyMoveOperation {
         return session.getItem(destPath);
     }
 
+    @Override
+    protected Runnable createAsyncJob(final AsyncOperationTracker tracker,
+            final AsyncOperationStatus status, final ResourceResolver resolver,
+            final String source, final String destParent, final String destName) {
+        return new Runnable() {
+
+            public void run() {
+                status.started();
+                status.addPartition();
+                String error = null;
+                try {
+                    final Session session = resolver.adaptTo(Session.class);
+                    final String destPath = status.getDestination();
+                    if (session.itemExists(destPath)) {
+                        session.getItem(destPath).remove();
+                    }
+                    session.move(source, destPath);
+                    resolver.commit();
+                    status.addItems(1);
+                } catch (final Exception e) {
+                    log.warn("Asynchronous move of " + source + " failed", e);
+                    error = "Move of " + source + " failed: " + e;
+                } finally {
+                    resolver.close();
+                }
+                status.partitionFinished(error);
+            }
+        };
+    }
+
 }
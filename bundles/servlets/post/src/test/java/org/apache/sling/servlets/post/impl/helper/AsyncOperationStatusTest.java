@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import junit.framework.TestCase;
+
+import org.apache.sling.commons.json.JSONObject;
+
+public class AsyncOperationStatusTest extends TestCase {
+
+    public void testSucceeded() throws Exception {
+        final AsyncOperationStatus status = new AsyncOperationStatus("id",
+            "copy", "/content/a", "/content/b", "admin");
+        assertEquals(AsyncOperationStatus.STATE_QUEUED, status.getState());
+
+        status.started();
+        status.addPartition();
+        status.addPartition();
+        status.addPartition();
+        status.addItems(10);
+
+        assertFalse(status.partitionFinished(null));
+        assertFalse(status.partitionFinished(null));
+        assertEquals(AsyncOperationStatus.STATE_RUNNING, status.getState());
+        assertFalse(status.isFinished());
+
+        status.addItems(5);
+        assertTrue(status.partitionFinished(null));
+        assertEquals(AsyncOperationStatus.STATE_SUCCEEDED, status.getState());
+        assertTrue(status.isFinished());
+
+        final JSONObject json = status.toJSON();
+        assertEquals("succeeded", json.getString("state"));
+        assertEquals(15, json.getLong("items"));
+        assertEquals(3, json.getInt("partitions"));
+        assertEquals(0, json.getInt("pendingPartitions"));
+        assertEquals(0, json.getJSONArray("errors").length());
+    }
+
+    public void testFailedPartition() throws Exception {
+        final AsyncOperationStatus status = new AsyncOperationStatus("id",
+            "copy", "/content/a", "/content/b", "admin");
+        status.started();
+        status.addPartition();
+        status.addPartition();
+
+        assertFalse(status.partitionFinished("failure"));
+        assertEquals(AsyncOperationStatus.STATE_RUNNING, status.getState());
+        assertTrue(status.partitionFinished(null));
+        assertEquals(AsyncOperationStatus.STATE_FAILED, status.getState());
+        assertEquals("failure", status.toJSON().getJSONArray("errors").getString(0));
+    }
+
+    public void testTracker() {
+        final AsyncOperationTracker tracker = new AsyncOperationTracker();
+        assertFalse(tracker.isAvailable());
+
+        final AsyncOperationStatus status = tracker.create("move", "/a", "/b", "admin");
+        assertSame(status, tracker.get(status.getId()));
+        assertNull(tracker.get("unknown"));
+
+        try {
+            tracker.execute(new Runnable() {
+                public void run() {
+                }
+            });
+            fail("Execution requires a thread pool");
+        } catch (final IllegalStateException expected) {
+            // expected
+        }
+    }
+}
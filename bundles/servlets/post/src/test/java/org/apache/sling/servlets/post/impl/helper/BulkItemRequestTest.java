@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import junit.framework.TestCase;
+
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.apache.sling.commons.testing.sling.MockSlingHttpServletRequest;
+import org.apache.sling.servlets.post.SlingPostConstants;
+
+public class BulkItemRequestTest extends TestCase {
+
+    private MockSlingHttpServletRequest request;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        request = new MockSlingHttpServletRequest("/content", null, null, null, null);
+        request.setResourceResolver(new MockResourceResolver());
+    }
+
+    public void testParameters() throws Exception {
+        final BulkItemRequest item = new BulkItemRequest(request, new JSONObject(
+            "{\"path\":\"/content/a\",\"parameters\":{\":operation\":\"copy\",\"title\":\"Hello\",\"tags\":[\"a\",\"b\"],\"count\":5}}"));
+
+        assertEquals("/content/a", item.getResource().getPath());
+        assertTrue(ResourceUtil.isNonExistingResource(item.getResource()));
+
+        assertEquals("copy", item.getParameter(SlingPostConstants.RP_OPERATION));
+        assertEquals("Hello", item.getParameter("title"));
+        assertEquals("5", item.getParameter("count"));
+        assertNull(item.getParameter("missing"));
+
+        final String[] tags = item.getParameterValues("tags");
+        assertEquals(2, tags.length);
+        assertEquals("a", tags[0]);
+        assertEquals("b", tags[1]);
+
+        final RequestParameter[] values = item.getRequestParameterMap().getValues("tags");
+        assertEquals(2, values.length);
+        assertEquals("b", values[1].getString());
+        assertTrue(values[1].isFormField());
+        assertEquals(4, item.getRequestParameterMap().size());
+        assertEquals(4, item.getParameterMap().size());
+    }
+
+    public void testSkipSessionHandling() throws Exception {
+        final BulkItemRequest item = new BulkItemRequest(request, new JSONObject("{\"path\":\"/content/b\"}"));
+        assertEquals("true", item.getAttribute(SlingPostConstants.ATTR_SKIP_SESSION_HANDLING));
+        assertTrue(item.getRequestParameterMap().isEmpty());
+    }
+
+    public void testMissingPath() throws Exception {
+        try {
+            new BulkItemRequest(request, new JSONObject("{\"parameters\":{}}"));
+            fail("Entry without path must be rejected");
+        } catch (final JSONException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ChunkUploadStatusTest extends TestCase {
+
+    public void testMissingRangesWithKnownLength() {
+        final ChunkUploadStatus status = new ChunkUploadStatus("/file/jcr:content", 100);
+        status.addChunk(10, 19);
+        status.addChunk(20, 29);
+        status.addChunk(50, 59);
+
+        assertEquals(30, status.getUploadedLength());
+
+        final List<long[]> uploaded = status.getUploadedRanges();
+        assertEquals(2, uploaded.size());
+        assertRange(10, 29, uploaded.get(0));
+        assertRange(50, 59, uploaded.get(1));
+
+        final List<long[]> missing = status.getMissingRanges();
+        assertEquals(3, missing.size());
+        assertRange(0, 9, missing.get(0));
+        assertRange(30, 49, missing.get(1));
+        assertRange(60, 99, missing.get(2));
+    }
+
+    public void testMissingRangesWithUnknownLength() {
+        final ChunkUploadStatus status = new ChunkUploadStatus("/file/jcr:content", -1);
+        status.addChunk(0, 9);
+        status.addChunk(20, 29);
+
+        final List<long[]> missing = status.getMissingRanges();
+        assertEquals(1, missing.size());
+        assertRange(10, 19, missing.get(0));
+    }
+
+    public void testJSON() throws Exception {
+        final ChunkUploadStatus status = new ChunkUploadStatus("/file/jcr:content", 20);
+        status.addChunk(0, 9);
+
+        assertEquals("{\"path\":\"/file/jcr:content\",\"fileLength\":20,\"uploadedLength\":10,"
+            + "\"uploaded\":[[0,9]],\"missing\":[[10,19]]}", status.toJSON().toString());
+    }
+
+    private void assertRange(final long start, final long end, final long[] range) {
+        assertEquals(start, range[0]);
+        assertEquals(end, range[1]);
+    }
+}
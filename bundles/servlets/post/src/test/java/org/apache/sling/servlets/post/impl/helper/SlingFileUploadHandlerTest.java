@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.commons.testing.jcr.RepositoryTestBase;
+import org.apache.sling.commons.testing.jcr.RepositoryUtil;
+import org.apache.sling.servlets.post.Modification;
+import org.apache.sling.servlets.post.SlingPostConstants;
+
+public class SlingFileUploadHandlerTest extends RepositoryTestBase {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    private final SlingFileUploadHandler handler = new SlingFileUploadHandler();
+
+    private String path;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final InputStream cnd = getClass().getResourceAsStream("/SLING-INF/nodetypes/chunk.cnd");
+        try {
+            RepositoryUtil.registerNodeType(getSession(), cnd);
+        } finally {
+            cnd.close();
+        }
+        final Node file = getTestRootNode().addNode("file_" + System.nanoTime(), SlingFileUploadHandler.NT_FILE);
+        final Node content = file.addNode(SlingFileUploadHandler.JCR_CONTENT, SlingFileUploadHandler.NT_RESOURCE);
+        content.setProperty(SlingFileUploadHandler.JCR_DATA, new ByteArrayInputStream(new byte[0]));
+        content.setProperty(SlingFileUploadHandler.JCR_MIMETYPE, "text/plain");
+        content.setProperty(SlingFileUploadHandler.JCR_LASTMODIFIED, Calendar.getInstance());
+        getSession().save();
+        this.path = content.getPath();
+    }
+
+    private List<Modification> upload(final Session session, final int offset, final int end, final long length)
+    throws RepositoryException {
+        final Chunk chunk = new Chunk();
+        chunk.setOffsetValue(offset);
+        chunk.setLength(length);
+        final RequestProperty prop = new RequestProperty(this.path);
+        prop.setChunk(chunk);
+        final List<Modification> changes = new ArrayList<Modification>();
+        handler.processChunk((Node) session.getItem(this.path), prop,
+            new BytesParameter(CONTENT.substring(offset, end + 1).getBytes()), changes);
+        return changes;
+    }
+
+    private String getData(final Node node) throws Exception {
+        final InputStream in = node.getProperty(SlingFileUploadHandler.JCR_DATA).getBinary().getStream();
+        try {
+            return new String(IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testOutOfOrderChunksCompleteFile() throws Exception {
+        upload(getSession(), 10, 19, 20);
+        getSession().save();
+        final Node node = (Node) getSession().getItem(this.path);
+        assertTrue(node.isNodeType(SlingPostConstants.NT_SLING_CHUNK_MIXIN));
+        assertEquals(10, node.getProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH).getLong());
+        assertEquals(20, node.getProperty(SlingPostConstants.NT_SLING_FILE_LENGTH).getLong());
+
+        upload(getSession(), 0, 9, 0);
+        getSession().save();
+        assertEquals(CONTENT, getData(node));
+        assertFalse(node.isNodeType(SlingPostConstants.NT_SLING_CHUNK_MIXIN));
+        assertFalse(node.getNodes(SlingPostConstants.CHUNK_NODE_NAME + "*").hasNext());
+        assertFalse(node.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH));
+        assertFalse(node.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH));
+    }
+
+    public void testOverlappingChunkIsRejected() throws Exception {
+        upload(getSession(), 0, 9, 20);
+        getSession().save();
+        try {
+            upload(getSession(), 5, 14, 20);
+            fail("Overlapping chunk should be rejected");
+        } catch (final RepositoryException re) {
+            // expected
+        }
+    }
+
+    public void testChunkIsLeftToSessionHandling() throws Exception {
+        final List<Modification> changes = upload(getSession(), 0, 9, 20);
+        assertFalse(changes.isEmpty());
+        assertTrue(getSession().hasPendingChanges());
+
+        final Session other = getRepository().loginAdministrative(null);
+        try {
+            final Node otherNode = (Node) other.getItem(this.path);
+            assertFalse(otherNode.isNodeType(SlingPostConstants.NT_SLING_CHUNK_MIXIN));
+            assertFalse(otherNode.getNodes(SlingPostConstants.CHUNK_NODE_NAME + "*").hasNext());
+        } finally {
+            other.logout();
+        }
+
+        // reverting the session reverts the whole chunk
+        getSession().refresh(false);
+        final Node node = (Node) getSession().getItem(this.path);
+        assertFalse(node.isNodeType(SlingPostConstants.NT_SLING_CHUNK_MIXIN));
+        assertFalse(node.getNodes(SlingPostConstants.CHUNK_NODE_NAME + "*").hasNext());
+        assertFalse(node.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH));
+    }
+
+    private static final class BytesParameter implements RequestParameter {
+
+        private final byte[] content;
+
+        BytesParameter(final byte[] content) {
+            this.content = content;
+        }
+
+        public boolean isFormField() {
+            return false;
+        }
+
+        public String getContentType() {
+            return "text/plain";
+        }
+
+        public long getSize() {
+            return content.length;
+        }
+
+        public byte[] get() {
+            return content;
+        }
+
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(content);
+        }
+
+        public String getFileName() {
+            return "file.txt";
+        }
+
+        public String getString() {
+            return new String(content);
+        }
+
+        public String getString(final String encoding) {
+            return getString();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Session;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.testing.jcr.RepositoryTestBase;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationStatus;
+import org.apache.sling.servlets.post.impl.helper.AsyncOperationTracker;
+
+public class AsyncCopyJobTest extends RepositoryTestBase {
+
+    private ExecutorService executor;
+
+    private AsyncOperationTracker tracker;
+
+    private Node root;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newFixedThreadPool(4);
+        tracker = new AsyncOperationTracker();
+        tracker.setThreadPool((ThreadPool) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] {ThreadPool.class},
+            new InvocationHandler() {
+
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if ("execute".equals(method.getName())) {
+                        executor.execute((Runnable) args[0]);
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }));
+        root = getSession().getRootNode().addNode("copytest_" + System.nanoTime(), "nt:unstructured");
+        getSession().save();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+        root.remove();
+        getSession().save();
+        super.tearDown();
+    }
+
+    /**
+     * Return a resource resolver for a new session, providing what the job
+     * uses.
+     */
+    private ResourceResolver createResolver() throws Exception {
+        final Session session = getRepository().loginAdministrative(null);
+        return (ResourceResolver) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] {ResourceResolver.class},
+            new InvocationHandler() {
+
+                public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                    final String name = method.getName();
+                    if ("adaptTo".equals(name) && args[0] == Session.class) {
+                        return session;
+                    } else if ("clone".equals(name)) {
+                        return createResolver();
+                    } else if ("hasChanges".equals(name)) {
+                        return session.hasPendingChanges();
+                    } else if ("commit".equals(name)) {
+                        session.save();
+                        return null;
+                    } else if ("close".equals(name)) {
+                        session.logout();
+                        return null;
+                    } else if ("getUserID".equals(name)) {
+                        return session.getUserID();
+                    }
+                    throw new UnsupportedOperationException(name);
+                }
+            });
+    }
+
+    private void createTree(final Node parent, final String prefix, final int depth) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final Node child = parent.addNode(prefix + i, "nt:unstructured");
+            child.setProperty("index", i);
+            if (depth > 1) {
+                createTree(child, "n", depth - 1);
+            }
+        }
+    }
+
+    private void assertSameTree(final Node expected, final Node actual) throws Exception {
+        assertEquals(actual.getPath(), expected.getProperty("index").getLong(),
+            actual.getProperty("index").getLong());
+        final NodeIterator e = expected.getNodes();
+        final NodeIterator a = actual.getNodes();
+        while (e.hasNext()) {
+            assertTrue("Missing child of " + actual.getPath(), a.hasNext());
+            final Node child = e.nextNode();
+            final Node copy = a.nextNode();
+            assertEquals(child.getName(), copy.getName());
+            assertSameTree(child, copy);
+        }
+        assertFalse("Unexpected child of " + actual.getPath(), a.hasNext());
+    }
+
+    private AsyncOperationStatus copy(final String source, final String destName) throws Exception {
+        final AsyncOperationStatus status = tracker.create("copy", source,
+            root.getPath() + "/" + destName, "admin");
+        tracker.execute(new AsyncCopyJob(tracker, status, createResolver(),
+            source, root.getPath(), destName));
+        final long end = System.currentTimeMillis() + 30000;
+        while (!status.isFinished() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue("Copy did not finish", status.isFinished());
+        getSession().refresh(false);
+        return status;
+    }
+
+    public void testPartitionedCopy() throws Exception {
+        tracker.setPartitions(4);
+        tracker.setBatchSize(5);
+        final Node src = root.addNode("src", "nt:unstructured");
+        src.setProperty("index", -1);
+        createTree(src, "c", 4);
+        getSession().save();
+
+        final AsyncOperationStatus status = copy(src.getPath(), "dst");
+        assertEquals(status.getErrors().toString(), AsyncOperationStatus.STATE_SUCCEEDED, status.getState());
+        // the job and one partition per node of the second level
+        assertEquals(1 + 4, status.getPartitions());
+        // 3 + 9 + 27 + 81 nodes below the copied node
+        assertEquals(1 + 120, status.getItems());
+        assertSameTree(src, root.getNode("dst"));
+    }
+
+    public void testCopyReplacesDestination() throws Exception {
+        tracker.setPartitions(2);
+        final Node src = root.addNode("src", "nt:unstructured");
+        src.setProperty("index", -1);
+        createTree(src, "c", 2);
+        root.addNode("dst", "nt:unstructured").addNode("old", "nt:unstructured");
+        getSession().save();
+
+        final AsyncOperationStatus status = copy(src.getPath(), "dst");
+        assertEquals(status.getErrors().toString(), AsyncOperationStatus.STATE_SUCCEEDED, status.getState());
+        assertFalse(root.getNode("dst").hasNode("old"));
+        assertSameTree(src, root.getNode("dst"));
+    }
+
+    public void testFailedCopy() throws Exception {
+        final AsyncOperationStatus status = copy(root.getPath() + "/missing", "dst");
+        assertEquals(AsyncOperationStatus.STATE_FAILED, status.getState());
+        assertEquals(1, status.getErrors().size());
+        assertFalse(root.hasNode("dst"));
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.apache.sling.commons.testing.sling.MockSlingHttpServletRequest;
+import org.apache.sling.servlets.post.JSONResponse;
+import org.apache.sling.servlets.post.PostOperation;
+import org.apache.sling.servlets.post.PostResponse;
+import org.apache.sling.servlets.post.SlingPostConstants;
+import org.apache.sling.servlets.post.SlingPostProcessor;
+
+public class BulkOperationTest extends TestCase {
+
+    private BatchResourceResolver resolver;
+
+    private BulkOperation operation;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        resolver = new BatchResourceResolver();
+        operation = new BulkOperation(new HashMap<String, PostOperation>(), new RecordingOperation());
+    }
+
+    private List<String[]> run(final int batchSize, final String... entries) {
+        final StringBuilder content = new StringBuilder();
+        for (final String entry : entries) {
+            content.append(entry).append('\n');
+        }
+        final BulkRequest request = new BulkRequest(resolver, content.toString(), batchSize);
+        final ResultResponse response = new ResultResponse();
+        operation.run(request, response, new SlingPostProcessor[0]);
+        assertNull(response.getError());
+        return response.results;
+    }
+
+    private static String entry(final String path, final boolean fail) {
+        return "{\"path\":\"" + path + "\",\"parameters\":{\"fail\":\"" + fail + "\"}}";
+    }
+
+    private static void assertResult(final String[] result, final int index,
+            final String path, final int statusCode) {
+        assertEquals(String.valueOf(index), result[0]);
+        assertEquals(path, result[1]);
+        assertEquals(result[3], String.valueOf(statusCode), result[2]);
+    }
+
+    public void testBatchCommittedPartway() throws Exception {
+        final List<String[]> results = run(2,
+            entry("/a", false), entry("/b", false), entry("/c", false),
+            entry("/d", false), entry("/e", false));
+
+        // two full batches and the remainder
+        assertEquals(3, resolver.commits);
+        assertEquals(0, resolver.reverts);
+        assertEquals(5, resolver.committed.size());
+        assertEquals("/e", resolver.committed.get(4));
+
+        assertEquals(5, results.size());
+        assertResult(results.get(0), 0, "/a", 200);
+        assertResult(results.get(4), 4, "/e", 200);
+    }
+
+    public void testLaterFailureRollsBackBatch() throws Exception {
+        final List<String[]> results = run(3,
+            entry("/a", false), entry("/b", false), entry("/c", false),
+            entry("/d", false), entry("/e", true), entry("/f", false));
+
+        // the first batch stays committed, the second batch is reverted
+        assertEquals(2, resolver.commits);
+        assertEquals(1, resolver.reverts);
+        assertEquals(4, resolver.committed.size());
+        assertEquals("/c", resolver.committed.get(2));
+        assertEquals("/f", resolver.committed.get(3));
+        assertFalse(resolver.committed.contains("/d"));
+
+        assertEquals(6, results.size());
+        assertResult(results.get(2), 2, "/c", 200);
+        assertResult(results.get(3), 3, "/d", 409);
+        assertTrue(results.get(3)[3].contains("entry 4"));
+        assertResult(results.get(4), 4, "/e", 500);
+        assertResult(results.get(5), 5, "/f", 200);
+    }
+
+    public void testInvalidEntryRollsBackBatch() throws Exception {
+        final List<String[]> results = run(10, entry("/a", false), "{invalid");
+
+        assertEquals(0, resolver.commits);
+        assertTrue(resolver.committed.isEmpty());
+        assertResult(results.get(0), 0, "/a", 409);
+        assertResult(results.get(1), 1, null, 400);
+    }
+
+    /**
+     * Records the path of each entry as pending change of the resolver, or
+     * fails if requested by the <code>fail</code> parameter.
+     */
+    private static final class RecordingOperation implements PostOperation {
+
+        public void run(final SlingHttpServletRequest request,
+                final PostResponse response,
+                final SlingPostProcessor[] processors) {
+            if ("true".equals(request.getParameter("fail"))) {
+                response.setStatus(500, "failed");
+                return;
+            }
+            ((BatchResourceResolver) request.getResourceResolver()).pending.add(
+                request.getResource().getPath());
+        }
+    }
+
+    /**
+     * A resource resolver keeping the pending and committed changes.
+     */
+    private static final class BatchResourceResolver extends MockResourceResolver {
+
+        final List<String> pending = new ArrayList<String>();
+
+        final List<String> committed = new ArrayList<String>();
+
+        int commits;
+
+        int reverts;
+
+        @Override
+        public boolean hasChanges() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public void commit() {
+            committed.addAll(pending);
+            pending.clear();
+            commits++;
+        }
+
+        @Override
+        public void revert() {
+            pending.clear();
+            reverts++;
+        }
+    }
+
+    private static final class BulkRequest extends MockSlingHttpServletRequest {
+
+        private final ResourceResolver resolver;
+
+        private final String content;
+
+        private final Map<String, String> parameters = new HashMap<String, String>();
+
+        BulkRequest(final ResourceResolver resolver, final String content, final int batchSize) {
+            super("/content", null, null, null, null);
+            this.resolver = resolver;
+            this.content = content;
+            this.parameters.put(SlingPostConstants.RP_BATCH_SIZE, String.valueOf(batchSize));
+        }
+
+        @Override
+        public ResourceResolver getResourceResolver() {
+            return resolver;
+        }
+
+        @Override
+        public String getParameter(final String name) {
+            return parameters.get(name);
+        }
+
+        @Override
+        public RequestParameter getRequestParameter(final String name) {
+            return null;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new StringReader(content));
+        }
+    }
+
+    /**
+     * Collects the <code>bulk</code> changes: index, path, status code and
+     * status message of each entry.
+     */
+    private static final class ResultResponse extends JSONResponse {
+
+        final List<String[]> results = new ArrayList<String[]>();
+
+        @Override
+        public void onChange(final String type, final String... arguments) {
+            assertEquals(SlingPostConstants.OPERATION_BULK, type);
+            results.add(arguments);
+        }
+    }
+}
@@ -23,11 +23,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -41,6 +43,7 @@ import org.apache.sling.commons.classloader.ClassLoaderWriter;
 import org.apache.sling.commons.compiler.CompilationResult;
 import org.apache.sling.commons.compiler.CompilationUnit;
 import org.apache.sling.commons.compiler.CompilerMessage;
+import org.apache.sling.commons.compiler.JavaCompiler;
 import org.apache.sling.commons.compiler.Options;
 import org.apache.sling.jcr.compiler.JcrJavaCompiler;
 import org.apache.sling.scripting.sightly.ResourceResolution;
@@ -71,6 +74,24 @@ public class SightlyJavaCompilerService {
     @Reference
     private UnitChangeMonitor unitChangeMonitor = null;
 
+    @Reference
+    private JavaCompiler javaCompiler = null;
+
+    /**
+     * Classes which depend on a recompiled POJO and have to be compiled again before their next use.
+     */
+    private final Set<String> outdatedClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Classes compiled since the activation, their references are known to the {@link JavaCompiler}.
+     */
+    private final Set<String> indexedClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Classes compiled before the activation and used since then; the {@link JavaCompiler} does not know their references.
+     */
+    private final Set<String> unindexedClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     private Options options;
 
     private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -93,8 +114,8 @@ public class SightlyJavaCompilerService {
     public Object getInstance(ResourceResolver resolver, Resource callingScript, String className) {
         if (className.contains(".")) {
             String pojoPath = getPathFromJavaName(resolver, className);
-            if (unitChangeMonitor.getLastModifiedDateForJavaUseObject(pojoPath) > 0) {
-                // it looks like the POJO comes from the repo and it was changed since it was last loaded
+            if (unitChangeMonitor.getLastModifiedDateForJavaUseObject(pojoPath) > 0 || outdatedClasses.contains(className)) {
+                // it looks like the POJO comes from the repo and it or one of its dependencies was changed since it was last loaded
                 Resource pojoResource = resolver.getResource(pojoPath);
                 if (pojoResource != null) {
                     // clear the cache as we need to recompile the POJO object
@@ -106,7 +127,9 @@ public class SightlyJavaCompilerService {
             } else {
                 try {
                     // the object either comes from a bundle or from the repo but it was not registered by the UnitChangeMonitor
-                    return loadObject(className);
+                    Object obj = loadObject(className);
+                    trackUnindexed(className);
+                    return obj;
                 } catch (CompilerException cex) {
                     // the object definitely doesn't come from a bundle so we should attempt to compile it from the repo
                     Resource pojoResource = resolver.getResource(pojoPath);
@@ -126,6 +149,29 @@ public class SightlyJavaCompilerService {
         throw new SightlyException("Cannot find class " + className + ".");
     }
 
+    /**
+     * Returns an instance of a class compiled on-the-fly before. Only classes written by the {@link ClassLoaderWriter} are
+     * considered, classes provided by bundles are ignored. This method never compiles the class.
+     *
+     * @param className fully qualified name of the class
+     * @return object instance of the class or {@code null} if the class was not compiled or cannot be loaded
+     */
+    public Object getCompiledInstance(String className) {
+        if (classLoaderWriter == null || classLoaderWriter.getLastModified(getClassPath(className)) <= 0
+                || outdatedClasses.contains(className)) {
+            LOG.debug("Class {} is not compiled yet.", className);
+            return null;
+        }
+        try {
+            Object obj = loadObject(className);
+            trackUnindexed(className);
+            return obj;
+        } catch (CompilerException e) {
+            LOG.debug("Class {} is not compiled yet.", className);
+            return null;
+        }
+    }
+
     /**
      * Compiles a class using the passed fully qualified classname and based on the resource that represents the class' source.
      *
@@ -242,8 +288,15 @@ public class SightlyJavaCompilerService {
     private Object compileJavaResource(CompilationUnit compilationUnit, String scriptPath) throws Exception {
         writeLock.lock();
         try {
+            String className = compilationUnit.getMainClassName();
+            Options compileOptions = options;
+            if (outdatedClasses.remove(className)) {
+                // the source did not change but a class it depends on did
+                compileOptions = new Options(options);
+                compileOptions.put(Options.KEY_FORCE_COMPILATION, true);
+            }
             long start = System.currentTimeMillis();
-            CompilationResult compilationResult = jcrJavaCompiler.compile(new String[]{scriptPath}, options);
+            CompilationResult compilationResult = jcrJavaCompiler.compile(new String[]{scriptPath}, compileOptions);
             long end = System.currentTimeMillis();
             List<CompilerMessage> errors = compilationResult.getErrors();
             if (errors != null && errors.size() > 0) {
@@ -253,7 +306,14 @@ public class SightlyJavaCompilerService {
                 LOG.debug("script compiled: {}", compilationResult.didCompile());
                 LOG.debug("compilation took {}ms", end - start);
             }
-            return compilationResult.loadCompiledClass(compilationUnit.getMainClassName()).newInstance();
+            if (compilationResult.didCompile()) {
+                indexedClasses.add(className);
+                unindexedClasses.remove(className);
+                markDependentsOutdated(className);
+            } else {
+                trackUnindexed(className);
+            }
+            return compilationResult.loadCompiledClass(className).newInstance();
         } catch (Throwable t) {
             throw new CompilerException(CompilerException.CompilerExceptionCause.COMPILER_ERRORS, t);
         } finally {
@@ -261,6 +321,40 @@ public class SightlyJavaCompilerService {
         }
     }
 
+    /**
+     * Marks the classes depending on a recompiled class as outdated, so that they are compiled again against the new
+     * version of the class once they are requested.
+     *
+     * @param className the recompiled class
+     */
+    private void markDependentsOutdated(String className) {
+        for (String dependent : javaCompiler.getDependents(className)) {
+            if (!dependent.equals(className)) {
+                outdatedClasses.add(dependent);
+            }
+        }
+        // the compiler doesn't know whether the classes compiled before the activation depend on the class
+        for (String unindexed : unindexedClasses) {
+            if (!unindexed.equals(className)) {
+                outdatedClasses.add(unindexed);
+            }
+            unindexedClasses.remove(unindexed);
+        }
+    }
+
+    /**
+     * Remembers a class written by the {@link ClassLoaderWriter} before the activation, whose references are therefore not known
+     * to the {@link JavaCompiler}.
+     *
+     * @param className the loaded class
+     */
+    private void trackUnindexed(String className) {
+        if (classLoaderWriter != null && !indexedClasses.contains(className)
+                && classLoaderWriter.getLastModified(getClassPath(className)) > 0) {
+            unindexedClasses.add(className);
+        }
+    }
+
     @Activate
     @SuppressWarnings("unused")
     protected void activate() {
@@ -275,6 +369,10 @@ public class SightlyJavaCompilerService {
     }
 
     //---------------------------------- private -----------------------------------
+    private String getClassPath(String className) {
+        return "/" + className.replace('.', '/') + ".class";
+    }
+
     private String getJavaNameFromPath(String path) {
         if (path.endsWith(".java")) {
             path = path.substring(0, path.length() - 5);
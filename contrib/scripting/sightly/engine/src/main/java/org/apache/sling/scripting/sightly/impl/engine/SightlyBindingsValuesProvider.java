@@ -18,6 +18,9 @@
  ******************************************************************************/
 package org.apache.sling.scripting.sightly.impl.engine;
 
+import java.util.Collections;
+import java.util.Set;
+
 import javax.script.Bindings;
 
 import org.apache.felix.scr.annotations.Component;
@@ -28,19 +31,27 @@ import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.scripting.api.BindingsValuesProvider;
+import org.apache.sling.scripting.api.LazyBindingsValuesProvider;
 
 /**
- * Sightly specific {@code BindingsValuesProvider}.
+ * Sightly specific {@code BindingsValuesProvider}. The properties are only adapted from the resource if a script uses them.
  */
 @Component()
 @Service(BindingsValuesProvider.class)
 @Properties({
         @Property(name = "javax.script.name", value = "sightly", propertyPrivate = true)
 })
-public class SightlyBindingsValuesProvider implements BindingsValuesProvider {
+public class SightlyBindingsValuesProvider implements LazyBindingsValuesProvider {
 
     public static final String PROPERTIES = "properties";
 
+    private static final Set<String> KEYS = Collections.singleton(PROPERTIES);
+
+    @Override
+    public Set<String> getKeys() {
+        return KEYS;
+    }
+
     @Override
     public void addBindings(Bindings bindings) {
         if (!bindings.containsKey(PROPERTIES)) {
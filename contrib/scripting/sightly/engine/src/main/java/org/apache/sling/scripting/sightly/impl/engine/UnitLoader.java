@@ -21,10 +21,15 @@ package org.apache.sling.scripting.sightly.impl.engine;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -63,6 +68,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Create rendering units from resources.
+ * <p>
+ * Before generating and compiling the Java class of a template, an already compiled unit is used if its
+ * {@link RenderUnit#getSourceChecksum() checksum} matches the template. Such units are either compiled
+ * before a restart or precompiled and provided by a bundle.
  */
 @Component
 @Service(UnitLoader.class)
@@ -85,7 +94,12 @@ public class UnitLoader {
     private String mainTemplate;
     private String childTemplate;
 
-    private final Map<String, Lock> activeWrites = new HashMap<String, Lock>();
+    private final ConcurrentMap<String, Lock> activeWrites = new ConcurrentHashMap<String, Lock>();
+
+    /**
+     * The script change dates for which the compiled units were found to be current, keyed by the Java source path.
+     */
+    private final Map<String, Long> currentUnits = new ConcurrentHashMap<String, Long>();
 
     @Reference
     private SightlyCompilerService sightlyCompilerService = null;
@@ -127,17 +141,31 @@ public class UnitLoader {
             response.setCharacterEncoding(encoding);
             ResourceResolver adminResolver = renderContext.getScriptResourceResolver();
             if (needsUpdate(sourceIdentifier)) {
-                synchronized (activeWrites) {
-                    String sourceFullPath = sourceIdentifier.getSourceFullPath();
-                    lock = activeWrites.get(sourceFullPath);
-                    if (lock == null) {
-                        lock = new ReentrantLock();
-                        activeWrites.put(sourceFullPath, lock);
+                String sourceFullPath = sourceIdentifier.getSourceFullPath();
+                Lock sourceLock = activeWrites.get(sourceFullPath);
+                if (sourceLock == null) {
+                    Lock newLock = new ReentrantLock();
+                    sourceLock = activeWrites.putIfAbsent(sourceFullPath, newLock);
+                    if (sourceLock == null) {
+                        sourceLock = newLock;
+                    }
+                }
+                sourceLock.lock();
+                lock = sourceLock;
+                String scriptSource = readScript(adminResolver, sourceIdentifier, encoding);
+                String checksum = checksum(scriptSource);
+                obj = loadCompiledUnit(sourceIdentifier, checksum);
+                if (obj == null) {
+                    currentUnits.remove(sourceFullPath);
+                    Resource javaClassResource = createClass(adminResolver, sourceIdentifier, scriptSource, checksum, bindings,
+                            renderContext);
+                    obj = sightlyJavaCompilerService.compileSource(javaClassResource, sourceIdentifier.getFullyQualifiedName());
+                    if (obj instanceof RenderUnit && !checksum.equals(((RenderUnit) obj).getSourceChecksum())) {
+                        throw new SightlyException("Class " + sourceIdentifier.getFullyQualifiedName() + " does not match the template "
+                                + sourceIdentifier.getResource().getPath() + ". Another class with the same name, e.g. exported by a"
+                                + " bundle, shadows the compiled unit.");
                     }
-                    lock.lock();
                 }
-                Resource javaClassResource = createClass(adminResolver, sourceIdentifier, bindings, encoding, renderContext);
-                obj = sightlyJavaCompilerService.compileSource(javaClassResource, sourceIdentifier.getFullyQualifiedName());
             } else {
                 obj = sightlyJavaCompilerService.getInstance(adminResolver, null, sourceIdentifier.getFullyQualifiedName());
             }
@@ -212,16 +240,59 @@ public class UnitLoader {
         return new SourceIdentifier(resource, CLASS_NAME_PREFIX, basePath);
     }
 
-    private Resource createClass(ResourceResolver resolver, SourceIdentifier identifier, Bindings bindings, String encoding,
-                             RenderContextImpl renderContext) {
-        String scriptSource = null;
+    private String readScript(ResourceResolver resolver, SourceIdentifier identifier, String encoding) {
+        Resource scriptResource = resolver.getResource(identifier.getResource().getPath());
+        if (scriptResource == null) {
+            throw new SightlyException("Unable to generate Java class for template " + identifier.getResource().getPath());
+        }
         try {
-            Resource scriptResource = resolver.getResource(identifier.getResource().getPath());
-            if (scriptResource != null) {
-                scriptSource = IOUtils.toString(scriptResource.adaptTo(InputStream.class), encoding);
-                String javaSourceCode = obtainResultSource(scriptSource, identifier, bindings, renderContext);
-                return writeSource(resolver, identifier.getSourceFullPath(), javaSourceCode);
-            }
+            return IOUtils.toString(scriptResource.adaptTo(InputStream.class), encoding);
+        } catch (IOException e) {
+            throw new SightlyException(e);
+        }
+    }
+
+    /**
+     * Calculates the checksum identifying a template's compiled unit. It covers the engine version as well, since the
+     * generated code depends on it.
+     */
+    private String checksum(String scriptSource) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(sightlyEngineConfiguration.getEngineVersion().getBytes("UTF-8"));
+            digest.update(scriptSource.getBytes("UTF-8"));
+            return String.format("%040x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new SightlyException(e);
+        } catch (IOException e) {
+            throw new SightlyException(e);
+        }
+    }
+
+    /**
+     * Returns the compiled unit of the template if it was generated from the same template source.
+     *
+     * @return the unit or {@code null} if there's no current compiled unit
+     */
+    private Object loadCompiledUnit(SourceIdentifier identifier, String checksum) {
+        if (sightlyEngineConfiguration.isDevMode()) {
+            return null;
+        }
+        Object obj = sightlyJavaCompilerService.getCompiledInstance(identifier.getFullyQualifiedName());
+        if (obj instanceof RenderUnit && checksum.equals(((RenderUnit) obj).getSourceChecksum())) {
+            String slyPath = identifier.getResource().getPath();
+            currentUnits.put(identifier.getSourceFullPath(), unitChangeMonitor.getLastModifiedDateForScript(slyPath));
+            log.debug("Using compiled unit {} for template {}", identifier.getFullyQualifiedName(), slyPath);
+            return obj;
+        }
+        return null;
+    }
+
+    private Resource createClass(ResourceResolver resolver, SourceIdentifier identifier, String scriptSource, String checksum,
+                                 Bindings bindings, RenderContextImpl renderContext) {
+        try {
+            String javaSourceCode = obtainResultSource(scriptSource, checksum, identifier, bindings, renderContext);
+            return writeSource(resolver, identifier.getSourceFullPath(), javaSourceCode);
         } catch (SightlyParsingException e) {
             String offendingInput = e.getOffendingInput();
             if (StringUtils.isNotEmpty(offendingInput)) {
@@ -232,16 +303,15 @@ public class UnitLoader {
             } else {
                 throw e;
             }
-        } catch (IOException e) {
-            throw new SightlyException(e);
         }
-        throw new SightlyException("Unable to generate Java class for template " + identifier.getResource().getPath());
     }
 
-    private String obtainResultSource(String scriptSource, SourceIdentifier identifier, Bindings bindings, RenderContextImpl renderContext) {
+    private String obtainResultSource(String scriptSource, String checksum, SourceIdentifier identifier, Bindings bindings,
+                                      RenderContextImpl renderContext) {
         JavaClassTemplate classTemplate = newMainTemplate();
         classTemplate.setClassName(identifier.getClassName());
         classTemplate.setPackageName(identifier.getPackageName());
+        classTemplate.setSourceChecksum(checksum);
         CompilationOutput compilationOutput = obtainOutput(scriptSource, bindings, renderContext);
         processCompilationResult(compilationOutput, classTemplate);
         return classTemplate.toString();
@@ -312,6 +382,10 @@ public class UnitLoader {
             return true;
         }
         String slyPath = sourceIdentifier.getResource().getPath();
+        Long currentUnitDate = currentUnits.get(sourceIdentifier.getSourceFullPath());
+        if (currentUnitDate != null && currentUnitDate == unitChangeMonitor.getLastModifiedDateForScript(slyPath)) {
+            return false;
+        }
         long javaFileDate = unitChangeMonitor.getLastModifiedDateForJavaSourceFile(sourceIdentifier.getSourceFullPath());
         if (javaFileDate != 0) {
             long slyScriptChangeDate = unitChangeMonitor.getLastModifiedDateForScript(slyPath);
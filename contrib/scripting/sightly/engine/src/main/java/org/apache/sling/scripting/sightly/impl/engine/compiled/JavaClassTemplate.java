@@ -29,6 +29,7 @@ public class JavaClassTemplate {
     private static final String MAIN_BODY = "MainBody";
     private static final String CLASS_NAME = "ClassName";
     private static final String PACKAGE_NAME = "PackageName";
+    private static final String SOURCE_CHECKSUM = "SourceChecksum";
     private static final String TEMPLATE_INIT = "SubTemplateMapInit";
     private static final String NAME = "Name";
 
@@ -54,6 +55,10 @@ public class JavaClassTemplate {
         setPart(PACKAGE_NAME, name);
     }
 
+    public void setSourceChecksum(String checksum) {
+        setPart(SOURCE_CHECKSUM, checksum);
+    }
+
     @Override
     public String toString() {
         return insertPart(TEMPLATE_INIT, classTemplate, templateInitBuilder.toString());
@@ -18,6 +18,7 @@
  ******************************************************************************/
 package org.apache.sling.scripting.sightly.impl.engine.runtime;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -32,6 +33,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.script.Bindings;
 import org.apache.commons.lang.StringUtils;
@@ -56,7 +59,19 @@ public class RenderContextImpl implements RenderContext {
     public static final String STRING_COERCE = "toString";
     public static final String BOOLEAN_COERCE = "toBoolean";
 
+    /**
+     * The property accessors of all render contexts, per class. The accessors reference their class, so they are only weakly
+     * referenced: they are kept as long as a render context uses them and don't prevent the class from being unloaded.
+     */
+    private static final Map<Class<?>, WeakReference<Map<String, PropertyAccessor>>> ACCESSORS =
+            new WeakHashMap<Class<?>, WeakReference<Map<String, PropertyAccessor>>>();
+
     private final Bindings bindings;
+
+    /**
+     * The property accessors used by this render context, avoiding the synchronization on the shared accessors.
+     */
+    private final Map<Class<?>, Map<String, PropertyAccessor>> localAccessors = new HashMap<Class<?>, Map<String, PropertyAccessor>>();
     private final Map<String, RuntimeExtension> mapping;
     private final ResourceResolver scriptResourceResolver;
 
@@ -319,39 +334,61 @@ public class RenderContextImpl implements RenderContext {
     }
 
     private Object getObjectProperty(Object obj, String property) {
-        try {
-            return getObjectNoArgMethod(obj, property);
-        } catch (NoSuchMethodException nsmex) {
-            return getField(obj, property);
+        PropertyAccessor accessor = getAccessor(obj.getClass(), property);
+        if (accessor.hasMethod) {
+            return getObjectNoArgMethod(obj, accessor.method);
         }
+        return getField(obj, property, accessor.field);
     }
 
-    private Object getField(Object obj, String property) {
+    private Object getField(Object obj, String property, Field field) {
         if (obj instanceof Object[] && "length".equals(property)) {
             // Working around this limitation: http://docs.oracle.com/javase/7/docs/api/java/lang/Class.html#getFields%28%29
             return ((Object[]) obj).length;
         }
-        Class<?> cls = obj.getClass();
+        if (field == null) {
+            return null;
+        }
         try {
-            Field field = cls.getDeclaredField(property);
             return field.get(obj);
         } catch (Exception e) {
             return null;
         }
     }
 
-    private Object getObjectNoArgMethod(Object obj, String property) throws NoSuchMethodException {
-        Class<?> cls = obj.getClass();
-        Method method = findMethod(cls, property);
+    private Object getObjectNoArgMethod(Object obj, Method method) {
+        if (method == null) {
+            throw new SightlyException("No public method available on " + obj.getClass().getName());
+        }
         try {
-            method = extractMethodInheritanceChain(cls, method);
             return method.invoke(obj);
         } catch (Exception e) {
             throw new SightlyException(e);
         }
     }
 
-    private Method findMethod(Class<?> cls, String baseName) throws NoSuchMethodException {
+    private PropertyAccessor getAccessor(Class<?> cls, String property) {
+        Map<String, PropertyAccessor> accessors = localAccessors.get(cls);
+        if (accessors == null) {
+            synchronized (ACCESSORS) {
+                WeakReference<Map<String, PropertyAccessor>> reference = ACCESSORS.get(cls);
+                accessors = reference != null ? reference.get() : null;
+                if (accessors == null) {
+                    accessors = new ConcurrentHashMap<String, PropertyAccessor>();
+                    ACCESSORS.put(cls, new WeakReference<Map<String, PropertyAccessor>>(accessors));
+                }
+            }
+            localAccessors.put(cls, accessors);
+        }
+        PropertyAccessor accessor = accessors.get(property);
+        if (accessor == null) {
+            accessor = new PropertyAccessor(cls, property);
+            accessors.put(property, accessor);
+        }
+        return accessor;
+    }
+
+    private static Method findMethod(Class<?> cls, String baseName) throws NoSuchMethodException {
         Method[] publicMethods = cls.getMethods();
         String capitalized = StringUtils.capitalize(baseName);
         for (Method m : publicMethods) {
@@ -375,7 +412,7 @@ public class RenderContextImpl implements RenderContext {
         throw new NoSuchMethodException(baseName);
     }
 
-    private boolean isMethodAllowed(Method method) {
+    private static boolean isMethodAllowed(Method method) {
         Class<?> declaringClass = method.getDeclaringClass();
         //methods of the Object.class are forbidden (except toString, which is allowed)
         return declaringClass != Object.class || TO_STRING_METHOD.equals(method.getName());
@@ -460,4 +497,34 @@ public class RenderContextImpl implements RenderContext {
         }
         return null;
     }
+
+    /**
+     * The resolved way of reading a property of a class: through a no-arg method or a declared field.
+     */
+    private static final class PropertyAccessor {
+
+        private final boolean hasMethod;
+        private final Method method;
+        private final Field field;
+
+        PropertyAccessor(Class<?> cls, String property) {
+            Method found;
+            try {
+                found = findMethod(cls, property);
+            } catch (NoSuchMethodException e) {
+                found = null;
+            }
+            hasMethod = found != null;
+            method = extractMethodInheritanceChain(cls, found);
+            Field declaredField = null;
+            if (!hasMethod) {
+                try {
+                    declaredField = cls.getDeclaredField(property);
+                } catch (Exception e) {
+                    // no such field
+                }
+            }
+            field = declaredField;
+        }
+    }
 }
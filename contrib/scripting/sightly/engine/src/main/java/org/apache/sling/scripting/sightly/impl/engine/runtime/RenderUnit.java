@@ -62,6 +62,15 @@ public abstract class RenderUnit implements Record<RenderUnit> {
         return subTemplates.keySet();
     }
 
+    /**
+     * Returns the checksum of the template this unit was generated from.
+     *
+     * @return the checksum or {@code null} if it's not known
+     */
+    public String getSourceChecksum() {
+        return null;
+    }
+
     protected abstract void render(PrintWriter writer,
                                    Bindings bindings,
                                    Bindings arguments,
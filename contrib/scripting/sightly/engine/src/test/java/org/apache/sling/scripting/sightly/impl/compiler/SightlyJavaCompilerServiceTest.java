@@ -19,26 +19,34 @@
 package org.apache.sling.scripting.sightly.impl.compiler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.classloader.ClassLoaderWriter;
 import org.apache.sling.commons.compiler.CompilationResult;
 import org.apache.sling.commons.compiler.CompilerMessage;
+import org.apache.sling.commons.compiler.JavaCompiler;
 import org.apache.sling.commons.compiler.Options;
 import org.apache.sling.jcr.compiler.JcrJavaCompiler;
 import org.apache.sling.scripting.sightly.impl.engine.UnitChangeMonitor;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.powermock.reflect.Whitebox;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,12 +54,16 @@ public class SightlyJavaCompilerServiceTest {
 
     private SightlyJavaCompilerService compiler;
     private UnitChangeMonitor ucm;
+    private JavaCompiler javaCompiler;
 
     @Before
     public void setUp() throws Exception {
         compiler = new SightlyJavaCompilerService();
         ucm = spy(new UnitChangeMonitor());
+        javaCompiler = Mockito.mock(JavaCompiler.class);
         Whitebox.setInternalState(compiler, "unitChangeMonitor", ucm);
+        Whitebox.setInternalState(compiler, "javaCompiler", javaCompiler);
+        Whitebox.setInternalState(compiler, "options", new Options());
     }
 
     @After
@@ -93,6 +105,121 @@ public class SightlyJavaCompilerServiceTest {
         verify(ucm).clearJavaUseObject(pojoPath);
     }
 
+    @Test
+    public void testGetCompiledInstance() throws Exception {
+        ClassLoaderWriter classLoaderWriter = Mockito.mock(ClassLoaderWriter.class);
+        when(classLoaderWriter.getClassLoader()).thenReturn(getClass().getClassLoader());
+        when(classLoaderWriter.getLastModified(Mockito.anyString())).thenReturn(-1L);
+        when(classLoaderWriter.getLastModified("/" + MockPojo.class.getName().replace('.', '/') + ".class"))
+                .thenReturn(System.currentTimeMillis());
+        Whitebox.setInternalState(compiler, "classLoaderWriter", classLoaderWriter);
+
+        assertTrue(compiler.getCompiledInstance(MockPojo.class.getName()) instanceof MockPojo);
+        assertNull(compiler.getCompiledInstance("apps.myproject.testcomponents.a.Missing"));
+        // classes which were not written by the class loader writer, e.g. provided by a bundle, are not used
+        assertNull(compiler.getCompiledInstance(SightlyJavaCompilerServiceTest.class.getName()));
+    }
+
+    @Test
+    /**
+     * Tests that the classes depending on a recompiled POJO are compiled again on their next use.
+     */
+    public void testGetInstanceRecompilesDependents() throws Exception {
+        final String pojoPath = "/apps/myproject/testcomponents/a/Pojo.java";
+        final String pojoClassName = "apps.myproject.testcomponents.a.Pojo";
+        final String userPath = "/apps/myproject/testcomponents/b/User.java";
+        final String userClassName = "apps.myproject.testcomponents.b.User";
+        ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
+        Resource pojoResource = Mockito.mock(Resource.class);
+        when(pojoResource.getPath()).thenReturn(pojoPath);
+        Resource userResource = Mockito.mock(Resource.class);
+        when(userResource.getPath()).thenReturn(userPath);
+        when(resolver.getResource(pojoPath)).thenReturn(pojoResource);
+        when(resolver.getResource(userPath)).thenReturn(userResource);
+        JcrJavaCompiler jcrJavaCompiler = Mockito.mock(JcrJavaCompiler.class);
+        CompilationResult compilationResult = Mockito.mock(CompilationResult.class);
+        when(compilationResult.getErrors()).thenReturn(new ArrayList<CompilerMessage>());
+        when(compilationResult.didCompile()).thenReturn(true);
+        when(compilationResult.loadCompiledClass(Mockito.anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return MockPojo.class;
+            }
+        });
+        when(jcrJavaCompiler.compile(Mockito.any(String[].class), Mockito.any(Options.class))).thenReturn(compilationResult);
+        when(javaCompiler.getDependents(pojoClassName)).thenReturn(new HashSet<String>(Arrays.asList(pojoClassName, userClassName)));
+        Whitebox.setInternalState(compiler, "jcrJavaCompiler", jcrJavaCompiler);
+        Map<String, Long> slyJavaUseMap = new ConcurrentHashMap<String, Long>();
+        slyJavaUseMap.put(pojoPath, System.currentTimeMillis());
+        Whitebox.setInternalState(ucm, "slyJavaUseMap", slyJavaUseMap);
+
+        // the changed POJO is recompiled, the class using it is marked as outdated
+        assertTrue(compiler.getInstance(resolver, null, pojoClassName) instanceof MockPojo);
+        // the outdated class is compiled again although its source did not change
+        assertTrue(compiler.getInstance(resolver, null, userClassName) instanceof MockPojo);
+
+        ArgumentCaptor<String[]> paths = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<Options> options = ArgumentCaptor.forClass(Options.class);
+        verify(jcrJavaCompiler, times(2)).compile(paths.capture(), options.capture());
+        assertEquals(userPath, paths.getAllValues().get(1)[0]);
+        assertNull(options.getAllValues().get(0).get(Options.KEY_FORCE_COMPILATION));
+        assertEquals(Boolean.TRUE, options.getAllValues().get(1).get(Options.KEY_FORCE_COMPILATION));
+    }
+
+    @Test
+    /**
+     * Tests that classes compiled before the activation are compiled again once a POJO is recompiled, as the compiler doesn't know
+     * whether they depend on it.
+     */
+    public void testGetInstanceRecompilesClassesCompiledBeforeActivation() throws Exception {
+        final String pojoPath = "/apps/myproject/testcomponents/a/Pojo.java";
+        final String pojoClassName = "apps.myproject.testcomponents.a.Pojo";
+        final String userClassName = MockPojo.class.getName();
+        final String userPath = "/" + userClassName.replace('.', '/') + ".java";
+        ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
+        Resource pojoResource = Mockito.mock(Resource.class);
+        when(pojoResource.getPath()).thenReturn(pojoPath);
+        Resource userResource = Mockito.mock(Resource.class);
+        when(userResource.getPath()).thenReturn(userPath);
+        when(resolver.getResource(pojoPath)).thenReturn(pojoResource);
+        when(resolver.getResource(userPath)).thenReturn(userResource);
+        ClassLoaderWriter classLoaderWriter = Mockito.mock(ClassLoaderWriter.class);
+        when(classLoaderWriter.getClassLoader()).thenReturn(getClass().getClassLoader());
+        when(classLoaderWriter.getLastModified(Mockito.anyString())).thenReturn(System.currentTimeMillis());
+        Whitebox.setInternalState(compiler, "classLoaderWriter", classLoaderWriter);
+        JcrJavaCompiler jcrJavaCompiler = Mockito.mock(JcrJavaCompiler.class);
+        CompilationResult compilationResult = Mockito.mock(CompilationResult.class);
+        when(compilationResult.getErrors()).thenReturn(new ArrayList<CompilerMessage>());
+        when(compilationResult.didCompile()).thenReturn(true);
+        when(compilationResult.loadCompiledClass(Mockito.anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return MockPojo.class;
+            }
+        });
+        when(jcrJavaCompiler.compile(Mockito.any(String[].class), Mockito.any(Options.class))).thenReturn(compilationResult);
+        // the compiler has not compiled the class using the POJO since the activation
+        when(javaCompiler.getDependents(pojoClassName)).thenReturn(new HashSet<String>());
+        Whitebox.setInternalState(compiler, "jcrJavaCompiler", jcrJavaCompiler);
+
+        // the class compiled before the activation is loaded without compiling it
+        assertTrue(compiler.getInstance(resolver, null, userClassName) instanceof MockPojo);
+        verify(jcrJavaCompiler, times(0)).compile(Mockito.any(String[].class), Mockito.any(Options.class));
+
+        Map<String, Long> slyJavaUseMap = new ConcurrentHashMap<String, Long>();
+        slyJavaUseMap.put(pojoPath, System.currentTimeMillis());
+        Whitebox.setInternalState(ucm, "slyJavaUseMap", slyJavaUseMap);
+        assertTrue(compiler.getInstance(resolver, null, pojoClassName) instanceof MockPojo);
+        assertNull(compiler.getCompiledInstance(userClassName));
+        assertTrue(compiler.getInstance(resolver, null, userClassName) instanceof MockPojo);
+
+        ArgumentCaptor<String[]> paths = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<Options> options = ArgumentCaptor.forClass(Options.class);
+        verify(jcrJavaCompiler, times(2)).compile(paths.capture(), options.capture());
+        assertEquals(userPath, paths.getAllValues().get(1)[0]);
+        assertEquals(Boolean.TRUE, options.getAllValues().get(1).get(Options.KEY_FORCE_COMPILATION));
+    }
+
     private void getInstancePojoTest(String pojoPath, String className) throws Exception {
         Resource pojoResource = Mockito.mock(Resource.class);
         ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
@@ -18,6 +18,9 @@
  ******************************************************************************/
 package org.apache.sling.scripting.sightly.impl.engine.runtime;
 
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -72,4 +75,66 @@ public class RenderContextImplTest {
         Collection numberCollection = renderContext.toCollection(numberObject);
         assertTrue(numberCollection.size() == 1 && numberCollection.contains(numberObject));
     }
+
+    @Test
+    public void testResolveProperty() {
+        TestBean bean = new TestBean();
+        for (int i = 0; i < 2; i++) {
+            assertEquals("title", renderContext.resolveProperty(bean, "title"));
+            assertEquals(true, renderContext.resolveProperty(bean, "visible"));
+            assertEquals("plain", renderContext.resolveProperty(bean, "plain"));
+            assertEquals("field", renderContext.resolveProperty(bean, "field"));
+            assertNull(renderContext.resolveProperty(bean, "missing"));
+            assertNull(renderContext.resolveProperty(bean, "class"));
+        }
+        assertEquals(2, renderContext.resolveProperty(new Object[] {bean, bean}, "length"));
+    }
+
+    @Test
+    public void testResolvePropertyOfSubclass() {
+        TestBean bean = new TestBean();
+        assertEquals("title", renderContext.resolveProperty(bean, "title"));
+        assertEquals("subtitle", renderContext.resolveProperty(new TestBean() {
+            @Override
+            public String getTitle() {
+                return "subtitle";
+            }
+        }, "title"));
+    }
+
+    @Test
+    public void testResolvePropertyDoesNotPreventClassUnloading() throws Exception {
+        URL classes = TestBean.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new URLClassLoader(new URL[] {classes}, null);
+        Object bean = loader.loadClass(TestBean.class.getName()).newInstance();
+        RenderContextImpl context = new RenderContextImpl(new SimpleBindings(), new HashMap<String, RuntimeExtension>(), resolver);
+        assertEquals("title", context.resolveProperty(bean, "title"));
+
+        WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>(loader);
+        loader = null;
+        bean = null;
+        context = null;
+        for (int i = 0; i < 10 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("The cached accessors must not keep the class loaded.", reference.get());
+    }
+
+    public static class TestBean {
+
+        public final String field = "field";
+
+        public String getTitle() {
+            return "title";
+        }
+
+        public boolean isVisible() {
+            return true;
+        }
+
+        public String plain() {
+            return "plain";
+        }
+    }
 }